@@ -23,6 +23,23 @@ repositories {
 	mavenCentral()
 }
 
+// JMH-бенчмарки: src/jmh/java, запуск - gradle jmh (-PjmhArgs="<регулярное выражение> <параметры JMH>")
+sourceSets {
+	create("jmh") {
+		compileClasspath += sourceSets.main.get().output
+		runtimeClasspath += sourceSets.main.get().output
+	}
+}
+
+configurations {
+	named("jmhImplementation") {
+		extendsFrom(configurations.implementation.get())
+	}
+	named("jmhRuntimeOnly") {
+		extendsFrom(configurations.runtimeOnly.get())
+	}
+}
+
 dependencies {
 	implementation(libs.spring.boot.starter.actuator)
 	implementation(libs.spring.boot.starter.data.elasticsearch)
@@ -34,7 +51,11 @@ dependencies {
 
 	implementation(libs.spring.cloud.starter.netflix.eureka)
 
+	implementation(libs.reactor.core)
+	implementation(libs.caffeine)
+
 	implementation(libs.micrometer.prometheus)
+	implementation(libs.micrometer.java21)
 	implementation(libs.logstash.logback.encoder)
 
 	compileOnly(libs.lombok)
@@ -48,6 +69,9 @@ dependencies {
 
 	testImplementation(libs.spring.boot.starter.test)
 	testRuntimeOnly(libs.junit.platform.launcher)
+
+	"jmhImplementation"(libs.jmh.core)
+	"jmhAnnotationProcessor"(libs.jmh.generator.annprocess)
 }
 
 dependencyManagement {
@@ -59,3 +83,20 @@ dependencyManagement {
 tasks.withType<Test> {
 	useJUnitPlatform()
 }
+
+// Бенчмарки компилируются при каждой сборке, чтобы не отставать от кода
+tasks.named("check") {
+	dependsOn("jmhClasses")
+}
+
+tasks.register<JavaExec>("jmh") {
+	description = "Запускает JMH-бенчмарки"
+	group = "verification"
+	classpath = sourceSets["jmh"].runtimeClasspath
+	mainClass = "org.openjdk.jmh.Main"
+	args((findProperty("jmhArgs") as String?)?.split(" ")?.filter { it.isNotBlank() } ?: listOf<String>())
+}
+
+tasks.named<org.springframework.boot.gradle.tasks.run.BootRun>("bootRun") {
+	jvmArgs("--add-opens=java.base/java.lang=ALL-UNNAMED")
+}
@@ -0,0 +1,96 @@
+package com.neighbor.eventmosaic.api.config;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пропускная способность обработки запросов при фиксированной задержке Elasticsearch:
+ * пул потоков платформы размера пула Tomcat по умолчанию против виртуального потока на запрос.
+ * Запрос - немного работы процессора и блокирующее ожидание ответа latencyMillis (как чтение сокета,
+ * sleep освобождает поток-носитель виртуального потока). Одна операция - пачка из BURST одновременных
+ * запросов, результат - запросы в секунду.
+ * Запуск: gradle jmh -PjmhArgs="VirtualThreadThroughputBenchmark"
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class VirtualThreadThroughputBenchmark {
+
+    /**
+     * Количество одновременных запросов в пачке.
+     */
+    private static final int BURST = 2000;
+
+    /**
+     * Размер пула потоков платформы: server.tomcat.threads.max по умолчанию.
+     */
+    private static final int PLATFORM_THREADS = 200;
+
+    @Param({"platform", "virtual"})
+    private String threads;
+
+    @Param({"5", "20"})
+    private long latencyMillis;
+
+    @Param({"1000"})
+    private long cpuTokens;
+
+    private ExecutorService executor;
+
+    @Setup
+    public void setUp() {
+        executor = "virtual".equals(threads)
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(PLATFORM_THREADS);
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BURST)
+    public void burst() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(BURST);
+        for (int i = 0; i < BURST; i++) {
+            executor.execute(() -> {
+                try {
+                    handleRequest();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+    }
+
+    private void handleRequest() {
+        Blackhole.consumeCPU(cpuTokens);
+        try {
+            Thread.sleep(latencyMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.neighbor.eventmosaic.api.service.impl;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Выборка точек по области и диапазону ключа: полный проход по колонкам примитивов (так хранилище окна
+ * выбирало события до R-tree) против запроса {@link PackedHilbertRTree}.
+ * Точки и ключи (даты за сутки) распределены равномерно, запросы - случайные квадраты со стороной
+ * boxDegrees и половина суток; обе реализации возвращают количество найденных точек.
+ * Запуск: gradle jmh -PjmhArgs="PackedHilbertRTreeBenchmark"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class PackedHilbertRTreeBenchmark {
+
+    private static final int QUERY_COUNT = 64;
+    private static final long KEY_RANGE = TimeUnit.DAYS.toMillis(1);
+
+    @Param({"10000", "1000000", "10000000"})
+    private int size;
+
+    @Param({"5", "30"})
+    private double boxDegrees;
+
+    private double[] lats;
+    private double[] lons;
+    private long[] keys;
+    private PackedHilbertRTree tree;
+    private double[][] boxes;
+    private long[] minKeys;
+    private long[] maxKeys;
+    private int nextQuery;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(size);
+        double[] rawLats = new double[size];
+        double[] rawLons = new double[size];
+        long[] rawKeys = new long[size];
+        for (int i = 0; i < size; i++) {
+            rawLats[i] = random.nextDouble() * 170 - 85;
+            rawLons[i] = random.nextDouble() * 360 - 180;
+            rawKeys[i] = (long) (random.nextDouble() * KEY_RANGE);
+        }
+
+        int[] order = PackedHilbertRTree.hilbertOrder(rawLats, rawLons, size);
+        lats = new double[size];
+        lons = new double[size];
+        keys = new long[size];
+        for (int i = 0; i < size; i++) {
+            lats[i] = rawLats[order[i]];
+            lons[i] = rawLons[order[i]];
+            keys[i] = rawKeys[order[i]];
+        }
+        tree = new PackedHilbertRTree(lats, lons, keys, size);
+
+        boxes = new double[QUERY_COUNT][];
+        minKeys = new long[QUERY_COUNT];
+        maxKeys = new long[QUERY_COUNT];
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            double minLat = random.nextDouble() * (170 - boxDegrees) - 85;
+            double minLon = random.nextDouble() * (360 - boxDegrees) - 180;
+            boxes[i] = new double[]{minLat, minLon, minLat + boxDegrees, minLon + boxDegrees};
+            minKeys[i] = (long) (random.nextDouble() * KEY_RANGE / 2);
+            maxKeys[i] = minKeys[i] + KEY_RANGE / 2;
+        }
+    }
+
+    @Benchmark
+    public int scan() {
+        int query = nextQuery();
+        double[] bbox = boxes[query];
+        long minKey = minKeys[query];
+        long maxKey = maxKeys[query];
+
+        int found = 0;
+        for (int row = 0; row < size; row++) {
+            if (keys[row] >= minKey && keys[row] <= maxKey
+                    && lats[row] >= bbox[0] && lats[row] <= bbox[2]
+                    && lons[row] >= bbox[1] && lons[row] <= bbox[3]) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    @Benchmark
+    public int index() {
+        int query = nextQuery();
+        PackedHilbertRTree.Query rows = tree.query(boxes[query], minKeys[query], maxKeys[query]);
+
+        int found = 0;
+        while (rows.nextRow() >= 0) {
+            found++;
+        }
+        return found;
+    }
+
+    private int nextQuery() {
+        int query = nextQuery;
+        nextQuery = (query + 1) % QUERY_COUNT;
+        return query;
+    }
+}
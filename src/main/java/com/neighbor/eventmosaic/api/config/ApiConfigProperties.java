@@ -2,6 +2,7 @@ package com.neighbor.eventmosaic.api.config;
 
 import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Pattern;
 import lombok.Getter;
 import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
@@ -56,6 +57,26 @@ public class ApiConfigProperties {
     @Max(10000)
     private int maxIndividualEventsPerRequest = 500;
 
+    /**
+     * Оставлять при обрезке до maxIndividualEventsPerRequest самые важные события
+     * (больше упоминаний, затем больше статей), а не первые найденные.
+     */
+    private boolean rankMapEventsByImportance = true;
+
+    /**
+     * Если событий в области больше maxIndividualEventsPerRequest, прореживать их равномерно по области:
+     * область делится сеткой, зависящей от zoom, и в каждой ячейке остаются самые важные события.
+     */
+    private boolean spatialDownsamplingEnabled = true;
+
+    /**
+     * Минимальное количество событий, оставляемых в одной ячейке сетки при прореживании.
+     * Если ячеек в области мало (тайл векторной карты), в каждой остается больше, чтобы заполнить лимит.
+     */
+    @Min(1)
+    @Max(100)
+    private int downsamplingEventsPerCell = 2;
+
     /**
      * Precision по умолчанию для geotile_grid агрегации.
      */
@@ -69,4 +90,237 @@ public class ApiConfigProperties {
     @Min(5)
     @Max(29)
     private int maxGeotilePrecision = 18;
+
+    /**
+     * Интервал обновления кеша существующих ежедневных индексов (в секундах).
+     */
+    @Min(10)
+    private int indexCacheRefreshSeconds = 300;
+
+    /**
+     * Время кеширования векторных тайлов клиентами и прокси (в секундах), заголовок Cache-Control.
+     */
+    @Min(0)
+    private int tileMaxAgeSeconds = 60;
+
+    /**
+     * Максимальный суммарный размер закешированных ответов карты (в мегабайтах).
+     */
+    @Min(1)
+    private int mapResponseCacheMaxMegabytes = 64;
+
+    /**
+     * Время жизни закешированных ответов карты, затрагивающих текущие сутки (в секундах).
+     * Ответы за закрытые дни хранятся до вытеснения.
+     */
+    @Min(1)
+    private int mapResponseCacheOpenRangeTtlSeconds = 60;
+
+    /**
+     * Интервал выравнивания окна по умолчанию (в минутах).
+     * Конец окна округляется вверх до границы интервала, отсчитанной от полуночи UTC, например
+     * 15 - цикл обновления GDELT, 60 - час.
+     */
+    @Min(1)
+    @Max(1440)
+    private int defaultWindowAlignmentMinutes = 15;
+
+    /**
+     * Интервал сбора статистики request cache Elasticsearch для метрик (в секундах).
+     */
+    @Min(10)
+    private int requestCacheStatsRefreshSeconds = 60;
+
+    /**
+     * Максимальный суммарный размер закешированных деталей событий (в мегабайтах, оценка).
+     */
+    @Min(1)
+    private int eventDetailsCacheMaxMegabytes = 32;
+
+    /**
+     * Время жизни закешированных деталей события, пока окно поиска упоминаний не закрыто (в секундах).
+     */
+    @Min(1)
+    private int eventDetailsCacheOpenWindowTtlSeconds = 60;
+
+    /**
+     * Размер страницы упоминаний по умолчанию, в том числе первой страницы в деталях события.
+     */
+    @Min(1)
+    @Max(1000)
+    private int defaultMentionsPageSize = 50;
+
+    /**
+     * Максимальный размер страницы упоминаний, который может запросить клиент.
+     */
+    @Min(1)
+    @Max(1000)
+    private int maxMentionsPageSize = 500;
+
+    /**
+     * Упоминания индексируются с routing = globalEventId: тогда поиск упоминаний события
+     * идет в один шард каждого ежедневного индекса. Включать только при такой схеме индексации,
+     * иначе упоминания в других шардах не будут найдены.
+     */
+    private boolean mentionRoutingByEventId = false;
+
+    /**
+     * Максимальное количество идентификаторов событий в одном пакетном запросе деталей.
+     */
+    @Min(1)
+    @Max(1000)
+    private int maxBatchEventIds = 100;
+
+    /**
+     * Максимальное количество HTTP-соединений с Elasticsearch (всего и на один узел).
+     * В режиме виртуальных потоков параллельных запросов больше, чем потоков Tomcat,
+     * и пул соединений клиента по умолчанию (30 всего, 10 на узел) становится узким местом.
+     */
+    @Min(1)
+    private int elasticsearchMaxConnections = 200;
+
+    /**
+     * Минимальная длительность закрепления (pinning) виртуального потока, о которой пишется
+     * предупреждение со стеком вызовов (в миллисекундах). 0 - не логировать.
+     */
+    @Min(0)
+    private int pinnedThreadLogThresholdMillis = 20;
+
+    /**
+     * Публиковать метрики пула потоков-носителей виртуальных потоков (jvm.threads.virtual.carrier.*).
+     * JDK не публикует этот пул, он читается из закрытого поля VirtualThread.DEFAULT_SCHEDULER,
+     * поэтому метрики включаются явно и требуют --add-opens java.base/java.lang=ALL-UNNAMED.
+     */
+    private boolean carrierPoolMetricsEnabled = false;
+
+    /**
+     * Максимальное количество событий в потоковом ответе карты.
+     */
+    @Min(1)
+    private int maxStreamedEventsPerRequest = 100000;
+
+    /**
+     * Размер страницы, которой события читаются из Elasticsearch в потоковом ответе карты.
+     */
+    @Min(1)
+    @Max(10000)
+    private int streamBatchSize = 1000;
+
+    /**
+     * Размер страницы сплошного чтения событий (point-in-time + search_after).
+     */
+    @Min(1)
+    @Max(10000)
+    private int scanPageSize = 1000;
+
+    /**
+     * Максимальное количество страниц сплошного чтения за один запрос.
+     */
+    @Min(1)
+    @Max(1000)
+    private int scanMaxPagesPerRequest = 10;
+
+    /**
+     * Бюджет времени одного запроса сплошного чтения (в миллисекундах).
+     * Новая страница не запрашивается после его исчерпания, клиент получает курсор продолжения.
+     */
+    @Min(100)
+    private int scanTimeBudgetMillis = 5000;
+
+    /**
+     * Время жизни point-in-time между запросами сплошного чтения (в секундах).
+     */
+    @Min(10)
+    @Max(3600)
+    private int scanKeepAliveSeconds = 300;
+
+    /**
+     * Интервал гистограммы событий по умолчанию.
+     */
+    @Pattern(regexp = "15m|1h|3h|6h|12h|1d")
+    private String defaultHistogramInterval = "1h";
+
+    /**
+     * Максимальное количество корзин гистограммы в одном запросе.
+     */
+    @Min(1)
+    @Max(10000)
+    private int maxHistogramBuckets = 2000;
+
+    /**
+     * Максимальное количество закешированных корзин гистограммы за закрытые интервалы.
+     */
+    @Min(1)
+    private int histogramCacheMaxBuckets = 200000;
+
+    /**
+     * Хранить события окна по умолчанию (defaultEventWindowHours) в памяти и отвечать на запросы карты
+     * внутри окна без обращения к Elasticsearch.
+     */
+    private boolean hotStoreEnabled = false;
+
+    /**
+     * Интервал догрузки новых событий в хранилище окна по умолчанию (в секундах).
+     */
+    @Min(10)
+    private int hotStoreRefreshSeconds = 60;
+
+    /**
+     * Интервал полной перезагрузки хранилища окна по умолчанию (в минутах).
+     * Полная загрузка подхватывает исправленные и удаленные события, которые догрузка не видит.
+     */
+    @Min(1)
+    private int hotStoreFullReloadMinutes = 360;
+
+    /**
+     * Время оседания пачки GDELT в хранилище окна по умолчанию (в секундах).
+     * Всей пачке проставляется один dateAdded, а ее события индексируются постепенно, поэтому догрузка
+     * перечитывает последнюю пачку и пачки моложе этого времени и отбрасывает уже загруженные события.
+     */
+    @Min(0)
+    private int hotStoreBatchSettleSeconds = 1800;
+
+    /**
+     * Максимальное количество событий в хранилище окна по умолчанию.
+     * Если в окне событий больше, хранилище не загружается и запросы выполняются в Elasticsearch.
+     */
+    @Min(1)
+    private int hotStoreMaxEvents = 2000000;
+
+    /**
+     * Строить по событиям окна по умолчанию пирамиду кластеров для всех уровней от 0 до maxGeotilePrecision.
+     * Кластеры окна по умолчанию тогда берутся из готового уровня пирамиды, а не группируются на каждый запрос.
+     */
+    private boolean hotStoreClusterPyramidEnabled = true;
+
+    /**
+     * Разбивать многодневные диапазоны карты на суточные части (UTC) и сливать их результаты.
+     * Части за закрытые дни берутся из кеша, недостающие запрашиваются параллельно, поэтому
+     * сдвиг диапазона на день стоит одного дня работы Elasticsearch.
+     */
+    private boolean mapPartialsEnabled = true;
+
+    /**
+     * Максимальное количество суточных частей диапазона карты.
+     * Более длинные диапазоны запрашиваются одним запросом.
+     */
+    @Min(2)
+    @Max(366)
+    private int maxMapPartials = 31;
+
+    /**
+     * Максимальное количество кластеров суточной части диапазона карты.
+     * Кластеры частей сливаются по ячейкам и только потом обрезаются до maxClustersPerRequest, поэтому
+     * часть запрашивает все ячейки области на своем precision, но не больше этого предела
+     * (размер geotile_grid не может превышать search.max_buckets Elasticsearch).
+     */
+    @Min(10)
+    @Max(65535)
+    private int maxClustersPerPartial = 20000;
+
+    /**
+     * Максимальный суммарный размер закешированных суточных частей карты (в мегабайтах, оценка).
+     */
+    @Min(1)
+    private int mapPartialCacheMaxMegabytes = 64;
 } 
\ No newline at end of file
@@ -0,0 +1,225 @@
+package com.neighbor.eventmosaic.api.config;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.neighbor.eventmosaic.api.dto.MapCacheKey;
+import com.neighbor.eventmosaic.api.dto.MapPartial;
+import com.neighbor.eventmosaic.api.dto.MapPartialKey;
+import com.neighbor.eventmosaic.api.dto.details.EventDetailsResponse;
+import com.neighbor.eventmosaic.api.dto.details.MentionSummary;
+import com.neighbor.eventmosaic.api.dto.histogram.HistogramBucket;
+import com.neighbor.eventmosaic.api.dto.histogram.HistogramBucketKey;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Конфигурация in-process кешей API.
+ * Кеши ограничены суммарным размером значений в байтах, вытеснение - W-TinyLFU (Caffeine).
+ * Статистика попаданий и промахов публикуется в метриках cache.* с тегом cache.
+ */
+@Configuration
+public class CacheConfig {
+
+    public static final String MAP_RESPONSE_CACHE = "mapResponses";
+    public static final String EVENT_DETAILS_CACHE = "eventDetails";
+    public static final String HISTOGRAM_BUCKET_CACHE = "histogramBuckets";
+    public static final String MAP_PARTIAL_CACHE = "mapPartials";
+
+    /**
+     * Примерный размер ключа и служебных структур записи в байтах.
+     */
+    private static final int ENTRY_OVERHEAD_BYTES = 128;
+
+    /**
+     * Примерный размер объекта ответа с деталями события без строк и упоминаний в байтах.
+     */
+    private static final int DETAILS_OVERHEAD_BYTES = 512;
+
+    /**
+     * Примерный размер одного упоминания без строк в байтах.
+     */
+    private static final int MENTION_OVERHEAD_BYTES = 160;
+
+    /**
+     * Примерный размер служебных полей строки в байтах.
+     */
+    private static final int STRING_OVERHEAD_BYTES = 48;
+
+    /**
+     * Примерный размер одного кластера в байтах.
+     */
+    private static final int CLUSTER_OVERHEAD_BYTES = 96;
+
+    /**
+     * Примерный размер проекции события для карты (с точками и датой) в байтах.
+     */
+    private static final int MAP_EVENT_OVERHEAD_BYTES = 320;
+
+    /**
+     * Кеш сериализованных ответов карты.
+     * Диапазон, закончившийся до начала текущих суток (UTC), больше не меняется, поэтому такие записи
+     * не истекают; ответы, затрагивающие текущие сутки, живут mapResponseCacheOpenRangeTtlSeconds.
+     */
+    @Bean
+    public Cache<MapCacheKey, byte[]> mapResponseCache(ApiConfigProperties apiConfigProperties,
+                                                       MeterRegistry meterRegistry) {
+        long openRangeTtlNanos = TimeUnit.SECONDS.toNanos(apiConfigProperties.getMapResponseCacheOpenRangeTtlSeconds());
+
+        Cache<MapCacheKey, byte[]> cache = Caffeine.newBuilder()
+                .maximumWeight(apiConfigProperties.getMapResponseCacheMaxMegabytes() * 1024L * 1024L)
+                .<MapCacheKey, byte[]>weigher((key, response) -> response.length + ENTRY_OVERHEAD_BYTES)
+                .expireAfter(new Expiry<MapCacheKey, byte[]>() {
+                    @Override
+                    public long expireAfterCreate(MapCacheKey key, byte[] response, long currentTime) {
+                        return isClosedRange(key) ? Long.MAX_VALUE : openRangeTtlNanos;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(MapCacheKey key, byte[] response,
+                                                  long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, response, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(MapCacheKey key, byte[] response,
+                                                long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+
+        return CaffeineCacheMetrics.monitor(meterRegistry, cache, MAP_RESPONSE_CACHE);
+    }
+
+    /**
+     * Кеш ответов с деталями событий по globalEventId.
+     * Упоминания ищутся в окне [eventDate, eventDate + mentionSearchDaysRange], поэтому после закрытия окна
+     * ответ больше не меняется и запись не истекает; пока окно открыто, запись живет
+     * eventDetailsCacheOpenWindowTtlSeconds. Вес записи - оценка занимаемой памяти.
+     * Кеш асинхронный: загрузка блокирует поток на запросах к Elasticsearch, а синхронный
+     * Cache.get(key, loader) выполняет ее внутри блокировки ConcurrentHashMap.compute, что закрепляет
+     * (pinning) виртуальный поток за потоком-носителем. Здесь под блокировкой только создается future.
+     */
+    @Bean
+    public AsyncCache<Long, EventDetailsResponse> eventDetailsCache(ApiConfigProperties apiConfigProperties,
+                                                               MeterRegistry meterRegistry) {
+        long openWindowTtlNanos = TimeUnit.SECONDS.toNanos(apiConfigProperties.getEventDetailsCacheOpenWindowTtlSeconds());
+
+        AsyncCache<Long, EventDetailsResponse> cache = Caffeine.newBuilder()
+                .maximumWeight(apiConfigProperties.getEventDetailsCacheMaxMegabytes() * 1024L * 1024L)
+                .<Long, EventDetailsResponse>weigher((eventId, details) -> estimateWeight(details))
+                .expireAfter(new Expiry<Long, EventDetailsResponse>() {
+                    @Override
+                    public long expireAfterCreate(Long eventId, EventDetailsResponse details, long currentTime) {
+                        return isClosedMentionWindow(details, apiConfigProperties.getMentionSearchDaysRange())
+                                ? Long.MAX_VALUE
+                                : openWindowTtlNanos;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(Long eventId, EventDetailsResponse details,
+                                                  long currentTime, long currentDuration) {
+                        return expireAfterCreate(eventId, details, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(Long eventId, EventDetailsResponse details,
+                                                long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .buildAsync();
+
+        return CaffeineCacheMetrics.monitor(meterRegistry, cache, EVENT_DETAILS_CACHE);
+    }
+
+    /**
+     * Кеш корзин гистограммы событий.
+     * В кеш попадают только корзины закрытых интервалов, они не меняются, поэтому записи не истекают;
+     * записи одного размера, поэтому кеш ограничен количеством.
+     */
+    @Bean
+    public Cache<HistogramBucketKey, HistogramBucket> histogramBucketCache(ApiConfigProperties apiConfigProperties,
+                                                                           MeterRegistry meterRegistry) {
+        Cache<HistogramBucketKey, HistogramBucket> cache = Caffeine.newBuilder()
+                .maximumSize(apiConfigProperties.getHistogramCacheMaxBuckets())
+                .recordStats()
+                .build();
+
+        return CaffeineCacheMetrics.monitor(meterRegistry, cache, HISTOGRAM_BUCKET_CACHE);
+    }
+
+    /**
+     * Кеш суточных частей результатов карты.
+     * В кеш попадают только части закрытых дней, они не меняются, поэтому записи не истекают.
+     * Вес записи - оценка занимаемой памяти.
+     */
+    @Bean
+    public Cache<MapPartialKey, MapPartial> mapPartialCache(ApiConfigProperties apiConfigProperties,
+                                                            MeterRegistry meterRegistry) {
+        Cache<MapPartialKey, MapPartial> cache = Caffeine.newBuilder()
+                .maximumWeight(apiConfigProperties.getMapPartialCacheMaxMegabytes() * 1024L * 1024L)
+                .<MapPartialKey, MapPartial>weigher((key, partial) -> estimateWeight(partial))
+                .recordStats()
+                .build();
+
+        return CaffeineCacheMetrics.monitor(meterRegistry, cache, MAP_PARTIAL_CACHE);
+    }
+
+    private static boolean isClosedRange(MapCacheKey key) {
+        long startOfToday = LocalDate.now(ZoneOffset.UTC).atStartOfDay().toInstant(ZoneOffset.UTC).toEpochMilli();
+        return key.endEpochMillis() <= startOfToday;
+    }
+
+    private static boolean isClosedMentionWindow(EventDetailsResponse details, int mentionSearchDaysRange) {
+        return details.getEventDate() != null
+                && details.getEventDate().plusDays(mentionSearchDaysRange).isBefore(OffsetDateTime.now());
+    }
+
+    /**
+     * Оценивает объем памяти, занимаемый ответом с деталями события.
+     */
+    private static int estimateWeight(EventDetailsResponse details) {
+        long weight = DETAILS_OVERHEAD_BYTES + stringWeight(details.getTitle()) + stringWeight(details.getLocation());
+        if (details.getActors() != null) {
+            for (String actor : details.getActors()) {
+                weight += stringWeight(actor);
+            }
+        }
+        if (details.getMentions() != null) {
+            for (MentionSummary mention : details.getMentions()) {
+                weight += MENTION_OVERHEAD_BYTES + stringWeight(mention.getSource()) + stringWeight(mention.getUrl());
+            }
+        }
+        return (int) Math.min(weight, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Оценивает объем памяти, занимаемый суточной частью карты.
+     */
+    private static int estimateWeight(MapPartial partial) {
+        long weight = ENTRY_OVERHEAD_BYTES;
+        if (partial.clusters() != null) {
+            weight += (long) partial.clusters().size() * CLUSTER_OVERHEAD_BYTES;
+        }
+        if (partial.events() != null) {
+            weight += (long) partial.events().size() * MAP_EVENT_OVERHEAD_BYTES;
+        }
+        return (int) Math.min(weight, Integer.MAX_VALUE);
+    }
+
+    private static int stringWeight(String value) {
+        return value == null ? 0 : STRING_OVERHEAD_BYTES + value.length();
+    }
+}
@@ -0,0 +1,44 @@
+package com.neighbor.eventmosaic.api.config;
+
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.task.SimpleAsyncTaskExecutorBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Конфигурация исполнителей для параллельных запросов к Elasticsearch.
+ * Запросы блокирующие и короткие, поэтому каждый выполняется в отдельном виртуальном потоке.
+ */
+@Configuration
+public class ConcurrencyConfig {
+
+    /**
+     * Исполнитель параллельной загрузки деталей события (событие, упоминания, агрегаты).
+     */
+    @Bean(destroyMethod = "close")
+    public ExecutorService detailsFetchExecutor() {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("details-fetch-", 0).factory());
+    }
+
+    /**
+     * Исполнитель параллельных запросов суточных частей многодневного диапазона карты.
+     */
+    @Bean(destroyMethod = "close")
+    public ExecutorService mapPartialExecutor() {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("map-partial-", 0).factory());
+    }
+
+    /**
+     * Исполнитель задач приложения, в том числе асинхронных ответов Spring MVC (потоковая выдача Flux).
+     * Автоконфигурация не создает его, если в контексте уже есть другой Executor (detailsFetchExecutor),
+     * поэтому он объявлен явно; при spring.threads.virtual.enabled задачи выполняются в виртуальных потоках.
+     */
+    @Bean(name = TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+    public AsyncTaskExecutor applicationTaskExecutor(SimpleAsyncTaskExecutorBuilder builder) {
+        return builder.build();
+    }
+}
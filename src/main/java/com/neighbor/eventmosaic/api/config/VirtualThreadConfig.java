@@ -0,0 +1,46 @@
+package com.neighbor.eventmosaic.api.config;
+
+import io.micrometer.java21.instrument.binder.jdk.VirtualThreadMetrics;
+import org.apache.http.impl.nio.client.HttpAsyncClientBuilder;
+import org.elasticsearch.client.RestClientBuilder;
+import org.springframework.boot.autoconfigure.elasticsearch.RestClientBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Конфигурация режима виртуальных потоков.
+ * Сам режим включается свойством spring.threads.virtual.enabled: запросы Tomcat, задачи @Scheduled
+ * и исполнители задач Spring выполняются в виртуальных потоках, поэтому блокирующие вызовы
+ * Elasticsearch не занимают потоки платформы.
+ */
+@Configuration
+public class VirtualThreadConfig {
+
+    /**
+     * Метрики закрепления виртуальных потоков (jvm.threads.virtual.pinned) и неудачного
+     * планирования (jvm.threads.virtual.submit.failed) по событиям JFR.
+     */
+    @Bean(destroyMethod = "close")
+    public VirtualThreadMetrics virtualThreadMetrics() {
+        return new VirtualThreadMetrics();
+    }
+
+    /**
+     * Расширяет пул HTTP-соединений клиента Elasticsearch под число параллельных запросов
+     * из виртуальных потоков; иначе потоки ждут свободного соединения в пуле клиента.
+     */
+    @Bean
+    public RestClientBuilderCustomizer elasticsearchConnectionPoolCustomizer(ApiConfigProperties apiConfigProperties) {
+        return new RestClientBuilderCustomizer() {
+            @Override
+            public void customize(RestClientBuilder builder) {
+            }
+
+            @Override
+            public void customize(HttpAsyncClientBuilder builder) {
+                builder.setMaxConnTotal(apiConfigProperties.getElasticsearchMaxConnections());
+                builder.setMaxConnPerRoute(apiConfigProperties.getElasticsearchMaxConnections());
+            }
+        };
+    }
+}
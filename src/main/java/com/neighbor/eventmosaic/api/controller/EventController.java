@@ -1,9 +1,19 @@
 package com.neighbor.eventmosaic.api.controller;
 
+import com.neighbor.eventmosaic.api.config.ApiConfigProperties;
+import com.neighbor.eventmosaic.api.dto.EventBatchRequest;
 import com.neighbor.eventmosaic.api.dto.EventMapQueryParameters;
+import com.neighbor.eventmosaic.api.dto.EventTileQueryParameters;
+import com.neighbor.eventmosaic.api.dto.TileCoordinates;
 import com.neighbor.eventmosaic.api.dto.details.EventDetailsResponse;
+import com.neighbor.eventmosaic.api.dto.details.MentionsPage;
+import com.neighbor.eventmosaic.api.dto.geojson.GeoJsonFeature;
 import com.neighbor.eventmosaic.api.dto.geojson.GeoJsonFeatureCollection;
+import com.neighbor.eventmosaic.api.dto.histogram.EventHistogram;
+import com.neighbor.eventmosaic.api.service.EventHistogramService;
+import com.neighbor.eventmosaic.api.service.EventScanService;
 import com.neighbor.eventmosaic.api.service.EventService;
+import com.neighbor.eventmosaic.api.service.VectorTileService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -12,12 +22,24 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
 import org.springframework.http.MediaType;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Map;
 
 /**
  * REST контроллер для получения информации о событиях GDELT.
@@ -29,10 +51,17 @@ import org.springframework.web.bind.annotation.RestController;
 @Tag(name = "События GDELT", description = "API для получения и отображения событий GDELT на карте")
 public class EventController {
 
+    private static final String MVT_MEDIA_TYPE = "application/vnd.mapbox-vector-tile";
+
     private final EventService eventService;
+    private final EventScanService eventScanService;
+    private final EventHistogramService eventHistogramService;
+    private final VectorTileService vectorTileService;
+    private final ApiConfigProperties apiConfigProperties;
 
     /**
      * Получает события или кластеры событий для отображения на карте.
+     * GeoJSON записывается в ответ потоково, по одной фиче за раз.
      *
      * @param params Параметры запроса (диапазон дат, bbox, zoom).
      * @return GeoJSON FeatureCollection с событиями/кластерами.
@@ -50,10 +79,125 @@ public class EventController {
                             content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE))
             }
     )
-    @GetMapping
-    public GeoJsonFeatureCollection getEventsForMap(
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> getEventsForMap(
             @Parameter(description = "Параметры фильтрации событий для карты") @Valid EventMapQueryParameters params) {
-        return eventService.getEventsForMap(params);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(output -> eventService.writeEventsForMap(params, output));
+    }
+
+    /**
+     * Потоково отдает отдельные события для карты в формате NDJSON (одна GeoJSON Feature на строку).
+     * Фичи записываются по мере чтения из Elasticsearch: следующая страница запрашивается только после
+     * записи предыдущей в сокет, а во время ожидания ответа Elasticsearch поток запроса не занят.
+     *
+     * @param params Параметры запроса (диапазон дат, bbox).
+     * @return Поток GeoJSON Feature с событиями.
+     */
+    @Operation(
+            summary = "Потоково получить события для карты",
+            description = "Возвращает отдельные события (без кластеризации) в указанной области и за указанный период в формате NDJSON: по одной GeoJSON Feature на строку. Количество событий ограничено max-streamed-events-per-request.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Успешный ответ",
+                            content = @Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE,
+                                    schema = @Schema(implementation = GeoJsonFeature.class))),
+                    @ApiResponse(responseCode = "400", description = "Некорректные параметры запроса",
+                            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE))
+            }
+    )
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<GeoJsonFeature> streamEventsForMap(
+            @Parameter(description = "Параметры фильтрации событий для карты") @Valid EventMapQueryParameters params) {
+        return eventService.streamEventsForMap(params);
+    }
+
+    /**
+     * Сплошное чтение всех событий области порциями с курсором продолжения.
+     *
+     * @param params Параметры запроса (диапазон дат, bbox); при наличии курсора игнорируются.
+     * @param cursor Курсор продолжения (nextCursor из предыдущего ответа).
+     * @return GeoJSON FeatureCollection с порцией событий и полем nextCursor, если события не закончились.
+     */
+    @Operation(
+            summary = "Сплошное чтение событий области",
+            description = "Возвращает все события (без кластеризации и ограничения на количество) в указанной области и за указанный период порциями. Порция ограничена scan-max-pages-per-request страницами и scan-time-budget-millis; следующая запрашивается по nextCursor, пока он присутствует в ответе. Курсор действителен scan-keep-alive-seconds после предыдущего запроса.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Успешный ответ",
+                            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                                    schema = @Schema(implementation = GeoJsonFeatureCollection.class))),
+                    @ApiResponse(responseCode = "400", description = "Некорректные параметры запроса, некорректный или истекший курсор",
+                            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE))
+            }
+    )
+    @GetMapping(value = "/scan", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> scanEvents(
+            @Parameter(description = "Параметры фильтрации событий") @Valid EventMapQueryParameters params,
+            @Parameter(description = "Курсор продолжения (nextCursor из предыдущего ответа)")
+            @RequestParam(required = false) String cursor) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(output -> eventScanService.writeEventsScan(params, cursor, output));
+    }
+
+    /**
+     * Получает гистограмму событий по времени для области карты.
+     *
+     * @param params   Параметры запроса (диапазон дат, bbox, zoom).
+     * @param interval Интервал корзин гистограммы.
+     * @return Количество событий и средний тон по корзинам.
+     */
+    @Operation(
+            summary = "Получить гистограмму событий по времени",
+            description = "Возвращает количество событий и средний тон (avgTone) в каждой корзине заданного интервала для указанной области и периода. Диапазон расширяется до границ корзин, пустые корзины возвращаются с count = 0. Закрытые корзины кешируются, пересчитывается только текущий хвост диапазона.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Успешный ответ",
+                            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                                    schema = @Schema(implementation = EventHistogram.class))),
+                    @ApiResponse(responseCode = "400", description = "Некорректные параметры запроса, неподдерживаемый интервал или слишком много корзин",
+                            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE))
+            }
+    )
+    @GetMapping(value = "/histogram", produces = MediaType.APPLICATION_JSON_VALUE)
+    public EventHistogram getHistogram(
+            @Parameter(description = "Параметры фильтрации событий для карты") @Valid EventMapQueryParameters params,
+            @Parameter(description = "Интервал корзин: 15m, 1h, 3h, 6h, 12h, 1d (по умолчанию default-histogram-interval)", example = "1h")
+            @RequestParam(required = false) String interval) {
+        return eventHistogramService.getHistogram(params, interval);
+    }
+
+    /**
+     * Получает векторный тайл (Mapbox Vector Tile) с событиями и кластерами.
+     *
+     * @param z      Уровень масштабирования тайла.
+     * @param x      Номер тайла по X.
+     * @param y      Номер тайла по Y.
+     * @param params Параметры запроса (диапазон дат).
+     * @return Тайл в формате protobuf со слоями events и clusters.
+     */
+    @Operation(
+            summary = "Получить векторный тайл событий",
+            description = "Возвращает Mapbox Vector Tile со слоями events (eventId, avgTone) и clusters (clusterCount, avgTone) для XYZ-тайла.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Успешный ответ",
+                            content = @Content(mediaType = MVT_MEDIA_TYPE)),
+                    @ApiResponse(responseCode = "400", description = "Некорректные координаты тайла или параметры запроса",
+                            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE)),
+                    @ApiResponse(responseCode = "500", description = "Внутренняя ошибка сервера",
+                            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE))
+            }
+    )
+    @GetMapping("/tiles/{z}/{x}/{y}.mvt")
+    public ResponseEntity<byte[]> getEventsTile(
+            @Parameter(description = "Уровень масштабирования тайла", required = true, example = "5") @PathVariable int z,
+            @Parameter(description = "Номер тайла по X", required = true, example = "19") @PathVariable int x,
+            @Parameter(description = "Номер тайла по Y", required = true, example = "9") @PathVariable int y,
+            @Parameter(description = "Параметры фильтрации событий для тайла") @Valid EventTileQueryParameters params) {
+        byte[] tile = vectorTileService.getEventsTile(new TileCoordinates(z, x, y), params);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(MVT_MEDIA_TYPE))
+                .cacheControl(CacheControl.maxAge(Duration.ofSeconds(apiConfigProperties.getTileMaxAgeSeconds())).cachePublic())
+                .body(tile);
     }
 
     /**
@@ -64,7 +208,7 @@ public class EventController {
      */
     @Operation(
             summary = "Получить детализацию события",
-            description = "Возвращает подробную информацию о конкретном событии по его ID, включая список упоминаний.",
+            description = "Возвращает подробную информацию о конкретном событии по его ID, включая первую страницу упоминаний и их общее количество.",
             responses = {
                     @ApiResponse(responseCode = "200", description = "Успешный ответ",
                             content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
@@ -78,7 +222,64 @@ public class EventController {
     @GetMapping("/{eventId}")
     public EventDetailsResponse getEventDetails(
             @Parameter(description = "Глобальный идентификатор события (GlobalEventID)", required = true, example = "1234567890")
-            @PathVariable Long eventId) {
-        return eventService.getEventDetails(eventId);
+            @PathVariable Long eventId,
+            @Parameter(description = "Дата события, формат YYYY-MM-DD. Необязательная подсказка: позволяет загружать событие и упоминания параллельно", example = "2025-06-20")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        return eventService.getEventDetails(eventId, date);
+    }
+
+    /**
+     * Получает детальную информацию о нескольких событиях одним запросом.
+     *
+     * @param request Идентификаторы событий.
+     * @return Детали событий по идентификаторам; ненайденные события в ответ не попадают.
+     */
+    @Operation(
+            summary = "Получить детализацию нескольких событий",
+            description = "Возвращает подробную информацию о событиях по списку ID (например, для списка событий кластера). Количество ID ограничено max-batch-event-ids.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Успешный ответ",
+                            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE)),
+                    @ApiResponse(responseCode = "400", description = "Пустой список или слишком много ID",
+                            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE))
+            }
+    )
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public Map<Long, EventDetailsResponse> getEventDetailsBatch(
+            @io.swagger.v3.oas.annotations.parameters.RequestBody(description = "Идентификаторы событий", required = true)
+            @Valid @RequestBody EventBatchRequest request) {
+        return eventService.getEventDetailsBatch(request.getEventIds());
+    }
+
+    /**
+     * Получает страницу упоминаний события.
+     *
+     * @param eventId Глобальный идентификатор события.
+     * @param limit   Размер страницы.
+     * @param cursor  Курсор следующей страницы из предыдущего ответа.
+     * @return Страница упоминаний с общим количеством и курсором следующей страницы.
+     */
+    @Operation(
+            summary = "Получить упоминания события",
+            description = "Возвращает страницу упоминаний события, отсортированных по времени. Следующая страница запрашивается по курсору nextCursor.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Успешный ответ",
+                            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                                    schema = @Schema(implementation = MentionsPage.class))),
+                    @ApiResponse(responseCode = "400", description = "Некорректный курсор или размер страницы",
+                            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE)),
+                    @ApiResponse(responseCode = "404", description = "Событие не найдено",
+                            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE))
+            }
+    )
+    @GetMapping("/{eventId}/mentions")
+    public MentionsPage getEventMentions(
+            @Parameter(description = "Глобальный идентификатор события (GlobalEventID)", required = true, example = "1234567890")
+            @PathVariable Long eventId,
+            @Parameter(description = "Размер страницы", example = "50")
+            @RequestParam(required = false) Integer limit,
+            @Parameter(description = "Курсор следующей страницы (nextCursor из предыдущего ответа)")
+            @RequestParam(required = false) String cursor) {
+        return eventService.getEventMentions(eventId, limit, cursor);
     }
 } 
\ No newline at end of file
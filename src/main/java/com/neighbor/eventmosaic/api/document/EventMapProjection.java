@@ -0,0 +1,45 @@
+package com.neighbor.eventmosaic.api.document;
+
+import org.springframework.data.elasticsearch.core.geo.GeoPoint;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Облегченная проекция события GDELT для отображения на карте.
+ * Содержит только поля, необходимые для выбора координат и формирования GeoJSON, и дату события
+ * (по ней события раскладываются в хранилище окна по умолчанию), и заполняется из fields API без загрузки полного {@link EventDocument}.
+ * Количество упоминаний и статей определяет важность события при обрезке ответа до лимита.
+ */
+public record EventMapProjection(
+        Long globalEventId,
+        Double avgTone,
+        Integer numMentions,
+        Integer numArticles,
+        GeoPoint actionLocation,
+        Integer actionGeoType,
+        GeoPoint actor1Location,
+        Integer actor1GeoType,
+        GeoPoint actor2Location,
+        Integer actor2GeoType,
+        OffsetDateTime eventDate
+) {
+
+    /**
+     * Ключ важности события: количество упоминаний, при равенстве - количество статей.
+     * Больший ключ - более важное событие; порядок совпадает с сортировкой важности в Elasticsearch.
+     *
+     * @return numMentions в старших 32 битах и numArticles в младших
+     */
+    public long importance() {
+        return importanceOf(numMentions, numArticles);
+    }
+
+    /**
+     * Ключ важности по количеству упоминаний и статей, отсутствующие значения считаются нулем.
+     */
+    public static long importanceOf(Integer numMentions, Integer numArticles) {
+        long mentions = numMentions != null ? Math.max(numMentions, 0) : 0;
+        long articles = numArticles != null ? Math.max(numArticles, 0) : 0;
+        return mentions << 32 | articles;
+    }
+}
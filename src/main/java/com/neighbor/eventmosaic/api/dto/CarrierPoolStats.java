@@ -0,0 +1,19 @@
+package com.neighbor.eventmosaic.api.dto;
+
+/**
+ * Снимок состояния пула потоков-носителей (carrier) виртуальных потоков.
+ */
+public record CarrierPoolStats(
+        int parallelism,   // Целевое число потоков-носителей
+        int poolSize,      // Текущее число потоков-носителей
+        int activeCount,   // Потоки-носители, выполняющие виртуальные потоки
+        long queuedCount   // Готовые к выполнению виртуальные потоки, ожидающие носителя
+) {
+
+    /**
+     * Доля занятых потоков-носителей от целевого числа.
+     */
+    public double utilization() {
+        return parallelism > 0 ? (double) activeCount / parallelism : 0.0;
+    }
+}
@@ -0,0 +1,19 @@
+package com.neighbor.eventmosaic.api.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * DTO тела запроса пакетного получения деталей событий.
+ */
+@Data
+public class EventBatchRequest {
+
+    @Schema(description = "Глобальные идентификаторы событий (GlobalEventID)", example = "[1234567890, 1234567891]")
+    @NotEmpty
+    private List<@NotNull Long> eventIds;
+}
@@ -0,0 +1,13 @@
+package com.neighbor.eventmosaic.api.dto;
+
+/**
+ * Кластер событий, полученный из агрегации geotile_grid.
+ * Для кластера из одного события содержит его идентификатор.
+ */
+public record EventCluster(
+        ApiGeoPoint centroid, // Центр кластера (geo_centroid)
+        int count,            // Количество событий в кластере
+        Double avgTone,       // Средний тон событий кластера
+        Long eventId          // ID события, если в кластере одно событие
+) {
+}
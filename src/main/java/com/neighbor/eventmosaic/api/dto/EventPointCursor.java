@@ -0,0 +1,35 @@
+package com.neighbor.eventmosaic.api.dto;
+
+/**
+ * Курсор по событиям с уже выбранными координатами.
+ * Значения текущего события читаются без создания объектов на каждое событие.
+ */
+public interface EventPointCursor {
+
+    /**
+     * Переходит к следующему событию.
+     *
+     * @return false, если события закончились
+     */
+    boolean next();
+
+    /**
+     * @return глобальный идентификатор текущего события
+     */
+    long eventId();
+
+    /**
+     * @return широта наилучших координат текущего события
+     */
+    double lat();
+
+    /**
+     * @return долгота наилучших координат текущего события
+     */
+    double lon();
+
+    /**
+     * @return средний тон текущего события или NaN, если он не задан
+     */
+    double avgTone();
+}
@@ -0,0 +1,23 @@
+package com.neighbor.eventmosaic.api.dto;
+
+import io.swagger.v3.oas.annotations.Parameter;
+import lombok.Data;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDate;
+
+/**
+ * DTO для параметров запроса векторного тайла.
+ * Область и уровень масштабирования задаются самим тайлом, поэтому здесь только временной диапазон.
+ */
+@Data
+public class EventTileQueryParameters {
+
+    @Parameter(description = "Начальная дата для фильтрации (включительно), формат YYYY-MM-DD", example = "2025-06-20")
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate since;
+
+    @Parameter(description = "Конечная дата для фильтрации (включительно), формат YYYY-MM-DD", example = "2025-06-21")
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate until;
+}
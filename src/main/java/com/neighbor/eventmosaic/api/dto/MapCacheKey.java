@@ -0,0 +1,53 @@
+package com.neighbor.eventmosaic.api.dto;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Ключ кеша ответов карты.
+ * Область запроса привязана к сетке тайлов: bbox расширяется до границ покрывающих его тайлов,
+ * поэтому близкие видовые окна разных пользователей попадают в одну запись кеша.
+ */
+public record MapCacheKey(
+        String format,          // Формат ответа (geojson, mvt)
+        Integer zoom,           // Zoom из запроса, определяет режим выдачи (может быть null)
+        int gridZoom,           // Уровень сетки тайлов, к которой привязана область
+        int minTileX,           // Западный тайл
+        int minTileY,           // Северный тайл
+        int maxTileX,           // Восточный тайл
+        int maxTileY,           // Южный тайл
+        long startEpochMillis,  // Начало временного диапазона
+        long endEpochMillis     // Конец временного диапазона
+) {
+
+    /**
+     * Возвращает область, покрываемую тайлами ключа.
+     * Крайние ряды тайлов расширяются до полюсов, чтобы не терять события за пределами проекции Web Mercator.
+     *
+     * @return массив [minLat, minLon, maxLat, maxLon] или null, если тайлы покрывают весь мир
+     */
+    public double[] toBoundingBox() {
+        int lastTile = (1 << gridZoom) - 1;
+        if (minTileX == 0 && minTileY == 0 && maxTileX == lastTile && maxTileY == lastTile) {
+            return null;
+        }
+
+        double[] northWest = new TileCoordinates(gridZoom, minTileX, minTileY).toBoundingBox();
+        double[] southEast = new TileCoordinates(gridZoom, maxTileX, maxTileY).toBoundingBox();
+        return new double[]{
+                maxTileY == lastTile ? -90.0 : southEast[0],
+                northWest[1],
+                minTileY == 0 ? 90.0 : northWest[2],
+                southEast[3]
+        };
+    }
+
+    public OffsetDateTime startDate() {
+        return Instant.ofEpochMilli(startEpochMillis).atOffset(ZoneOffset.UTC);
+    }
+
+    public OffsetDateTime endDate() {
+        return Instant.ofEpochMilli(endEpochMillis).atOffset(ZoneOffset.UTC);
+    }
+}
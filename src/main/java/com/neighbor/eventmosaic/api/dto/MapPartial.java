@@ -0,0 +1,22 @@
+package com.neighbor.eventmosaic.api.dto;
+
+import com.neighbor.eventmosaic.api.document.EventMapProjection;
+
+import java.util.List;
+
+/**
+ * Частичный результат карты за один день диапазона: кластеры или отдельные события.
+ */
+public record MapPartial(
+        List<EventCluster> clusters,      // Кластеры части; null для отдельных событий
+        List<EventMapProjection> events   // События части; null для кластеров
+) {
+
+    public static MapPartial ofClusters(List<EventCluster> clusters) {
+        return new MapPartial(clusters, null);
+    }
+
+    public static MapPartial ofEvents(List<EventMapProjection> events) {
+        return new MapPartial(null, events);
+    }
+}
@@ -0,0 +1,26 @@
+package com.neighbor.eventmosaic.api.dto;
+
+/**
+ * Ключ кеша частичного результата карты за один день диапазона.
+ * Область уже привязана к сетке тайлов вызывающим кодом, поэтому ее границы совпадают у одинаковых запросов.
+ */
+public record MapPartialKey(
+        boolean clusters,       // Кластеры или отдельные события
+        int precision,          // Precision сетки кластеров или прореживания событий; -1 без прореживания
+        double minLat,          // Южная граница области; NaN, если область не задана
+        double minLon,          // Западная граница области
+        double maxLat,          // Северная граница области
+        double maxLon,          // Восточная граница области
+        long startEpochMillis,  // Начало части диапазона (включительно)
+        long endEpochMillis     // Конец части диапазона (включительно)
+) {
+
+    public static MapPartialKey of(double[] bbox, boolean clusters, int precision,
+                                   long startEpochMillis, long endEpochMillis) {
+        if (bbox == null) {
+            return new MapPartialKey(clusters, precision, Double.NaN, Double.NaN, Double.NaN, Double.NaN,
+                    startEpochMillis, endEpochMillis);
+        }
+        return new MapPartialKey(clusters, precision, bbox[0], bbox[1], bbox[2], bbox[3], startEpochMillis, endEpochMillis);
+    }
+}
@@ -0,0 +1,148 @@
+package com.neighbor.eventmosaic.api.dto;
+
+/**
+ * Координаты XYZ-тайла в проекции Web Mercator.
+ * Ось Y направлена с севера на юг, как в схеме тайлов OSM/Mapbox.
+ */
+public record TileCoordinates(
+        int z, // Уровень масштабирования
+        int x, // Номер тайла по долготе
+        int y  // Номер тайла по широте
+) {
+
+    /**
+     * Максимальная широта проекции Web Mercator, как в geotile_grid.
+     */
+    public static final double MAX_MERCATOR_LATITUDE = 85.0511287798066;
+
+    /**
+     * Смещение precision сетки ячеек относительно zoom: ячейка уровня zoom + 2 занимает около 64 пикселей
+     * на экране (четверть тайла 256 пикселей по каждой оси).
+     */
+    public static final int CELL_ZOOM_OFFSET = 2;
+
+    /**
+     * Возвращает границы тайла в формате bbox.
+     *
+     * @return массив [minLat, minLon, maxLat, maxLon]
+     */
+    public double[] toBoundingBox() {
+        double tiles = tileCount();
+        return new double[]{
+                tileYToLat((y + 1) / tiles),
+                x / tiles * 360.0 - 180.0,
+                tileYToLat(y / tiles),
+                (x + 1) / tiles * 360.0 - 180.0
+        };
+    }
+
+    /**
+     * Положение долготы внутри тайла: 0 - западная граница, 1 - восточная.
+     *
+     * @param lon долгота
+     * @return относительная координата X внутри тайла
+     */
+    public double relativeX(double lon) {
+        return tileX(lon, z) - x;
+    }
+
+    /**
+     * Положение широты внутри тайла: 0 - северная граница, 1 - южная.
+     *
+     * @param lat широта
+     * @return относительная координата Y внутри тайла
+     */
+    public double relativeY(double lat) {
+        return tileY(lat, z) - y;
+    }
+
+    /**
+     * Проверяет, что номера тайла допустимы для его уровня масштабирования.
+     *
+     * @return true, если x и y находятся в диапазоне [0, 2^z)
+     */
+    public boolean isValid() {
+        long tiles = 1L << z;
+        return x >= 0 && y >= 0 && x < tiles && y < tiles;
+    }
+
+    /**
+     * Дробный номер тайла по долготе на уровне масштабирования z.
+     *
+     * @param lon долгота
+     * @param z   уровень масштабирования
+     * @return номер тайла с дробной частью (положение внутри тайла)
+     */
+    public static double tileX(double lon, int z) {
+        return (lon + 180.0) / 360.0 * (1L << z);
+    }
+
+    /**
+     * Дробный номер тайла по широте на уровне масштабирования z.
+     *
+     * @param lat широта
+     * @param z   уровень масштабирования
+     * @return номер тайла с дробной частью (положение внутри тайла)
+     */
+    public static double tileY(double lat, int z) {
+        double latRad = Math.toRadians(lat);
+        double mercatorY = (1.0 - Math.log(Math.tan(latRad) + 1.0 / Math.cos(latRad)) / Math.PI) / 2.0;
+        return mercatorY * (1L << z);
+    }
+
+    /**
+     * Количество ячеек сетки geotile, которые пересекает область.
+     *
+     * @param bbox      массив [minLat, minLon, maxLat, maxLon] или null для всего мира
+     * @param precision precision сетки
+     * @return количество ячеек
+     */
+    public static long cellCount(double[] bbox, int precision) {
+        long tiles = 1L << precision;
+        if (bbox == null) {
+            return tiles * tiles;
+        }
+        long lastTile = tiles - 1;
+        long minX = Math.max(0, Math.min((long) Math.floor(tileX(bbox[1], precision)), lastTile));
+        long maxX = Math.max(0, Math.min((long) Math.floor(tileX(bbox[3], precision)), lastTile));
+        long minY = Math.max(0, Math.min((long) Math.floor(tileY(clampLatitude(bbox[2]), precision)), lastTile));
+        long maxY = Math.max(0, Math.min((long) Math.floor(tileY(clampLatitude(bbox[0]), precision)), lastTile));
+        // При minLon > maxLon область пересекает антимеридиан
+        long columns = minX <= maxX ? maxX - minX + 1 : tiles - minX + maxX + 1;
+        return columns * (maxY - minY + 1);
+    }
+
+    /**
+     * Ключ ячейки сетки geotile, в которую попадает точка, как в geotile_grid: широта ограничивается
+     * пределом проекции, номера тайлов - границами сетки.
+     *
+     * @param lat       широта
+     * @param lon       долгота
+     * @param precision precision сетки
+     * @return номер тайла по X в старших 32 битах и по Y в младших
+     */
+    public static long cellKey(double lat, double lon, int precision) {
+        long lastTile = (1L << precision) - 1;
+        long x = Math.max(0, Math.min((long) Math.floor(tileX(lon, precision)), lastTile));
+        long y = Math.max(0, Math.min((long) Math.floor(tileY(clampLatitude(lat), precision)), lastTile));
+        return x << 32 | y;
+    }
+
+    /**
+     * Ограничивает широту пределом проекции Web Mercator.
+     *
+     * @param lat широта
+     * @return широта в диапазоне [-MAX_MERCATOR_LATITUDE, MAX_MERCATOR_LATITUDE]
+     */
+    public static double clampLatitude(double lat) {
+        return Math.max(-MAX_MERCATOR_LATITUDE, Math.min(lat, MAX_MERCATOR_LATITUDE));
+    }
+
+    private double tileCount() {
+        return 1L << z;
+    }
+
+    private static double tileYToLat(double mercatorY) {
+        return Math.toDegrees(Math.atan(Math.sinh(Math.PI * (1.0 - 2.0 * mercatorY))));
+    }
+}
@@ -57,7 +57,27 @@ public class EventDetailsResponse {
     private Integer mentionsCount;
 
     /**
-     * Список упоминаний события.
+     * Первая страница упоминаний события.
      */
     private List<MentionSummary> mentions;
+
+    /**
+     * Количество найденных упоминаний события в окне поиска.
+     */
+    private Long mentionsTotal;
+
+    /**
+     * Курсор следующей страницы упоминаний для GET /api/v1/events/{eventId}/mentions.
+     */
+    private String mentionsNextCursor;
+
+    /**
+     * Средний тон статей-источников, упоминающих событие.
+     */
+    private Double mentionsAvgTone;
+
+    /**
+     * Количество различных источников, упоминающих событие.
+     */
+    private Long mentionSourcesCount;
 } 
\ No newline at end of file
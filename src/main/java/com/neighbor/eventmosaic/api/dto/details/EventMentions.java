@@ -0,0 +1,10 @@
+package com.neighbor.eventmosaic.api.dto.details;
+
+/**
+ * Упоминания события для детального ответа: первая страница и агрегаты.
+ */
+public record EventMentions(
+        MentionsPage firstPage, // Первая страница упоминаний
+        MentionStats stats      // Агрегаты упоминаний
+) {
+}
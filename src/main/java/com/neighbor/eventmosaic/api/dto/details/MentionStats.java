@@ -0,0 +1,12 @@
+package com.neighbor.eventmosaic.api.dto.details;
+
+/**
+ * Агрегированные показатели упоминаний события в окне поиска.
+ */
+public record MentionStats(
+        Double avgTone,    // Средний тон статей-источников (null, если упоминаний нет)
+        long sourcesCount  // Количество различных источников (приблизительно, cardinality)
+) {
+
+    public static final MentionStats EMPTY = new MentionStats(null, 0);
+}
@@ -0,0 +1,35 @@
+package com.neighbor.eventmosaic.api.dto.details;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO со страницей упоминаний события.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class MentionsPage {
+
+    /**
+     * Упоминания на странице, отсортированные по времени.
+     */
+    private List<MentionSummary> mentions;
+
+    /**
+     * Общее количество упоминаний события в окне поиска.
+     */
+    private Long total;
+
+    /**
+     * Курсор следующей страницы. Отсутствует, если страница последняя.
+     */
+    private String nextCursor;
+}
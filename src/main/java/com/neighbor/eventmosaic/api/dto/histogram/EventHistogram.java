@@ -0,0 +1,12 @@
+package com.neighbor.eventmosaic.api.dto.histogram;
+
+import java.util.List;
+
+/**
+ * Гистограмма событий по времени для шкалы времени на карте.
+ */
+public record EventHistogram(
+        String interval,              // Интервал корзин, например "1h"
+        List<HistogramBucket> buckets // Корзины по возрастанию времени, включая пустые
+) {
+}
@@ -0,0 +1,16 @@
+package com.neighbor.eventmosaic.api.dto.histogram;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Корзина гистограммы событий.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record HistogramBucket(
+        OffsetDateTime start, // Начало корзины (включительно), конец - start + интервал
+        long count,           // Количество событий
+        Double avgTone        // Средний тон событий (null, если событий нет)
+) {
+}
@@ -0,0 +1,23 @@
+package com.neighbor.eventmosaic.api.dto.histogram;
+
+import com.neighbor.eventmosaic.api.dto.MapCacheKey;
+
+/**
+ * Ключ кеша корзины гистограммы.
+ * Область привязана к сетке тайлов так же, как в кеше ответов карты.
+ */
+public record HistogramBucketKey(
+        HistogramInterval interval, // Интервал корзины
+        int gridZoom,               // Уровень сетки тайлов, к которой привязана область
+        int minTileX,               // Западный тайл
+        int minTileY,               // Северный тайл
+        int maxTileX,               // Восточный тайл
+        int maxTileY,               // Южный тайл
+        long bucketStartMillis      // Начало корзины
+) {
+
+    public static HistogramBucketKey of(MapCacheKey area, HistogramInterval interval, long bucketStartMillis) {
+        return new HistogramBucketKey(interval, area.gridZoom(),
+                area.minTileX(), area.minTileY(), area.maxTileX(), area.maxTileY(), bucketStartMillis);
+    }
+}
@@ -0,0 +1,46 @@
+package com.neighbor.eventmosaic.api.dto.histogram;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Допустимые интервалы гистограммы событий.
+ * Интервалы фиксированные (fixed_interval), границы корзин выровнены от начала эпохи в UTC.
+ */
+@Getter
+@RequiredArgsConstructor
+public enum HistogramInterval {
+
+    MINUTES_15("15m", Duration.ofMinutes(15)),
+    HOUR("1h", Duration.ofHours(1)),
+    HOURS_3("3h", Duration.ofHours(3)),
+    HOURS_6("6h", Duration.ofHours(6)),
+    HOURS_12("12h", Duration.ofHours(12)),
+    DAY("1d", Duration.ofDays(1));
+
+    /**
+     * Значение интервала в запросе и в fixed_interval Elasticsearch.
+     */
+    private final String value;
+
+    /**
+     * Длительность интервала.
+     */
+    private final Duration duration;
+
+    /**
+     * Находит интервал по значению из запроса.
+     *
+     * @param value значение интервала, например "1h"
+     * @return интервал или Optional.empty(), если значение не поддерживается
+     */
+    public static Optional<HistogramInterval> fromValue(String value) {
+        return Arrays.stream(values())
+                .filter(interval -> interval.value.equals(value))
+                .findFirst();
+    }
+}
@@ -5,6 +5,10 @@ package com.neighbor.eventmosaic.api.exception;
  */
 public class InvalidApiParameterException extends EmApiException {
 
+    public InvalidApiParameterException(String message) {
+        super(message);
+    }
+
     public InvalidApiParameterException(String message, Throwable cause) {
         super(message, cause);
     }
@@ -31,6 +31,10 @@ public interface EventDetailsMapper {
     @Mapping(target = "location", source = "actionGeoFullName", qualifiedByName = "mapLocationString")
     @Mapping(target = "actors", source = "eventDocument", qualifiedByName = "mapActorsListFromEventDocument")
     @Mapping(target = "mentions", ignore = true) // Упоминания (mentions) должны быть установлены отдельно в сервисе
+    @Mapping(target = "mentionsTotal", ignore = true)
+    @Mapping(target = "mentionsNextCursor", ignore = true)
+    @Mapping(target = "mentionsAvgTone", ignore = true)
+    @Mapping(target = "mentionSourcesCount", ignore = true)
     @Mapping(target = "mentionsCount", source = "numMentions")
     @Mapping(target = "eventId", source = "globalEventId")
     @Mapping(target = "eventDate", source = "eventDate")
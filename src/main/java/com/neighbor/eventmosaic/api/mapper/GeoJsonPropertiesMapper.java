@@ -23,4 +23,17 @@ public interface GeoJsonPropertiesMapper {
     @Mapping(target = "clusterCount", constant = "1")
     GeoJsonProperties toSingleEventProperties(Long eventId, Double avgTone);
 
+    /**
+     * Создает {@link GeoJsonProperties} для кластера из нескольких событий.
+     * Идентификатор события для кластера не заполняется.
+     *
+     * @param clusterCount количество событий в кластере
+     * @param avgTone      средний тон событий кластера
+     * @return {@link GeoJsonProperties} для кластера
+     */
+    @Mapping(target = "eventId", ignore = true)
+    @Mapping(target = "avgTone", source = "avgTone")
+    @Mapping(target = "clusterCount", source = "clusterCount")
+    GeoJsonProperties toClusterProperties(Integer clusterCount, Double avgTone);
+
 } 
\ No newline at end of file
@@ -0,0 +1,15 @@
+package com.neighbor.eventmosaic.api.repository;
+
+import com.neighbor.eventmosaic.api.document.EventMapProjection;
+
+import java.util.List;
+
+/**
+ * Страница событий для карты в порядке добавления (dateAdded, globalEventId).
+ */
+public record AddedMapPage(
+        List<EventMapProjection> events, // События страницы в порядке добавления
+        long[] datesAdded,               // dateAdded каждого события страницы (epoch millis)
+        List<Object> lastSortValues      // Значения сортировки последнего события или null, если страница пуста
+) {
+}
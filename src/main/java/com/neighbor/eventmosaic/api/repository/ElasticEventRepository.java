@@ -10,9 +10,11 @@ import java.time.OffsetDateTime;
 
 /**
  * Репозиторий для доступа к данным о событиях GDELT (EventDocument) в Elasticsearch.
+ * Запросы с географической фильтрацией вынесены в {@link ElasticEventRepositoryCustom}.
  */
 @Repository
-public interface ElasticEventRepository extends ElasticsearchRepository<EventDocument, Long> {
+public interface ElasticEventRepository extends ElasticsearchRepository<EventDocument, Long>,
+        ElasticEventRepositoryCustom {
 
     /**
      * Находит события в указанном временном диапазоне.
@@ -0,0 +1,186 @@
+package com.neighbor.eventmosaic.api.repository;
+
+import com.neighbor.eventmosaic.api.document.EventDocument;
+import com.neighbor.eventmosaic.api.document.EventMapProjection;
+import com.neighbor.eventmosaic.api.dto.EventCluster;
+import com.neighbor.eventmosaic.api.dto.histogram.HistogramBucket;
+import com.neighbor.eventmosaic.api.dto.histogram.HistogramInterval;
+
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Дополнительные запросы к событиям GDELT, которые не выражаются через derived-методы Spring Data.
+ */
+public interface ElasticEventRepositoryCustom {
+
+    /**
+     * Находит события для карты: фильтрует по временному диапазону и bounding box на стороне Elasticsearch.
+     * Возвращает облегченные проекции без загрузки полного документа события.
+     * Общее количество совпадений не считается, поэтому шарды прекращают сбор, как только набран лимит
+     * (или, при сортировке по важности, как только оставшиеся документы не могут в него попасть).
+     *
+     * @param indices   индексы, в которых выполняется поиск
+     * @param startDate начальная дата (включительно)
+     * @param endDate   конечная дата (включительно)
+     * @param bbox      массив [minLat, minLon, maxLat, maxLon] или null, если фильтр по области не нужен
+     * @param limit     максимальное количество событий
+     * @param ranked    вернуть самые важные события (numMentions, затем numArticles по убыванию),
+     *                  иначе - первые найденные
+     * @return список проекций событий
+     */
+    List<EventMapProjection> findForMap(IndexCoordinates indices,
+                                        OffsetDateTime startDate,
+                                        OffsetDateTime endDate,
+                                        double[] bbox,
+                                        int limit,
+                                        boolean ranked);
+
+    /**
+     * Находит события для карты, равномерно прореженные по области: агрегация geotile_grid
+     * по наилучшим координатам события с top_hits в каждой ячейке.
+     *
+     * @param indices       индексы, в которых выполняется поиск
+     * @param startDate     начальная дата (включительно)
+     * @param endDate       конечная дата (включительно)
+     * @param bbox          массив [minLat, minLon, maxLat, maxLon] или null, если фильтр по области не нужен
+     * @param precision     precision сетки geotile
+     * @param eventsPerCell максимальное количество событий в ячейке
+     * @param maxCells      максимальное количество ячеек (самые заполненные)
+     * @param ranked        оставлять в ячейке самые важные события, иначе - первые найденные
+     * @return список проекций событий всех ячеек
+     */
+    List<EventMapProjection> findForMapPerCell(IndexCoordinates indices,
+                                               OffsetDateTime startDate,
+                                               OffsetDateTime endDate,
+                                               double[] bbox,
+                                               int precision,
+                                               int eventsPerCell,
+                                               int maxCells,
+                                               boolean ranked);
+
+    /**
+     * Открывает point-in-time по индексам событий для сплошного чтения.
+     *
+     * @param indices   индексы, в которых выполняется поиск
+     * @param keepAlive время жизни point-in-time между запросами страниц
+     * @return идентификатор point-in-time
+     */
+    String openPointInTime(IndexCoordinates indices, Duration keepAlive);
+
+    /**
+     * Читает страницу событий для карты в point-in-time с сортировкой по globalEventId.
+     * Следующая страница запрашивается по значениям сортировки последнего события (search_after),
+     * поэтому стоимость запроса не растет с номером страницы, в отличие от from/size.
+     *
+     * @param pitId       идентификатор point-in-time
+     * @param keepAlive   новое время жизни point-in-time
+     * @param startDate   начальная дата (включительно)
+     * @param endDate     конечная дата (включительно)
+     * @param bbox        массив [minLat, minLon, maxLat, maxLon] или null, если фильтр по области не нужен
+     * @param searchAfter значения сортировки последнего прочитанного события или null для первой страницы
+     * @param size        размер страницы
+     * @return страница событий
+     */
+    MapScanPage findMapScanPage(String pitId,
+                                Duration keepAlive,
+                                OffsetDateTime startDate,
+                                OffsetDateTime endDate,
+                                double[] bbox,
+                                List<Object> searchAfter,
+                                int size);
+
+    /**
+     * Читает страницу событий для карты в порядке добавления (dateAdded, globalEventId)
+     * после заданных значений сортировки. Используется для загрузки хранилища окна по умолчанию
+     * и догрузки новых событий без полного перечитывания.
+     *
+     * @param indices     индексы, в которых выполняется поиск
+     * @param startDate   начальная дата (включительно)
+     * @param endDate     конечная дата (включительно)
+     * @param searchAfter значения сортировки последнего прочитанного события или null, чтобы читать с начала
+     * @param size        размер страницы
+     * @return страница событий с dateAdded каждого события
+     */
+    AddedMapPage findMapPageAddedAfter(IndexCoordinates indices,
+                                       OffsetDateTime startDate,
+                                       OffsetDateTime endDate,
+                                       List<Object> searchAfter,
+                                       int size);
+
+    /**
+     * Закрывает point-in-time. Ошибки закрытия не пробрасываются: point-in-time все равно истечет.
+     *
+     * @param pitId идентификатор point-in-time
+     */
+    void closePointInTime(String pitId);
+
+    /**
+     * Находит кластеры событий для карты с помощью агрегации geotile_grid.
+     * Для каждой ячейки сетки вычисляются центроид, средний тон и одно событие (top_hits).
+     *
+     * @param indices     индексы, в которых выполняется поиск
+     * @param startDate   начальная дата (включительно)
+     * @param endDate     конечная дата (включительно)
+     * @param bbox        массив [minLat, minLon, maxLat, maxLon] или null, если фильтр по области не нужен
+     * @param precision   precision для geotile_grid
+     * @param maxClusters максимальное количество кластеров (самые крупные ячейки)
+     * @return список кластеров
+     */
+    List<EventCluster> findClustersForMap(IndexCoordinates indices,
+                                          OffsetDateTime startDate,
+                                          OffsetDateTime endDate,
+                                          double[] bbox,
+                                          int precision,
+                                          int maxClusters);
+
+    /**
+     * Строит гистограмму событий по eventDate агрегацией date_histogram с avg(avgTone) в каждой корзине.
+     *
+     * @param indices   индексы, в которых выполняется поиск
+     * @param startDate начальная дата (включительно), выровненная по интервалу
+     * @param endDate   конечная дата (не включительно), выровненная по интервалу
+     * @param bbox      массив [minLat, minLon, maxLat, maxLon] или null, если фильтр по области не нужен
+     * @param interval  интервал корзин
+     * @return непустые корзины по возрастанию времени
+     */
+    List<HistogramBucket> findHistogram(IndexCoordinates indices,
+                                        OffsetDateTime startDate,
+                                        OffsetDateTime endDate,
+                                        double[] bbox,
+                                        HistogramInterval interval);
+
+    /**
+     * Находит события по идентификаторам одним _msearch: для каждой группы - поиск по _id в ее индексах.
+     * Используется вместо multi-get: индексы группы могут задаваться шаблоном gdelt-events-*,
+     * а multi-get и get требуют конкретного индекса для каждого документа.
+     *
+     * @param idsByIndices идентификаторы событий по индексам, в которых их нужно искать
+     * @return найденные события (порядок не гарантируется, отсутствующие события пропускаются)
+     */
+    List<EventDocument> findAllByGlobalEventIds(Map<IndexCoordinates, ? extends Collection<Long>> idsByIndices);
+
+    /**
+     * Находит событие по идентификатору в заданных индексах.
+     * В одном конкретном индексе событие читается прямым GET, иначе - поиском по _id.
+     *
+     * @param globalEventId идентификатор события
+     * @param indices       индексы, в которых может находиться событие
+     * @return событие или Optional.empty(), если его нет
+     */
+    Optional<EventDocument> findByIdInIndices(Long globalEventId, IndexCoordinates indices);
+
+    /**
+     * Возвращает минимальный и максимальный globalEventId каждого индекса событий
+     * агрегацией terms по _index с подагрегациями min и max.
+     *
+     * @return диапазоны идентификаторов непустых индексов
+     */
+    List<EventIdRange> findEventIdRanges();
+}
@@ -0,0 +1,558 @@
+package com.neighbor.eventmosaic.api.repository;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.FieldValue;
+import co.elastic.clients.elasticsearch._types.LatLonGeoLocation;
+import co.elastic.clients.elasticsearch._types.SortOptions;
+import co.elastic.clients.elasticsearch._types.SortOrder;
+import co.elastic.clients.elasticsearch._types.Time;
+import co.elastic.clients.elasticsearch._types.aggregations.Aggregate;
+import co.elastic.clients.elasticsearch._types.aggregations.Aggregation;
+import co.elastic.clients.elasticsearch._types.aggregations.DateHistogramBucket;
+import co.elastic.clients.elasticsearch._types.aggregations.GeoTileGridBucket;
+import co.elastic.clients.elasticsearch._types.query_dsl.QueryBuilders;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.core.search.Hit;
+import co.elastic.clients.json.JsonData;
+import com.neighbor.eventmosaic.api.document.EventDocument;
+import com.neighbor.eventmosaic.api.document.EventMapProjection;
+import com.neighbor.eventmosaic.api.dto.ApiGeoPoint;
+import com.neighbor.eventmosaic.api.dto.EventCluster;
+import com.neighbor.eventmosaic.api.dto.histogram.HistogramBucket;
+import com.neighbor.eventmosaic.api.dto.histogram.HistogramInterval;
+import com.neighbor.eventmosaic.api.exception.EmApiException;
+import com.neighbor.eventmosaic.api.repository.query.EventMapProjectionReader;
+import com.neighbor.eventmosaic.api.repository.query.EventQueryFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.elasticsearch.NoSuchIndexException;
+import org.springframework.data.elasticsearch.client.elc.ElasticsearchAggregations;
+import org.springframework.data.elasticsearch.client.elc.NativeQuery;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.SearchHit;
+import org.springframework.data.elasticsearch.core.SearchHits;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.data.elasticsearch.core.query.IndicesOptions;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Реализация дополнительных запросов к событиям на базе {@link ElasticsearchOperations} и нативных запросов.
+ * Запросы, которым не нужен полный {@link EventDocument}, выполняются напрямую через {@link ElasticsearchClient}.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class ElasticEventRepositoryCustomImpl implements ElasticEventRepositoryCustom {
+
+    private static final String CLUSTERS_AGGREGATION = "clusters";
+    private static final String CENTROID_AGGREGATION = "centroid";
+    private static final String AVG_TONE_AGGREGATION = "avgTone";
+    private static final String TOP_EVENT_AGGREGATION = "topEvent";
+    private static final String CELLS_AGGREGATION = "cells";
+    private static final String CELL_EVENTS_AGGREGATION = "cellEvents";
+    private static final String HISTOGRAM_AGGREGATION = "histogram";
+    private static final String AVG_TONE_FIELD = "avgTone";
+    private static final String INDICES_AGGREGATION = "indices";
+    private static final String MIN_EVENT_ID_AGGREGATION = "minEventId";
+    private static final String MAX_EVENT_ID_AGGREGATION = "maxEventId";
+    private static final String INDEX_FIELD = "_index";
+
+    /**
+     * Максимальное количество индексов в агрегации диапазонов идентификаторов.
+     */
+    private static final int MAX_INDEX_BUCKETS = 10000;
+
+    private final ElasticsearchOperations elasticsearchOperations;
+    private final ElasticsearchClient elasticsearchClient;
+    private final EventQueryFactory eventQueryFactory;
+    private final EventMapProjectionReader eventMapProjectionReader;
+
+    @Override
+    public List<EventMapProjection> findForMap(IndexCoordinates indices,
+                                               OffsetDateTime startDate,
+                                               OffsetDateTime endDate,
+                                               double[] bbox,
+                                               int limit,
+                                               boolean ranked) {
+        log.debug("Запрос событий для карты в {}: {} - {}, bbox задан: {}, лимит {}, по важности: {}",
+                indices, startDate, endDate, bbox != null, limit, ranked);
+
+        try {
+            SearchResponse<Void> response = elasticsearchClient.search(s -> s
+                            .index(List.of(indices.getIndexNames()))
+                            .query(eventQueryFactory.mapFilter(startDate, endDate, bbox))
+                            .sort(ranked ? importanceOrder() : List.of())
+                            .size(limit)
+                            .trackScores(false)
+                            .trackTotalHits(t -> t.enabled(false))
+                            .requestCache(true)
+                            .source(src -> src.fetch(false))
+                            .fields(eventMapProjectionReader.projectionFields())
+                            .ignoreUnavailable(true)
+                            .allowNoIndices(true),
+                    Void.class);
+
+            return response.hits().hits().stream()
+                    .map(hit -> eventMapProjectionReader.read(hit.fields()))
+                    .toList();
+        } catch (IOException e) {
+            throw new EmApiException("Ошибка запроса событий для карты", e);
+        }
+    }
+
+    @Override
+    public String openPointInTime(IndexCoordinates indices, Duration keepAlive) {
+        try {
+            String pitId = elasticsearchClient.openPointInTime(r -> r
+                            .index(List.of(indices.getIndexNames()))
+                            .keepAlive(toTime(keepAlive))
+                            .ignoreUnavailable(true))
+                    .id();
+            log.debug("Открыт point-in-time по {}", indices);
+            return pitId;
+        } catch (IOException e) {
+            throw new EmApiException("Ошибка открытия point-in-time", e);
+        }
+    }
+
+    @Override
+    public MapScanPage findMapScanPage(String pitId,
+                                       Duration keepAlive,
+                                       OffsetDateTime startDate,
+                                       OffsetDateTime endDate,
+                                       double[] bbox,
+                                       List<Object> searchAfter,
+                                       int size) {
+        try {
+            // Индексы задает point-in-time; тай-брейк _shard_doc Elasticsearch добавляет к сортировке сам
+            SearchResponse<Void> response = elasticsearchClient.search(s -> {
+                        s.pit(p -> p.id(pitId).keepAlive(toTime(keepAlive)))
+                                .query(eventQueryFactory.mapFilter(startDate, endDate, bbox))
+                                .size(size)
+                                .sort(so -> so.field(f -> f
+                                        .field(EventMapProjectionReader.GLOBAL_EVENT_ID_FIELD)
+                                        .order(SortOrder.Asc)))
+                                .trackScores(false)
+                                .trackTotalHits(t -> t.enabled(false))
+                                .source(src -> src.fetch(false))
+                                .fields(eventMapProjectionReader.projectionFields());
+                        if (searchAfter != null) {
+                            s.searchAfter(searchAfter.stream().map(ElasticEventRepositoryCustomImpl::toFieldValue).toList());
+                        }
+                        return s;
+                    },
+                    Void.class);
+
+            List<Hit<Void>> hits = response.hits().hits();
+            List<Object> lastSortValues = hits.isEmpty() ? null : sortValues(hits.getLast());
+            return new MapScanPage(
+                    hits.stream().map(hit -> eventMapProjectionReader.read(hit.fields())).toList(),
+                    response.pitId() != null ? response.pitId() : pitId,
+                    lastSortValues);
+        } catch (IOException e) {
+            throw new EmApiException("Ошибка чтения страницы событий в point-in-time", e);
+        }
+    }
+
+    @Override
+    public AddedMapPage findMapPageAddedAfter(IndexCoordinates indices,
+                                              OffsetDateTime startDate,
+                                              OffsetDateTime endDate,
+                                              List<Object> searchAfter,
+                                              int size) {
+        try {
+            SearchResponse<Void> response = elasticsearchClient.search(s -> {
+                        s.index(List.of(indices.getIndexNames()))
+                                .query(eventQueryFactory.eventDateRange(startDate, endDate))
+                                .size(size)
+                                .sort(addedOrder(SortOrder.Asc))
+                                .trackScores(false)
+                                .trackTotalHits(t -> t.enabled(false))
+                                .source(src -> src.fetch(false))
+                                .fields(eventMapProjectionReader.projectionFields())
+                                .ignoreUnavailable(true)
+                                .allowNoIndices(true);
+                        if (searchAfter != null) {
+                            s.searchAfter(searchAfter.stream().map(ElasticEventRepositoryCustomImpl::toFieldValue).toList());
+                        }
+                        return s;
+                    },
+                    Void.class);
+
+            List<Hit<Void>> hits = response.hits().hits();
+            // Первое значение сортировки - dateAdded в epoch millis
+            long[] datesAdded = hits.stream().mapToLong(hit -> hit.sort().getFirst().longValue()).toArray();
+            return new AddedMapPage(
+                    hits.stream().map(hit -> eventMapProjectionReader.read(hit.fields())).toList(),
+                    datesAdded,
+                    hits.isEmpty() ? null : sortValues(hits.getLast()));
+        } catch (IOException e) {
+            throw new EmApiException("Ошибка чтения добавленных событий", e);
+        }
+    }
+
+    @Override
+    public void closePointInTime(String pitId) {
+        try {
+            elasticsearchClient.closePointInTime(r -> r.id(pitId));
+        } catch (Exception e) {
+            log.warn("Не удалось закрыть point-in-time: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public List<EventCluster> findClustersForMap(IndexCoordinates indices,
+                                                 OffsetDateTime startDate,
+                                                 OffsetDateTime endDate,
+                                                 double[] bbox,
+                                                 int precision,
+                                                 int maxClusters) {
+        NativeQuery query = NativeQuery.builder()
+                .withQuery(eventQueryFactory.mapFilter(startDate, endDate, bbox))
+                .withRuntimeFields(List.of(eventQueryFactory.bestLocationRuntimeField()))
+                .withAggregation(CLUSTERS_AGGREGATION, clustersAggregation(precision, maxClusters))
+                .withMaxResults(0)
+                .withTrackScores(false)
+                .withRequestCache(true)
+                .withIndicesOptions(IndicesOptions.LENIENT_EXPAND_OPEN)
+                .build();
+
+        log.debug("Запрос кластеров для карты в {}: {} - {}, precision {}, лимит {}",
+                indices, startDate, endDate, precision, maxClusters);
+
+        SearchHits<EventDocument> searchHits = elasticsearchOperations.search(query, EventDocument.class, indices);
+        if (!(searchHits.getAggregations() instanceof ElasticsearchAggregations aggregations)
+                || aggregations.get(CLUSTERS_AGGREGATION) == null) {
+            return List.of();
+        }
+
+        return aggregations.get(CLUSTERS_AGGREGATION).aggregation().getAggregate()
+                .geotileGrid()
+                .buckets()
+                .array()
+                .stream()
+                .map(this::toEventCluster)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    @Override
+    public List<EventMapProjection> findForMapPerCell(IndexCoordinates indices,
+                                                      OffsetDateTime startDate,
+                                                      OffsetDateTime endDate,
+                                                      double[] bbox,
+                                                      int precision,
+                                                      int eventsPerCell,
+                                                      int maxCells,
+                                                      boolean ranked) {
+        NativeQuery query = NativeQuery.builder()
+                .withQuery(eventQueryFactory.mapFilter(startDate, endDate, bbox))
+                .withRuntimeFields(List.of(eventQueryFactory.bestLocationRuntimeField()))
+                .withAggregation(CELLS_AGGREGATION, cellEventsAggregation(precision, eventsPerCell, maxCells, ranked))
+                .withMaxResults(0)
+                .withTrackScores(false)
+                .withTrackTotalHits(false)
+                .withRequestCache(true)
+                .withIndicesOptions(IndicesOptions.LENIENT_EXPAND_OPEN)
+                .build();
+
+        log.debug("Запрос прореженных событий для карты в {}: {} - {}, precision {}, событий в ячейке {}, ячеек {}",
+                indices, startDate, endDate, precision, eventsPerCell, maxCells);
+
+        SearchHits<EventDocument> searchHits = elasticsearchOperations.search(query, EventDocument.class, indices);
+        if (!(searchHits.getAggregations() instanceof ElasticsearchAggregations aggregations)
+                || aggregations.get(CELLS_AGGREGATION) == null) {
+            return List.of();
+        }
+
+        return aggregations.get(CELLS_AGGREGATION).aggregation().getAggregate()
+                .geotileGrid()
+                .buckets()
+                .array()
+                .stream()
+                .flatMap(bucket -> bucket.aggregations().get(CELL_EVENTS_AGGREGATION).topHits().hits().hits().stream())
+                .map(hit -> eventMapProjectionReader.read(hit.fields()))
+                .toList();
+    }
+
+    @Override
+    public List<HistogramBucket> findHistogram(IndexCoordinates indices,
+                                               OffsetDateTime startDate,
+                                               OffsetDateTime endDate,
+                                               double[] bbox,
+                                               HistogramInterval interval) {
+        // Фильтр включает верхнюю границу, поэтому последняя миллисекунда исключается
+        NativeQuery query = NativeQuery.builder()
+                .withQuery(eventQueryFactory.mapFilter(startDate, endDate.minusNanos(1_000_000), bbox))
+                .withAggregation(HISTOGRAM_AGGREGATION, histogramAggregation(interval))
+                .withMaxResults(0)
+                .withTrackScores(false)
+                .withTrackTotalHits(false)
+                .withRequestCache(true)
+                .withIndicesOptions(IndicesOptions.LENIENT_EXPAND_OPEN)
+                .build();
+
+        log.debug("Запрос гистограммы событий в {}: {} - {}, интервал {}", indices, startDate, endDate, interval.getValue());
+
+        SearchHits<EventDocument> searchHits = elasticsearchOperations.search(query, EventDocument.class, indices);
+        if (!(searchHits.getAggregations() instanceof ElasticsearchAggregations aggregations)
+                || aggregations.get(HISTOGRAM_AGGREGATION) == null) {
+            return List.of();
+        }
+
+        return aggregations.get(HISTOGRAM_AGGREGATION).aggregation().getAggregate()
+                .dateHistogram()
+                .buckets()
+                .array()
+                .stream()
+                .filter(bucket -> bucket.docCount() > 0)
+                .map(this::toHistogramBucket)
+                .toList();
+    }
+
+    @Override
+    public List<EventDocument> findAllByGlobalEventIds(Map<IndexCoordinates, ? extends Collection<Long>> idsByIndices) {
+        List<NativeQuery> queries = new ArrayList<>(idsByIndices.size());
+        List<IndexCoordinates> indices = new ArrayList<>(idsByIndices.size());
+        idsByIndices.forEach((index, globalEventIds) -> {
+            if (globalEventIds.isEmpty()) {
+                return;
+            }
+            List<String> ids = globalEventIds.stream().map(String::valueOf).toList();
+            queries.add(NativeQuery.builder()
+                    .withQuery(QueryBuilders.ids(i -> i.values(ids)))
+                    .withMaxResults(ids.size())
+                    .withTrackScores(false)
+                    .withIndicesOptions(IndicesOptions.LENIENT_EXPAND_OPEN)
+                    .build());
+            indices.add(index);
+        });
+        if (queries.isEmpty()) {
+            return List.of();
+        }
+
+        log.debug("Запрос событий по идентификаторам в {}", indices);
+
+        return elasticsearchOperations.multiSearch(queries,
+                        Collections.<Class<?>>nCopies(queries.size(), EventDocument.class), indices).stream()
+                .flatMap(hits -> hits.getSearchHits().stream())
+                .map(hit -> (EventDocument) hit.getContent())
+                .toList();
+    }
+
+    @Override
+    public Optional<EventDocument> findByIdInIndices(Long globalEventId, IndexCoordinates indices) {
+        String[] indexNames = indices.getIndexNames();
+        if (indexNames.length == 1 && !indexNames[0].contains("*")) {
+            log.debug("Чтение события {} из индекса {}", globalEventId, indexNames[0]);
+            try {
+                return Optional.ofNullable(elasticsearchOperations.get(String.valueOf(globalEventId),
+                        EventDocument.class, indices));
+            } catch (NoSuchIndexException e) {
+                // Индекс удален после обновления диапазонов идентификаторов
+                return Optional.empty();
+            }
+        }
+
+        NativeQuery query = NativeQuery.builder()
+                .withQuery(QueryBuilders.ids(i -> i.values(String.valueOf(globalEventId))))
+                .withMaxResults(1)
+                .withTrackScores(false)
+                .withIndicesOptions(IndicesOptions.LENIENT_EXPAND_OPEN)
+                .build();
+
+        log.debug("Поиск события {} в {}", globalEventId, indices);
+
+        SearchHit<EventDocument> hit = elasticsearchOperations.searchOne(query, EventDocument.class, indices);
+        return Optional.ofNullable(hit).map(SearchHit::getContent);
+    }
+
+    @Override
+    public List<EventIdRange> findEventIdRanges() {
+        NativeQuery query = NativeQuery.builder()
+                .withAggregation(INDICES_AGGREGATION, eventIdRangesAggregation())
+                .withMaxResults(0)
+                .withTrackScores(false)
+                .withTrackTotalHits(false)
+                .withRequestCache(true)
+                .withIndicesOptions(IndicesOptions.LENIENT_EXPAND_OPEN)
+                .build();
+
+        SearchHits<EventDocument> searchHits = elasticsearchOperations.search(query, EventDocument.class);
+        if (!(searchHits.getAggregations() instanceof ElasticsearchAggregations aggregations)
+                || aggregations.get(INDICES_AGGREGATION) == null) {
+            return List.of();
+        }
+
+        return aggregations.get(INDICES_AGGREGATION).aggregation().getAggregate()
+                .sterms()
+                .buckets()
+                .array()
+                .stream()
+                .filter(bucket -> bucket.docCount() > 0)
+                .map(bucket -> new EventIdRange(
+                        bucket.key().stringValue(),
+                        (long) bucket.aggregations().get(MIN_EVENT_ID_AGGREGATION).min().value(),
+                        (long) bucket.aggregations().get(MAX_EVENT_ID_AGGREGATION).max().value()))
+                .toList();
+    }
+
+    /**
+     * Восстанавливает значение сортировки из курсора: после JSON целые числа могут прийти как Integer.
+     * Обертки распаковываются явно, иначе выбирается перегрузка FieldValue.of(Object) и тип значения теряется.
+     */
+    static FieldValue toFieldValue(Object value) {
+        return switch (value) {
+            case Integer number -> FieldValue.of(number.longValue());
+            case Long number -> FieldValue.of(number.longValue());
+            case Number number -> FieldValue.of(number.doubleValue());
+            case String string -> FieldValue.of(string);
+            case Boolean bool -> FieldValue.of(bool.booleanValue());
+            default -> FieldValue.of(value);
+        };
+    }
+
+    private static List<Object> sortValues(Hit<Void> hit) {
+        return hit.sort().stream().map(FieldValue::_get).toList();
+    }
+
+    /**
+     * Порядок добавления событий: dateAdded, при равенстве - globalEventId.
+     */
+    private static List<SortOptions> addedOrder(SortOrder order) {
+        return List.of(
+                SortOptions.of(so -> so.field(f -> f.field(EventQueryFactory.DATE_ADDED_FIELD).order(order))),
+                SortOptions.of(so -> so.field(f -> f.field(EventMapProjectionReader.GLOBAL_EVENT_ID_FIELD).order(order))));
+    }
+
+    /**
+     * Порядок важности событий: numMentions, при равенстве - numArticles, по убыванию.
+     * Сортировка по числовым полям без подсчета общего количества совпадений позволяет шардам
+     * пропускать документы, которые уже не попадут в первые limit.
+     */
+    private static List<SortOptions> importanceOrder() {
+        return List.of(
+                SortOptions.of(so -> so.field(f -> f.field(EventMapProjectionReader.NUM_MENTIONS_FIELD)
+                        .order(SortOrder.Desc).missing("_last"))),
+                SortOptions.of(so -> so.field(f -> f.field(EventMapProjectionReader.NUM_ARTICLES_FIELD)
+                        .order(SortOrder.Desc).missing("_last"))));
+    }
+
+    private static Time toTime(Duration duration) {
+        return Time.of(t -> t.time(duration.toSeconds() + "s"));
+    }
+
+    /**
+     * Агрегация geotile_grid по наилучшим координатам события с подагрегациями
+     * geo_centroid, avg(avgTone) и top_hits(size: 1).
+     */
+    private Aggregation clustersAggregation(int precision, int maxClusters) {
+        return Aggregation.of(a -> a
+                .geotileGrid(g -> g
+                        .field(EventQueryFactory.BEST_LOCATION_FIELD)
+                        .precision(precision)
+                        .size(maxClusters))
+                .aggregations(Map.of(
+                        CENTROID_AGGREGATION, Aggregation.of(c -> c
+                                .geoCentroid(gc -> gc.field(EventQueryFactory.BEST_LOCATION_FIELD))),
+                        AVG_TONE_AGGREGATION, Aggregation.of(t -> t
+                                .avg(avg -> avg.field(AVG_TONE_FIELD))),
+                        TOP_EVENT_AGGREGATION, Aggregation.of(h -> h
+                                .topHits(th -> th
+                                        .size(1)
+                                        .source(src -> src.fetch(false)))))));
+    }
+
+    /**
+     * Агрегация geotile_grid по наилучшим координатам события с top_hits проекций событий ячейки;
+     * при ранжировании события ячейки упорядочены по важности.
+     */
+    private Aggregation cellEventsAggregation(int precision, int eventsPerCell, int maxCells, boolean ranked) {
+        return Aggregation.of(a -> a
+                .geotileGrid(g -> g
+                        .field(EventQueryFactory.BEST_LOCATION_FIELD)
+                        .precision(precision)
+                        .size(maxCells))
+                .aggregations(CELL_EVENTS_AGGREGATION, Aggregation.of(h -> h
+                        .topHits(th -> th
+                                .size(eventsPerCell)
+                                .sort(ranked ? importanceOrder() : List.of())
+                                .source(src -> src.fetch(false))
+                                .fields(eventMapProjectionReader.projectionFields())))));
+    }
+
+    /**
+     * Агрегация terms по _index с подагрегациями min и max по globalEventId.
+     */
+    private Aggregation eventIdRangesAggregation() {
+        return Aggregation.of(a -> a
+                .terms(t -> t
+                        .field(INDEX_FIELD)
+                        .size(MAX_INDEX_BUCKETS))
+                .aggregations(Map.of(
+                        MIN_EVENT_ID_AGGREGATION, Aggregation.of(m -> m
+                                .min(min -> min.field(EventMapProjectionReader.GLOBAL_EVENT_ID_FIELD))),
+                        MAX_EVENT_ID_AGGREGATION, Aggregation.of(m -> m
+                                .max(max -> max.field(EventMapProjectionReader.GLOBAL_EVENT_ID_FIELD))))));
+    }
+
+    /**
+     * Агрегация date_histogram по eventDate с подагрегацией avg(avgTone).
+     */
+    private Aggregation histogramAggregation(HistogramInterval interval) {
+        return Aggregation.of(a -> a
+                .dateHistogram(h -> h
+                        .field(EventQueryFactory.EVENT_DATE_FIELD)
+                        .fixedInterval(t -> t.time(interval.getValue())))
+                .aggregations(AVG_TONE_AGGREGATION, Aggregation.of(t -> t
+                        .avg(avg -> avg.field(AVG_TONE_FIELD)))));
+    }
+
+    private HistogramBucket toHistogramBucket(DateHistogramBucket bucket) {
+        double avgTone = bucket.aggregations().get(AVG_TONE_AGGREGATION).avg().value();
+        return new HistogramBucket(
+                Instant.ofEpochMilli(bucket.key()).atOffset(ZoneOffset.UTC),
+                bucket.docCount(),
+                Double.isNaN(avgTone) ? null : avgTone);
+    }
+
+    /**
+     * Преобразует ячейку geotile_grid в кластер.
+     * Ячейки без центроида пропускаются.
+     */
+    private EventCluster toEventCluster(GeoTileGridBucket bucket) {
+        Map<String, Aggregate> subAggregations = bucket.aggregations();
+
+        Aggregate centroidAggregate = subAggregations.get(CENTROID_AGGREGATION);
+        if (centroidAggregate == null || centroidAggregate.geoCentroid().location() == null) {
+            log.debug("Ячейка {} пропущена - нет центроида", bucket.key());
+            return null;
+        }
+        LatLonGeoLocation centroid = centroidAggregate.geoCentroid().location().latlon();
+
+        double avgTone = subAggregations.get(AVG_TONE_AGGREGATION).avg().value();
+
+        Long eventId = null;
+        List<Hit<JsonData>> topHits = subAggregations.get(TOP_EVENT_AGGREGATION).topHits().hits().hits();
+        if (!topHits.isEmpty()) {
+            eventId = Long.valueOf(topHits.get(0).id());
+        }
+
+        return new EventCluster(
+                new ApiGeoPoint(centroid.lat(), centroid.lon()),
+                (int) bucket.docCount(),
+                Double.isNaN(avgTone) ? null : avgTone,
+                eventId);
+    }
+}
@@ -9,9 +9,11 @@ import java.util.List;
 
 /**
  * Репозиторий для доступа к данным об упоминаниях событий GDELT (MentionDocument) в Elasticsearch.
+ * Постраничное чтение упоминаний вынесено в {@link ElasticMentionRepositoryCustom}.
  */
 @Repository
-public interface ElasticMentionRepository extends ElasticsearchRepository<MentionDocument, String> {
+public interface ElasticMentionRepository extends ElasticsearchRepository<MentionDocument, String>,
+        ElasticMentionRepositoryCustom {
 
     /**
      * Находит упоминания для указанного GlobalEventID в заданном временном диапазоне.
@@ -0,0 +1,47 @@
+package com.neighbor.eventmosaic.api.repository;
+
+import com.neighbor.eventmosaic.api.document.MentionDocument;
+import com.neighbor.eventmosaic.api.dto.details.MentionStats;
+import org.springframework.data.elasticsearch.core.SearchHits;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Дополнительные запросы к упоминаниям, которые не выражаются через derived query методы.
+ */
+public interface ElasticMentionRepositoryCustom {
+
+    /**
+     * Находит страницу упоминаний события в окне поиска.
+     * Упоминания отсортированы по времени, следующая страница запрашивается через search_after.
+     *
+     * @param globalEventId идентификатор события
+     * @param scope         индексы, окно и маршрутизация поиска
+     * @param searchAfter   значения сортировки последнего упоминания предыдущей страницы или null для первой страницы
+     * @param limit         максимальный размер страницы
+     * @return найденные упоминания со значениями сортировки и общим количеством упоминаний в окне
+     */
+    SearchHits<MentionDocument> findMentionPage(Long globalEventId,
+                                                MentionSearchScope scope,
+                                                List<Object> searchAfter,
+                                                int limit);
+
+    /**
+     * Вычисляет агрегаты упоминаний события в окне поиска: средний тон и количество источников.
+     *
+     * @param globalEventId идентификатор события
+     * @param scope         индексы, окно и маршрутизация поиска
+     * @return агрегаты упоминаний
+     */
+    MentionStats findMentionStats(Long globalEventId, MentionSearchScope scope);
+
+    /**
+     * Находит первые страницы и агрегаты упоминаний нескольких событий одним запросом _msearch.
+     *
+     * @param scopes области поиска по идентификаторам событий
+     * @param limit  максимальный размер страницы
+     * @return страницы и агрегаты упоминаний по идентификаторам событий
+     */
+    Map<Long, MentionSearchResult> findFirstMentionPages(Map<Long, MentionSearchScope> scopes, int limit);
+}
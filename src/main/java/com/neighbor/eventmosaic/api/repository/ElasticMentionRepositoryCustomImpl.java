@@ -0,0 +1,138 @@
+package com.neighbor.eventmosaic.api.repository;
+
+import co.elastic.clients.elasticsearch._types.aggregations.Aggregation;
+import com.neighbor.eventmosaic.api.document.MentionDocument;
+import com.neighbor.eventmosaic.api.dto.details.MentionStats;
+import com.neighbor.eventmosaic.api.repository.query.MentionQueryFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.elasticsearch.client.elc.ElasticsearchAggregations;
+import org.springframework.data.elasticsearch.client.elc.NativeQuery;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.SearchHits;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.data.elasticsearch.core.query.IndicesOptions;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Реализация дополнительных запросов к упоминаниям на базе {@link ElasticsearchOperations} и нативных запросов.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class ElasticMentionRepositoryCustomImpl implements ElasticMentionRepositoryCustom {
+
+    private static final String AVG_TONE_AGGREGATION = "avgTone";
+    private static final String SOURCES_AGGREGATION = "sources";
+    private static final String MENTION_DOC_TONE_FIELD = "mentionDocTone";
+    private static final String MENTION_SOURCE_NAME_FIELD = "mentionSourceName";
+
+    private final ElasticsearchOperations elasticsearchOperations;
+    private final MentionQueryFactory mentionQueryFactory;
+
+    @Override
+    public SearchHits<MentionDocument> findMentionPage(Long globalEventId,
+                                                       MentionSearchScope scope,
+                                                       List<Object> searchAfter,
+                                                       int limit) {
+        log.debug("Запрос страницы упоминаний события {} в {}: {} - {}, после {}, лимит {}",
+                globalEventId, scope.indices(), scope.startTime(), scope.endTime(), searchAfter, limit);
+
+        return elasticsearchOperations.search(
+                mentionPageQuery(globalEventId, scope, searchAfter, limit), MentionDocument.class, scope.indices());
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<Long, MentionSearchResult> findFirstMentionPages(Map<Long, MentionSearchScope> scopes, int limit) {
+        if (scopes.isEmpty()) {
+            return Map.of();
+        }
+
+        // Для каждого события два запроса подряд в его индексы: страница упоминаний и агрегаты
+        List<Long> eventIds = List.copyOf(scopes.keySet());
+        List<NativeQuery> queries = new ArrayList<>(eventIds.size() * 2);
+        List<IndexCoordinates> indices = new ArrayList<>(eventIds.size() * 2);
+        for (Long eventId : eventIds) {
+            MentionSearchScope scope = scopes.get(eventId);
+            queries.add(mentionPageQuery(eventId, scope, null, limit));
+            queries.add(mentionStatsQuery(eventId, scope));
+            indices.add(scope.indices());
+            indices.add(scope.indices());
+        }
+
+        log.debug("Запрос первых страниц упоминаний {} событий, лимит {}", eventIds.size(), limit);
+
+        List<SearchHits<?>> responses = elasticsearchOperations.multiSearch(queries,
+                Collections.<Class<?>>nCopies(queries.size(), MentionDocument.class), indices);
+        Map<Long, MentionSearchResult> result = new LinkedHashMap<>();
+        for (int i = 0; i < eventIds.size(); i++) {
+            result.put(eventIds.get(i), new MentionSearchResult(
+                    (SearchHits<MentionDocument>) responses.get(2 * i),
+                    toMentionStats(responses.get(2 * i + 1))));
+        }
+        return result;
+    }
+
+    @Override
+    public MentionStats findMentionStats(Long globalEventId, MentionSearchScope scope) {
+        log.debug("Запрос агрегатов упоминаний события {} в {}: {} - {}",
+                globalEventId, scope.indices(), scope.startTime(), scope.endTime());
+
+        return toMentionStats(elasticsearchOperations.search(
+                mentionStatsQuery(globalEventId, scope), MentionDocument.class, scope.indices()));
+    }
+
+    /**
+     * Запрос страницы упоминаний события, отсортированных для чтения через search_after.
+     */
+    private NativeQuery mentionPageQuery(Long globalEventId,
+                                         MentionSearchScope scope,
+                                         List<Object> searchAfter,
+                                         int limit) {
+        return NativeQuery.builder()
+                .withQuery(mentionQueryFactory.eventMentions(globalEventId, scope.startTime(), scope.endTime()))
+                .withRoute(scope.routing())
+                .withSort(mentionQueryFactory.mentionPageSort())
+                .withSearchAfter(searchAfter)
+                .withMaxResults(limit)
+                .withTrackScores(false)
+                .withTrackTotalHits(true)
+                .withIndicesOptions(IndicesOptions.LENIENT_EXPAND_OPEN)
+                .build();
+    }
+
+    /**
+     * Запрос агрегатов упоминаний события: avg(mentionDocTone) и cardinality(mentionSourceName).
+     */
+    private NativeQuery mentionStatsQuery(Long globalEventId, MentionSearchScope scope) {
+        return NativeQuery.builder()
+                .withQuery(mentionQueryFactory.eventMentions(globalEventId, scope.startTime(), scope.endTime()))
+                .withRoute(scope.routing())
+                .withAggregation(AVG_TONE_AGGREGATION, Aggregation.of(a -> a
+                        .avg(avg -> avg.field(MENTION_DOC_TONE_FIELD))))
+                .withAggregation(SOURCES_AGGREGATION, Aggregation.of(a -> a
+                        .cardinality(c -> c.field(MENTION_SOURCE_NAME_FIELD))))
+                .withMaxResults(0)
+                .withTrackScores(false)
+                .withRequestCache(true)
+                .withIndicesOptions(IndicesOptions.LENIENT_EXPAND_OPEN)
+                .build();
+    }
+
+    private MentionStats toMentionStats(SearchHits<?> searchHits) {
+        if (!(searchHits.getAggregations() instanceof ElasticsearchAggregations aggregations)
+                || aggregations.get(AVG_TONE_AGGREGATION) == null
+                || aggregations.get(SOURCES_AGGREGATION) == null) {
+            return MentionStats.EMPTY;
+        }
+
+        double avgTone = aggregations.get(AVG_TONE_AGGREGATION).aggregation().getAggregate().avg().value();
+        long sourcesCount = aggregations.get(SOURCES_AGGREGATION).aggregation().getAggregate().cardinality().value();
+        return new MentionStats(Double.isNaN(avgTone) ? null : avgTone, sourcesCount);
+    }
+}
@@ -0,0 +1,11 @@
+package com.neighbor.eventmosaic.api.repository;
+
+/**
+ * Диапазон идентификаторов событий одного ежедневного индекса.
+ */
+public record EventIdRange(
+        String indexName, // Имя индекса
+        long minEventId,  // Минимальный globalEventId в индексе
+        long maxEventId   // Максимальный globalEventId в индексе
+) {
+}
@@ -0,0 +1,15 @@
+package com.neighbor.eventmosaic.api.repository;
+
+import com.neighbor.eventmosaic.api.document.EventMapProjection;
+
+import java.util.List;
+
+/**
+ * Страница сплошного чтения событий для карты в point-in-time.
+ */
+public record MapScanPage(
+        List<EventMapProjection> events, // События страницы в порядке сортировки
+        String pitId,                    // Актуальный идентификатор point-in-time (может меняться между страницами)
+        List<Object> lastSortValues      // Значения сортировки последнего события или null, если страница пуста
+) {
+}
@@ -0,0 +1,14 @@
+package com.neighbor.eventmosaic.api.repository;
+
+import com.neighbor.eventmosaic.api.document.MentionDocument;
+import com.neighbor.eventmosaic.api.dto.details.MentionStats;
+import org.springframework.data.elasticsearch.core.SearchHits;
+
+/**
+ * Результат поиска упоминаний одного события в пакетном запросе: первая страница и агрегаты.
+ */
+public record MentionSearchResult(
+        SearchHits<MentionDocument> page, // Первая страница упоминаний
+        MentionStats stats                // Агрегаты упоминаний
+) {
+}
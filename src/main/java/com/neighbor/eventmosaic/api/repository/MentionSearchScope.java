@@ -0,0 +1,16 @@
+package com.neighbor.eventmosaic.api.repository;
+
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Область поиска упоминаний одного события: ежедневные индексы окна, само окно и маршрутизация.
+ */
+public record MentionSearchScope(
+        IndexCoordinates indices,  // Индексы упоминаний, покрывающие окно
+        OffsetDateTime startTime,  // Начало окна (включительно)
+        OffsetDateTime endTime,    // Конец окна (включительно)
+        String routing             // Значение routing или null, если упоминания не маршрутизируются по событию
+) {
+}
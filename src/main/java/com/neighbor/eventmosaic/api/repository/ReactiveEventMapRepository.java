@@ -0,0 +1,116 @@
+package com.neighbor.eventmosaic.api.repository;
+
+import co.elastic.clients.elasticsearch._types.FieldValue;
+import co.elastic.clients.elasticsearch._types.SortOrder;
+import co.elastic.clients.elasticsearch.core.search.Hit;
+import com.neighbor.eventmosaic.api.document.EventMapProjection;
+import com.neighbor.eventmosaic.api.repository.query.EventMapProjectionReader;
+import com.neighbor.eventmosaic.api.repository.query.EventQueryFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.elasticsearch.client.elc.ReactiveElasticsearchClient;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+/**
+ * Потоковое чтение событий для карты через {@link ReactiveElasticsearchClient}.
+ * Вынесено из {@link ElasticEventRepository}: реактивный метод в репозитории Spring Data
+ * переводит весь репозиторий в реактивный режим.
+ */
+@Slf4j
+@Repository
+@RequiredArgsConstructor
+public class ReactiveEventMapRepository {
+
+    private final ReactiveElasticsearchClient reactiveElasticsearchClient;
+    private final EventQueryFactory eventQueryFactory;
+    private final EventMapProjectionReader eventMapProjectionReader;
+
+    /**
+     * Потоково читает события для карты.
+     * События запрашиваются страницами по batchSize с search_after по globalEventId; следующая страница
+     * запрашивается только после того, как подписчик разобрал предыдущую, поэтому в памяти
+     * находится не больше одной-двух страниц. Ожидание ответа Elasticsearch не занимает поток.
+     *
+     * @param indices   индексы, в которых выполняется поиск
+     * @param startDate начальная дата (включительно)
+     * @param endDate   конечная дата (включительно)
+     * @param bbox      массив [minLat, minLon, maxLat, maxLon] или null, если фильтр по области не нужен
+     * @param limit     максимальное количество событий
+     * @param batchSize размер страницы
+     * @return поток проекций событий в порядке globalEventId
+     */
+    public Flux<EventMapProjection> streamForMap(IndexCoordinates indices,
+                                                 OffsetDateTime startDate,
+                                                 OffsetDateTime endDate,
+                                                 double[] bbox,
+                                                 int limit,
+                                                 int batchSize) {
+        log.debug("Потоковый запрос событий для карты в {}: {} - {}, bbox задан: {}, лимит {}, страница {}",
+                indices, startDate, endDate, bbox != null, limit, batchSize);
+
+        return fetchPage(indices, startDate, endDate, bbox, Math.min(batchSize, limit), null, 0)
+                .expand(page -> {
+                    int remaining = limit - page.fetched();
+                    if (page.hits().size() < page.requested() || remaining <= 0) {
+                        return Mono.empty();
+                    }
+                    List<FieldValue> searchAfter = page.hits().getLast().sort();
+                    return fetchPage(indices, startDate, endDate, bbox,
+                            Math.min(batchSize, remaining), searchAfter, page.fetched());
+                })
+                .concatMapIterable(MapStreamPage::hits, 1)
+                .map(hit -> eventMapProjectionReader.read(hit.fields()));
+    }
+
+    /**
+     * Запрашивает одну страницу событий.
+     * Запрос отправляется при подписке, а не при сборке цепочки.
+     */
+    private Mono<MapStreamPage> fetchPage(IndexCoordinates indices,
+                                          OffsetDateTime startDate,
+                                          OffsetDateTime endDate,
+                                          double[] bbox,
+                                          int size,
+                                          List<FieldValue> searchAfter,
+                                          int fetchedBefore) {
+        return Mono.defer(() -> reactiveElasticsearchClient.search(s -> {
+                            s.index(List.of(indices.getIndexNames()))
+                                    .query(eventQueryFactory.mapFilter(startDate, endDate, bbox))
+                                    .size(size)
+                                    .sort(so -> so.field(f -> f
+                                            .field(EventMapProjectionReader.GLOBAL_EVENT_ID_FIELD)
+                                            .order(SortOrder.Asc)))
+                                    .trackScores(false)
+                                    .trackTotalHits(t -> t.enabled(false))
+                                    .source(src -> src.fetch(false))
+                                    .fields(eventMapProjectionReader.projectionFields())
+                                    .ignoreUnavailable(true)
+                                    .allowNoIndices(true);
+                            if (searchAfter != null) {
+                                s.searchAfter(searchAfter);
+                            }
+                            return s;
+                        },
+                        Void.class))
+                .map(response -> {
+                    List<Hit<Void>> hits = response.hits().hits();
+                    return new MapStreamPage(hits, size, fetchedBefore + hits.size());
+                });
+    }
+
+    /**
+     * Страница потокового чтения событий.
+     */
+    private record MapStreamPage(
+            List<Hit<Void>> hits,  // События страницы
+            int requested,         // Запрошенный размер страницы
+            int fetched            // Сколько событий получено с учетом этой страницы
+    ) {
+    }
+}
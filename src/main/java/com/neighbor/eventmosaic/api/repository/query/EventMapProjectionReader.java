@@ -0,0 +1,134 @@
+package com.neighbor.eventmosaic.api.repository.query;
+
+import co.elastic.clients.elasticsearch._types.query_dsl.FieldAndFormat;
+import co.elastic.clients.json.JsonData;
+import com.neighbor.eventmosaic.api.document.EventMapProjection;
+import jakarta.json.JsonArray;
+import jakarta.json.JsonNumber;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonString;
+import jakarta.json.JsonValue;
+import org.springframework.data.elasticsearch.core.geo.GeoPoint;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Чтение проекции события для карты из fields API.
+ * Используется как блокирующим, так и реактивным чтением событий для карты.
+ */
+@Component
+public class EventMapProjectionReader {
+
+    public static final String GLOBAL_EVENT_ID_FIELD = "globalEventId";
+    public static final String AVG_TONE_FIELD = "avgTone";
+    public static final String NUM_MENTIONS_FIELD = "numMentions";
+    public static final String NUM_ARTICLES_FIELD = "numArticles";
+
+    private static final String GEOJSON_COORDINATES = "coordinates";
+    private static final String EPOCH_MILLIS_FORMAT = "epoch_millis";
+
+    /**
+     * Поля проекции для карты. Запрашиваются через fields API без _source,
+     * гео-точки при этом всегда приходят в формате GeoJSON независимо от формата в _source.
+     * Дата события запрашивается в epoch_millis, чтобы не разбирать строковый формат.
+     */
+    private static final List<FieldAndFormat> MAP_PROJECTION_FIELDS = Stream.concat(
+                    Stream.of(
+                                    GLOBAL_EVENT_ID_FIELD,
+                                    AVG_TONE_FIELD,
+                                    NUM_MENTIONS_FIELD,
+                                    NUM_ARTICLES_FIELD,
+                                    EventQueryFactory.ACTION_LOCATION_FIELD,
+                                    EventQueryFactory.ACTION_GEO_TYPE_FIELD,
+                                    EventQueryFactory.ACTOR1_LOCATION_FIELD,
+                                    EventQueryFactory.ACTOR1_GEO_TYPE_FIELD,
+                                    EventQueryFactory.ACTOR2_LOCATION_FIELD,
+                                    EventQueryFactory.ACTOR2_GEO_TYPE_FIELD)
+                            .map(field -> FieldAndFormat.of(f -> f.field(field))),
+                    Stream.of(FieldAndFormat.of(f -> f
+                            .field(EventQueryFactory.EVENT_DATE_FIELD)
+                            .format(EPOCH_MILLIS_FORMAT))))
+            .toList();
+
+    /**
+     * Возвращает поля, которые нужно запросить через fields API.
+     *
+     * @return список полей проекции
+     */
+    public List<FieldAndFormat> projectionFields() {
+        return MAP_PROJECTION_FIELDS;
+    }
+
+    /**
+     * Собирает проекцию события из значений fields API.
+     * Каждое значение fields API - массив, для одиночных полей берется первый элемент.
+     *
+     * @param fields значения полей из ответа поиска
+     * @return проекция события
+     */
+    public EventMapProjection read(Map<String, JsonData> fields) {
+        return new EventMapProjection(
+                longValue(fields.get(GLOBAL_EVENT_ID_FIELD)),
+                doubleValue(fields.get(AVG_TONE_FIELD)),
+                intValue(fields.get(NUM_MENTIONS_FIELD)),
+                intValue(fields.get(NUM_ARTICLES_FIELD)),
+                geoPointValue(fields.get(EventQueryFactory.ACTION_LOCATION_FIELD)),
+                intValue(fields.get(EventQueryFactory.ACTION_GEO_TYPE_FIELD)),
+                geoPointValue(fields.get(EventQueryFactory.ACTOR1_LOCATION_FIELD)),
+                intValue(fields.get(EventQueryFactory.ACTOR1_GEO_TYPE_FIELD)),
+                geoPointValue(fields.get(EventQueryFactory.ACTOR2_LOCATION_FIELD)),
+                intValue(fields.get(EventQueryFactory.ACTOR2_GEO_TYPE_FIELD)),
+                dateValue(fields.get(EventQueryFactory.EVENT_DATE_FIELD)));
+    }
+
+    private JsonValue firstValue(JsonData data) {
+        if (data == null) {
+            return null;
+        }
+        JsonArray values = data.toJson().asJsonArray();
+        return values.isEmpty() ? null : values.get(0);
+    }
+
+    private Long longValue(JsonData data) {
+        return firstValue(data) instanceof JsonNumber number ? number.longValue() : null;
+    }
+
+    private Integer intValue(JsonData data) {
+        return firstValue(data) instanceof JsonNumber number ? number.intValue() : null;
+    }
+
+    private Double doubleValue(JsonData data) {
+        return firstValue(data) instanceof JsonNumber number ? number.doubleValue() : null;
+    }
+
+    /**
+     * Дата в формате epoch_millis приходит строкой.
+     */
+    private OffsetDateTime dateValue(JsonData data) {
+        return switch (firstValue(data)) {
+            case JsonString millis -> Instant.ofEpochMilli(Long.parseLong(millis.getString())).atOffset(ZoneOffset.UTC);
+            case JsonNumber millis -> Instant.ofEpochMilli(millis.longValue()).atOffset(ZoneOffset.UTC);
+            case null, default -> null;
+        };
+    }
+
+    /**
+     * Гео-точка из fields API приходит как GeoJSON: {"type": "Point", "coordinates": [lon, lat]}.
+     */
+    private GeoPoint geoPointValue(JsonData data) {
+        if (!(firstValue(data) instanceof JsonObject point)) {
+            return null;
+        }
+        JsonArray coordinates = point.getJsonArray(GEOJSON_COORDINATES);
+        if (coordinates == null || coordinates.size() < 2) {
+            return null;
+        }
+        return new GeoPoint(coordinates.getJsonNumber(1).doubleValue(), coordinates.getJsonNumber(0).doubleValue());
+    }
+}
@@ -0,0 +1,149 @@
+package com.neighbor.eventmosaic.api.repository.query;
+
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import co.elastic.clients.elasticsearch._types.query_dsl.QueryBuilders;
+import org.springframework.data.elasticsearch.core.query.RuntimeField;
+import org.springframework.stereotype.Component;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Фабрика запросов Elasticsearch для индексов событий GDELT.
+ * Все условия строятся в контексте фильтра (без расчета score), что позволяет
+ * Elasticsearch кешировать их и не тратить время на ранжирование.
+ */
+@Component
+public class EventQueryFactory {
+
+    public static final String EVENT_DATE_FIELD = "eventDate";
+    public static final String DATE_ADDED_FIELD = "dateAdded";
+    public static final String ACTION_LOCATION_FIELD = "actionLocation";
+    public static final String ACTOR1_LOCATION_FIELD = "actor1Location";
+    public static final String ACTOR2_LOCATION_FIELD = "actor2Location";
+    public static final String ACTION_GEO_TYPE_FIELD = "actionGeoType";
+    public static final String ACTOR1_GEO_TYPE_FIELD = "actor1GeoType";
+    public static final String ACTOR2_GEO_TYPE_FIELD = "actor2GeoType";
+    public static final String BEST_LOCATION_FIELD = "bestLocation";
+
+    private static final String GEO_POINT_TYPE = "geo_point";
+
+    /**
+     * Painless-скрипт runtime-поля с наилучшими координатами события.
+     * Повторяет приоритет GeolocationServiceImpl.selectBestCoordinates.
+     */
+    private static final String BEST_LOCATION_SCRIPT = """
+            if (doc['actionLocation'].size() != 0 && doc['actionGeoType'].size() != 0 && doc['actionGeoType'].value > 1) {
+              emit(doc['actionLocation'].lat, doc['actionLocation'].lon);
+            } else if (doc['actor1Location'].size() != 0 && doc['actor1GeoType'].size() != 0 && doc['actor1GeoType'].value > 1) {
+              emit(doc['actor1Location'].lat, doc['actor1Location'].lon);
+            } else if (doc['actor2Location'].size() != 0 && doc['actor2GeoType'].size() != 0 && doc['actor2GeoType'].value > 1) {
+              emit(doc['actor2Location'].lat, doc['actor2Location'].lon);
+            } else if (doc['actionLocation'].size() != 0) {
+              emit(doc['actionLocation'].lat, doc['actionLocation'].lon);
+            }
+            """;
+
+    private static final String EPOCH_MILLIS_FORMAT = "epoch_millis";
+    private static final double COUNTRY_LEVEL_TYPE = 1; // Уровень страны (низкая точность)
+
+    /**
+     * Создает фильтр событий для карты: временной диапазон и, при наличии, bounding box.
+     * Событие попадает в bbox только по координатам, которые выбрал бы
+     * {@link com.neighbor.eventmosaic.api.service.GeolocationService#selectBestCoordinates},
+     * поэтому результат совпадает с фильтрацией в памяти.
+     *
+     * @param start начало диапазона (включительно)
+     * @param end   конец диапазона (включительно)
+     * @param bbox  массив [minLat, minLon, maxLat, maxLon] или null
+     * @return запрос в контексте фильтра
+     */
+    public Query mapFilter(OffsetDateTime start,
+                           OffsetDateTime end,
+                           double[] bbox) {
+        List<Query> filters = new ArrayList<>();
+        filters.add(eventDateRange(start, end));
+        if (bbox != null) {
+            filters.add(bestCoordinatesInBoundingBox(bbox));
+        }
+        return QueryBuilders.bool(b -> b.filter(filters));
+    }
+
+    /**
+     * Создает фильтр по полю eventDate (границы включительно).
+     */
+    public Query eventDateRange(OffsetDateTime start,
+                                OffsetDateTime end) {
+        return QueryBuilders.range(r -> r.date(d -> d
+                .field(EVENT_DATE_FIELD)
+                .format(EPOCH_MILLIS_FORMAT)
+                .gte(String.valueOf(start.toInstant().toEpochMilli()))
+                .lte(String.valueOf(end.toInstant().toEpochMilli()))));
+    }
+
+    /**
+     * Создает runtime-поле {@value #BEST_LOCATION_FIELD} типа geo_point с наилучшими координатами события.
+     * Используется там, где нужна одна точка на событие: агрегации по сетке, центроиды.
+     *
+     * @return описание runtime-поля для запроса
+     */
+    public RuntimeField bestLocationRuntimeField() {
+        return new RuntimeField(BEST_LOCATION_FIELD, GEO_POINT_TYPE, BEST_LOCATION_SCRIPT);
+    }
+
+    /**
+     * Повторяет приоритет выбора координат из GeolocationServiceImpl в виде bool-запроса:
+     * 1. ActionGeo с точностью выше уровня страны
+     * 2. Actor1Geo с точностью выше уровня страны, если п.1 неприменим
+     * 3. Actor2Geo с точностью выше уровня страны, если п.1-2 неприменимы
+     * 4. ActionGeo любой точности, если п.1-3 неприменимы
+     * Каждая ветка проверяет bbox только для "своего" поля.
+     */
+    private Query bestCoordinatesInBoundingBox(double[] bbox) {
+        Query actionPrecise = precise(ACTION_LOCATION_FIELD, ACTION_GEO_TYPE_FIELD);
+        Query actor1Precise = precise(ACTOR1_LOCATION_FIELD, ACTOR1_GEO_TYPE_FIELD);
+        Query actor2Precise = precise(ACTOR2_LOCATION_FIELD, ACTOR2_GEO_TYPE_FIELD);
+
+        Query byAction = QueryBuilders.bool(b -> b
+                .filter(actionPrecise, inBoundingBox(ACTION_LOCATION_FIELD, bbox)));
+
+        Query byActor1 = QueryBuilders.bool(b -> b
+                .filter(actor1Precise, inBoundingBox(ACTOR1_LOCATION_FIELD, bbox))
+                .mustNot(actionPrecise));
+
+        Query byActor2 = QueryBuilders.bool(b -> b
+                .filter(actor2Precise, inBoundingBox(ACTOR2_LOCATION_FIELD, bbox))
+                .mustNot(actionPrecise, actor1Precise));
+
+        Query byActionFallback = QueryBuilders.bool(b -> b
+                .filter(inBoundingBox(ACTION_LOCATION_FIELD, bbox))
+                .mustNot(actionPrecise, actor1Precise, actor2Precise));
+
+        return QueryBuilders.bool(b -> b
+                .should(byAction, byActor1, byActor2, byActionFallback)
+                .minimumShouldMatch("1"));
+    }
+
+    /**
+     * Условие "координаты заданы и точнее уровня страны".
+     */
+    private Query precise(String locationField, String geoTypeField) {
+        return QueryBuilders.bool(b -> b.filter(
+                QueryBuilders.exists(e -> e.field(locationField)),
+                QueryBuilders.range(r -> r.number(n -> n.field(geoTypeField).gt(COUNTRY_LEVEL_TYPE)))));
+    }
+
+    /**
+     * Фильтр geo_bounding_box по указанному полю.
+     */
+    private Query inBoundingBox(String locationField, double[] bbox) {
+        return QueryBuilders.geoBoundingBox(g -> g
+                .field(locationField)
+                .boundingBox(bb -> bb.coords(c -> c
+                        .top(bbox[2])
+                        .left(bbox[1])
+                        .bottom(bbox[0])
+                        .right(bbox[3]))));
+    }
+}
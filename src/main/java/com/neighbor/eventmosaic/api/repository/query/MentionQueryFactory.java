@@ -0,0 +1,57 @@
+package com.neighbor.eventmosaic.api.repository.query;
+
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import co.elastic.clients.elasticsearch._types.query_dsl.QueryBuilders;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Фабрика запросов Elasticsearch для индексов упоминаний GDELT.
+ * Как и для событий, условия строятся в контексте фильтра.
+ */
+@Component
+public class MentionQueryFactory {
+
+    public static final String GLOBAL_EVENT_ID_FIELD = "globalEventId";
+    public static final String MENTION_TIME_FIELD = "mentionTimeDate";
+    public static final String MENTION_IDENTIFIER_FIELD = "mentionIdentifier";
+    public static final String SENTENCE_ID_FIELD = "sentenceId";
+
+    private static final String EPOCH_MILLIS_FORMAT = "epoch_millis";
+
+    /**
+     * Создает фильтр упоминаний события в окне поиска.
+     *
+     * @param globalEventId идентификатор события
+     * @param start         начало окна (включительно)
+     * @param end           конец окна (включительно)
+     * @return запрос в контексте фильтра
+     */
+    public Query eventMentions(Long globalEventId,
+                               OffsetDateTime start,
+                               OffsetDateTime end) {
+        Query eventFilter = QueryBuilders.term(t -> t
+                .field(GLOBAL_EVENT_ID_FIELD)
+                .value(globalEventId));
+        Query timeFilter = QueryBuilders.range(r -> r.date(d -> d
+                .field(MENTION_TIME_FIELD)
+                .format(EPOCH_MILLIS_FORMAT)
+                .gte(String.valueOf(start.toInstant().toEpochMilli()))
+                .lte(String.valueOf(end.toInstant().toEpochMilli()))));
+        return QueryBuilders.bool(b -> b.filter(eventFilter, timeFilter));
+    }
+
+    /**
+     * Сортировка упоминаний для постраничного чтения через search_after.
+     * Время упоминания дополняется идентификатором статьи и номером предложения,
+     * чтобы порядок был однозначным и страницы не пересекались.
+     */
+    public Sort mentionPageSort() {
+        return Sort.by(
+                Sort.Order.asc(MENTION_TIME_FIELD),
+                Sort.Order.asc(MENTION_IDENTIFIER_FIELD),
+                Sort.Order.asc(SENTENCE_ID_FIELD));
+    }
+}
@@ -1,10 +1,9 @@
 package com.neighbor.eventmosaic.api.service;
 
 import com.neighbor.eventmosaic.api.document.EventDocument;
-import com.neighbor.eventmosaic.api.document.MentionDocument;
 import com.neighbor.eventmosaic.api.dto.details.EventDetailsResponse;
-
-import java.util.List;
+import com.neighbor.eventmosaic.api.dto.details.MentionStats;
+import com.neighbor.eventmosaic.api.dto.details.MentionsPage;
 
 /**
  * Сервис для формирования детального ответа о событии.
@@ -13,11 +12,14 @@ import java.util.List;
 public interface EventDetailsService {
 
     /**
-     * Создает полный ответ с деталями события и упоминаниями.
+     * Создает полный ответ с деталями события, первой страницей и агрегатами упоминаний.
      *
      * @param eventDocument документ события
-     * @param mentions      список упоминаний события
+     * @param mentionsPage  первая страница упоминаний события
+     * @param mentionStats  агрегаты упоминаний события
      * @return полный {@link EventDetailsResponse} с событием и упоминаниями
      */
-    EventDetailsResponse buildEventDetailsResponse(EventDocument eventDocument, List<MentionDocument> mentions);
+    EventDetailsResponse buildEventDetailsResponse(EventDocument eventDocument,
+                                                   MentionsPage mentionsPage,
+                                                   MentionStats mentionStats);
 } 
\ No newline at end of file
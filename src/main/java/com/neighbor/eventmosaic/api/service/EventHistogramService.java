@@ -0,0 +1,22 @@
+package com.neighbor.eventmosaic.api.service;
+
+import com.neighbor.eventmosaic.api.dto.EventMapQueryParameters;
+import com.neighbor.eventmosaic.api.dto.histogram.EventHistogram;
+import com.neighbor.eventmosaic.api.exception.InvalidApiParameterException;
+
+/**
+ * Сервис гистограммы событий по времени (для шкалы времени на карте).
+ */
+public interface EventHistogramService {
+
+    /**
+     * Строит гистограмму событий области: количество событий и средний тон в каждой корзине.
+     * Диапазон расширяется до границ корзин, пустые корзины входят в ответ с нулевым количеством.
+     *
+     * @param params   параметры запроса (даты, bbox, zoom)
+     * @param interval интервал корзин (15m, 1h, 3h, 6h, 12h, 1d) или null для интервала по умолчанию
+     * @return гистограмма
+     * @throws InvalidApiParameterException если интервал не поддерживается или корзин слишком много
+     */
+    EventHistogram getHistogram(EventMapQueryParameters params, String interval) throws InvalidApiParameterException;
+}
@@ -1,8 +1,11 @@
 package com.neighbor.eventmosaic.api.service;
 
-import com.neighbor.eventmosaic.api.document.EventDocument;
+import com.neighbor.eventmosaic.api.document.EventMapProjection;
+import com.neighbor.eventmosaic.api.dto.EventCluster;
 import com.neighbor.eventmosaic.api.dto.EventMapQueryParameters;
+import reactor.core.publisher.Flux;
 
+import java.time.OffsetDateTime;
 import java.util.List;
 
 /**
@@ -14,7 +17,67 @@ public interface EventQueryService {
      * Находит события по параметрам запроса.
      *
      * @param params параметры запроса (даты, bbox)
-     * @return список найденных событий
+     * @return список проекций найденных событий
      */
-    List<EventDocument> findEvents(EventMapQueryParameters params);
+    List<EventMapProjection> findEvents(EventMapQueryParameters params);
+
+    /**
+     * Находит события в уже вычисленных временном диапазоне и области.
+     * Если событий больше maxIndividualEventsPerRequest, а zoom задан, события прореживаются
+     * равномерно по сетке области, зависящей от zoom.
+     *
+     * @param start начало диапазона (включительно)
+     * @param end   конец диапазона (включительно)
+     * @param bbox  массив [minLat, minLon, maxLat, maxLon] или null
+     * @param zoom  уровень масштабирования (может быть null)
+     * @return список проекций найденных событий
+     */
+    List<EventMapProjection> findEvents(OffsetDateTime start, OffsetDateTime end, double[] bbox, Integer zoom);
+
+    /**
+     * Потоково читает события по параметрам запроса.
+     * Количество событий ограничено maxStreamedEventsPerRequest, из Elasticsearch они читаются
+     * страницами по streamBatchSize по мере потребления.
+     *
+     * @param params параметры запроса (даты, bbox)
+     * @return поток проекций найденных событий
+     */
+    Flux<EventMapProjection> streamEvents(EventMapQueryParameters params);
+
+    /**
+     * Находит кластеры событий по параметрам запроса.
+     * Precision сетки определяется уровнем масштабирования (zoom).
+     *
+     * @param params параметры запроса (даты, bbox, zoom)
+     * @return список кластеров
+     */
+    List<EventCluster> findClusters(EventMapQueryParameters params);
+
+    /**
+     * Находит кластеры событий в уже вычисленных временном диапазоне и области.
+     *
+     * @param start начало диапазона (включительно)
+     * @param end   конец диапазона (включительно)
+     * @param bbox  массив [minLat, minLon, maxLat, maxLon] или null
+     * @param zoom  уровень масштабирования (может быть null)
+     * @return список кластеров
+     */
+    List<EventCluster> findClusters(OffsetDateTime start, OffsetDateTime end, double[] bbox, Integer zoom);
+
+    /**
+     * Определяет временной диапазон запроса по его параметрам.
+     *
+     * @param params параметры запроса (даты)
+     * @return массив [startDate, endDate]
+     */
+    OffsetDateTime[] resolveDateRange(EventMapQueryParameters params);
+
+    /**
+     * Определяет географическую область запроса.
+     * Если bbox не задан или не распознан, фильтр по области не применяется.
+     *
+     * @param bboxStr строка bbox из параметров запроса
+     * @return массив [minLat, minLon, maxLat, maxLon] или null
+     */
+    double[] resolveBoundingBox(String bboxStr);
 } 
\ No newline at end of file
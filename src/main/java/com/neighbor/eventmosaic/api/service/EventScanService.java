@@ -0,0 +1,28 @@
+package com.neighbor.eventmosaic.api.service;
+
+import com.neighbor.eventmosaic.api.dto.EventMapQueryParameters;
+import com.neighbor.eventmosaic.api.exception.InvalidApiParameterException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Сервис сплошного чтения событий области без ограничения на количество событий.
+ * События читаются в point-in-time страницами search_after; за один запрос читается ограниченное
+ * число страниц, а клиент получает курсор для продолжения.
+ */
+public interface EventScanService {
+
+    /**
+     * Записывает очередную порцию событий как GeoJSON FeatureCollection с полем nextCursor.
+     * Без курсора открывается новый point-in-time по параметрам запроса; с курсором чтение продолжается
+     * с места остановки, а параметры запроса игнорируются. На последней порции nextCursor отсутствует.
+     *
+     * @param params параметры запроса (даты, bbox)
+     * @param cursor курсор продолжения из предыдущего ответа или null
+     * @param output поток для записи GeoJSON
+     * @throws InvalidApiParameterException если курсор некорректен или point-in-time истек
+     * @throws IOException                  при ошибке записи в поток
+     */
+    void writeEventsScan(EventMapQueryParameters params, String cursor, OutputStream output) throws IOException;
+}
@@ -2,8 +2,17 @@ package com.neighbor.eventmosaic.api.service;
 
 import com.neighbor.eventmosaic.api.dto.EventMapQueryParameters;
 import com.neighbor.eventmosaic.api.dto.details.EventDetailsResponse;
-import com.neighbor.eventmosaic.api.dto.geojson.GeoJsonFeatureCollection;
+import com.neighbor.eventmosaic.api.dto.details.MentionsPage;
+import com.neighbor.eventmosaic.api.dto.geojson.GeoJsonFeature;
+import com.neighbor.eventmosaic.api.exception.InvalidApiParameterException;
 import com.neighbor.eventmosaic.api.exception.ResourceNotFoundException;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Сервис для обработки запросов, связанных с событиями GDELT.
@@ -11,20 +20,56 @@ import com.neighbor.eventmosaic.api.exception.ResourceNotFoundException;
 public interface EventService {
 
     /**
-     * Получает события и/или кластеры событий для отображения на карте.
+     * Получает события и/или кластеры событий для отображения на карте
+     * и записывает их в поток как GeoJSON FeatureCollection.
      *
      * @param params параметры запроса (диапазон дат, bbox, zoom)
-     * @return GeoJsonFeatureCollection с событиями/кластерами
+     * @param output поток для записи GeoJSON
+     * @throws IOException при ошибке записи в поток
      */
-    GeoJsonFeatureCollection getEventsForMap(EventMapQueryParameters params);
+    void writeEventsForMap(EventMapQueryParameters params, OutputStream output) throws IOException;
 
     /**
-     * Получает детальную информацию о конкретном событии, включая список упоминаний.
+     * Потоково отдает отдельные события для карты (без кластеризации и кеширования ответа).
+     * События преобразуются в GeoJSON Feature по мере чтения из Elasticsearch.
      *
-     * @param eventId глобальный идентификатор события
+     * @param params параметры запроса (диапазон дат, bbox)
+     * @return поток GeoJSON Feature; события без координат пропускаются
+     */
+    Flux<GeoJsonFeature> streamEventsForMap(EventMapQueryParameters params);
+
+    /**
+     * Получает детальную информацию о конкретном событии, включая первую страницу упоминаний.
+     *
+     * Если клиент знает дату события, событие и упоминания загружаются параллельно.
+     *
+     * @param eventId       глобальный идентификатор события
+     * @param eventDateHint дата события, известная клиенту (может быть null)
      * @return EventDetailsResponse с деталями события
      * @throws ResourceNotFoundException если событие с указанным ID не найдено
      */
-    EventDetailsResponse getEventDetails(Long eventId) throws ResourceNotFoundException;
+    EventDetailsResponse getEventDetails(Long eventId, LocalDate eventDateHint) throws ResourceNotFoundException;
+
+    /**
+     * Получает детальную информацию о нескольких событиях.
+     * Все события читаются одним запросом, все окна упоминаний - одним _msearch.
+     *
+     * @param eventIds глобальные идентификаторы событий
+     * @return детали событий по идентификаторам в порядке запроса; ненайденные события отсутствуют
+     * @throws InvalidApiParameterException если идентификаторов больше допустимого
+     */
+    Map<Long, EventDetailsResponse> getEventDetailsBatch(List<Long> eventIds) throws InvalidApiParameterException;
+
+    /**
+     * Получает страницу упоминаний события.
+     * Без курсора возвращается первая страница, иначе - страница, следующая за курсором.
+     *
+     * @param eventId глобальный идентификатор события
+     * @param limit   размер страницы (может быть null)
+     * @param cursor  курсор из предыдущей страницы (может быть null)
+     * @return страница упоминаний
+     * @throws ResourceNotFoundException если событие с указанным ID не найдено
+     */
+    MentionsPage getEventMentions(Long eventId, Integer limit, String cursor) throws ResourceNotFoundException;
 
 } 
\ No newline at end of file
@@ -1,10 +1,16 @@
 package com.neighbor.eventmosaic.api.service;
 
-import com.neighbor.eventmosaic.api.document.EventDocument;
+import com.neighbor.eventmosaic.api.document.EventMapProjection;
+import com.neighbor.eventmosaic.api.dto.EventCluster;
+import com.neighbor.eventmosaic.api.dto.EventPointCursor;
 import com.neighbor.eventmosaic.api.dto.geojson.GeoJsonFeature;
 import com.neighbor.eventmosaic.api.dto.geojson.GeoJsonFeatureCollection;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
 import java.util.List;
+import java.util.function.Supplier;
 
 /**
  * Сервис для конвертации событий в формат GeoJSON.
@@ -17,7 +23,7 @@ public interface GeoJsonConversionService {
      * @param events список событий
      * @return GeoJSON FeatureCollection
      */
-    GeoJsonFeatureCollection convertToGeoJson(List<EventDocument> events);
+    GeoJsonFeatureCollection convertToGeoJson(List<EventMapProjection> events);
 
     /**
      * Конвертирует одно событие в GeoJSON Feature.
@@ -25,5 +31,65 @@ public interface GeoJsonConversionService {
      * @param event событие
      * @return GeoJSON Feature или null если событие не может быть конвертировано
      */
-    GeoJsonFeature convertEventToFeature(EventDocument event);
+    GeoJsonFeature convertEventToFeature(EventMapProjection event);
+
+    /**
+     * Конвертирует список кластеров в GeoJSON FeatureCollection.
+     *
+     * @param clusters список кластеров
+     * @return GeoJSON FeatureCollection
+     */
+    GeoJsonFeatureCollection convertClustersToGeoJson(List<EventCluster> clusters);
+
+    /**
+     * Конвертирует один кластер в GeoJSON Feature.
+     *
+     * @param cluster кластер
+     * @return GeoJSON Feature или null если кластер не может быть конвертирован
+     */
+    GeoJsonFeature convertClusterToFeature(EventCluster cluster);
+
+    /**
+     * Записывает список событий как GeoJSON FeatureCollection напрямую в поток.
+     * Результат совпадает с сериализацией {@link #convertToGeoJson(List)}, но без построения
+     * промежуточных объектов GeoJsonFeature.
+     *
+     * @param events список событий
+     * @param output поток для записи (не закрывается)
+     * @throws IOException при ошибке записи
+     */
+    void writeGeoJson(List<EventMapProjection> events, OutputStream output) throws IOException;
+
+    /**
+     * Записывает события как GeoJSON FeatureCollection по мере их получения из итератора,
+     * не удерживая их в памяти. После последнего события в коллекцию добавляется поле nextCursor,
+     * если nextCursor вернул не null.
+     *
+     * @param events     события
+     * @param nextCursor курсор продолжения, запрашивается после записи всех событий
+     * @param output     поток для записи (не закрывается)
+     * @throws IOException при ошибке записи
+     */
+    void writeGeoJson(Iterator<EventMapProjection> events, Supplier<String> nextCursor, OutputStream output)
+            throws IOException;
+
+    /**
+     * Записывает события курсора как GeoJSON FeatureCollection напрямую в поток.
+     * Координаты событий курсора уже выбраны, поэтому каждое событие записывается как есть.
+     *
+     * @param events курсор событий
+     * @param output поток для записи (не закрывается)
+     * @throws IOException при ошибке записи
+     */
+    void writeGeoJson(EventPointCursor events, OutputStream output) throws IOException;
+
+    /**
+     * Записывает список кластеров как GeoJSON FeatureCollection напрямую в поток.
+     * Результат совпадает с сериализацией {@link #convertClustersToGeoJson(List)}.
+     *
+     * @param clusters список кластеров
+     * @param output   поток для записи (не закрывается)
+     * @throws IOException при ошибке записи
+     */
+    void writeClustersGeoJson(List<EventCluster> clusters, OutputStream output) throws IOException;
 } 
\ No newline at end of file
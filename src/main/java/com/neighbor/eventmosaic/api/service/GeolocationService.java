@@ -1,6 +1,7 @@
 package com.neighbor.eventmosaic.api.service;
 
 import com.neighbor.eventmosaic.api.document.EventDocument;
+import com.neighbor.eventmosaic.api.document.EventMapProjection;
 import org.springframework.data.elasticsearch.core.geo.GeoPoint;
 
 import java.util.Optional;
@@ -22,4 +23,13 @@ public interface GeolocationService {
      * @return координаты события или Optional.empty() если геоданные отсутствуют
      */
     Optional<GeoPoint> selectBestCoordinates(EventDocument eventDocument);
+
+    /**
+     * Выбирает наилучшие координаты для проекции события по тому же приоритету,
+     * что и {@link #selectBestCoordinates(EventDocument)}.
+     *
+     * @param projection проекция события для карты
+     * @return координаты события или Optional.empty() если геоданные отсутствуют
+     */
+    Optional<GeoPoint> selectBestCoordinates(EventMapProjection projection);
 } 
\ No newline at end of file
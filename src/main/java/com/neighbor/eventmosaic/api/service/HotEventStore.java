@@ -0,0 +1,49 @@
+package com.neighbor.eventmosaic.api.service;
+
+import com.neighbor.eventmosaic.api.dto.EventCluster;
+import com.neighbor.eventmosaic.api.dto.EventPointCursor;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Хранилище событий окна по умолчанию (defaultEventWindowHours) в памяти.
+ * Отвечает на запросы карты, диапазон которых целиком лежит внутри загруженного окна;
+ * для остальных запросов возвращает пустой Optional, и они выполняются в Elasticsearch.
+ */
+public interface HotEventStore {
+
+    /**
+     * Находит события в диапазоне и области.
+     * При rankMapEventsByImportance возвращает самые важные события в порядке убывания важности.
+     * Если событий больше лимита, а zoom задан, события прореживаются равномерно по сетке области.
+     *
+     * @param start начало диапазона (включительно)
+     * @param end   конец диапазона (включительно)
+     * @param bbox  массив [minLat, minLon, maxLat, maxLon] или null
+     * @param zoom  уровень масштабирования (может быть null)
+     * @param limit максимальное количество событий
+     * @return курсор событий или пустой Optional, если диапазон не покрыт хранилищем
+     */
+    Optional<EventPointCursor> findEvents(OffsetDateTime start, OffsetDateTime end, double[] bbox, Integer zoom,
+                                          int limit);
+
+    /**
+     * Группирует события диапазона и области по ячейкам geotile, как агрегация geotile_grid.
+     *
+     * @param start       начало диапазона (включительно)
+     * @param end         конец диапазона (включительно)
+     * @param bbox        массив [minLat, minLon, maxLat, maxLon] или null
+     * @param precision   уровень сетки geotile
+     * @param maxClusters максимальное количество кластеров (самые крупные ячейки)
+     * @return кластеры или пустой Optional, если диапазон не покрыт хранилищем
+     */
+    Optional<List<EventCluster>> findClusters(OffsetDateTime start, OffsetDateTime end, double[] bbox,
+                                              int precision, int maxClusters);
+
+    /**
+     * Перезагружает хранилище по текущему окну по умолчанию.
+     */
+    void refresh();
+}
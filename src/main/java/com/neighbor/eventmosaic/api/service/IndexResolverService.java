@@ -0,0 +1,77 @@
+package com.neighbor.eventmosaic.api.service;
+
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Сервис для выбора ежедневных индексов Elasticsearch под временной диапазон запроса.
+ * Позволяет не опрашивать все индексы gdelt-events-* и gdelt-mentions-* ради запроса за один-два дня.
+ */
+public interface IndexResolverService {
+
+    /**
+     * Определяет существующие ежедневные индексы событий (gdelt-events-YYYY-MM-DD) для диапазона.
+     * Индексы с сегодняшнего дня (UTC) включаются всегда, даже если они созданы после обновления кеша.
+     * Если список существующих индексов еще не загружен, возвращается общий шаблон индексов.
+     *
+     * @param start начало диапазона (включительно)
+     * @param end   конец диапазона (включительно)
+     * @return координаты индексов или Optional.empty(), если за прошедшие дни периода нет ни одного индекса
+     */
+    Optional<IndexCoordinates> resolveEventIndices(OffsetDateTime start, OffsetDateTime end);
+
+    /**
+     * Определяет существующие ежедневные индексы упоминаний (gdelt-mentions-YYYY-MM-DD) для диапазона
+     * времени упоминаний. Индексы с сегодняшнего дня (UTC) включаются всегда, даже если они созданы после
+     * обновления кеша. Если список существующих индексов еще не загружен, возвращается общий шаблон индексов.
+     *
+     * @param start начало диапазона (включительно)
+     * @param end   конец диапазона (включительно)
+     * @return координаты индексов или Optional.empty(), если за прошедшие дни периода нет ни одного индекса
+     */
+    Optional<IndexCoordinates> resolveMentionIndices(OffsetDateTime start, OffsetDateTime end);
+
+    /**
+     * Определяет ежедневные индексы событий, в которых может находиться событие с заданным идентификатором,
+     * по диапазонам globalEventId индексов.
+     * Если диапазоны еще не загружены или идентификатор больше всех известных (событие загружено после
+     * обновления диапазонов), возвращается общий шаблон индексов.
+     *
+     * @param eventId идентификатор события
+     * @return координаты индексов или Optional.empty(), если идентификатор не входит ни в один диапазон
+     */
+    Optional<IndexCoordinates> resolveEventIndicesForId(long eventId);
+
+    /**
+     * Группирует идентификаторы событий по индексам, в которых их нужно искать, по диапазонам globalEventId
+     * индексов. Идентификаторы, попавшие в диапазоны, ищутся только в объединении своих индексов, а общий
+     * шаблон индексов используется лишь для идентификаторов новее всех известных диапазонов (или для всех,
+     * если диапазоны еще не загружены). Идентификаторы вне всех диапазонов в результат не попадают.
+     *
+     * @param eventIds идентификаторы событий
+     * @return идентификаторы по координатам индексов (не больше двух групп, пустые группы не включаются)
+     */
+    Map<IndexCoordinates, List<Long>> resolveEventIndicesForIds(Collection<Long> eventIds);
+
+    /**
+     * Определяет вероятную дату события по его идентификатору без запроса к Elasticsearch: дату самого
+     * нового ежедневного индекса, диапазон globalEventId которого содержит идентификатор. Дата нужна,
+     * чтобы искать упоминания параллельно с чтением события; настоящую дату все равно дает событие.
+     *
+     * @param eventId идентификатор события
+     * @return дата индекса или Optional.empty(), если диапазоны не загружены или идентификатор вне их
+     */
+    Optional<LocalDate> resolveEventDateForId(long eventId);
+
+    /**
+     * Обновляет кеш существующих индексов и диапазоны идентификаторов событий в них.
+     * Вызывается по расписанию, но может быть вызван и вручную.
+     */
+    void refreshIndexCache();
+}
@@ -0,0 +1,55 @@
+package com.neighbor.eventmosaic.api.service;
+
+import com.neighbor.eventmosaic.api.dto.MapCacheKey;
+import com.neighbor.eventmosaic.api.dto.TileCoordinates;
+
+import java.time.OffsetDateTime;
+import java.util.Optional;
+
+/**
+ * Сервис кеширования сериализованных ответов карты (GeoJSON и векторных тайлов).
+ * Записи за закрытые дни не меняются и живут до вытеснения, записи за текущий день - короткое время.
+ */
+public interface MapResponseCacheService {
+
+    /**
+     * Формирует ключ кеша для произвольной области карты.
+     * Область расширяется до границ тайлов уровня zoom, а если zoom не задан - до тайлов уровня,
+     * соответствующего размеру области.
+     *
+     * @param format формат ответа
+     * @param start  начало диапазона
+     * @param end    конец диапазона
+     * @param bbox   массив [minLat, minLon, maxLat, maxLon] или null
+     * @param zoom   уровень масштабирования (может быть null)
+     * @return ключ кеша; область запроса следует брать из {@link MapCacheKey#toBoundingBox()}
+     */
+    MapCacheKey createKey(String format, OffsetDateTime start, OffsetDateTime end, double[] bbox, Integer zoom);
+
+    /**
+     * Формирует ключ кеша для тайла.
+     *
+     * @param format формат ответа
+     * @param tile   координаты тайла
+     * @param start  начало диапазона
+     * @param end    конец диапазона
+     * @return ключ кеша
+     */
+    MapCacheKey createKey(String format, TileCoordinates tile, OffsetDateTime start, OffsetDateTime end);
+
+    /**
+     * Возвращает закешированный ответ.
+     *
+     * @param key ключ кеша
+     * @return сериализованный ответ или Optional.empty(), если записи нет
+     */
+    Optional<byte[]> get(MapCacheKey key);
+
+    /**
+     * Сохраняет сериализованный ответ в кеш.
+     *
+     * @param key      ключ кеша
+     * @param response сериализованный ответ
+     */
+    void put(MapCacheKey key, byte[] response);
+}
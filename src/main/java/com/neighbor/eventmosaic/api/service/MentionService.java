@@ -0,0 +1,57 @@
+package com.neighbor.eventmosaic.api.service;
+
+import com.neighbor.eventmosaic.api.dto.details.EventMentions;
+import com.neighbor.eventmosaic.api.dto.details.MentionStats;
+import com.neighbor.eventmosaic.api.dto.details.MentionsPage;
+import com.neighbor.eventmosaic.api.exception.InvalidApiParameterException;
+
+import java.time.OffsetDateTime;
+import java.util.Map;
+
+/**
+ * Сервис постраничного чтения упоминаний события.
+ * Страницы читаются через search_after; курсор непрозрачен для клиента и содержит окно поиска,
+ * поэтому следующие страницы не требуют повторного чтения события.
+ */
+public interface MentionService {
+
+    /**
+     * Находит первую страницу упоминаний события.
+     *
+     * @param eventId   глобальный идентификатор события
+     * @param eventDate дата события, от которой отсчитывается окно поиска упоминаний
+     * @param limit     размер страницы (может быть null - используется размер по умолчанию)
+     * @return страница упоминаний
+     * @throws InvalidApiParameterException если размер страницы вне допустимого диапазона
+     */
+    MentionsPage getFirstPage(Long eventId, OffsetDateTime eventDate, Integer limit);
+
+    /**
+     * Находит следующую страницу упоминаний события по курсору.
+     *
+     * @param eventId глобальный идентификатор события
+     * @param cursor  курсор из предыдущей страницы
+     * @param limit   размер страницы (может быть null - используется размер по умолчанию)
+     * @return страница упоминаний
+     * @throws InvalidApiParameterException если курсор поврежден, выдан для другого события
+     *                                      или размер страницы вне допустимого диапазона
+     */
+    MentionsPage getNextPage(Long eventId, String cursor, Integer limit);
+
+    /**
+     * Вычисляет агрегаты упоминаний события: средний тон и количество источников.
+     *
+     * @param eventId   глобальный идентификатор события
+     * @param eventDate дата события, от которой отсчитывается окно поиска упоминаний
+     * @return агрегаты упоминаний
+     */
+    MentionStats getMentionStats(Long eventId, OffsetDateTime eventDate);
+
+    /**
+     * Находит первые страницы и агрегаты упоминаний нескольких событий одним запросом к Elasticsearch.
+     *
+     * @param eventDates даты событий по их идентификаторам
+     * @return упоминания по идентификаторам событий
+     */
+    Map<Long, EventMentions> getFirstPages(Map<Long, OffsetDateTime> eventDates);
+}
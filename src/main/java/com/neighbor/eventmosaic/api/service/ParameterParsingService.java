@@ -2,6 +2,7 @@ package com.neighbor.eventmosaic.api.service;
 
 import com.neighbor.eventmosaic.api.exception.InvalidApiParameterException;
 
+import java.time.LocalDate;
 import java.time.OffsetDateTime;
 
 /**
@@ -21,6 +22,8 @@ public interface ParameterParsingService {
 
     /**
      * Создает временной диапазон для запроса.
+     * Если не задана ни одна дата, окно заканчивается на ближайшей границе интервала выравнивания
+     * после текущего момента, чтобы одинаковые запросы получали одинаковый диапазон.
      *
      * @param since              начальная дата (может быть null)
      * @param until              конечная дата (может быть null)
@@ -30,4 +33,17 @@ public interface ParameterParsingService {
     OffsetDateTime[] createDateRange(OffsetDateTime since,
                                      OffsetDateTime until,
                                      int defaultWindowHours);
+
+    /**
+     * Создает временной диапазон для запроса по датам из параметров запроса.
+     * since означает начало дня (UTC), until - конец дня (UTC) включительно.
+     *
+     * @param since              начальная дата (может быть null)
+     * @param until              конечная дата (может быть null)
+     * @param defaultWindowHours окно по умолчанию в часах
+     * @return массив [startDate, endDate]
+     */
+    OffsetDateTime[] createDateRange(LocalDate since,
+                                     LocalDate until,
+                                     int defaultWindowHours);
 } 
\ No newline at end of file
@@ -0,0 +1,14 @@
+package com.neighbor.eventmosaic.api.service;
+
+/**
+ * Сервис сбора статистики shard request cache Elasticsearch по индексам событий.
+ * Статистика публикуется в метриках elasticsearch.request.cache.*, по ним считается доля попаданий.
+ */
+public interface RequestCacheStatsService {
+
+    /**
+     * Обновляет статистику request cache.
+     * Вызывается по расписанию, но может быть вызван и вручную.
+     */
+    void refreshStats();
+}
@@ -0,0 +1,21 @@
+package com.neighbor.eventmosaic.api.service;
+
+import com.neighbor.eventmosaic.api.dto.EventTileQueryParameters;
+import com.neighbor.eventmosaic.api.dto.TileCoordinates;
+import com.neighbor.eventmosaic.api.exception.InvalidApiParameterException;
+
+/**
+ * Сервис для формирования векторных тайлов (Mapbox Vector Tile) с событиями и кластерами.
+ */
+public interface VectorTileService {
+
+    /**
+     * Формирует MVT-тайл со слоями событий и кластеров.
+     *
+     * @param tile   координаты тайла
+     * @param params параметры запроса (диапазон дат)
+     * @return тайл в формате protobuf; пустой массив, если в тайле нет событий
+     * @throws InvalidApiParameterException если координаты тайла некорректны
+     */
+    byte[] getEventsTile(TileCoordinates tile, EventTileQueryParameters params);
+}
@@ -0,0 +1,21 @@
+package com.neighbor.eventmosaic.api.service;
+
+import com.neighbor.eventmosaic.api.dto.CarrierPoolStats;
+
+import java.util.Optional;
+
+/**
+ * Сервис диагностики виртуальных потоков.
+ * Пишет в лог долгие закрепления (pinning) виртуальных потоков со стеком вызовов и, если включено,
+ * публикует метрики загрузки потоков-носителей jvm.threads.virtual.carrier.*.
+ */
+public interface VirtualThreadDiagnosticsService {
+
+    /**
+     * Возвращает состояние пула потоков-носителей.
+     *
+     * @return снимок состояния или Optional.empty(), если метрики пула выключены или пул недоступен
+     * (JVM запущена без --add-opens java.base/java.lang=ALL-UNNAMED)
+     */
+    Optional<CarrierPoolStats> getCarrierPoolStats();
+}
@@ -0,0 +1,350 @@
+package com.neighbor.eventmosaic.api.service.impl;
+
+import com.neighbor.eventmosaic.api.dto.ApiGeoPoint;
+import com.neighbor.eventmosaic.api.dto.EventCluster;
+import com.neighbor.eventmosaic.api.dto.TileCoordinates;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Неизменяемая пирамида кластеров событий по уровням precision от 0 до максимального (как в supercluster).
+ * Самый детальный уровень собирается жадной кластеризацией из событий, каждый следующий - из кластеров
+ * предыдущего: точка, еще не вошедшая в кластер, забирает всех свободных соседей в радиусе половины
+ * ячейки geotile своего уровня, центр кластера - среднее координат Web Mercator, взвешенное количеством событий.
+ * Поэтому кластеры вложены друг в друга и не прыгают на границах ячеек сетки.
+ * Уровень строится параллельно (fork/join): точки делятся на вертикальные полосы шире двух радиусов,
+ * сначала обрабатываются четные полосы, затем нечетные - одновременно обрабатываемые полосы не могут
+ * претендовать на одну и ту же точку. Каждый уровень хранит свой {@link PackedHilbertRTree},
+ * так что запрос области на любом уровне - обход дерева без группировки событий.
+ * Расстояния считаются по координате x проекции без переноса через край карты, поэтому точки по разные
+ * стороны антимеридиана никогда не объединяются в один кластер, даже на нулевом уровне.
+ */
+final class ClusterPyramid {
+
+    /**
+     * Радиус кластеризации в ячейках geotile уровня.
+     */
+    private static final double CLUSTER_RADIUS_CELLS = 0.5;
+
+    /**
+     * Количество полос на поток при параллельной кластеризации уровня.
+     */
+    private static final int STRIPS_PER_THREAD = 4;
+
+    /**
+     * Значение идентификатора события для кластеров из нескольких событий.
+     */
+    private static final long NO_EVENT = -1;
+
+    /**
+     * Уровни пирамиды, индекс - precision.
+     */
+    private final Level[] levels;
+
+    /**
+     * Строит пирамиду по событиям.
+     *
+     * @param eventIds     идентификаторы событий
+     * @param lats         широты событий
+     * @param lons         долготы событий
+     * @param avgTones     средний тон событий, NaN - не задан
+     * @param size         количество событий
+     * @param maxPrecision самый детальный уровень пирамиды
+     */
+    ClusterPyramid(long[] eventIds, double[] lats, double[] lons, double[] avgTones, int size, int maxPrecision) {
+        levels = new Level[maxPrecision + 1];
+        Level level = Level.ofEvents(eventIds, lats, lons, avgTones, size);
+        for (int precision = maxPrecision; precision >= 0; precision--) {
+            level = level.cluster(CLUSTER_RADIUS_CELLS / (1L << precision));
+            levels[precision] = level;
+        }
+    }
+
+    /**
+     * @return самый детальный уровень пирамиды
+     */
+    int maxPrecision() {
+        return levels.length - 1;
+    }
+
+    /**
+     * Количество кластеров на уровне.
+     */
+    int size(int precision) {
+        return levels[precision].size;
+    }
+
+    /**
+     * Возвращает кластеры уровня в области.
+     *
+     * @param precision   уровень пирамиды
+     * @param bbox        массив [minLat, minLon, maxLat, maxLon] или null
+     * @param maxClusters максимальное количество кластеров (самые крупные)
+     * @return кластеры в порядке убывания количества событий
+     */
+    List<EventCluster> clusters(int precision, double[] bbox, int maxClusters) {
+        Level level = levels[precision];
+        PackedHilbertRTree.Query rows = level.index.query(bbox, Long.MIN_VALUE, Long.MAX_VALUE);
+
+        List<Integer> found = new ArrayList<>();
+        for (int row = rows.nextRow(); row >= 0; row = rows.nextRow()) {
+            found.add(row);
+        }
+        found.sort(Comparator.comparingInt((Integer row) -> level.counts[row]).reversed());
+
+        return found.stream()
+                .limit(maxClusters)
+                .map(level::toCluster)
+                .toList();
+    }
+
+    private static double mercatorX(double lon) {
+        return TileCoordinates.tileX(lon, 0);
+    }
+
+    private static double mercatorY(double lat) {
+        return TileCoordinates.tileY(TileCoordinates.clampLatitude(lat), 0);
+    }
+
+    private static double longitude(double mercatorX) {
+        return mercatorX * 360.0 - 180.0;
+    }
+
+    private static double latitude(double mercatorY) {
+        return Math.toDegrees(Math.atan(Math.sinh(Math.PI * (1.0 - 2.0 * mercatorY))));
+    }
+
+    /**
+     * Уровень пирамиды: кластеры в порядке кривой Гильберта и дерево над ними.
+     * Координаты хранятся и в проекции Web Mercator (для расстояний), и в градусах (для дерева).
+     */
+    private static final class Level {
+
+        private final double[] xs;
+        private final double[] ys;
+        private final double[] lats;
+        private final double[] lons;
+        private final int[] counts;
+        private final double[] toneSums;
+        private final int[] toneCounts;
+        private final long[] eventIds;
+        private final int size;
+        private final PackedHilbertRTree index;
+
+        /**
+         * Упорядочивает кластеры вдоль кривой Гильберта и строит над ними дерево.
+         */
+        private Level(ClusterBuffer clusters) {
+            int count = clusters.size;
+            double[] allLats = new double[count];
+            double[] allLons = new double[count];
+            for (int i = 0; i < count; i++) {
+                allLats[i] = latitude(clusters.ys[i]);
+                allLons[i] = longitude(clusters.xs[i]);
+            }
+            int[] order = PackedHilbertRTree.hilbertOrder(allLats, allLons, count);
+
+            xs = new double[count];
+            ys = new double[count];
+            lats = new double[count];
+            lons = new double[count];
+            counts = new int[count];
+            toneSums = new double[count];
+            toneCounts = new int[count];
+            eventIds = new long[count];
+            long[] keys = new long[count];
+            IntStream.range(0, count).parallel().forEach(i -> {
+                int row = order[i];
+                xs[i] = clusters.xs[row];
+                ys[i] = clusters.ys[row];
+                lats[i] = allLats[row];
+                lons[i] = allLons[row];
+                counts[i] = clusters.counts[row];
+                toneSums[i] = clusters.toneSums[row];
+                toneCounts[i] = clusters.toneCounts[row];
+                eventIds[i] = clusters.eventIds[row];
+                keys[i] = clusters.counts[row];
+            });
+            size = count;
+            index = new PackedHilbertRTree(lats, lons, keys, count);
+        }
+
+        /**
+         * Нулевой уровень кластеризации: каждое событие - отдельный кластер.
+         */
+        static Level ofEvents(long[] eventIds, double[] lats, double[] lons, double[] avgTones, int size) {
+            ClusterBuffer events = new ClusterBuffer(size);
+            for (int row = 0; row < size; row++) {
+                boolean hasTone = !Double.isNaN(avgTones[row]);
+                events.add(mercatorX(lons[row]), mercatorY(lats[row]), 1,
+                        hasTone ? avgTones[row] : 0.0, hasTone ? 1 : 0, eventIds[row]);
+            }
+            return new Level(events);
+        }
+
+        /**
+         * Строит следующий, более крупный уровень жадной кластеризацией кластеров этого уровня.
+         * Если ни один кластер не объединился, возвращает этот же уровень, чтобы не хранить его копию.
+         *
+         * @param radius радиус кластеризации в единицах проекции Web Mercator (мир - [0, 1])
+         */
+        Level cluster(double radius) {
+            int parallelism = ForkJoinPool.getCommonPoolParallelism();
+            double stripWidth = Math.max(radius * 2.5, 1.0 / (parallelism * STRIPS_PER_THREAD));
+            int stripCount = Math.max(1, (int) Math.ceil(1.0 / stripWidth));
+
+            // Номера точек по полосам с сохранением порядка кривой внутри полосы
+            int[] strips = new int[size];
+            int[] stripStarts = new int[stripCount + 1];
+            for (int row = 0; row < size; row++) {
+                strips[row] = Math.min((int) (xs[row] / stripWidth), stripCount - 1);
+                stripStarts[strips[row] + 1]++;
+            }
+            Arrays.parallelPrefix(stripStarts, Integer::sum);
+            int[] stripRows = new int[size];
+            int[] positions = Arrays.copyOf(stripStarts, stripCount);
+            for (int row = 0; row < size; row++) {
+                stripRows[positions[strips[row]]++] = row;
+            }
+
+            boolean[] claimed = new boolean[size];
+            ClusterBuffer[] stripClusters = new ClusterBuffer[stripCount];
+            for (int phase = 0; phase < 2; phase++) {
+                int first = phase;
+                IntStream.range(0, (stripCount - first + 1) / 2).parallel().forEach(i -> {
+                    int strip = first + 2 * i;
+                    stripClusters[strip] = clusterStrip(stripRows, stripStarts[strip], stripStarts[strip + 1],
+                            radius, claimed);
+                });
+            }
+
+            int total = Arrays.stream(stripClusters).mapToInt(buffer -> buffer.size).sum();
+            if (total == size) {
+                return this;
+            }
+            ClusterBuffer merged = new ClusterBuffer(total);
+            for (ClusterBuffer buffer : stripClusters) {
+                merged.addAll(buffer);
+            }
+            return new Level(merged);
+        }
+
+        /**
+         * Жадная кластеризация точек одной полосы. Точки в радиусе забираются и из соседних полос.
+         */
+        private ClusterBuffer clusterStrip(int[] stripRows, int from, int to, double radius, boolean[] claimed) {
+            ClusterBuffer clusters = new ClusterBuffer(Math.max(16, (to - from) / 4));
+            double radiusSquared = radius * radius;
+            double[] neighbourhood = new double[4];
+
+            for (int i = from; i < to; i++) {
+                int row = stripRows[i];
+                if (claimed[row]) {
+                    continue;
+                }
+                claimed[row] = true;
+
+                int count = counts[row];
+                double weightedX = xs[row] * count;
+                double weightedY = ys[row] * count;
+                double toneSum = toneSums[row];
+                int toneCount = toneCounts[row];
+
+                neighbourhood[0] = latitude(ys[row] + radius);
+                neighbourhood[1] = longitude(xs[row] - radius);
+                neighbourhood[2] = latitude(ys[row] - radius);
+                neighbourhood[3] = longitude(xs[row] + radius);
+                PackedHilbertRTree.Query neighbours = index.query(neighbourhood, Long.MIN_VALUE, Long.MAX_VALUE);
+                for (int neighbour = neighbours.nextRow(); neighbour >= 0; neighbour = neighbours.nextRow()) {
+                    double dx = xs[neighbour] - xs[row];
+                    double dy = ys[neighbour] - ys[row];
+                    if (dx * dx + dy * dy > radiusSquared || claimed[neighbour]) {
+                        continue;
+                    }
+                    claimed[neighbour] = true;
+                    count += counts[neighbour];
+                    weightedX += xs[neighbour] * counts[neighbour];
+                    weightedY += ys[neighbour] * counts[neighbour];
+                    toneSum += toneSums[neighbour];
+                    toneCount += toneCounts[neighbour];
+                }
+
+                clusters.add(weightedX / count, weightedY / count, count, toneSum, toneCount,
+                        count == 1 ? eventIds[row] : NO_EVENT);
+            }
+            return clusters;
+        }
+
+        EventCluster toCluster(int row) {
+            return new EventCluster(
+                    new ApiGeoPoint(lats[row], lons[row]),
+                    counts[row],
+                    toneCounts[row] > 0 ? toneSums[row] / toneCounts[row] : null,
+                    eventIds[row] != NO_EVENT ? eventIds[row] : null);
+        }
+    }
+
+    /**
+     * Растущий буфер кластеров на примитивных массивах.
+     */
+    private static final class ClusterBuffer {
+
+        private double[] xs;
+        private double[] ys;
+        private int[] counts;
+        private double[] toneSums;
+        private int[] toneCounts;
+        private long[] eventIds;
+        private int size;
+
+        ClusterBuffer(int capacity) {
+            int initial = Math.max(1, capacity);
+            xs = new double[initial];
+            ys = new double[initial];
+            counts = new int[initial];
+            toneSums = new double[initial];
+            toneCounts = new int[initial];
+            eventIds = new long[initial];
+        }
+
+        void add(double x, double y, int count, double toneSum, int toneCount, long eventId) {
+            if (size == xs.length) {
+                grow(size * 2);
+            }
+            xs[size] = x;
+            ys[size] = y;
+            counts[size] = count;
+            toneSums[size] = toneSum;
+            toneCounts[size] = toneCount;
+            eventIds[size] = eventId;
+            size++;
+        }
+
+        void addAll(ClusterBuffer other) {
+            if (size + other.size > xs.length) {
+                grow(size + other.size);
+            }
+            System.arraycopy(other.xs, 0, xs, size, other.size);
+            System.arraycopy(other.ys, 0, ys, size, other.size);
+            System.arraycopy(other.counts, 0, counts, size, other.size);
+            System.arraycopy(other.toneSums, 0, toneSums, size, other.size);
+            System.arraycopy(other.toneCounts, 0, toneCounts, size, other.size);
+            System.arraycopy(other.eventIds, 0, eventIds, size, other.size);
+            size += other.size;
+        }
+
+        private void grow(int capacity) {
+            xs = Arrays.copyOf(xs, capacity);
+            ys = Arrays.copyOf(ys, capacity);
+            counts = Arrays.copyOf(counts, capacity);
+            toneSums = Arrays.copyOf(toneSums, capacity);
+            toneCounts = Arrays.copyOf(toneCounts, capacity);
+            eventIds = Arrays.copyOf(eventIds, capacity);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.neighbor.eventmosaic.api.service.impl;
+
+/**
+ * Неизменяемый колоночный сегмент событий окна.
+ * Координаты уже выбраны по приоритету GeolocationService, события упорядочены вдоль кривой Гильберта,
+ * и над ними построен {@link PackedHilbertRTree} с датой события в качестве ключа узлов: выборка
+ * по области и диапазону дат обходит только пересекающиеся узлы, а не все события сегмента.
+ */
+final class EventColumns {
+
+    private final long[] eventIds;
+    private final long[] eventDates;
+    private final double[] lats;
+    private final double[] lons;
+    private final double[] avgTones;
+    private final long[] importances;
+    private final int size;
+    private final PackedHilbertRTree index;
+
+    /**
+     * @param eventIds    идентификаторы событий
+     * @param eventDates  даты событий (epoch millis)
+     * @param lats        широты наилучших координат
+     * @param lons        долготы наилучших координат
+     * @param avgTones    средний тон, NaN - не задан
+     * @param importances ключи важности {@link com.neighbor.eventmosaic.api.document.EventMapProjection#importance()}
+     * @param size        количество событий
+     * @param index       дерево над колонками в их текущем порядке, ключ - дата события
+     */
+    EventColumns(long[] eventIds, long[] eventDates, double[] lats, double[] lons, double[] avgTones,
+                 long[] importances, int size, PackedHilbertRTree index) {
+        this.eventIds = eventIds;
+        this.eventDates = eventDates;
+        this.lats = lats;
+        this.lons = lons;
+        this.avgTones = avgTones;
+        this.importances = importances;
+        this.size = size;
+        this.index = index;
+    }
+
+    int size() {
+        return size;
+    }
+
+    long eventId(int row) {
+        return eventIds[row];
+    }
+
+    long eventDate(int row) {
+        return eventDates[row];
+    }
+
+    double lat(int row) {
+        return lats[row];
+    }
+
+    double lon(int row) {
+        return lons[row];
+    }
+
+    double avgTone(int row) {
+        return avgTones[row];
+    }
+
+    long importance(int row) {
+        return importances[row];
+    }
+
+    /**
+     * Создает запрос строк в диапазоне дат и области.
+     *
+     * @param start начало диапазона (epoch millis, включительно)
+     * @param end   конец диапазона (epoch millis, включительно)
+     * @param bbox  массив [minLat, minLon, maxLat, maxLon] или null
+     * @return итератор номеров строк
+     */
+    PackedHilbertRTree.Query query(long start, long end, double[] bbox) {
+        return index.query(bbox, start, end);
+    }
+}
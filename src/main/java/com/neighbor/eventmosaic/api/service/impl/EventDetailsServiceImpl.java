@@ -1,18 +1,16 @@
 package com.neighbor.eventmosaic.api.service.impl;
 
 import com.neighbor.eventmosaic.api.document.EventDocument;
-import com.neighbor.eventmosaic.api.document.MentionDocument;
 import com.neighbor.eventmosaic.api.dto.details.EventDetailsResponse;
-import com.neighbor.eventmosaic.api.dto.details.MentionSummary;
+import com.neighbor.eventmosaic.api.dto.details.MentionStats;
+import com.neighbor.eventmosaic.api.dto.details.MentionsPage;
 import com.neighbor.eventmosaic.api.mapper.EventDetailsMapper;
-import com.neighbor.eventmosaic.api.mapper.MentionMapper;
 import com.neighbor.eventmosaic.api.service.EventDetailsService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.util.Collections;
-import java.util.List;
 
 /**
  * Реализация сервиса для формирования детального ответа о событии.
@@ -23,29 +21,35 @@ import java.util.List;
 public class EventDetailsServiceImpl implements EventDetailsService {
 
     private final EventDetailsMapper eventDetailsMapper;
-    private final MentionMapper mentionMapper;
 
     @Override
     public EventDetailsResponse buildEventDetailsResponse(EventDocument eventDocument,
-                                                          List<MentionDocument> mentions) {
+                                                          MentionsPage mentionsPage,
+                                                          MentionStats mentionStats) {
         log.debug("Формирование детального ответа для события: {}", eventDocument.getGlobalEventId());
 
         // Базовая информация о событии
         EventDetailsResponse response = eventDetailsMapper.toDetailsResponse(eventDocument);
 
-        // Добавляем упоминания
-        if (mentions != null && !mentions.isEmpty()) {
-            List<MentionSummary> mentionSummaries = mentions.stream()
-                    .map(mentionMapper::toMentionSummary)
-                    .toList();
-            response.setMentions(mentionSummaries);
-            log.debug("Добавлено {} упоминаний к событию {}",
-                    mentionSummaries.size(), eventDocument.getGlobalEventId());
+        // Добавляем первую страницу упоминаний
+        if (mentionsPage != null && mentionsPage.getMentions() != null && !mentionsPage.getMentions().isEmpty()) {
+            response.setMentions(mentionsPage.getMentions());
+            response.setMentionsTotal(mentionsPage.getTotal());
+            response.setMentionsNextCursor(mentionsPage.getNextCursor());
+            log.debug("Добавлено {} из {} упоминаний к событию {}",
+                    mentionsPage.getMentions().size(), mentionsPage.getTotal(), eventDocument.getGlobalEventId());
         } else {
             response.setMentions(Collections.emptyList());
+            response.setMentionsTotal(0L);
             log.debug("Упоминания отсутствуют для события {}", eventDocument.getGlobalEventId());
         }
 
+        // Агрегаты упоминаний
+        if (mentionStats != null) {
+            response.setMentionsAvgTone(mentionStats.avgTone());
+            response.setMentionSourcesCount(mentionStats.sourcesCount());
+        }
+
         return response;
     }
 } 
\ No newline at end of file
@@ -0,0 +1,135 @@
+package com.neighbor.eventmosaic.api.service.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.neighbor.eventmosaic.api.config.ApiConfigProperties;
+import com.neighbor.eventmosaic.api.dto.EventMapQueryParameters;
+import com.neighbor.eventmosaic.api.dto.MapCacheKey;
+import com.neighbor.eventmosaic.api.dto.histogram.EventHistogram;
+import com.neighbor.eventmosaic.api.dto.histogram.HistogramBucket;
+import com.neighbor.eventmosaic.api.dto.histogram.HistogramBucketKey;
+import com.neighbor.eventmosaic.api.dto.histogram.HistogramInterval;
+import com.neighbor.eventmosaic.api.exception.InvalidApiParameterException;
+import com.neighbor.eventmosaic.api.repository.ElasticEventRepository;
+import com.neighbor.eventmosaic.api.service.EventHistogramService;
+import com.neighbor.eventmosaic.api.service.EventQueryService;
+import com.neighbor.eventmosaic.api.service.IndexResolverService;
+import com.neighbor.eventmosaic.api.service.MapResponseCacheService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Реализация гистограммы событий с кешированием по корзинам.
+ * Область привязывается к сетке тайлов так же, как для ответов карты. Корзины, закончившиеся до начала
+ * текущих суток (UTC), больше не меняются и берутся из кеша; Elasticsearch запрашивается одним
+ * date_histogram только начиная с первой незакешированной корзины, обычно это открытый хвост диапазона.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class EventHistogramServiceImpl implements EventHistogramService {
+
+    private static final String HISTOGRAM_FORMAT = "histogram";
+
+    private final ElasticEventRepository eventRepository;
+    private final EventQueryService eventQueryService;
+    private final IndexResolverService indexResolverService;
+    private final MapResponseCacheService mapResponseCacheService;
+    private final Cache<HistogramBucketKey, HistogramBucket> histogramBucketCache;
+    private final ApiConfigProperties apiConfigProperties;
+
+    @Override
+    public EventHistogram getHistogram(EventMapQueryParameters params, String interval)
+            throws InvalidApiParameterException {
+        HistogramInterval histogramInterval = resolveInterval(interval);
+        long step = histogramInterval.getDuration().toMillis();
+
+        OffsetDateTime[] dateRange = eventQueryService.resolveDateRange(params);
+        double[] bbox = eventQueryService.resolveBoundingBox(params.getBbox());
+        MapCacheKey area = mapResponseCacheService.createKey(
+                HISTOGRAM_FORMAT, dateRange[0], dateRange[1], bbox, params.getZoom());
+
+        // Диапазон расширяется до целых корзин, чтобы каждую корзину можно было закешировать целиком
+        long firstBucket = Math.floorDiv(dateRange[0].toInstant().toEpochMilli(), step) * step;
+        long endExclusive = (Math.floorDiv(dateRange[1].toInstant().toEpochMilli(), step) + 1) * step;
+        long bucketCount = (endExclusive - firstBucket) / step;
+        if (bucketCount > apiConfigProperties.getMaxHistogramBuckets()) {
+            throw new InvalidApiParameterException(String.format(
+                    "Слишком много корзин гистограммы (%d), максимум %d: увеличьте интервал или сократите диапазон",
+                    bucketCount, apiConfigProperties.getMaxHistogramBuckets()));
+        }
+
+        long closedBefore = LocalDate.now(ZoneOffset.UTC).atStartOfDay().toInstant(ZoneOffset.UTC).toEpochMilli();
+        Map<Long, HistogramBucket> buckets = new HashMap<>();
+        long firstMissing = endExclusive;
+        for (long bucketStart = firstBucket; bucketStart < endExclusive; bucketStart += step) {
+            HistogramBucket cached = bucketStart + step <= closedBefore
+                    ? histogramBucketCache.getIfPresent(HistogramBucketKey.of(area, histogramInterval, bucketStart))
+                    : null;
+            if (cached == null) {
+                firstMissing = bucketStart;
+                break;
+            }
+            buckets.put(bucketStart, cached);
+        }
+
+        if (firstMissing < endExclusive) {
+            for (HistogramBucket bucket : findBuckets(area, histogramInterval, firstMissing, endExclusive)) {
+                buckets.put(bucket.start().toInstant().toEpochMilli(), bucket);
+            }
+        }
+        log.debug("Гистограмма {}: корзин {}, из кеша {}", histogramInterval.getValue(), bucketCount,
+                (firstMissing - firstBucket) / step);
+
+        List<HistogramBucket> result = new ArrayList<>((int) bucketCount);
+        for (long bucketStart = firstBucket; bucketStart < endExclusive; bucketStart += step) {
+            HistogramBucket bucket = buckets.get(bucketStart);
+            if (bucket == null) {
+                bucket = new HistogramBucket(toDateTime(bucketStart), 0, null);
+            }
+            if (bucketStart >= firstMissing && bucketStart + step <= closedBefore) {
+                histogramBucketCache.put(HistogramBucketKey.of(area, histogramInterval, bucketStart), bucket);
+            }
+            result.add(bucket);
+        }
+
+        return new EventHistogram(histogramInterval.getValue(), result);
+    }
+
+    /**
+     * Запрашивает непустые корзины диапазона [start, endExclusive) из Elasticsearch.
+     */
+    private List<HistogramBucket> findBuckets(MapCacheKey area, HistogramInterval interval,
+                                              long start, long endExclusive) {
+        OffsetDateTime startDate = toDateTime(start);
+        OffsetDateTime endDate = toDateTime(endExclusive);
+
+        Optional<IndexCoordinates> indices = indexResolverService.resolveEventIndices(startDate, endDate.minusNanos(1));
+        if (indices.isEmpty()) {
+            return List.of();
+        }
+        return eventRepository.findHistogram(indices.get(), startDate, endDate, area.toBoundingBox(), interval);
+    }
+
+    private HistogramInterval resolveInterval(String interval) {
+        String value = interval != null ? interval : apiConfigProperties.getDefaultHistogramInterval();
+        return HistogramInterval.fromValue(value)
+                .orElseThrow(() -> new InvalidApiParameterException(
+                        "Неподдерживаемый интервал гистограммы: " + value + " (допустимы 15m, 1h, 3h, 6h, 12h, 1d)"));
+    }
+
+    private static OffsetDateTime toDateTime(long epochMillis) {
+        return Instant.ofEpochMilli(epochMillis).atOffset(ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,115 @@
+package com.neighbor.eventmosaic.api.service.impl;
+
+import com.neighbor.eventmosaic.api.repository.EventIdRange;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Неизменяемый указатель индексов по идентификатору события.
+ * globalEventId растет со временем загрузки, а ежедневные индексы разбиты по дате события, поэтому
+ * диапазоны идентификаторов индексов пересекаются: за один день загружаются события разных дат.
+ * Диапазоны хранятся массивами примитивов, отсортированными по минимальному идентификатору, вместе с
+ * префиксным максимумом: кандидаты на идентификатор лежат между первым диапазоном, префиксный максимум
+ * которого не меньше идентификатора, и последним диапазоном, минимум которого не больше него;
+ * обе границы находятся двоичным поиском.
+ */
+final class EventIdIndexLocator {
+
+    private final String[] indexNames;
+    private final long[] minEventIds;
+    private final long[] maxEventIds;
+    private final long[] prefixMaxEventIds;
+
+    /**
+     * @param ranges диапазоны идентификаторов индексов в любом порядке
+     */
+    EventIdIndexLocator(List<EventIdRange> ranges) {
+        List<EventIdRange> sorted = ranges.stream()
+                .sorted(Comparator.comparingLong(EventIdRange::minEventId))
+                .toList();
+
+        int size = sorted.size();
+        indexNames = new String[size];
+        minEventIds = new long[size];
+        maxEventIds = new long[size];
+        prefixMaxEventIds = new long[size];
+        long prefixMax = Long.MIN_VALUE;
+        for (int i = 0; i < size; i++) {
+            EventIdRange range = sorted.get(i);
+            indexNames[i] = range.indexName();
+            minEventIds[i] = range.minEventId();
+            maxEventIds[i] = range.maxEventId();
+            prefixMax = Math.max(prefixMax, range.maxEventId());
+            prefixMaxEventIds[i] = prefixMax;
+        }
+    }
+
+    /**
+     * @return количество индексов
+     */
+    int size() {
+        return indexNames.length;
+    }
+
+    /**
+     * Больше ли идентификатор всех известных: такое событие загружено после построения указателя.
+     */
+    boolean isNewer(long eventId) {
+        return indexNames.length == 0 || eventId > prefixMaxEventIds[indexNames.length - 1];
+    }
+
+    /**
+     * Находит индексы, диапазон идентификаторов которых содержит идентификатор.
+     *
+     * @param eventId идентификатор события
+     * @return имена индексов; пустой список, если идентификатор не входит ни в один диапазон
+     */
+    List<String> locate(long eventId) {
+        int from = firstPrefixMaxAtLeast(eventId);
+        int to = lastMinAtMost(eventId);
+
+        List<String> found = new ArrayList<>(1);
+        for (int i = from; i <= to; i++) {
+            if (maxEventIds[i] >= eventId) {
+                found.add(indexNames[i]);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Номер первого диапазона с префиксным максимумом не меньше идентификатора или size, если такого нет.
+     */
+    private int firstPrefixMaxAtLeast(long eventId) {
+        int low = 0;
+        int high = prefixMaxEventIds.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (prefixMaxEventIds[middle] < eventId) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Номер последнего диапазона с минимумом не больше идентификатора или -1, если такого нет.
+     */
+    private int lastMinAtMost(long eventId) {
+        int low = 0;
+        int high = minEventIds.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (minEventIds[middle] <= eventId) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low - 1;
+    }
+}
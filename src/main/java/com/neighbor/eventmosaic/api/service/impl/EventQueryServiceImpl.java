@@ -1,28 +1,45 @@
 package com.neighbor.eventmosaic.api.service.impl;
 
+import com.github.benmanes.caffeine.cache.Cache;
 import com.neighbor.eventmosaic.api.config.ApiConfigProperties;
-import com.neighbor.eventmosaic.api.document.EventDocument;
+import com.neighbor.eventmosaic.api.document.EventMapProjection;
+import com.neighbor.eventmosaic.api.dto.EventCluster;
 import com.neighbor.eventmosaic.api.dto.EventMapQueryParameters;
+import com.neighbor.eventmosaic.api.dto.MapPartial;
+import com.neighbor.eventmosaic.api.dto.MapPartialKey;
+import com.neighbor.eventmosaic.api.dto.TileCoordinates;
+import com.neighbor.eventmosaic.api.exception.EmApiException;
 import com.neighbor.eventmosaic.api.repository.ElasticEventRepository;
+import com.neighbor.eventmosaic.api.repository.ReactiveEventMapRepository;
 import com.neighbor.eventmosaic.api.service.EventQueryService;
 import com.neighbor.eventmosaic.api.service.GeolocationService;
+import com.neighbor.eventmosaic.api.service.HotEventStore;
+import com.neighbor.eventmosaic.api.service.IndexResolverService;
 import com.neighbor.eventmosaic.api.service.ParameterParsingService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
 import org.springframework.data.elasticsearch.core.geo.GeoPoint;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
 
+import java.time.LocalDate;
 import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.BiFunction;
 
 /**
  * Реализация сервиса для выполнения запросов к репозиторию событий.
- * Выполняет поиск событий в указанном временном диапазоне, применяет географический фильтр,
- * ограничивает количество результатов и возвращает список событий.
+ * Выполняет поиск событий в указанном временном диапазоне с географическим фильтром
+ * и ограничением количества результатов на стороне Elasticsearch.
+ * Многодневные диапазоны разбиваются на суточные части (UTC): части закрытых дней не меняются и берутся
+ * из кеша, недостающие запрашиваются параллельно, а результаты частей сливаются.
  */
 @Slf4j
 @Service
@@ -30,8 +47,13 @@ import java.util.Optional;
 public class EventQueryServiceImpl implements EventQueryService {
 
     private final ElasticEventRepository eventRepository;
+    private final ReactiveEventMapRepository reactiveEventMapRepository;
     private final ParameterParsingService parameterParsingService;
+    private final IndexResolverService indexResolverService;
+    private final HotEventStore hotEventStore;
     private final GeolocationService geolocationService;
+    private final Cache<MapPartialKey, MapPartial> mapPartialCache;
+    private final ExecutorService mapPartialExecutor;
     private final ApiConfigProperties apiConfigProperties;
 
     /**
@@ -43,132 +65,357 @@ public class EventQueryServiceImpl implements EventQueryService {
      * @return список событий
      */
     @Override
-    public List<EventDocument> findEvents(EventMapQueryParameters params) {
+    public List<EventMapProjection> findEvents(EventMapQueryParameters params) {
         log.debug("Поиск событий по параметрам: {}", params);
 
         // Определяем временной диапазон
-        OffsetDateTime[] dateRange = createDateRange(params);
-        OffsetDateTime startDateTime = dateRange[0];
-        OffsetDateTime endDateTime = dateRange[1];
+        OffsetDateTime[] dateRange = resolveDateRange(params);
 
-        log.debug("Временной диапазон: {} - {}", startDateTime, endDateTime);
+        // Географический фильтр применяется в Elasticsearch, если задан bbox
+        double[] bbox = resolveBoundingBox(params.getBbox());
 
-        // Получаем события из репозитория
-        List<EventDocument> events = findEventsInTimeRange(startDateTime, endDateTime);
-        log.debug("Найдено {} событий в указанном временном диапазоне", events.size());
+        return findEvents(dateRange[0], dateRange[1], bbox, params.getZoom());
+    }
+
+    /**
+     * Выполняет поиск событий в заданном диапазоне и области.
+     * Если событий больше лимита и задан zoom, они прореживаются равномерно по области.
+     *
+     * @param start начало диапазона
+     * @param end   конец диапазона
+     * @param bbox  bounding box или null
+     * @param zoom  уровень масштабирования или null
+     * @return список событий
+     */
+    @Override
+    public List<EventMapProjection> findEvents(OffsetDateTime start, OffsetDateTime end, double[] bbox, Integer zoom) {
+        log.debug("Временной диапазон: {} - {}", start, end);
 
-        // Применяем географический фильтр если задан bbox
-        List<EventDocument> filteredEvents = applyGeographicalFilter(events, params.getBbox());
-        log.debug("После географической фильтрации осталось {} событий", filteredEvents.size());
+        int gridPrecision = GridDownsampler.precision(zoom, apiConfigProperties);
+        int limit = apiConfigProperties.getMaxIndividualEventsPerRequest();
 
-        // Ограничиваем количество результатов
-        return limitResults(filteredEvents);
+        List<EventMapProjection> events;
+        if (isSplitByDays(start, end)) {
+            List<List<EventMapProjection>> partials = loadPartials(start, end, bbox, false, gridPrecision,
+                    (from, to) -> MapPartial.ofEvents(findEventsInTimeRange(from, to, bbox, gridPrecision)))
+                    .stream()
+                    .map(MapPartial::events)
+                    .toList();
+            int total = partials.stream().mapToInt(List::size).sum();
+            events = gridPrecision >= 0 && total > limit
+                    ? downsample(partials.stream().flatMap(List::stream).toList(), bbox, gridPrecision)
+                    : MapPartials.mergeEvents(partials, limit, apiConfigProperties.isRankMapEventsByImportance());
+        } else {
+            events = findEventsInTimeRange(start, end, bbox, gridPrecision);
+        }
+        log.debug("Найдено {} событий в указанном временном диапазоне и области", events.size());
+
+        return events;
     }
 
     /**
-     * Создает временной диапазон на основе параметров запроса.
-     * Если параметр since не задан, то используется текущая дата.
-     * Если параметр until не задан, то используется текущая дата + 1 день.
+     * Потоково читает события по параметрам.
+     * Индексы определяются по кешу ежедневных индексов без обращения к Elasticsearch,
+     * сами события читаются реактивным клиентом.
+     *
+     * @param params параметры запроса
+     * @return поток событий
      */
-    private OffsetDateTime[] createDateRange(EventMapQueryParameters params) {
-        OffsetDateTime since = Optional.ofNullable(params.getSince())
-                .map(date -> date.atStartOfDay().atOffset(ZoneOffset.UTC))
-                .orElse(null);
+    @Override
+    public Flux<EventMapProjection> streamEvents(EventMapQueryParameters params) {
+        log.debug("Потоковое чтение событий по параметрам: {}", params);
+
+        OffsetDateTime[] dateRange = resolveDateRange(params);
+        double[] bbox = resolveBoundingBox(params.getBbox());
 
-        OffsetDateTime until = Optional.ofNullable(params.getUntil())
-                .map(date -> date.plusDays(1).atStartOfDay().atOffset(ZoneOffset.UTC))
-                .orElse(null);
+        Optional<IndexCoordinates> indices = indexResolverService.resolveEventIndices(dateRange[0], dateRange[1]);
+        if (indices.isEmpty()) {
+            return Flux.empty();
+        }
 
-        return parameterParsingService.createDateRange(since, until, apiConfigProperties.getDefaultEventWindowHours());
+        return reactiveEventMapRepository.streamForMap(indices.get(), dateRange[0], dateRange[1], bbox,
+                apiConfigProperties.getMaxStreamedEventsPerRequest(), apiConfigProperties.getStreamBatchSize());
     }
 
     /**
-     * Находит события в указанном временном диапазоне.
-     * Вынимает из базы события в указанном временном диапазоне.
+     * Выполняет поиск кластеров событий по параметрам.
+     * Количество кластеров ограничено maxClustersPerRequest, в ответ попадают самые крупные ячейки.
+     *
+     * @param params параметры запроса
+     * @return список кластеров
      */
-    private List<EventDocument> findEventsInTimeRange(OffsetDateTime startDateTime,
-                                                      OffsetDateTime endDateTime) {
-        int maxResults = apiConfigProperties.getMaxIndividualEventsPerRequest() * 2; // Берем больше для фильтрации
-        Pageable pageable = PageRequest.of(0, maxResults);
+    @Override
+    public List<EventCluster> findClusters(EventMapQueryParameters params) {
+        log.debug("Поиск кластеров по параметрам: {}", params);
+
+        OffsetDateTime[] dateRange = resolveDateRange(params);
+        double[] bbox = resolveBoundingBox(params.getBbox());
 
-        return eventRepository.findByEventDateBetween(startDateTime, endDateTime, pageable)
-                .getContent();
+        return findClusters(dateRange[0], dateRange[1], bbox, params.getZoom());
     }
 
     /**
-     * Применяет географический фильтр если указан bounding box.
-     * Если bounding box не задан, то фильтр не применяется.
+     * Выполняет поиск кластеров в заданном диапазоне и области.
+     * Диапазон внутри окна хранилища в памяти обрабатывается без обращения к Elasticsearch.
+     * Кластеры многодневного диапазона собираются из суточных частей: части содержат все ячейки области
+     * (не больше maxClustersPerPartial), ячейки частей снова группируются по geotile, и только результат
+     * слияния обрезается до maxClustersPerRequest.
+     *
+     * @param start начало диапазона
+     * @param end   конец диапазона
+     * @param bbox  bounding box или null
+     * @param zoom  уровень масштабирования или null
+     * @return список кластеров
      */
-    private List<EventDocument> applyGeographicalFilter(List<EventDocument> events,
-                                                        String bboxStr) {
-        if (bboxStr == null || bboxStr.trim().isEmpty()) {
-            log.debug("Географический фильтр не применяется - bbox не задан");
-            return events;
+    @Override
+    public List<EventCluster> findClusters(OffsetDateTime start, OffsetDateTime end, double[] bbox, Integer zoom) {
+        int precision = resolveGeotilePrecision(zoom);
+        int maxClusters = apiConfigProperties.getMaxClustersPerRequest();
+
+        Optional<List<EventCluster>> hotClusters = hotEventStore.findClusters(start, end, bbox, precision, maxClusters);
+        if (hotClusters.isPresent()) {
+            return hotClusters.get();
         }
 
-        try {
-            double[] bbox = parameterParsingService.parseBoundingBox(bboxStr);
-            return filterEventsByBoundingBox(events, bbox);
-        } catch (Exception e) {
-            log.warn("Ошибка при парсинге bbox '{}': {}. Пропускаем географический фильтр", bboxStr, e.getMessage());
+        if (isSplitByDays(start, end)) {
+            // Ячейка, мелкая в каждой части, может оказаться крупной в сумме, поэтому части не обрезаются
+            // до maxClusters: часть содержит все ячейки области, обрезается только результат слияния
+            int partialClusters = (int) Math.min(TileCoordinates.cellCount(bbox, precision),
+                    apiConfigProperties.getMaxClustersPerPartial());
+            List<List<EventCluster>> partials = loadPartials(start, end, bbox, true, precision,
+                    (from, to) -> MapPartial.ofClusters(
+                            findClustersInTimeRange(from, to, bbox, precision, partialClusters)))
+                    .stream()
+                    .map(MapPartial::clusters)
+                    .toList();
+            return MapPartials.mergeClusters(partials, precision, maxClusters);
+        }
+
+        return findClustersInTimeRange(start, end, bbox, precision, maxClusters);
+    }
+
+    /**
+     * Находит кластеры одной части диапазона: в хранилище в памяти, если оно покрывает часть, иначе в Elasticsearch.
+     *
+     * @param maxClusters максимальное количество кластеров части
+     */
+    private List<EventCluster> findClustersInTimeRange(OffsetDateTime start, OffsetDateTime end,
+                                                       double[] bbox, int precision, int maxClusters) {
+        Optional<List<EventCluster>> hotClusters = hotEventStore.findClusters(start, end, bbox, precision, maxClusters);
+        if (hotClusters.isPresent()) {
+            return hotClusters.get();
+        }
+
+        Optional<IndexCoordinates> indices = indexResolverService.resolveEventIndices(start, end);
+        if (indices.isEmpty()) {
+            return List.of();
+        }
+
+        List<EventCluster> clusters = eventRepository.findClustersForMap(indices.get(),
+                start, end, bbox, precision, maxClusters);
+        log.debug("Найдено {} кластеров с precision {}", clusters.size(), precision);
+
+        return clusters;
+    }
+
+    /**
+     * Создает временной диапазон на основе параметров запроса.
+     * Если параметр since не задан, то используется текущая дата.
+     * Если параметр until не задан, то используется текущая дата + 1 день.
+     */
+    @Override
+    public OffsetDateTime[] resolveDateRange(EventMapQueryParameters params) {
+        return parameterParsingService.createDateRange(
+                params.getSince(), params.getUntil(), apiConfigProperties.getDefaultEventWindowHours());
+    }
+
+    /**
+     * Находит события в указанном временном диапазоне и области карты.
+     * Фильтр по bbox и ограничение количества применяются на стороне Elasticsearch,
+     * поэтому в ответ попадают только события из видимой области.
+     * При rankMapEventsByImportance при обрезке остаются самые важные события.
+     * Если задана сетка прореживания и событий больше лимита, они запрашиваются по ячейкам сетки
+     * (geotile_grid + top_hits) и отбираются равномерно по области.
+     * Поиск выполняется только в ежедневных индексах, покрывающих диапазон.
+     */
+    private List<EventMapProjection> findEventsInTimeRange(OffsetDateTime startDateTime,
+                                                           OffsetDateTime endDateTime,
+                                                           double[] bbox,
+                                                           int gridPrecision) {
+        Optional<IndexCoordinates> indices = indexResolverService.resolveEventIndices(startDateTime, endDateTime);
+        if (indices.isEmpty()) {
+            return List.of();
+        }
+
+        int maxResults = apiConfigProperties.getMaxIndividualEventsPerRequest();
+        boolean ranked = apiConfigProperties.isRankMapEventsByImportance();
+        if (gridPrecision < 0) {
+            return eventRepository.findForMap(indices.get(), startDateTime, endDateTime, bbox, maxResults, ranked);
+        }
+
+        // Одно лишнее событие показывает, что область не помещается в лимит
+        List<EventMapProjection> events = eventRepository.findForMap(indices.get(), startDateTime, endDateTime,
+                bbox, maxResults + 1, ranked);
+        if (events.size() <= maxResults) {
             return events;
         }
+
+        int eventsPerCell = GridDownsampler.eventsPerCell(bbox, gridPrecision, maxResults,
+                apiConfigProperties.getDownsamplingEventsPerCell());
+        log.debug("В области больше {} событий, прореживание по сетке precision {}, событий в ячейке {}",
+                maxResults, gridPrecision, eventsPerCell);
+        List<EventMapProjection> cellEvents = eventRepository.findForMapPerCell(indices.get(), startDateTime,
+                endDateTime, bbox, gridPrecision, eventsPerCell, maxResults, ranked);
+        return downsample(cellEvents, bbox, gridPrecision);
     }
 
     /**
-     * Фильтрует события по bounding box.
-     * Если событие не попадает в bounding box, то оно пропускается.
+     * Равномерно прореживает события по ячейкам сетки до maxIndividualEventsPerRequest.
+     * Ячейка события определяется по тем же наилучшим координатам, что и на карте.
      */
-    private List<EventDocument> filterEventsByBoundingBox(List<EventDocument> events,
-                                                          double[] bbox) {
-        double minLat = bbox[0];
-        double minLon = bbox[1];
-        double maxLat = bbox[2];
-        double maxLon = bbox[3];
-
-        log.debug("Применяется географический фильтр: minLat={}, minLon={}, maxLat={}, maxLon={}",
-                minLat, minLon, maxLat, maxLon);
-
-        return events.stream()
-                .filter(event -> isEventInBounds(event, minLat, minLon, maxLat, maxLon))
-                .toList();
+    private List<EventMapProjection> downsample(List<EventMapProjection> events, double[] bbox, int gridPrecision) {
+        int limit = apiConfigProperties.getMaxIndividualEventsPerRequest();
+        boolean ranked = apiConfigProperties.isRankMapEventsByImportance();
+        int eventsPerCell = GridDownsampler.eventsPerCell(bbox, gridPrecision, limit,
+                apiConfigProperties.getDownsamplingEventsPerCell());
+        GridDownsampler grid = new GridDownsampler(gridPrecision, eventsPerCell);
+        for (int i = 0; i < events.size(); i++) {
+            EventMapProjection event = events.get(i);
+            Optional<GeoPoint> location = geolocationService.selectBestCoordinates(event);
+            if (location.isPresent()) {
+                grid.add(location.get().getLat(), location.get().getLon(), ranked ? event.importance() : 0, i);
+            }
+        }
+
+        long[] selected = grid.select(limit);
+        List<EventMapProjection> result = new ArrayList<>(selected.length);
+        for (long index : selected) {
+            result.add(events.get((int) index));
+        }
+        return result;
     }
 
     /**
-     * Проверяет, попадает ли событие в заданные границы.
-     * Если событие не имеет координат, то оно пропускается.
+     * Разбивать ли диапазон на суточные части: диапазон затрагивает больше одних суток,
+     * но не больше maxMapPartials.
      */
-    private boolean isEventInBounds(EventDocument event,
-                                    double minLat,
-                                    double minLon,
-                                    double maxLat,
-                                    double maxLon) {
-        Optional<GeoPoint> geoPointOpt = geolocationService.selectBestCoordinates(event);
-
-        if (geoPointOpt.isEmpty()) {
+    private boolean isSplitByDays(OffsetDateTime start, OffsetDateTime end) {
+        if (!apiConfigProperties.isMapPartialsEnabled()) {
             return false;
         }
+        long days = MapPartials.countDays(start, end);
+        return days > 1 && days <= apiConfigProperties.getMaxMapPartials();
+    }
+
+    /**
+     * Загружает суточные части диапазона. Части, закончившиеся до начала текущих суток (UTC), берутся
+     * из кеша и после загрузки кладутся в него; недостающие части запрашиваются параллельно.
+     *
+     * @param clusters  части содержат кластеры, иначе - отдельные события
+     * @param precision precision сетки кластеров или прореживания событий; -1 без прореживания
+     * @param loader    загрузка части по ее границам (включительно)
+     * @return части в порядке времени
+     */
+    private List<MapPartial> loadPartials(OffsetDateTime start, OffsetDateTime end, double[] bbox,
+                                          boolean clusters, int precision,
+                                          BiFunction<OffsetDateTime, OffsetDateTime, MapPartial> loader) {
+        long closedBefore = LocalDate.now(ZoneOffset.UTC).atStartOfDay().toInstant(ZoneOffset.UTC).toEpochMilli();
+        List<OffsetDateTime[]> ranges = MapPartials.splitByDays(start, end);
+
+        List<MapPartial> partials = new ArrayList<>(ranges.size());
+        List<MapPartialKey> keys = new ArrayList<>(ranges.size());
+        List<Future<MapPartial>> futures = new ArrayList<>(ranges.size());
+        int cached = 0;
+        for (OffsetDateTime[] range : ranges) {
+            long endMillis = range[1].toInstant().toEpochMilli();
+            MapPartialKey key = endMillis < closedBefore
+                    ? MapPartialKey.of(bbox, clusters, precision, range[0].toInstant().toEpochMilli(), endMillis)
+                    : null;
+            MapPartial partial = key != null ? mapPartialCache.getIfPresent(key) : null;
+            if (partial != null) {
+                cached++;
+            }
+            partials.add(partial);
+            keys.add(key);
+            futures.add(partial == null ? mapPartialExecutor.submit(() -> loader.apply(range[0], range[1])) : null);
+        }
+
+        for (int i = 0; i < ranges.size(); i++) {
+            if (futures.get(i) == null) {
+                continue;
+            }
+            MapPartial partial = await(futures.get(i), futures);
+            partials.set(i, partial);
+            if (keys.get(i) != null) {
+                mapPartialCache.put(keys.get(i), partial);
+            }
+        }
+        log.debug("Диапазон {} - {} собран из {} суточных частей, из кеша {}", start, end, ranges.size(), cached);
+
+        return partials;
+    }
 
-        GeoPoint geoPoint = geoPointOpt.get();
-        double lat = geoPoint.getLat();
-        double lon = geoPoint.getLon();
+    /**
+     * Ожидает результат части. При ошибке отменяет остальные части запроса
+     * и пробрасывает исходное исключение.
+     */
+    private static <T> T await(Future<T> future, List<? extends Future<?>> siblings) {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            cancelAll(siblings);
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new EmApiException("Ошибка загрузки части диапазона карты", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancelAll(siblings);
+            throw new EmApiException("Загрузка частей диапазона карты прервана", e);
+        }
+    }
 
-        return lat >= minLat && lat <= maxLat && lon >= minLon && lon <= maxLon;
+    private static void cancelAll(List<? extends Future<?>> futures) {
+        for (Future<?> future : futures) {
+            if (future != null) {
+                future.cancel(true);
+            }
+        }
     }
 
     /**
-     * Ограничивает результаты до максимального количества.
-     * Если количество событий меньше или равно максимальному количеству, то возвращается исходный список.
-     * Иначе возвращается список с ограниченным количеством событий.
+     * Определяет precision geotile_grid по уровню масштабирования.
+     * Ячейка уровня zoom + 2 занимает около 64 пикселей на экране, что дает
+     * достаточно плотную, но не перегруженную картину кластеров.
+     * Если zoom не задан, используется precision по умолчанию.
      */
-    private List<EventDocument> limitResults(List<EventDocument> events) {
-        int maxResults = apiConfigProperties.getMaxIndividualEventsPerRequest();
+    private int resolveGeotilePrecision(Integer zoom) {
+        if (zoom == null) {
+            return apiConfigProperties.getDefaultGeotilePrecision();
+        }
+        int precision = zoom + TileCoordinates.CELL_ZOOM_OFFSET;
+        return Math.max(0, Math.min(precision, apiConfigProperties.getMaxGeotilePrecision()));
+    }
 
-        if (events.size() <= maxResults) {
-            return events;
+    /**
+     * Парсит bounding box из параметров запроса.
+     * Если bounding box не задан или не распознан, то фильтр по области не применяется.
+     */
+    @Override
+    public double[] resolveBoundingBox(String bboxStr) {
+        if (bboxStr == null || bboxStr.trim().isEmpty()) {
+            log.debug("Географический фильтр не применяется - bbox не задан");
+            return null;
         }
 
-        log.info("Результат ограничен до {} событий из {}", maxResults, events.size());
-        return events.stream().limit(maxResults).toList();
+        try {
+            double[] bbox = parameterParsingService.parseBoundingBox(bboxStr);
+            log.debug("Применяется географический фильтр: minLat={}, minLon={}, maxLat={}, maxLon={}",
+                    bbox[0], bbox[1], bbox[2], bbox[3]);
+            return bbox;
+        } catch (Exception e) {
+            log.warn("Ошибка при парсинге bbox '{}': {}. Пропускаем географический фильтр", bboxStr, e.getMessage());
+            return null;
+        }
     }
 } 
\ No newline at end of file
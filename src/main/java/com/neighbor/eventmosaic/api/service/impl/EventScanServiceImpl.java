@@ -0,0 +1,205 @@
+package com.neighbor.eventmosaic.api.service.impl;
+
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.neighbor.eventmosaic.api.config.ApiConfigProperties;
+import com.neighbor.eventmosaic.api.document.EventMapProjection;
+import com.neighbor.eventmosaic.api.dto.EventMapQueryParameters;
+import com.neighbor.eventmosaic.api.exception.InvalidApiParameterException;
+import com.neighbor.eventmosaic.api.repository.ElasticEventRepository;
+import com.neighbor.eventmosaic.api.repository.MapScanPage;
+import com.neighbor.eventmosaic.api.service.EventQueryService;
+import com.neighbor.eventmosaic.api.service.EventScanService;
+import com.neighbor.eventmosaic.api.service.GeoJsonConversionService;
+import com.neighbor.eventmosaic.api.service.IndexResolverService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Реализация сплошного чтения событий через point-in-time и search_after.
+ * События записываются в ответ по мере чтения страниц, поэтому в памяти находится не больше одной
+ * страницы независимо от количества подходящих событий. Запрос читает не больше scanMaxPagesPerRequest
+ * страниц и не начинает новую страницу после scanTimeBudgetMillis; point-in-time закрывается,
+ * когда события заканчиваются, иначе истекает через scanKeepAliveSeconds после последнего запроса.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class EventScanServiceImpl implements EventScanService {
+
+    private final ElasticEventRepository eventRepository;
+    private final EventQueryService eventQueryService;
+    private final IndexResolverService indexResolverService;
+    private final GeoJsonConversionService geoJsonConversionService;
+    private final ObjectMapper objectMapper;
+    private final ApiConfigProperties apiConfigProperties;
+
+    @Override
+    public void writeEventsScan(EventMapQueryParameters params, String cursor, OutputStream output) throws IOException {
+        ScanCursor position = cursor != null ? decodeCursor(cursor) : openScan(params);
+        if (position == null) {
+            geoJsonConversionService.writeGeoJson(List.of(), output);
+            return;
+        }
+
+        // Первая страница читается до начала записи, чтобы ошибки (например, истекший курсор) вернулись статусом
+        ScanIterator events = new ScanIterator(position);
+        geoJsonConversionService.writeGeoJson(events, events::nextCursor, output);
+        log.debug("Сплошное чтение: прочитано страниц {}, событий {}, продолжение: {}",
+                events.pages, events.count, !events.exhausted);
+    }
+
+    /**
+     * Открывает point-in-time по индексам, покрывающим диапазон запроса.
+     *
+     * @return начальная позиция или null, если подходящих индексов нет
+     */
+    private ScanCursor openScan(EventMapQueryParameters params) {
+        OffsetDateTime[] dateRange = eventQueryService.resolveDateRange(params);
+        double[] bbox = eventQueryService.resolveBoundingBox(params.getBbox());
+
+        Optional<IndexCoordinates> indices = indexResolverService.resolveEventIndices(dateRange[0], dateRange[1]);
+        if (indices.isEmpty()) {
+            return null;
+        }
+
+        String pitId = eventRepository.openPointInTime(indices.get(), keepAlive());
+        log.debug("Начато сплошное чтение событий: {} - {}, bbox задан: {}", dateRange[0], dateRange[1], bbox != null);
+        return new ScanCursor(pitId,
+                dateRange[0].toInstant().toEpochMilli(),
+                dateRange[1].toInstant().toEpochMilli(),
+                bbox,
+                null);
+    }
+
+    private Duration keepAlive() {
+        return Duration.ofSeconds(apiConfigProperties.getScanKeepAliveSeconds());
+    }
+
+    private String encodeCursor(ScanCursor cursor) {
+        try {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(objectMapper.writeValueAsBytes(cursor));
+        } catch (Exception e) {
+            throw new IllegalStateException("Не удалось сформировать курсор сплошного чтения", e);
+        }
+    }
+
+    private ScanCursor decodeCursor(String cursor) {
+        try {
+            ScanCursor position = objectMapper.readValue(Base64.getUrlDecoder().decode(cursor), ScanCursor.class);
+            if (position.pitId() == null || position.searchAfter() == null || position.searchAfter().isEmpty()) {
+                throw new IllegalArgumentException("Неполный курсор");
+            }
+            return position;
+        } catch (Exception e) {
+            throw new InvalidApiParameterException("Некорректный курсор сплошного чтения: " + cursor, e);
+        }
+    }
+
+    private static OffsetDateTime toDateTime(long epochMillis) {
+        return Instant.ofEpochMilli(epochMillis).atOffset(ZoneOffset.UTC);
+    }
+
+    /**
+     * Итератор событий одного запроса: дочитывает страницы, пока позволяют бюджеты страниц и времени.
+     */
+    private class ScanIterator implements Iterator<EventMapProjection> {
+
+        private final long deadlineNanos;
+        private ScanCursor position;
+        private Iterator<EventMapProjection> current = Collections.emptyIterator();
+        private int pages;
+        private int count;
+        private boolean exhausted;
+
+        ScanIterator(ScanCursor position) {
+            this.position = position;
+            this.deadlineNanos = System.nanoTime()
+                    + TimeUnit.MILLISECONDS.toNanos(apiConfigProperties.getScanTimeBudgetMillis());
+            fetchPage();
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!current.hasNext()) {
+                if (exhausted
+                        || pages >= apiConfigProperties.getScanMaxPagesPerRequest()
+                        || System.nanoTime() >= deadlineNanos) {
+                    return false;
+                }
+                fetchPage();
+            }
+            return true;
+        }
+
+        @Override
+        public EventMapProjection next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            count++;
+            return current.next();
+        }
+
+        /**
+         * Возвращает курсор продолжения или закрывает point-in-time, если события закончились.
+         */
+        String nextCursor() {
+            if (exhausted) {
+                eventRepository.closePointInTime(position.pitId());
+                return null;
+            }
+            return encodeCursor(position);
+        }
+
+        private void fetchPage() {
+            int pageSize = apiConfigProperties.getScanPageSize();
+            MapScanPage page;
+            try {
+                page = eventRepository.findMapScanPage(position.pitId(), keepAlive(),
+                        toDateTime(position.start()), toDateTime(position.end()), position.bbox(),
+                        position.searchAfter(), pageSize);
+            } catch (ElasticsearchException e) {
+                if (e.status() == HttpStatus.NOT_FOUND.value()) {
+                    throw new InvalidApiParameterException("Курсор сплошного чтения истек, начните чтение заново", e);
+                }
+                throw e;
+            }
+
+            pages++;
+            current = page.events().iterator();
+            exhausted = page.events().size() < pageSize;
+            position = new ScanCursor(page.pitId(), position.start(), position.end(), position.bbox(),
+                    page.lastSortValues() != null ? page.lastSortValues() : position.searchAfter());
+        }
+    }
+
+    /**
+     * Позиция сплошного чтения.
+     *
+     * @param pitId       идентификатор point-in-time
+     * @param start       начало диапазона (epoch millis)
+     * @param end         конец диапазона (epoch millis)
+     * @param bbox        массив [minLat, minLon, maxLat, maxLon] или null
+     * @param searchAfter значения сортировки последнего прочитанного события или null
+     */
+    record ScanCursor(String pitId, long start, long end, double[] bbox, List<Object> searchAfter) {
+    }
+}
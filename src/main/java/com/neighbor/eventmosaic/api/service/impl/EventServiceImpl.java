@@ -1,24 +1,53 @@
 package com.neighbor.eventmosaic.api.service.impl;
 
+import com.github.benmanes.caffeine.cache.AsyncCache;
 import com.neighbor.eventmosaic.api.config.ApiConfigProperties;
 import com.neighbor.eventmosaic.api.document.EventDocument;
-import com.neighbor.eventmosaic.api.document.MentionDocument;
+import com.neighbor.eventmosaic.api.document.EventMapProjection;
+import com.neighbor.eventmosaic.api.dto.EventCluster;
 import com.neighbor.eventmosaic.api.dto.EventMapQueryParameters;
+import com.neighbor.eventmosaic.api.dto.EventPointCursor;
+import com.neighbor.eventmosaic.api.dto.MapCacheKey;
 import com.neighbor.eventmosaic.api.dto.details.EventDetailsResponse;
-import com.neighbor.eventmosaic.api.dto.geojson.GeoJsonFeatureCollection;
+import com.neighbor.eventmosaic.api.dto.details.EventMentions;
+import com.neighbor.eventmosaic.api.dto.details.MentionStats;
+import com.neighbor.eventmosaic.api.dto.details.MentionsPage;
+import com.neighbor.eventmosaic.api.dto.geojson.GeoJsonFeature;
+import com.neighbor.eventmosaic.api.exception.EmApiException;
+import com.neighbor.eventmosaic.api.exception.InvalidApiParameterException;
 import com.neighbor.eventmosaic.api.exception.ResourceNotFoundException;
 import com.neighbor.eventmosaic.api.repository.ElasticEventRepository;
-import com.neighbor.eventmosaic.api.repository.ElasticMentionRepository;
 import com.neighbor.eventmosaic.api.service.EventDetailsService;
 import com.neighbor.eventmosaic.api.service.EventQueryService;
 import com.neighbor.eventmosaic.api.service.EventService;
 import com.neighbor.eventmosaic.api.service.GeoJsonConversionService;
+import com.neighbor.eventmosaic.api.service.HotEventStore;
+import com.neighbor.eventmosaic.api.service.IndexResolverService;
+import com.neighbor.eventmosaic.api.service.MapResponseCacheService;
+import com.neighbor.eventmosaic.api.service.MentionService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
 import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import reactor.core.publisher.Flux;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
 import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 /**
  * Основная реализация сервиса событий.
@@ -29,71 +58,307 @@ import java.util.List;
 @RequiredArgsConstructor
 public class EventServiceImpl implements EventService {
 
+    private static final String GEOJSON_FORMAT = "geojson";
+
     private final ElasticEventRepository eventRepository;
-    private final ElasticMentionRepository mentionRepository;
     private final EventQueryService eventQueryService;
     private final GeoJsonConversionService geoJsonConversionService;
     private final EventDetailsService eventDetailsService;
+    private final MentionService mentionService;
+    private final MapResponseCacheService mapResponseCacheService;
+    private final HotEventStore hotEventStore;
+    private final IndexResolverService indexResolverService;
+    private final AsyncCache<Long, EventDetailsResponse> eventDetailsCache;
+    private final ExecutorService detailsFetchExecutor;
     private final ApiConfigProperties apiConfigProperties;
 
     /**
-     * Получает события для отображения на карте в формате GeoJSON.
+     * Получает события для отображения на карте и записывает их в поток в формате GeoJSON.
+     * Область запроса привязывается к сетке тайлов, сериализованный ответ кешируется по ключу
+     * (zoom, тайлы, диапазон дат). Ошибка получения данных не прерывает ответ: в поток записывается
+     * пустая коллекция, которая не попадает в кеш.
      *
      * @param params параметры запроса (даты, bbox, zoom)
-     * @return GeoJSON FeatureCollection с событиями
+     * @param output поток для записи GeoJSON
      */
     @Override
-    public GeoJsonFeatureCollection getEventsForMap(EventMapQueryParameters params) {
+    public void writeEventsForMap(EventMapQueryParameters params, OutputStream output) throws IOException {
         log.debug("Запрос событий для карты: {}", params);
 
-        try {
-            List<EventDocument> events = eventQueryService.findEvents(params);
-            return geoJsonConversionService.convertToGeoJson(events);
+        OffsetDateTime[] dateRange = eventQueryService.resolveDateRange(params);
+        double[] bbox = eventQueryService.resolveBoundingBox(params.getBbox());
+        MapCacheKey cacheKey = mapResponseCacheService.createKey(
+                GEOJSON_FORMAT, dateRange[0], dateRange[1], bbox, params.getZoom());
+
+        Optional<byte[]> cached = mapResponseCacheService.get(cacheKey);
+        if (cached.isPresent()) {
+            output.write(cached.get());
+            return;
+        }
 
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try {
+            writeMapResponse(cacheKey, buffer);
         } catch (Exception e) {
-            log.error("Ошибка при получении событий для карты: {}", e.getMessage(), e);
-            return GeoJsonFeatureCollection.empty();
+            log.error("Ошибка при получении данных для карты: {}", e.getMessage(), e);
+            geoJsonConversionService.writeGeoJson(List.of(), output);
+            return;
         }
+
+        byte[] response = buffer.toByteArray();
+        mapResponseCacheService.put(cacheKey, response);
+        output.write(response);
     }
 
     /**
-     * Получает детальную информацию о конкретном событии, включая список упоминаний.
+     * Потоково отдает отдельные события для карты.
+     * Ответ не кешируется: он может быть намного больше ответов обычного эндпоинта.
+     * В отличие от {@link #writeEventsForMap}, ошибка Elasticsearch не подменяется пустым результатом:
+     * поток завершается ошибкой. До первой записи клиент получает ответ с ошибкой, а после нее ответ
+     * обрывается, и клиент не примет часть событий за полный результат.
      *
-     * @param eventId глобальный идентификатор события
+     * @param params параметры запроса (даты, bbox)
+     * @return поток GeoJSON Feature
+     */
+    @Override
+    public Flux<GeoJsonFeature> streamEventsForMap(EventMapQueryParameters params) {
+        log.debug("Потоковый запрос событий для карты: {}", params);
+
+        return eventQueryService.streamEvents(params)
+                .mapNotNull(geoJsonConversionService::convertEventToFeature)
+                .doOnError(e -> log.error("Ошибка потоковой выдачи событий для карты: {}", e.getMessage(), e));
+    }
+
+    /**
+     * Выполняет запрос кластеров или событий для области ключа и сериализует результат в GeoJSON.
+     * Отдельные события диапазона внутри окна хранилища в памяти записываются прямо из его колонок.
+     */
+    private void writeMapResponse(MapCacheKey cacheKey, OutputStream output) throws IOException {
+        OffsetDateTime start = cacheKey.startDate();
+        OffsetDateTime end = cacheKey.endDate();
+        double[] bbox = cacheKey.toBoundingBox();
+
+        if (isClusteringRequired(cacheKey.zoom())) {
+            List<EventCluster> clusters = eventQueryService.findClusters(start, end, bbox, cacheKey.zoom());
+            geoJsonConversionService.writeClustersGeoJson(clusters, output);
+            return;
+        }
+
+        Optional<EventPointCursor> hotEvents = hotEventStore.findEvents(start, end, bbox, cacheKey.zoom(),
+                apiConfigProperties.getMaxIndividualEventsPerRequest());
+        if (hotEvents.isPresent()) {
+            geoJsonConversionService.writeGeoJson(hotEvents.get(), output);
+            return;
+        }
+
+        List<EventMapProjection> events = eventQueryService.findEvents(start, end, bbox, cacheKey.zoom());
+        geoJsonConversionService.writeGeoJson(events, output);
+    }
+
+    /**
+     * Получает детальную информацию о конкретном событии, включая первую страницу упоминаний.
+     * Ответ кешируется по идентификатору события.
+     *
+     * @param eventId       глобальный идентификатор события
+     * @param eventDateHint дата события, известная клиенту (может быть null)
      * @return EventDetailsResponse с деталями события
      * @throws ResourceNotFoundException если событие с указанным ID не найдено
      */
     @Override
-    public EventDetailsResponse getEventDetails(Long eventId) throws ResourceNotFoundException {
-        log.debug("Запрос деталей события: eventId={}", eventId);
+    public EventDetailsResponse getEventDetails(Long eventId, LocalDate eventDateHint) throws ResourceNotFoundException {
+        log.debug("Запрос деталей события: eventId={}, дата-подсказка={}", eventId, eventDateHint);
 
-        EventDocument event = findEventByIdOrThrow(eventId);
-        List<MentionDocument> mentions = findMentionsForEvent(event);
+        // Одновременные запросы одного события ждут одной загрузки; ненайденные события не кешируются
+        return await(eventDetailsCache.get(eventId, (id, executor) ->
+                CompletableFuture.supplyAsync(() -> loadEventDetails(id, eventDateHint), detailsFetchExecutor)));
+    }
+
+    /**
+     * Загружает событие, первую страницу и агрегаты его упоминаний из Elasticsearch.
+     * Дата события нужна только для окна поиска упоминаний, поэтому все три запроса выполняются
+     * параллельно в виртуальных потоках по предполагаемой дате: подсказке клиента, а без нее - дате
+     * ежедневного индекса, в диапазон идентификаторов которого входит событие. Если предполагаемая дата
+     * не совпала с датой события, упоминания перезапрашиваются по настоящей дате.
+     * Если дату предположить нельзя, запросы упоминаний выполняются параллельно после чтения события.
+     */
+    private EventDetailsResponse loadEventDetails(Long eventId, LocalDate eventDateHint) {
+        Future<EventDocument> eventFuture = detailsFetchExecutor.submit(() -> findEventByIdOrThrow(eventId));
+
+        LocalDate candidateDate = eventDateHint != null
+                ? eventDateHint
+                : indexResolverService.resolveEventDateForId(eventId).orElse(null);
+        if (candidateDate != null) {
+            OffsetDateTime candidateDateTime = candidateDate.atStartOfDay().atOffset(ZoneOffset.UTC);
+            Future<MentionsPage> pageFuture = submitFirstPage(eventId, candidateDateTime);
+            Future<MentionStats> statsFuture = submitStats(eventId, candidateDateTime);
+
+            EventDocument event = await(eventFuture, pageFuture, statsFuture);
+            if (candidateDateTime.isEqual(event.getEventDate())) {
+                return buildDetails(event, await(pageFuture, statsFuture), await(statsFuture, pageFuture));
+            }
+
+            log.debug("Предполагаемая дата {} не совпала с датой события {}: {}",
+                    candidateDate, eventId, event.getEventDate());
+            pageFuture.cancel(true);
+            statsFuture.cancel(true);
+            return loadMentionsForEvent(event);
+        }
+
+        return loadMentionsForEvent(await(eventFuture));
+    }
+
+    /**
+     * Параллельно загружает первую страницу и агрегаты упоминаний по дате события.
+     */
+    private EventDetailsResponse loadMentionsForEvent(EventDocument event) {
+        Future<MentionsPage> pageFuture = submitFirstPage(event.getGlobalEventId(), event.getEventDate());
+        Future<MentionStats> statsFuture = submitStats(event.getGlobalEventId(), event.getEventDate());
+        return buildDetails(event, await(pageFuture, statsFuture), await(statsFuture, pageFuture));
+    }
+
+    private Future<MentionsPage> submitFirstPage(Long eventId, OffsetDateTime eventDate) {
+        return detailsFetchExecutor.submit(() -> mentionService.getFirstPage(eventId, eventDate, null));
+    }
+
+    private Future<MentionStats> submitStats(Long eventId, OffsetDateTime eventDate) {
+        return detailsFetchExecutor.submit(() -> mentionService.getMentionStats(eventId, eventDate));
+    }
+
+    private EventDetailsResponse buildDetails(EventDocument event, MentionsPage mentionsPage, MentionStats mentionStats) {
+        log.debug("Найдено {} упоминаний для события {}", mentionsPage.getTotal(), event.getGlobalEventId());
+        return eventDetailsService.buildEventDetailsResponse(event, mentionsPage, mentionStats);
+    }
 
-        log.debug("Найдено {} упоминаний для события {}", mentions.size(), eventId);
+    /**
+     * Ожидает результат задачи. При ошибке отменяет остальные задачи того же запроса
+     * и пробрасывает исходное исключение (например, {@link ResourceNotFoundException}).
+     */
+    private <T> T await(Future<T> future, Future<?>... siblings) {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            for (Future<?> sibling : siblings) {
+                sibling.cancel(true);
+            }
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new EmApiException("Ошибка загрузки деталей события", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            for (Future<?> sibling : siblings) {
+                sibling.cancel(true);
+            }
+            throw new EmApiException("Загрузка деталей события прервана", e);
+        }
+    }
+
+    /**
+     * Получает детальную информацию о нескольких событиях.
+     * Закешированные детали берутся из кеша, остальные события читаются одним _msearch только из индексов,
+     * диапазоны идентификаторов которых их содержат, а их упоминания - одним _msearch (страница и агрегаты
+     * для каждого события). Загруженные детали попадают в общий кеш деталей.
+     *
+     * @param eventIds глобальные идентификаторы событий
+     * @return детали событий по идентификаторам в порядке запроса; ненайденные события отсутствуют
+     * @throws InvalidApiParameterException если идентификаторов больше допустимого
+     */
+    @Override
+    public Map<Long, EventDetailsResponse> getEventDetailsBatch(List<Long> eventIds) throws InvalidApiParameterException {
+        Set<Long> uniqueIds = new LinkedHashSet<>(eventIds);
+        if (uniqueIds.size() > apiConfigProperties.getMaxBatchEventIds()) {
+            throw new InvalidApiParameterException(String.format("В пакетном запросе не больше %d событий",
+                    apiConfigProperties.getMaxBatchEventIds()));
+        }
+        log.debug("Пакетный запрос деталей {} событий", uniqueIds.size());
+
+        Map<Long, EventDetailsResponse> cached = eventDetailsCache.synchronous().getAllPresent(uniqueIds);
+        List<Long> missingIds = uniqueIds.stream()
+                .filter(eventId -> !cached.containsKey(eventId))
+                .toList();
+
+        Map<Long, EventDetailsResponse> loaded = loadEventDetailsBatch(missingIds);
+        eventDetailsCache.synchronous().putAll(loaded);
+        log.debug("Детали событий: {} из кеша, {} загружено, {} не найдено",
+                cached.size(), loaded.size(), missingIds.size() - loaded.size());
+
+        Map<Long, EventDetailsResponse> result = new LinkedHashMap<>();
+        for (Long eventId : uniqueIds) {
+            EventDetailsResponse details = cached.containsKey(eventId) ? cached.get(eventId) : loaded.get(eventId);
+            if (details != null) {
+                result.put(eventId, details);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Загружает детали событий двумя запросами: _msearch событий по идентификаторам в индексах их диапазонов
+     * и _msearch упоминаний. Идентификаторы вне всех диапазонов индексов не запрашиваются.
+     */
+    private Map<Long, EventDetailsResponse> loadEventDetailsBatch(List<Long> eventIds) {
+        if (eventIds.isEmpty()) {
+            return Map.of();
+        }
+
+        Map<IndexCoordinates, List<Long>> idsByIndices = indexResolverService.resolveEventIndicesForIds(eventIds);
+        List<EventDocument> events = eventRepository.findAllByGlobalEventIds(idsByIndices).stream()
+                .filter(event -> event.getEventDate() != null)
+                .toList();
+
+        Map<Long, OffsetDateTime> eventDates = new LinkedHashMap<>();
+        events.forEach(event -> eventDates.put(event.getGlobalEventId(), event.getEventDate()));
+        Map<Long, EventMentions> mentions = mentionService.getFirstPages(eventDates);
 
-        return eventDetailsService.buildEventDetailsResponse(event, mentions);
+        Map<Long, EventDetailsResponse> details = new LinkedHashMap<>();
+        for (EventDocument event : events) {
+            EventMentions eventMentions = mentions.get(event.getGlobalEventId());
+            details.put(event.getGlobalEventId(), buildDetails(event, eventMentions.firstPage(), eventMentions.stats()));
+        }
+        return details;
+    }
+
+    /**
+     * Получает страницу упоминаний события.
+     * Следующие страницы читаются только по курсору, без повторного чтения события.
+     *
+     * @param eventId глобальный идентификатор события
+     * @param limit   размер страницы (может быть null)
+     * @param cursor  курсор из предыдущей страницы (может быть null)
+     * @return страница упоминаний
+     * @throws ResourceNotFoundException если событие с указанным ID не найдено
+     */
+    @Override
+    public MentionsPage getEventMentions(Long eventId, Integer limit, String cursor) throws ResourceNotFoundException {
+        log.debug("Запрос упоминаний события: eventId={}, limit={}, cursor задан: {}", eventId, limit, cursor != null);
+
+        if (StringUtils.hasText(cursor)) {
+            return mentionService.getNextPage(eventId, cursor, limit);
+        }
+
+        EventDocument event = findEventByIdOrThrow(eventId);
+        return mentionService.getFirstPage(eventId, event.getEventDate(), limit);
+    }
+
+    /**
+     * Определяет, нужна ли серверная кластеризация для указанного уровня масштабирования.
+     * Кластеризация нужна только при zoom не выше порога; без zoom возвращаются отдельные события.
+     */
+    private boolean isClusteringRequired(Integer zoom) {
+        return zoom != null && zoom <= apiConfigProperties.getIndividualEventsZoomThreshold();
     }
 
     /**
      * Находит событие по ID или выбрасывает исключение.
+     * Индексы события определяются по диапазонам идентификаторов: обычно это прямой GET из одного
+     * индекса, а идентификатор вне всех диапазонов сразу считается ненайденным.
      */
     private EventDocument findEventByIdOrThrow(Long eventId) throws ResourceNotFoundException {
-        return eventRepository.findById(eventId)
+        return indexResolverService.resolveEventIndicesForId(eventId)
+                .flatMap(indices -> eventRepository.findByIdInIndices(eventId, indices))
                 .orElseThrow(() -> {
                     log.warn("Событие не найдено: eventId={}", eventId);
                     return new ResourceNotFoundException("Событие с ID " + eventId + " не найдено");
                 });
     }
-
-    /**
-     * Находит упоминания для события в рамках временного окна.
-     */
-    private List<MentionDocument> findMentionsForEvent(EventDocument event) {
-        OffsetDateTime eventDateTime = event.getEventDate();
-        OffsetDateTime searchEndTime = eventDateTime.plusDays(apiConfigProperties.getMentionSearchDaysRange());
-
-        return mentionRepository.findByGlobalEventIdAndMentionTimeDateBetween(
-                event.getGlobalEventId(), eventDateTime, searchEndTime);
-    }
 } 
\ No newline at end of file
@@ -1,7 +1,12 @@
 package com.neighbor.eventmosaic.api.service.impl;
 
-import com.neighbor.eventmosaic.api.document.EventDocument;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.neighbor.eventmosaic.api.document.EventMapProjection;
 import com.neighbor.eventmosaic.api.dto.ApiGeoPoint;
+import com.neighbor.eventmosaic.api.dto.EventCluster;
+import com.neighbor.eventmosaic.api.dto.EventPointCursor;
 import com.neighbor.eventmosaic.api.dto.geojson.GeoJsonFeature;
 import com.neighbor.eventmosaic.api.dto.geojson.GeoJsonFeatureCollection;
 import com.neighbor.eventmosaic.api.dto.geojson.GeoJsonProperties;
@@ -13,9 +18,13 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.elasticsearch.core.geo.GeoPoint;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 /**
  * Реализация сервиса для конвертации событий в формат GeoJSON.
@@ -27,6 +36,7 @@ public class GeoJsonConversionServiceImpl implements GeoJsonConversionService {
 
     private final GeolocationService geolocationService;
     private final GeoJsonPropertiesMapper geoJsonPropertiesMapper;
+    private final ObjectMapper objectMapper;
 
     /**
      * Конвертирует список событий в GeoJSON FeatureCollection
@@ -35,7 +45,7 @@ public class GeoJsonConversionServiceImpl implements GeoJsonConversionService {
      * @return GeoJSON FeatureCollection
      */
     @Override
-    public GeoJsonFeatureCollection convertToGeoJson(List<EventDocument> events) {
+    public GeoJsonFeatureCollection convertToGeoJson(List<EventMapProjection> events) {
         log.debug("Конвертация {} событий в GeoJSON", events.size());
 
         List<GeoJsonFeature> features = events.stream()
@@ -55,12 +65,12 @@ public class GeoJsonConversionServiceImpl implements GeoJsonConversionService {
      * @return GeoJSON Feature
      */
     @Override
-    public GeoJsonFeature convertEventToFeature(EventDocument event) {
+    public GeoJsonFeature convertEventToFeature(EventMapProjection event) {
         try {
             Optional<GeoPoint> geoPointOpt = geolocationService.selectBestCoordinates(event);
 
             if (geoPointOpt.isEmpty()) {
-                log.debug("Событие {} пропущено - нет координат", event.getGlobalEventId());
+                log.debug("Событие {} пропущено - нет координат", event.globalEventId());
                 return null;
             }
 
@@ -68,16 +78,211 @@ public class GeoJsonConversionServiceImpl implements GeoJsonConversionService {
             ApiGeoPoint apiGeoPoint = new ApiGeoPoint(geoPoint.getLat(), geoPoint.getLon());
 
             GeoJsonProperties properties = geoJsonPropertiesMapper.toSingleEventProperties(
-                    event.getGlobalEventId(),
-                    event.getAvgTone()
+                    event.globalEventId(),
+                    event.avgTone()
             );
 
             return GeoJsonFeature.createSafe(apiGeoPoint, properties);
 
         } catch (Exception e) {
             log.warn("Ошибка при конвертации события {} в GeoJSON: {}",
-                    event.getGlobalEventId(), e.getMessage());
+                    event.globalEventId(), e.getMessage());
             return null;
         }
     }
+
+    /**
+     * Конвертирует список кластеров в GeoJSON FeatureCollection
+     *
+     * @param clusters список кластеров
+     * @return GeoJSON FeatureCollection
+     */
+    @Override
+    public GeoJsonFeatureCollection convertClustersToGeoJson(List<EventCluster> clusters) {
+        log.debug("Конвертация {} кластеров в GeoJSON", clusters.size());
+
+        List<GeoJsonFeature> features = clusters.stream()
+                .map(this::convertClusterToFeature)
+                .filter(Objects::nonNull)
+                .toList();
+
+        log.debug("Успешно конвертировано {} из {} кластеров", features.size(), clusters.size());
+        return new GeoJsonFeatureCollection(features);
+    }
+
+    /**
+     * Конвертирует кластер в GeoJSON Feature.
+     * Кластер из одного события отображается как отдельное событие с его ID.
+     *
+     * @param cluster кластер
+     * @return GeoJSON Feature
+     */
+    @Override
+    public GeoJsonFeature convertClusterToFeature(EventCluster cluster) {
+        GeoJsonProperties properties = cluster.count() == 1 && cluster.eventId() != null
+                ? geoJsonPropertiesMapper.toSingleEventProperties(cluster.eventId(), cluster.avgTone())
+                : geoJsonPropertiesMapper.toClusterProperties(cluster.count(), cluster.avgTone());
+
+        return GeoJsonFeature.createSafe(cluster.centroid(), properties);
+    }
+
+    /**
+     * Записывает события в поток по одной фиче за раз.
+     * События без координат пропускаются, как и в {@link #convertEventToFeature(EventMapProjection)}.
+     *
+     * @param events список событий
+     * @param output поток для записи
+     */
+    @Override
+    public void writeGeoJson(List<EventMapProjection> events, OutputStream output) throws IOException {
+        log.debug("Потоковая запись {} событий в GeoJSON", events.size());
+        writeGeoJson(events.iterator(), () -> null, output);
+    }
+
+    /**
+     * Записывает события из итератора по одной фиче за раз и добавляет курсор продолжения.
+     *
+     * @param events     события
+     * @param nextCursor курсор продолжения (null - поле не записывается)
+     * @param output     поток для записи
+     */
+    @Override
+    public void writeGeoJson(Iterator<EventMapProjection> events, Supplier<String> nextCursor, OutputStream output)
+            throws IOException {
+        try (JsonGenerator generator = createGenerator(output)) {
+            writeCollectionStart(generator);
+            while (events.hasNext()) {
+                EventMapProjection event = events.next();
+                Optional<GeoPoint> geoPointOpt = geolocationService.selectBestCoordinates(event);
+                if (geoPointOpt.isEmpty()) {
+                    log.debug("Событие {} пропущено - нет координат", event.globalEventId());
+                    continue;
+                }
+                GeoPoint geoPoint = geoPointOpt.get();
+                writeFeature(generator, geoPoint.getLat(), geoPoint.getLon(),
+                        event.globalEventId(), event.avgTone(), 1);
+            }
+            generator.writeEndArray();
+
+            String cursor = nextCursor.get();
+            if (cursor != null) {
+                generator.writeStringField("nextCursor", cursor);
+            }
+            generator.writeEndObject();
+        }
+    }
+
+    /**
+     * Записывает события курсора в поток по одной фиче за раз.
+     * Значения читаются из курсора как примитивы, без объектов на каждое событие.
+     *
+     * @param events курсор событий
+     * @param output поток для записи
+     */
+    @Override
+    public void writeGeoJson(EventPointCursor events, OutputStream output) throws IOException {
+        try (JsonGenerator generator = createGenerator(output)) {
+            writeCollectionStart(generator);
+            while (events.next()) {
+                writeFeatureStart(generator, events.lat(), events.lon());
+                generator.writeNumberField("eventId", events.eventId());
+                if (!Double.isNaN(events.avgTone())) {
+                    generator.writeNumberField("avgTone", events.avgTone());
+                }
+                writeFeatureEnd(generator, 1);
+            }
+            writeCollectionEnd(generator);
+        }
+    }
+
+    /**
+     * Записывает кластеры в поток по одной фиче за раз.
+     * Кластер из одного события записывается как отдельное событие с его ID.
+     *
+     * @param clusters список кластеров
+     * @param output   поток для записи
+     */
+    @Override
+    public void writeClustersGeoJson(List<EventCluster> clusters, OutputStream output) throws IOException {
+        log.debug("Потоковая запись {} кластеров в GeoJSON", clusters.size());
+
+        try (JsonGenerator generator = createGenerator(output)) {
+            writeCollectionStart(generator);
+            for (EventCluster cluster : clusters) {
+                Long eventId = cluster.count() == 1 ? cluster.eventId() : null;
+                writeFeature(generator, cluster.centroid().lat(), cluster.centroid().lon(),
+                        eventId, cluster.avgTone(), cluster.count());
+            }
+            writeCollectionEnd(generator);
+        }
+    }
+
+    /**
+     * Создает генератор поверх потока ответа, не закрывая сам поток.
+     */
+    private JsonGenerator createGenerator(OutputStream output) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(output, JsonEncoding.UTF8);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        return generator;
+    }
+
+    private void writeCollectionStart(JsonGenerator generator) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("type", "FeatureCollection");
+        generator.writeArrayFieldStart("features");
+    }
+
+    private void writeCollectionEnd(JsonGenerator generator) throws IOException {
+        generator.writeEndArray();
+        generator.writeEndObject();
+    }
+
+    /**
+     * Записывает одну фичу в том же порядке полей, что и Jackson для GeoJsonFeature:
+     * type, geometry (type, coordinates [lon, lat]), properties (eventId, avgTone, clusterCount).
+     * Null-свойства не записываются, как при {@code @JsonInclude(NON_NULL)}.
+     */
+    private void writeFeature(JsonGenerator generator,
+                              double lat,
+                              double lon,
+                              Long eventId,
+                              Double avgTone,
+                              int clusterCount) throws IOException {
+        writeFeatureStart(generator, lat, lon);
+        if (eventId != null) {
+            generator.writeNumberField("eventId", eventId);
+        }
+        if (avgTone != null) {
+            generator.writeNumberField("avgTone", avgTone);
+        }
+        writeFeatureEnd(generator, clusterCount);
+    }
+
+    /**
+     * Записывает начало фичи: type, geometry и открывает properties.
+     */
+    private void writeFeatureStart(JsonGenerator generator, double lat, double lon) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("type", "Feature");
+
+        generator.writeObjectFieldStart("geometry");
+        generator.writeStringField("type", "Point");
+        generator.writeArrayFieldStart("coordinates");
+        generator.writeNumber(lon);
+        generator.writeNumber(lat);
+        generator.writeEndArray();
+        generator.writeEndObject();
+
+        generator.writeObjectFieldStart("properties");
+    }
+
+    /**
+     * Записывает clusterCount и закрывает properties и фичу.
+     */
+    private void writeFeatureEnd(JsonGenerator generator, int clusterCount) throws IOException {
+        generator.writeNumberField("clusterCount", clusterCount);
+        generator.writeEndObject();
+
+        generator.writeEndObject();
+    }
 } 
\ No newline at end of file
@@ -1,6 +1,7 @@
 package com.neighbor.eventmosaic.api.service.impl;
 
 import com.neighbor.eventmosaic.api.document.EventDocument;
+import com.neighbor.eventmosaic.api.document.EventMapProjection;
 import com.neighbor.eventmosaic.api.service.GeolocationService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.elasticsearch.core.geo.GeoPoint;
@@ -34,35 +35,66 @@ public class GeolocationServiceImpl implements GeolocationService {
 
         log.debug("Выбираем координаты для события: {}", eventDocument.getGlobalEventId());
 
+        return selectBestCoordinates(eventDocument.getGlobalEventId(),
+                eventDocument.getActionLocation(), eventDocument.getActionGeoType(),
+                eventDocument.getActor1Location(), eventDocument.getActor1GeoType(),
+                eventDocument.getActor2Location(), eventDocument.getActor2GeoType());
+    }
+
+    /**
+     * Выбирает наилучшие координаты для проекции события.
+     *
+     * @param projection проекция события для карты
+     * @return Optional с наилучшими координатами или пустой Optional, если координаты отсутствуют
+     */
+    @Override
+    public Optional<GeoPoint> selectBestCoordinates(EventMapProjection projection) {
+        if (projection == null) {
+            log.debug("EventMapProjection is null, возвращаем пустой Optional");
+            return Optional.empty();
+        }
+
+        return selectBestCoordinates(projection.globalEventId(),
+                projection.actionLocation(), projection.actionGeoType(),
+                projection.actor1Location(), projection.actor1GeoType(),
+                projection.actor2Location(), projection.actor2GeoType());
+    }
+
+    /**
+     * Общая логика выбора координат для документа и проекции события.
+     */
+    private Optional<GeoPoint> selectBestCoordinates(Long globalEventId,
+                                                     GeoPoint actionLocation,
+                                                     Number actionGeoType,
+                                                     GeoPoint actor1Location,
+                                                     Number actor1GeoType,
+                                                     GeoPoint actor2Location,
+                                                     Number actor2GeoType) {
         // 1. Пробуем ActionGeo, если оно достаточно точное
-        if (eventDocument.getActionLocation() != null &&
-                isPreciseEnough(eventDocument.getActionGeoType())) {
-            log.debug("Используем ActionGeo (точность: {})", eventDocument.getActionGeoType());
-            return Optional.of(eventDocument.getActionLocation());
+        if (actionLocation != null && isPreciseEnough(actionGeoType)) {
+            log.debug("Используем ActionGeo (точность: {})", actionGeoType);
+            return Optional.of(actionLocation);
         }
 
         // 2. Пробуем Actor1Geo
-        if (eventDocument.getActor1Location() != null &&
-                isPreciseEnough(eventDocument.getActor1GeoType())) {
-            log.debug("Используем Actor1Geo (точность: {})", eventDocument.getActor1GeoType());
-            return Optional.of(eventDocument.getActor1Location());
+        if (actor1Location != null && isPreciseEnough(actor1GeoType)) {
+            log.debug("Используем Actor1Geo (точность: {})", actor1GeoType);
+            return Optional.of(actor1Location);
         }
 
         // 3. Пробуем Actor2Geo
-        if (eventDocument.getActor2Location() != null &&
-                isPreciseEnough(eventDocument.getActor2GeoType())) {
-            log.debug("Используем Actor2Geo (точность: {})", eventDocument.getActor2GeoType());
-            return Optional.of(eventDocument.getActor2Location());
+        if (actor2Location != null && isPreciseEnough(actor2GeoType)) {
+            log.debug("Используем Actor2Geo (точность: {})", actor2GeoType);
+            return Optional.of(actor2Location);
         }
 
         // 4. Если ничего точного нет, используем ActionGeo даже если неточное
-        if (eventDocument.getActionLocation() != null) {
-            log.debug("Используем ActionGeo как fallback (точность: {})",
-                    eventDocument.getActionGeoType());
-            return Optional.of(eventDocument.getActionLocation());
+        if (actionLocation != null) {
+            log.debug("Используем ActionGeo как fallback (точность: {})", actionGeoType);
+            return Optional.of(actionLocation);
         }
 
-        log.debug("Координаты отсутствуют для события: {}", eventDocument.getGlobalEventId());
+        log.debug("Координаты отсутствуют для события: {}", globalEventId);
         return Optional.empty();
     }
 
@@ -0,0 +1,117 @@
+package com.neighbor.eventmosaic.api.service.impl;
+
+import com.neighbor.eventmosaic.api.config.ApiConfigProperties;
+import com.neighbor.eventmosaic.api.dto.TileCoordinates;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Равномерное по области прореживание отдельных событий.
+ * Область делится сеткой geotile, precision которой зависит от zoom; за один проход в каждой ячейке
+ * ограниченной кучей фиксированного размера остаются самые важные события. Результат набирается
+ * по рангам: сначала лучшее событие каждой ячейки, затем второе и так далее, поэтому при обрезке
+ * до лимита событиями покрыта вся область, а не только самые плотные ее части.
+ * Размер кучи ячейки выбирается так, чтобы ячейки области вместе могли заполнить лимит: у тайла
+ * векторной карты ячеек мало, и в каждой остается больше событий, чем у большого видового окна.
+ */
+final class GridDownsampler {
+
+    private final int precision;
+    private final int eventsPerCell;
+    private final Map<Long, TopKHeap> cells = new HashMap<>();
+
+    /**
+     * @param precision     precision сетки geotile
+     * @param eventsPerCell сколько событий оставлять в ячейке
+     */
+    GridDownsampler(int precision, int eventsPerCell) {
+        this.precision = precision;
+        this.eventsPerCell = eventsPerCell;
+    }
+
+    /**
+     * Определяет precision сетки прореживания по уровню масштабирования: ячейка сетки того же размера,
+     * что и ячейка кластеров ({@link TileCoordinates#CELL_ZOOM_OFFSET}).
+     *
+     * @param zoom                уровень масштабирования или null
+     * @param apiConfigProperties настройки API
+     * @return precision сетки или -1, если прореживание выключено или zoom не задан
+     */
+    static int precision(Integer zoom, ApiConfigProperties apiConfigProperties) {
+        if (!apiConfigProperties.isSpatialDownsamplingEnabled() || zoom == null) {
+            return -1;
+        }
+        return Math.max(0, Math.min(zoom + TileCoordinates.CELL_ZOOM_OFFSET, apiConfigProperties.getMaxGeotilePrecision()));
+    }
+
+    /**
+     * Определяет, сколько событий оставлять в ячейке: ячейки области вместе должны вмещать лимит,
+     * но не меньше настроенного минимума.
+     *
+     * @param bbox             массив [minLat, minLon, maxLat, maxLon] или null для всего мира
+     * @param precision        precision сетки
+     * @param limit            максимальное количество событий в ответе
+     * @param minEventsPerCell минимальное количество событий в ячейке
+     * @return количество событий в ячейке
+     */
+    static int eventsPerCell(double[] bbox, int precision, int limit, int minEventsPerCell) {
+        long cellCount = TileCoordinates.cellCount(bbox, precision);
+        long perCell = Math.ceilDiv((long) limit, Math.max(1, cellCount));
+        return (int) Math.max(minEventsPerCell, Math.min(perCell, limit));
+    }
+
+    /**
+     * Добавляет событие в его ячейку.
+     *
+     * @param lat   широта события
+     * @param lon   долгота события
+     * @param key   ключ важности; при равных ключах в ячейке остаются добавленные раньше
+     * @param value значение, которое вернет {@link #select}
+     */
+    void add(double lat, double lon, long key, long value) {
+        cells.computeIfAbsent(TileCoordinates.cellKey(lat, lon, precision), cell -> new TopKHeap(eventsPerCell))
+                .offer(key, value);
+    }
+
+    /**
+     * Отбирает события по рангам в ячейках: внутри одного ранга ячейки упорядочены по важности события.
+     * Ячейки после вызова пусты.
+     *
+     * @param limit максимальное количество событий
+     * @return значения отобранных событий
+     */
+    long[] select(int limit) {
+        List<long[]> cellKeys = new ArrayList<>(cells.size());
+        List<long[]> cellValues = new ArrayList<>(cells.size());
+        int total = 0;
+        for (TopKHeap heap : cells.values()) {
+            long[] keys = new long[heap.size()];
+            cellValues.add(heap.drainDescending(keys));
+            cellKeys.add(keys);
+            total += keys.length;
+        }
+        cells.clear();
+
+        long[] selected = new long[Math.min(limit, total)];
+        int count = 0;
+        List<Integer> ranked = new ArrayList<>(cellKeys.size());
+        for (int rank = 0; rank < eventsPerCell && count < selected.length; rank++) {
+            int currentRank = rank;
+            ranked.clear();
+            for (int cell = 0; cell < cellKeys.size(); cell++) {
+                if (cellKeys.get(cell).length > rank) {
+                    ranked.add(cell);
+                }
+            }
+            ranked.sort(Comparator.comparingLong((Integer cell) -> cellKeys.get(cell)[currentRank]).reversed());
+            for (int i = 0; i < ranked.size() && count < selected.length; i++) {
+                selected[count++] = cellValues.get(ranked.get(i))[rank];
+            }
+        }
+        return selected;
+    }
+}
@@ -0,0 +1,765 @@
+package com.neighbor.eventmosaic.api.service.impl;
+
+import com.neighbor.eventmosaic.api.config.ApiConfigProperties;
+import com.neighbor.eventmosaic.api.document.EventMapProjection;
+import com.neighbor.eventmosaic.api.dto.ApiGeoPoint;
+import com.neighbor.eventmosaic.api.dto.EventCluster;
+import com.neighbor.eventmosaic.api.dto.EventPointCursor;
+import com.neighbor.eventmosaic.api.dto.TileCoordinates;
+import com.neighbor.eventmosaic.api.repository.AddedMapPage;
+import com.neighbor.eventmosaic.api.repository.ElasticEventRepository;
+import com.neighbor.eventmosaic.api.service.GeolocationService;
+import com.neighbor.eventmosaic.api.service.HotEventStore;
+import com.neighbor.eventmosaic.api.service.IndexResolverService;
+import com.neighbor.eventmosaic.api.service.ParameterParsingService;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.elasticsearch.core.geo.GeoPoint;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.IntStream;
+
+/**
+ * Реализация хранилища событий окна по умолчанию в памяти.
+ * Окно хранится неизменяемыми колоночными сегментами. Полная загрузка (search_after в порядке добавления
+ * (dateAdded, globalEventId)) выполняется при старте и каждые hotStoreFullReloadMinutes; между ними каждые
+ * hotStoreRefreshSeconds догружаются только новые события. Всей пачке GDELT проставляется один dateAdded,
+ * а ее события индексируются не сразу, поэтому догрузка перечитывает последнюю пачку и пачки моложе
+ * hotStoreBatchSettleSeconds и отбрасывает уже загруженные события ({@link RecentAdditions}).
+ * Догруженные события становятся новым сегментом, а новый снимок со
+ * списком сегментов подменяется атомарно: запросы не блокируются и работают с тем снимком, который застали.
+ * Когда сегментов становится больше MAX_SEGMENTS, они сливаются в один, и события, вышедшие из окна, вытесняются.
+ * Окно снимка - окно по умолчанию на момент обновления, продленное на интервал выравнивания,
+ * чтобы запросы со следующим выровненным окном попадали в снимок до следующего обновления.
+ * Если обновление не удалось, остается предыдущий снимок: запросы за пределами его окна уходят в Elasticsearch.
+ * Размер снимка, отставание последней загруженной пачки, размер догрузок и длительность обновлений публикуются в метриках hotstore.*.
+ * После каждого изменения снимка по событиям окна по умолчанию перестраивается {@link ClusterPyramid}:
+ * кластеры запросов именно этого окна берутся из готового уровня пирамиды, остальные диапазоны внутри
+ * снимка группируются по ячейкам geotile на каждый запрос.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class HotEventStoreImpl implements HotEventStore, MeterBinder {
+
+    /**
+     * Размер страницы загрузки снимка.
+     */
+    private static final int LOAD_PAGE_SIZE = 10000;
+
+    /**
+     * Количество сегментов, после которого они сливаются в один.
+     */
+    private static final int MAX_SEGMENTS = 16;
+
+    private final ElasticEventRepository eventRepository;
+    private final IndexResolverService indexResolverService;
+    private final ParameterParsingService parameterParsingService;
+    private final GeolocationService geolocationService;
+    private final ApiConfigProperties apiConfigProperties;
+
+    /**
+     * Текущий снимок. null, пока хранилище не загружено.
+     */
+    private volatile HotWindow window;
+
+    /**
+     * Пирамида кластеров окна по умолчанию. null, пока не построена или если отключена.
+     */
+    private volatile PyramidSnapshot pyramid;
+
+    private volatile Timer fullRefreshTimer;
+    private volatile Timer incrementalRefreshTimer;
+    private volatile DistributionSummary deltaEventsSummary;
+    private volatile Timer pyramidBuildTimer;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("hotstore.events", this, s -> s.windowValue(HotWindow::size))
+                .description("Количество событий в хранилище окна по умолчанию")
+                .register(registry);
+        Gauge.builder("hotstore.segments", this, s -> s.windowValue(w -> w.segments().size()))
+                .description("Количество сегментов хранилища окна по умолчанию")
+                .register(registry);
+        Gauge.builder("hotstore.freshness.lag", this, HotEventStoreImpl::freshnessLagSeconds)
+                .description("Отставание последней загруженной пачки (dateAdded) от текущего времени")
+                .baseUnit("seconds")
+                .register(registry);
+        fullRefreshTimer = Timer.builder("hotstore.refresh")
+                .description("Длительность обновления хранилища окна по умолчанию")
+                .tag("type", "full")
+                .register(registry);
+        incrementalRefreshTimer = Timer.builder("hotstore.refresh")
+                .description("Длительность обновления хранилища окна по умолчанию")
+                .tag("type", "incremental")
+                .register(registry);
+        deltaEventsSummary = DistributionSummary.builder("hotstore.refresh.delta")
+                .description("Количество событий, догруженных за одно обновление")
+                .baseUnit("events")
+                .register(registry);
+        pyramidBuildTimer = Timer.builder("hotstore.pyramid.build")
+                .description("Длительность построения пирамиды кластеров окна по умолчанию")
+                .register(registry);
+    }
+
+    @Override
+    public Optional<EventPointCursor> findEvents(OffsetDateTime start, OffsetDateTime end, double[] bbox, Integer zoom,
+                                                 int limit) {
+        HotWindow snapshot = coveringSnapshot(start, end);
+        if (snapshot == null) {
+            return Optional.empty();
+        }
+        long startMillis = start.toInstant().toEpochMilli();
+        long endMillis = end.toInstant().toEpochMilli();
+        boolean ranked = apiConfigProperties.isRankMapEventsByImportance();
+        int gridPrecision = GridDownsampler.precision(zoom, apiConfigProperties);
+        if (!ranked && gridPrecision < 0) {
+            return Optional.of(new ColumnCursor(snapshot.segments(), startMillis, endMillis, bbox, limit));
+        }
+
+        // За один проход события попадают и в общую ограниченную кучу, и в кучи ячеек сетки прореживания;
+        // ссылка на строку - номер сегмента и строки
+        List<EventColumns> segments = snapshot.segments();
+        TopKHeap top = new TopKHeap(limit);
+        GridDownsampler grid = null;
+        if (gridPrecision >= 0) {
+            int eventsPerCell = GridDownsampler.eventsPerCell(bbox, gridPrecision, limit,
+                    apiConfigProperties.getDownsamplingEventsPerCell());
+            grid = new GridDownsampler(gridPrecision, eventsPerCell);
+        }
+        long matched = 0;
+        for (int segmentIndex = 0; segmentIndex < segments.size(); segmentIndex++) {
+            EventColumns segment = segments.get(segmentIndex);
+            PackedHilbertRTree.Query rows = segment.query(startMillis, endMillis, bbox);
+            for (int row = rows.nextRow(); row >= 0; row = rows.nextRow()) {
+                long importance = ranked ? segment.importance(row) : 0;
+                long ref = (long) segmentIndex << 32 | row;
+                top.offer(importance, ref);
+                if (grid != null) {
+                    grid.add(segment.lat(row), segment.lon(row), importance, ref);
+                }
+                matched++;
+            }
+        }
+
+        long[] refs = grid != null && matched > limit ? grid.select(limit) : top.drainDescending();
+        return Optional.of(new RowRefCursor(segments, refs));
+    }
+
+    @Override
+    public Optional<List<EventCluster>> findClusters(OffsetDateTime start, OffsetDateTime end, double[] bbox,
+                                                     int precision, int maxClusters) {
+        long startMillis = start.toInstant().toEpochMilli();
+        long endMillis = end.toInstant().toEpochMilli();
+        PyramidSnapshot clusterPyramid = pyramid;
+        if (clusterPyramid != null && clusterPyramid.matches(startMillis, endMillis)
+                && precision <= clusterPyramid.pyramid().maxPrecision()) {
+            return Optional.of(clusterPyramid.pyramid().clusters(precision, bbox, maxClusters));
+        }
+
+        HotWindow snapshot = coveringSnapshot(start, end);
+        if (snapshot == null) {
+            return Optional.empty();
+        }
+
+        GeoTileCells cells = new GeoTileCells();
+        for (EventColumns segment : snapshot.segments()) {
+            PackedHilbertRTree.Query rows = segment.query(startMillis, endMillis, bbox);
+            for (int row = rows.nextRow(); row >= 0; row = rows.nextRow()) {
+                cells.add(TileCoordinates.cellKey(segment.lat(row), segment.lon(row), precision), row, segment);
+            }
+        }
+
+        List<EventCluster> clusters = cells.toClusters(maxClusters);
+        log.debug("Кластеры из хранилища окна: {} ячеек, {} кластеров, precision {}",
+                cells.size, clusters.size(), precision);
+        return Optional.of(clusters);
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "#{@apiConfigProperties.hotStoreRefreshSeconds}", timeUnit = TimeUnit.SECONDS)
+    public void refresh() {
+        if (!apiConfigProperties.isHotStoreEnabled()) {
+            return;
+        }
+
+        HotWindow current = window;
+        boolean full = current == null || System.currentTimeMillis() - current.fullLoadMillis()
+                >= TimeUnit.MINUTES.toMillis(apiConfigProperties.getHotStoreFullReloadMinutes());
+        long startNanos = System.nanoTime();
+        try {
+            OffsetDateTime[] range = parameterParsingService.createDateRange(
+                    (OffsetDateTime) null, null, apiConfigProperties.getDefaultEventWindowHours());
+            OffsetDateTime windowEnd = range[1].plusMinutes(apiConfigProperties.getDefaultWindowAlignmentMinutes());
+
+            HotWindow updated = full ? loadFull(range[0], windowEnd) : loadDelta(current, range[0], windowEnd);
+            window = updated;
+            if (updated == null || !apiConfigProperties.isHotStoreClusterPyramidEnabled()) {
+                pyramid = null;
+            }
+
+            long elapsedNanos = System.nanoTime() - startNanos;
+            Timer timer = full ? fullRefreshTimer : incrementalRefreshTimer;
+            if (timer != null) {
+                timer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+            }
+            if (updated != null && full) {
+                log.info("Хранилище окна {} - {} загружено: {} событий за {} мс", range[0], windowEnd,
+                        updated.size(), TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+            } else if (updated != null) {
+                log.debug("Хранилище окна {} - {} обновлено: {} событий в {} сегментах за {} мс", range[0], windowEnd,
+                        updated.size(), updated.segments().size(), TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+            }
+
+            if (updated != null && apiConfigProperties.isHotStoreClusterPyramidEnabled()) {
+                refreshPyramid(updated, range[0], range[1]);
+            }
+        } catch (Exception e) {
+            log.warn("Не удалось обновить хранилище окна по умолчанию: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Перестраивает пирамиду кластеров по событиям окна по умолчанию, если снимок изменился.
+     * До подмены запросы получают кластеры из предыдущей пирамиды, если их окно совпадает с ее окном.
+     */
+    private void refreshPyramid(HotWindow snapshot, OffsetDateTime windowStart, OffsetDateTime windowEnd) {
+        PyramidSnapshot current = pyramid;
+        if (current != null && current.source() == snapshot) {
+            return;
+        }
+
+        long startNanos = System.nanoTime();
+        long startMillis = windowStart.toInstant().toEpochMilli();
+        long endMillis = windowEnd.toInstant().toEpochMilli();
+        ColumnsBuilder events = new ColumnsBuilder();
+        for (EventColumns segment : snapshot.segments()) {
+            PackedHilbertRTree.Query rows = segment.query(startMillis, endMillis, null);
+            for (int row = rows.nextRow(); row >= 0; row = rows.nextRow()) {
+                events.add(segment, row);
+            }
+        }
+
+        ClusterPyramid built = events.buildPyramid(apiConfigProperties.getMaxGeotilePrecision());
+        pyramid = new PyramidSnapshot(snapshot, startMillis, endMillis, built);
+
+        long elapsedNanos = System.nanoTime() - startNanos;
+        if (pyramidBuildTimer != null) {
+            pyramidBuildTimer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+        }
+        log.debug("Пирамида кластеров окна {} - {} построена: {} событий, {} кластеров на уровне 0, за {} мс",
+                windowStart, windowEnd, events.size, built.size(0), TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+    }
+
+    /**
+     * Возвращает текущий снимок, если он покрывает диапазон запроса.
+     */
+    private HotWindow coveringSnapshot(OffsetDateTime start, OffsetDateTime end) {
+        HotWindow snapshot = window;
+        if (snapshot == null || !snapshot.covers(start.toInstant().toEpochMilli(), end.toInstant().toEpochMilli())) {
+            return null;
+        }
+        return snapshot;
+    }
+
+    /**
+     * Читает все события окна в один сегмент в порядке добавления.
+     * Координаты выбираются один раз при загрузке; события без координат и даты в снимок не попадают.
+     * Без point-in-time: события, добавленные во время загрузки, оказываются в конце порядка и тоже читаются,
+     * а опоздавшие события уже пройденной пачки подхватит следующая догрузка.
+     *
+     * @return снимок или null, если событий в окне больше hotStoreMaxEvents
+     */
+    private HotWindow loadFull(OffsetDateTime windowStart, OffsetDateTime windowEnd) {
+        long loadMillis = System.currentTimeMillis();
+        ColumnsBuilder builder = new ColumnsBuilder();
+        RecentAdditions.Builder recent = new RecentAdditions.Builder(settledBefore(loadMillis));
+
+        Optional<IndexCoordinates> indices = indexResolverService.resolveEventIndices(windowStart, windowEnd);
+        if (indices.isPresent()) {
+            List<Object> searchAfter = null;
+            AddedMapPage page;
+            do {
+                page = eventRepository.findMapPageAddedAfter(indices.get(), windowStart, windowEnd, searchAfter,
+                        LOAD_PAGE_SIZE);
+                for (int i = 0; i < page.events().size(); i++) {
+                    EventMapProjection event = page.events().get(i);
+                    builder.add(event);
+                    recent.add(page.datesAdded()[i], event.globalEventId());
+                }
+                if (builder.size > apiConfigProperties.getHotStoreMaxEvents()) {
+                    return disabled();
+                }
+                searchAfter = page.lastSortValues();
+            } while (page.events().size() == LOAD_PAGE_SIZE);
+        }
+
+        EventColumns segment = builder.build();
+        return new HotWindow(windowStart.toInstant().toEpochMilli(), windowEnd.toInstant().toEpochMilli(),
+                List.of(segment), segment.size(), recent.build(), loadMillis);
+    }
+
+    /**
+     * Догружает новые события окна новым сегментом.
+     * Перечитываются события начиная с {@link RecentAdditions#rereadFrom}: последняя загруженная пачка и пачки
+     * моложе hotStoreBatchSettleSeconds, в которые еще могут дописываться события. Уже загруженные события
+     * отбрасываются. Без point-in-time: каждая страница видит текущее состояние индексов, а порядок
+     * по (dateAdded, globalEventId) не дает пропустить события между страницами.
+     *
+     * @return новый снимок или null, если событий в окне больше hotStoreMaxEvents
+     */
+    private HotWindow loadDelta(HotWindow current, OffsetDateTime windowStart, OffsetDateTime windowEnd) {
+        ColumnsBuilder builder = new ColumnsBuilder();
+        long settledBefore = settledBefore(System.currentTimeMillis());
+        RecentAdditions loaded = current.recent();
+        RecentAdditions.Builder recent = new RecentAdditions.Builder(settledBefore);
+
+        Optional<IndexCoordinates> indices = indexResolverService.resolveEventIndices(windowStart, windowEnd);
+        if (indices.isPresent()) {
+            // Пустой снимок читается с начала окна; иначе search_after перед первым событием пачки rereadFrom
+            List<Object> searchAfter = loaded.isEmpty() ? null
+                    : List.of(loaded.rereadFrom(settledBefore), Long.MIN_VALUE);
+            AddedMapPage page;
+            do {
+                page = eventRepository.findMapPageAddedAfter(indices.get(), windowStart, windowEnd, searchAfter,
+                        LOAD_PAGE_SIZE);
+                for (int i = 0; i < page.events().size(); i++) {
+                    EventMapProjection event = page.events().get(i);
+                    long dateAdded = page.datesAdded()[i];
+                    recent.add(dateAdded, event.globalEventId());
+                    if (!loaded.contains(dateAdded, event.globalEventId())) {
+                        builder.add(event);
+                    }
+                }
+                if (current.size() + builder.size > apiConfigProperties.getHotStoreMaxEvents()) {
+                    return disabled();
+                }
+                if (page.lastSortValues() != null) {
+                    searchAfter = page.lastSortValues();
+                }
+            } while (page.events().size() == LOAD_PAGE_SIZE);
+        }
+        if (deltaEventsSummary != null) {
+            deltaEventsSummary.record(builder.size);
+        }
+
+        long startMillis = windowStart.toInstant().toEpochMilli();
+        long endMillis = windowEnd.toInstant().toEpochMilli();
+        if (builder.size == 0 && startMillis == current.windowStart() && endMillis == current.windowEnd()) {
+            // Новых событий нет: перечитанные события - подмножество загруженных, снимок не меняется
+            return current;
+        }
+        // Если перечитать было нечего (события ушли из окна), загруженные события остаются известными
+        RecentAdditions reread = recent.build();
+        RecentAdditions known = reread.isEmpty() ? loaded : reread;
+        List<EventColumns> segments = new ArrayList<>(current.segments());
+        if (builder.size > 0) {
+            segments.add(builder.build());
+        }
+        if (segments.size() > MAX_SEGMENTS) {
+            EventColumns compacted = compact(segments, startMillis);
+            log.debug("Сегменты хранилища окна слиты: {} событий, вытеснено {}",
+                    compacted.size(), current.size() + builder.size - compacted.size());
+            return new HotWindow(startMillis, endMillis, List.of(compacted), compacted.size(), known,
+                    current.fullLoadMillis());
+        }
+        return new HotWindow(startMillis, endMillis, List.copyOf(segments), current.size() + builder.size,
+                known, current.fullLoadMillis());
+    }
+
+    /**
+     * Граница оседания пачек: пачки с dateAdded до нее считаются проиндексированными полностью.
+     */
+    private long settledBefore(long nowMillis) {
+        return nowMillis - TimeUnit.SECONDS.toMillis(apiConfigProperties.getHotStoreBatchSettleSeconds());
+    }
+
+    /**
+     * Сливает сегменты в один, отбрасывая события, вышедшие из окна.
+     */
+    private EventColumns compact(List<EventColumns> segments, long windowStart) {
+        ColumnsBuilder builder = new ColumnsBuilder();
+        for (EventColumns segment : segments) {
+            for (int row = 0; row < segment.size(); row++) {
+                if (segment.eventDate(row) >= windowStart) {
+                    builder.add(segment, row);
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    private HotWindow disabled() {
+        log.warn("В окне по умолчанию больше {} событий, хранилище отключено до следующей загрузки",
+                apiConfigProperties.getHotStoreMaxEvents());
+        return null;
+    }
+
+    private double windowValue(ToDoubleFunction<HotWindow> extractor) {
+        HotWindow snapshot = window;
+        return snapshot != null ? extractor.applyAsDouble(snapshot) : Double.NaN;
+    }
+
+    private double freshnessLagSeconds() {
+        HotWindow snapshot = window;
+        if (snapshot == null || snapshot.recent().isEmpty()) {
+            return Double.NaN;
+        }
+        return (System.currentTimeMillis() - snapshot.recent().newestDateAdded()) / 1000.0;
+    }
+
+    /**
+     * Неизменяемый снимок окна.
+     */
+    private record HotWindow(
+            long windowStart,             // Начало окна (epoch millis)
+            long windowEnd,               // Конец окна (epoch millis)
+            List<EventColumns> segments,  // Сегменты в порядке загрузки
+            int size,                     // Количество событий во всех сегментах
+            RecentAdditions recent,       // События последних пачек, которые перечитывает догрузка
+            long fullLoadMillis           // Время последней полной загрузки (epoch millis)
+    ) {
+
+        /**
+         * Покрывает ли окно снимка диапазон запроса целиком.
+         */
+        boolean covers(long start, long end) {
+            return start >= windowStart && end <= windowEnd;
+        }
+    }
+
+    /**
+     * Пирамида кластеров и снимок, по которому она построена.
+     */
+    private record PyramidSnapshot(
+            HotWindow source,        // Снимок, по событиям которого построена пирамида
+            long windowStart,        // Начало окна по умолчанию (epoch millis)
+            long windowEnd,          // Конец окна по умолчанию (epoch millis)
+            ClusterPyramid pyramid   // Пирамида кластеров
+    ) {
+
+        /**
+         * Совпадает ли диапазон запроса с окном пирамиды.
+         */
+        boolean matches(long start, long end) {
+            return start == windowStart && end == windowEnd;
+        }
+    }
+
+    /**
+     * Накопитель колонок сегмента. Строки упорядочиваются один раз в {@link #build}.
+     */
+    private class ColumnsBuilder {
+
+        private long[] eventIds = new long[LOAD_PAGE_SIZE];
+        private long[] eventDates = new long[LOAD_PAGE_SIZE];
+        private double[] lats = new double[LOAD_PAGE_SIZE];
+        private double[] lons = new double[LOAD_PAGE_SIZE];
+        private double[] avgTones = new double[LOAD_PAGE_SIZE];
+        private long[] importances = new long[LOAD_PAGE_SIZE];
+        private int size;
+
+        void add(EventMapProjection event) {
+            if (event.globalEventId() == null || event.eventDate() == null) {
+                return;
+            }
+            Optional<GeoPoint> location = geolocationService.selectBestCoordinates(event);
+            if (location.isEmpty()) {
+                return;
+            }
+            append(event.globalEventId(), event.eventDate().toInstant().toEpochMilli(),
+                    location.get().getLat(), location.get().getLon(),
+                    event.avgTone() != null ? event.avgTone() : Double.NaN, event.importance());
+        }
+
+        void add(EventColumns segment, int row) {
+            append(segment.eventId(row), segment.eventDate(row), segment.lat(row), segment.lon(row),
+                    segment.avgTone(row), segment.importance(row));
+        }
+
+        private void append(long eventId, long eventDate, double lat, double lon, double avgTone, long importance) {
+            if (size == eventIds.length) {
+                int capacity = size * 2;
+                eventIds = Arrays.copyOf(eventIds, capacity);
+                eventDates = Arrays.copyOf(eventDates, capacity);
+                lats = Arrays.copyOf(lats, capacity);
+                lons = Arrays.copyOf(lons, capacity);
+                avgTones = Arrays.copyOf(avgTones, capacity);
+                importances = Arrays.copyOf(importances, capacity);
+            }
+            eventIds[size] = eventId;
+            eventDates[size] = eventDate;
+            lats[size] = lat;
+            lons[size] = lon;
+            avgTones[size] = avgTone;
+            importances[size] = importance;
+            size++;
+        }
+
+        /**
+         * Переставляет строки вдоль кривой Гильберта и строит над ними дерево с датой в качестве ключа.
+         */
+        EventColumns build() {
+            int[] order = PackedHilbertRTree.hilbertOrder(lats, lons, size);
+
+            long[] sortedIds = new long[size];
+            long[] sortedDates = new long[size];
+            double[] sortedLats = new double[size];
+            double[] sortedLons = new double[size];
+            double[] sortedTones = new double[size];
+            long[] sortedImportances = new long[size];
+            IntStream.range(0, size).parallel().forEach(i -> {
+                int row = order[i];
+                sortedIds[i] = eventIds[row];
+                sortedDates[i] = eventDates[row];
+                sortedLats[i] = lats[row];
+                sortedLons[i] = lons[row];
+                sortedTones[i] = avgTones[row];
+                sortedImportances[i] = importances[row];
+            });
+
+            PackedHilbertRTree index = new PackedHilbertRTree(sortedLats, sortedLons, sortedDates, size);
+            return new EventColumns(sortedIds, sortedDates, sortedLats, sortedLons, sortedTones, sortedImportances,
+                    size, index);
+        }
+
+        /**
+         * Строит по накопленным событиям пирамиду кластеров.
+         */
+        ClusterPyramid buildPyramid(int maxPrecision) {
+            return new ClusterPyramid(eventIds, lats, lons, avgTones, size, maxPrecision);
+        }
+    }
+
+    /**
+     * Курсор по строкам сегментов снимка, найденным запросами к их деревьям.
+     */
+    private static final class ColumnCursor implements EventPointCursor {
+
+        private final Iterator<EventColumns> segments;
+        private final long start;
+        private final long end;
+        private final double[] bbox;
+        private EventColumns segment;
+        private PackedHilbertRTree.Query rows;
+        private int remaining;
+        private int row;
+
+        ColumnCursor(List<EventColumns> segments, long start, long end, double[] bbox, int limit) {
+            this.segments = segments.iterator();
+            this.start = start;
+            this.end = end;
+            this.bbox = bbox;
+            this.remaining = limit;
+        }
+
+        @Override
+        public boolean next() {
+            if (remaining <= 0) {
+                return false;
+            }
+            while (true) {
+                row = rows != null ? rows.nextRow() : -1;
+                if (row >= 0) {
+                    remaining--;
+                    return true;
+                }
+                if (!segments.hasNext()) {
+                    return false;
+                }
+                segment = segments.next();
+                rows = segment.query(start, end, bbox);
+            }
+        }
+
+        @Override
+        public long eventId() {
+            return segment.eventId(row);
+        }
+
+        @Override
+        public double lat() {
+            return segment.lat(row);
+        }
+
+        @Override
+        public double lon() {
+            return segment.lon(row);
+        }
+
+        @Override
+        public double avgTone() {
+            return segment.avgTone(row);
+        }
+    }
+
+    /**
+     * Курсор по заранее отобранным строкам сегментов: ссылка на строку - номер сегмента в старших 32 битах
+     * и номер строки в младших.
+     */
+    private static final class RowRefCursor implements EventPointCursor {
+
+        private final List<EventColumns> segments;
+        private final long[] refs;
+        private int position = -1;
+        private EventColumns segment;
+        private int row;
+
+        RowRefCursor(List<EventColumns> segments, long[] refs) {
+            this.segments = segments;
+            this.refs = refs;
+        }
+
+        @Override
+        public boolean next() {
+            if (position + 1 >= refs.length) {
+                return false;
+            }
+            long ref = refs[++position];
+            segment = segments.get((int) (ref >>> 32));
+            row = (int) ref;
+            return true;
+        }
+
+        @Override
+        public long eventId() {
+            return segment.eventId(row);
+        }
+
+        @Override
+        public double lat() {
+            return segment.lat(row);
+        }
+
+        @Override
+        public double lon() {
+            return segment.lon(row);
+        }
+
+        @Override
+        public double avgTone() {
+            return segment.avgTone(row);
+        }
+    }
+
+    /**
+     * Ячейки geotile с накопленными суммами: хеш-таблица с открытой адресацией на примитивных массивах,
+     * чтобы не создавать объекты на каждое событие.
+     */
+    private static final class GeoTileCells {
+
+        private static final int INITIAL_CAPACITY = 1024;
+
+        private long[] keys = new long[INITIAL_CAPACITY];
+        private int[] counts = new int[INITIAL_CAPACITY];
+        private long[] firstEventIds = new long[INITIAL_CAPACITY];
+        private double[] latSums = new double[INITIAL_CAPACITY];
+        private double[] lonSums = new double[INITIAL_CAPACITY];
+        private double[] toneSums = new double[INITIAL_CAPACITY];
+        private int[] toneCounts = new int[INITIAL_CAPACITY];
+        private int size;
+
+        void add(long key, int row, EventColumns segment) {
+            if (size * 2 >= keys.length) {
+                resize();
+            }
+            int slot = findSlot(keys, counts, key);
+            if (counts[slot] == 0) {
+                keys[slot] = key;
+                firstEventIds[slot] = segment.eventId(row);
+                size++;
+            }
+            counts[slot]++;
+            latSums[slot] += segment.lat(row);
+            lonSums[slot] += segment.lon(row);
+            double avgTone = segment.avgTone(row);
+            if (!Double.isNaN(avgTone)) {
+                toneSums[slot] += avgTone;
+                toneCounts[slot]++;
+            }
+        }
+
+        /**
+         * Самые крупные ячейки в порядке убывания количества событий, как buckets geotile_grid.
+         */
+        List<EventCluster> toClusters(int maxClusters) {
+            List<Integer> slots = new ArrayList<>(size);
+            for (int slot = 0; slot < keys.length; slot++) {
+                if (counts[slot] > 0) {
+                    slots.add(slot);
+                }
+            }
+            slots.sort(Comparator.comparingInt((Integer slot) -> counts[slot]).reversed());
+
+            return slots.stream()
+                    .limit(maxClusters)
+                    .map(slot -> new EventCluster(
+                            new ApiGeoPoint(latSums[slot] / counts[slot], lonSums[slot] / counts[slot]),
+                            counts[slot],
+                            toneCounts[slot] > 0 ? toneSums[slot] / toneCounts[slot] : null,
+                            firstEventIds[slot]))
+                    .toList();
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            int[] oldCounts = counts;
+            long[] oldFirstEventIds = firstEventIds;
+            double[] oldLatSums = latSums;
+            double[] oldLonSums = lonSums;
+            double[] oldToneSums = toneSums;
+            int[] oldToneCounts = toneCounts;
+
+            int capacity = oldKeys.length * 2;
+            keys = new long[capacity];
+            counts = new int[capacity];
+            firstEventIds = new long[capacity];
+            latSums = new double[capacity];
+            lonSums = new double[capacity];
+            toneSums = new double[capacity];
+            toneCounts = new int[capacity];
+
+            for (int oldSlot = 0; oldSlot < oldKeys.length; oldSlot++) {
+                if (oldCounts[oldSlot] == 0) {
+                    continue;
+                }
+                int slot = findSlot(keys, counts, oldKeys[oldSlot]);
+                keys[slot] = oldKeys[oldSlot];
+                counts[slot] = oldCounts[oldSlot];
+                firstEventIds[slot] = oldFirstEventIds[oldSlot];
+                latSums[slot] = oldLatSums[oldSlot];
+                lonSums[slot] = oldLonSums[oldSlot];
+                toneSums[slot] = oldToneSums[oldSlot];
+                toneCounts[slot] = oldToneCounts[oldSlot];
+            }
+        }
+
+        /**
+         * Слот ключа или первый свободный слот (линейное пробирование). Пустой слот - нулевой счетчик.
+         */
+        private static int findSlot(long[] keys, int[] counts, long key) {
+            int mask = keys.length - 1;
+            int slot = (int) (key * 0x9E3779B97F4A7C15L >>> 32) & mask;
+            while (counts[slot] != 0 && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+    }
+}
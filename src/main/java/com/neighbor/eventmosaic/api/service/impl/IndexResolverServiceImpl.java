@@ -0,0 +1,269 @@
+package com.neighbor.eventmosaic.api.service.impl;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch.indices.resolve_index.ResolveIndexItem;
+import com.neighbor.eventmosaic.api.repository.ElasticEventRepository;
+import com.neighbor.eventmosaic.api.service.IndexResolverService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Реализация сервиса выбора ежедневных индексов.
+ * Имена индексов строятся по датам диапазона (UTC) и сверяются с кешем существующих индексов,
+ * который периодически обновляется через resolve index API.
+ * Для поиска события по идентификатору вместе с кешем обновляется {@link EventIdIndexLocator} -
+ * диапазоны globalEventId каждого индекса, по которым одиночное событие читается из одного индекса,
+ * пакет событий ищется только в индексах своих диапазонов, а идентификаторы вне всех диапазонов
+ * отклоняются без запроса к Elasticsearch.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class IndexResolverServiceImpl implements IndexResolverService {
+
+    private static final String EVENT_INDEX_PREFIX = "gdelt-events-";
+    private static final String EVENT_INDEX_PATTERN = EVENT_INDEX_PREFIX + "*";
+    private static final String MENTION_INDEX_PREFIX = "gdelt-mentions-";
+    private static final String MENTION_INDEX_PATTERN = MENTION_INDEX_PREFIX + "*";
+    private static final DateTimeFormatter INDEX_DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+
+    /**
+     * Максимальное количество индексов, перечисляемых явно.
+     * При большем количестве имена не помещаются в строку запроса, и используется шаблон.
+     */
+    private static final int MAX_EXPLICIT_INDICES = 100;
+
+    private final ElasticsearchClient elasticsearchClient;
+    private final ElasticEventRepository eventRepository;
+
+    /**
+     * Кеш существующих индексов событий. null, пока кеш не загружен.
+     */
+    private volatile Set<String> existingEventIndices;
+
+    /**
+     * Кеш существующих индексов упоминаний. null, пока кеш не загружен.
+     */
+    private volatile Set<String> existingMentionIndices;
+
+    /**
+     * Указатель индексов по идентификатору события. null, пока диапазоны не загружены.
+     */
+    private volatile EventIdIndexLocator eventIdLocator;
+
+    @Override
+    public Optional<IndexCoordinates> resolveEventIndices(OffsetDateTime start, OffsetDateTime end) {
+        return resolveDailyIndices(EVENT_INDEX_PREFIX, getExistingEventIndices(), start, end);
+    }
+
+    @Override
+    public Optional<IndexCoordinates> resolveMentionIndices(OffsetDateTime start, OffsetDateTime end) {
+        return resolveDailyIndices(MENTION_INDEX_PREFIX, getExistingMentionIndices(), start, end);
+    }
+
+    @Override
+    public Optional<IndexCoordinates> resolveEventIndicesForId(long eventId) {
+        EventIdIndexLocator locator = eventIdLocator;
+        if (locator == null || locator.isNewer(eventId)) {
+            log.debug("Событие {} вне известных диапазонов идентификаторов, используем шаблон {}",
+                    eventId, EVENT_INDEX_PATTERN);
+            return Optional.of(IndexCoordinates.of(EVENT_INDEX_PATTERN));
+        }
+
+        List<String> indexNames = locator.locate(eventId);
+        if (indexNames.isEmpty()) {
+            log.debug("Идентификатор {} не входит ни в один диапазон индексов событий", eventId);
+            return Optional.empty();
+        }
+
+        log.debug("Индексы события {}: {}", eventId, indexNames);
+        return Optional.of(IndexCoordinates.of(indexNames.toArray(String[]::new)));
+    }
+
+    @Override
+    public Map<IndexCoordinates, List<Long>> resolveEventIndicesForIds(Collection<Long> eventIds) {
+        EventIdIndexLocator locator = eventIdLocator;
+        Set<String> indexNames = new TreeSet<>();
+        List<Long> locatedIds = new ArrayList<>();
+        List<Long> newerIds = new ArrayList<>();
+        for (Long eventId : eventIds) {
+            if (locator == null || locator.isNewer(eventId)) {
+                newerIds.add(eventId);
+                continue;
+            }
+            List<String> located = locator.locate(eventId);
+            if (!located.isEmpty()) {
+                indexNames.addAll(located);
+                locatedIds.add(eventId);
+            }
+        }
+
+        Map<IndexCoordinates, List<Long>> idsByIndices = new LinkedHashMap<>();
+        if (!locatedIds.isEmpty()) {
+            if (indexNames.size() > MAX_EXPLICIT_INDICES) {
+                // Имена не помещаются в строку запроса: найденные по диапазонам ищутся вместе с остальными
+                newerIds.addAll(locatedIds);
+            } else {
+                idsByIndices.put(IndexCoordinates.of(indexNames.toArray(String[]::new)), locatedIds);
+            }
+        }
+        if (!newerIds.isEmpty()) {
+            idsByIndices.put(IndexCoordinates.of(EVENT_INDEX_PATTERN), newerIds);
+        }
+
+        log.debug("Индексы {} событий: {} найдено по диапазонам в {} индексах, {} по шаблону, {} вне диапазонов",
+                eventIds.size(), locatedIds.size(), indexNames.size(), newerIds.size(),
+                eventIds.size() - locatedIds.size() - newerIds.size());
+        return idsByIndices;
+    }
+
+    @Override
+    public Optional<LocalDate> resolveEventDateForId(long eventId) {
+        EventIdIndexLocator locator = eventIdLocator;
+        if (locator == null || locator.isNewer(eventId)) {
+            return Optional.empty();
+        }
+
+        // Пересекаются диапазоны индексов событий, загруженных в один день, а большинство событий
+        // загружается в день события, поэтому вероятнее всего самая новая дата
+        return locator.locate(eventId).stream()
+                .map(IndexResolverServiceImpl::parseEventIndexDate)
+                .flatMap(Optional::stream)
+                .max(Comparator.naturalOrder());
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "#{@apiConfigProperties.indexCacheRefreshSeconds}", timeUnit = TimeUnit.SECONDS)
+    public void refreshIndexCache() {
+        try {
+            existingEventIndices = loadIndexNames(EVENT_INDEX_PATTERN);
+            log.debug("Кеш индексов событий обновлен: {} индексов", existingEventIndices.size());
+        } catch (Exception e) {
+            log.warn("Не удалось обновить кеш индексов событий: {}", e.getMessage());
+        }
+
+        try {
+            existingMentionIndices = loadIndexNames(MENTION_INDEX_PATTERN);
+            log.debug("Кеш индексов упоминаний обновлен: {} индексов", existingMentionIndices.size());
+        } catch (Exception e) {
+            log.warn("Не удалось обновить кеш индексов упоминаний: {}", e.getMessage());
+        }
+
+        try {
+            EventIdIndexLocator locator = new EventIdIndexLocator(eventRepository.findEventIdRanges());
+            eventIdLocator = locator;
+            log.debug("Диапазоны идентификаторов событий обновлены: {} индексов", locator.size());
+        } catch (Exception e) {
+            log.warn("Не удалось обновить диапазоны идентификаторов событий: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Выбирает существующие ежедневные индексы (prefix + YYYY-MM-DD) для дат диапазона (UTC).
+     * Индекс текущих суток может быть создан уже после обновления кеша, поэтому индексы с сегодняшнего
+     * дня (UTC) включаются, даже если их еще нет в кеше. Такой индекс указывается шаблоном
+     * prefix + YYYY-MM-DD*: пока индекса нет, шаблон ничего не находит и запрос не падает.
+     * Если кеш индексов не загружен или индексов слишком много, возвращается шаблон prefix + *.
+     */
+    private Optional<IndexCoordinates> resolveDailyIndices(String prefix,
+                                                           Set<String> existingIndices,
+                                                           OffsetDateTime start,
+                                                           OffsetDateTime end) {
+        String pattern = prefix + "*";
+        if (existingIndices == null) {
+            log.debug("Кеш индексов не загружен, используем шаблон {}", pattern);
+            return Optional.of(IndexCoordinates.of(pattern));
+        }
+
+        List<String> indexNames = new ArrayList<>();
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        LocalDate endDate = end.withOffsetSameInstant(ZoneOffset.UTC).toLocalDate();
+        for (LocalDate date = start.withOffsetSameInstant(ZoneOffset.UTC).toLocalDate();
+             !date.isAfter(endDate);
+             date = date.plusDays(1)) {
+            String indexName = prefix + INDEX_DATE_FORMAT.format(date);
+            if (existingIndices.contains(indexName)) {
+                indexNames.add(indexName);
+            } else if (!date.isBefore(today)) {
+                indexNames.add(indexName + "*");
+            }
+        }
+
+        if (indexNames.isEmpty()) {
+            log.debug("Нет индексов {} за период {} - {}", pattern, start, end);
+            return Optional.empty();
+        }
+
+        if (indexNames.size() > MAX_EXPLICIT_INDICES) {
+            log.debug("Диапазон покрывает {} индексов, используем шаблон {}", indexNames.size(), pattern);
+            return Optional.of(IndexCoordinates.of(pattern));
+        }
+
+        log.debug("Выбраны индексы: {}", indexNames);
+        return Optional.of(IndexCoordinates.of(indexNames.toArray(String[]::new)));
+    }
+
+    /**
+     * Извлекает дату из имени ежедневного индекса событий.
+     */
+    private static Optional<LocalDate> parseEventIndexDate(String indexName) {
+        if (!indexName.startsWith(EVENT_INDEX_PREFIX)) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(LocalDate.parse(indexName.substring(EVENT_INDEX_PREFIX.length()), INDEX_DATE_FORMAT));
+        } catch (DateTimeParseException e) {
+            return Optional.empty();
+        }
+    }
+
+    private Set<String> loadIndexNames(String pattern) throws IOException {
+        return elasticsearchClient.indices()
+                .resolveIndex(r -> r.name(pattern))
+                .indices()
+                .stream()
+                .map(ResolveIndexItem::name)
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
+    /**
+     * Возвращает кеш существующих индексов, загружая его при первом обращении.
+     */
+    private Set<String> getExistingEventIndices() {
+        if (existingEventIndices == null) {
+            refreshIndexCache();
+        }
+        return existingEventIndices;
+    }
+
+    /**
+     * Возвращает кеш существующих индексов упоминаний, загружая его при первом обращении.
+     */
+    private Set<String> getExistingMentionIndices() {
+        if (existingMentionIndices == null) {
+            refreshIndexCache();
+        }
+        return existingMentionIndices;
+    }
+}
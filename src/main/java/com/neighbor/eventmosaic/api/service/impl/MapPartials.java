@@ -0,0 +1,165 @@
+package com.neighbor.eventmosaic.api.service.impl;
+
+import com.neighbor.eventmosaic.api.document.EventMapProjection;
+import com.neighbor.eventmosaic.api.dto.ApiGeoPoint;
+import com.neighbor.eventmosaic.api.dto.EventCluster;
+import com.neighbor.eventmosaic.api.dto.TileCoordinates;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Разбиение диапазона карты на суточные части (UTC) и слияние результатов частей.
+ * Кластер geotile_grid - это ячейка сетки, а его центроид лежит внутри ячейки, поэтому кластеры
+ * частей снова группируются по ячейке центроида: количества складываются, центроид и тон усредняются
+ * с весом по количеству событий.
+ */
+final class MapPartials {
+
+    private static final long DAY_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+    private MapPartials() {
+    }
+
+    /**
+     * Разбивает диапазон на части по границам суток UTC.
+     *
+     * @param start начало диапазона (включительно)
+     * @param end   конец диапазона (включительно)
+     * @return части [start, end] в порядке времени, обе границы включительно
+     */
+    static List<OffsetDateTime[]> splitByDays(OffsetDateTime start, OffsetDateTime end) {
+        long startMillis = start.toInstant().toEpochMilli();
+        long endMillis = end.toInstant().toEpochMilli();
+
+        List<OffsetDateTime[]> parts = new ArrayList<>();
+        long from = startMillis;
+        while (from <= endMillis) {
+            long nextDay = (Math.floorDiv(from, DAY_MILLIS) + 1) * DAY_MILLIS;
+            long to = Math.min(endMillis, nextDay - 1);
+            parts.add(new OffsetDateTime[]{toDateTime(from), toDateTime(to)});
+            from = nextDay;
+        }
+        return parts;
+    }
+
+    /**
+     * Количество суточных частей диапазона без их создания.
+     */
+    static long countDays(OffsetDateTime start, OffsetDateTime end) {
+        long startMillis = start.toInstant().toEpochMilli();
+        long endMillis = end.toInstant().toEpochMilli();
+        if (endMillis < startMillis) {
+            return 0;
+        }
+        return Math.floorDiv(endMillis, DAY_MILLIS) - Math.floorDiv(startMillis, DAY_MILLIS) + 1;
+    }
+
+    /**
+     * Сливает кластеры частей по ячейкам geotile заданного precision.
+     *
+     * @param partials    кластеры частей
+     * @param precision   precision сетки, по которой строились кластеры частей
+     * @param maxClusters максимальное количество кластеров в результате
+     * @return самые крупные ячейки в порядке убывания количества событий
+     */
+    static List<EventCluster> mergeClusters(List<List<EventCluster>> partials, int precision, int maxClusters) {
+        Map<Long, ClusterSum> cells = new HashMap<>();
+        for (List<EventCluster> clusters : partials) {
+            for (EventCluster cluster : clusters) {
+                long cell = TileCoordinates.cellKey(cluster.centroid().lat(), cluster.centroid().lon(), precision);
+                cells.computeIfAbsent(cell, key -> new ClusterSum()).add(cluster);
+            }
+        }
+
+        return cells.values().stream()
+                .sorted(Comparator.comparingLong((ClusterSum sum) -> sum.count).reversed())
+                .limit(maxClusters)
+                .map(ClusterSum::toCluster)
+                .toList();
+    }
+
+    /**
+     * Сливает события частей. При ранжировании остаются самые важные события всех частей
+     * (части уже обрезаны по важности, поэтому лучшие события диапазона среди них есть).
+     * Без ранжирования части берутся по очереди, по одному событию, пока не набран лимит,
+     * поэтому при обрезке каждый день представлен поровну, а не только первые дни диапазона.
+     *
+     * @param partials события частей
+     * @param limit    максимальное количество событий в результате
+     * @param ranked   оставлять самые важные события
+     * @return события частей
+     */
+    static List<EventMapProjection> mergeEvents(List<List<EventMapProjection>> partials, int limit, boolean ranked) {
+        if (ranked) {
+            return partials.stream()
+                    .flatMap(List::stream)
+                    .sorted(Comparator.comparingLong(EventMapProjection::importance).reversed())
+                    .limit(limit)
+                    .toList();
+        }
+
+        List<EventMapProjection> merged = new ArrayList<>(Math.min(limit,
+                partials.stream().mapToInt(List::size).sum()));
+        for (int position = 0; merged.size() < limit; position++) {
+            boolean added = false;
+            for (List<EventMapProjection> events : partials) {
+                if (position < events.size() && merged.size() < limit) {
+                    merged.add(events.get(position));
+                    added = true;
+                }
+            }
+            if (!added) {
+                break;
+            }
+        }
+        return merged;
+    }
+
+    private static OffsetDateTime toDateTime(long epochMillis) {
+        return Instant.ofEpochMilli(epochMillis).atOffset(ZoneOffset.UTC);
+    }
+
+    /**
+     * Накопленные суммы ячейки. Идентификатор события берется из самого крупного кластера ячейки.
+     */
+    private static final class ClusterSum {
+
+        private long count;
+        private double latSum;
+        private double lonSum;
+        private double toneSum;
+        private long toneCount;
+        private Long eventId;
+        private int eventIdCount;
+
+        void add(EventCluster cluster) {
+            count += cluster.count();
+            latSum += cluster.centroid().lat() * cluster.count();
+            lonSum += cluster.centroid().lon() * cluster.count();
+            if (cluster.avgTone() != null) {
+                toneSum += cluster.avgTone() * cluster.count();
+                toneCount += cluster.count();
+            }
+            if (eventId == null || cluster.count() > eventIdCount) {
+                eventId = cluster.eventId();
+                eventIdCount = cluster.count();
+            }
+        }
+
+        EventCluster toCluster() {
+            return new EventCluster(
+                    new ApiGeoPoint(latSum / count, lonSum / count),
+                    (int) Math.min(count, Integer.MAX_VALUE),
+                    toneCount > 0 ? toneSum / toneCount : null,
+                    eventId);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.neighbor.eventmosaic.api.service.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.neighbor.eventmosaic.api.config.ApiConfigProperties;
+import com.neighbor.eventmosaic.api.dto.MapCacheKey;
+import com.neighbor.eventmosaic.api.dto.TileCoordinates;
+import com.neighbor.eventmosaic.api.service.MapResponseCacheService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.OffsetDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Optional;
+
+/**
+ * Реализация кеша ответов карты поверх Caffeine.
+ * Окно по умолчанию уже выровнено по границе интервала, поэтому ответы для него переиспользуются
+ * в пределах интервала; временной диапазон в ключе дополнительно округляется до минуты.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class MapResponseCacheServiceImpl implements MapResponseCacheService {
+
+    /**
+     * Максимальный уровень сетки тайлов, к которой привязывается область.
+     */
+    private static final int MAX_GRID_ZOOM = 29;
+
+    private final Cache<MapCacheKey, byte[]> mapResponseCache;
+    private final ApiConfigProperties apiConfigProperties;
+
+    @Override
+    public MapCacheKey createKey(String format,
+                                 OffsetDateTime start,
+                                 OffsetDateTime end,
+                                 double[] bbox,
+                                 Integer zoom) {
+        long startMillis = quantize(start);
+        long endMillis = quantize(end);
+
+        int gridZoom = resolveGridZoom(zoom, bbox);
+        int lastTile = (1 << gridZoom) - 1;
+
+        if (bbox == null) {
+            return new MapCacheKey(format, zoom, gridZoom, 0, 0, lastTile, lastTile, startMillis, endMillis);
+        }
+
+        // Северная граница дает меньший номер тайла по Y
+        int minTileX = clamp((int) Math.floor(TileCoordinates.tileX(bbox[1], gridZoom)), lastTile);
+        int maxTileX = clamp((int) Math.ceil(TileCoordinates.tileX(bbox[3], gridZoom)) - 1, lastTile);
+        int minTileY = clamp((int) Math.floor(TileCoordinates.tileY(TileCoordinates.clampLatitude(bbox[2]), gridZoom)), lastTile);
+        int maxTileY = clamp((int) Math.ceil(TileCoordinates.tileY(TileCoordinates.clampLatitude(bbox[0]), gridZoom)) - 1, lastTile);
+
+        return new MapCacheKey(format, zoom, gridZoom,
+                minTileX, minTileY, Math.max(minTileX, maxTileX), Math.max(minTileY, maxTileY),
+                startMillis, endMillis);
+    }
+
+    @Override
+    public MapCacheKey createKey(String format, TileCoordinates tile, OffsetDateTime start, OffsetDateTime end) {
+        return new MapCacheKey(format, tile.z(), tile.z(),
+                tile.x(), tile.y(), tile.x(), tile.y(), quantize(start), quantize(end));
+    }
+
+    @Override
+    public Optional<byte[]> get(MapCacheKey key) {
+        byte[] response = mapResponseCache.getIfPresent(key);
+        log.debug("Кеш ответов карты, {}: {}", response != null ? "попадание" : "промах", key);
+        return Optional.ofNullable(response);
+    }
+
+    @Override
+    public void put(MapCacheKey key, byte[] response) {
+        mapResponseCache.put(key, response);
+    }
+
+    /**
+     * Определяет уровень сетки тайлов.
+     * Если zoom задан, используется он сам: видовое окно тогда расширяется меньше чем на тайл с каждой стороны.
+     * Иначе уровень подбирается по ширине области.
+     */
+    private int resolveGridZoom(Integer zoom, double[] bbox) {
+        if (zoom != null) {
+            return Math.max(0, Math.min(zoom, MAX_GRID_ZOOM));
+        }
+        if (bbox == null) {
+            return 0;
+        }
+
+        double lonSpan = Math.max(bbox[3] - bbox[1], 1e-9);
+        // Сетка на CELL_ZOOM_OFFSET уровней мельче уровня, где область занимает один тайл по ширине:
+        // область покрывается примерно 4-8 тайлами по ширине
+        int gridZoom = (int) Math.floor(Math.log(360.0 / lonSpan) / Math.log(2)) + TileCoordinates.CELL_ZOOM_OFFSET;
+        return Math.max(0, Math.min(gridZoom, apiConfigProperties.getMaxGeotilePrecision()));
+    }
+
+    private static long quantize(OffsetDateTime dateTime) {
+        return dateTime.truncatedTo(ChronoUnit.MINUTES).toInstant().toEpochMilli();
+    }
+
+    private static int clamp(int tile, int lastTile) {
+        return Math.max(0, Math.min(tile, lastTile));
+    }
+}
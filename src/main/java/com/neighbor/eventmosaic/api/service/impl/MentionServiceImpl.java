@@ -0,0 +1,207 @@
+package com.neighbor.eventmosaic.api.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.neighbor.eventmosaic.api.config.ApiConfigProperties;
+import com.neighbor.eventmosaic.api.document.MentionDocument;
+import com.neighbor.eventmosaic.api.dto.details.EventMentions;
+import com.neighbor.eventmosaic.api.dto.details.MentionStats;
+import com.neighbor.eventmosaic.api.dto.details.MentionSummary;
+import com.neighbor.eventmosaic.api.dto.details.MentionsPage;
+import com.neighbor.eventmosaic.api.exception.InvalidApiParameterException;
+import com.neighbor.eventmosaic.api.mapper.MentionMapper;
+import com.neighbor.eventmosaic.api.repository.ElasticMentionRepository;
+import com.neighbor.eventmosaic.api.repository.MentionSearchScope;
+import com.neighbor.eventmosaic.api.service.IndexResolverService;
+import com.neighbor.eventmosaic.api.service.MentionService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.elasticsearch.core.SearchHit;
+import org.springframework.data.elasticsearch.core.SearchHits;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Реализация постраничного чтения упоминаний.
+ * Поиск идет только в ежедневных индексах упоминаний окна (mentionSearchDaysRange + 1 индекс),
+ * а при mentionRoutingByEventId - еще и в одном шарде каждого индекса. Если за окно нет ни одного
+ * индекса, пустой результат возвращается без запроса к Elasticsearch.
+ * Курсор - base64url от JSON с идентификатором события, окном поиска и значениями сортировки
+ * последнего упоминания страницы.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class MentionServiceImpl implements MentionService {
+
+    private final ElasticMentionRepository mentionRepository;
+    private final IndexResolverService indexResolverService;
+    private final MentionMapper mentionMapper;
+    private final ObjectMapper objectMapper;
+    private final ApiConfigProperties apiConfigProperties;
+
+    @Override
+    public MentionsPage getFirstPage(Long eventId, OffsetDateTime eventDate, Integer limit) {
+        MentionsCursor start = new MentionsCursor(eventId,
+                eventDate.toInstant().toEpochMilli(), windowEnd(eventDate).toInstant().toEpochMilli(), null);
+        return findPage(start, resolvePageSize(limit));
+    }
+
+    @Override
+    public Map<Long, EventMentions> getFirstPages(Map<Long, OffsetDateTime> eventDates) {
+        int pageSize = apiConfigProperties.getDefaultMentionsPageSize();
+
+        Map<Long, MentionsCursor> positions = new LinkedHashMap<>();
+        Map<Long, MentionSearchScope> scopes = new LinkedHashMap<>();
+        Map<Long, EventMentions> mentions = new LinkedHashMap<>();
+        eventDates.forEach((eventId, eventDate) -> {
+            MentionsCursor position = new MentionsCursor(eventId,
+                    eventDate.toInstant().toEpochMilli(), windowEnd(eventDate).toInstant().toEpochMilli(), null);
+            positions.put(eventId, position);
+            searchScope(eventId, eventDate, windowEnd(eventDate)).ifPresentOrElse(
+                    scope -> scopes.put(eventId, scope),
+                    () -> mentions.put(eventId, new EventMentions(emptyPage(), MentionStats.EMPTY)));
+        });
+
+        mentionRepository.findFirstMentionPages(scopes, pageSize).forEach((eventId, result) ->
+                mentions.put(eventId, new EventMentions(
+                        toPage(positions.get(eventId), result.page(), pageSize), result.stats())));
+        return mentions;
+    }
+
+    @Override
+    public MentionStats getMentionStats(Long eventId, OffsetDateTime eventDate) {
+        return searchScope(eventId, eventDate, windowEnd(eventDate))
+                .map(scope -> mentionRepository.findMentionStats(eventId, scope))
+                .orElse(MentionStats.EMPTY);
+    }
+
+    @Override
+    public MentionsPage getNextPage(Long eventId, String cursor, Integer limit) {
+        int pageSize = resolvePageSize(limit);
+        MentionsCursor position = decodeCursor(cursor);
+        if (!Objects.equals(position.eventId(), eventId)) {
+            throw new InvalidApiParameterException("Курсор выдан для другого события");
+        }
+        return findPage(position, pageSize);
+    }
+
+    /**
+     * Находит страницу упоминаний, следующую за позицией курсора.
+     */
+    private MentionsPage findPage(MentionsCursor position, int pageSize) {
+        return searchScope(position.eventId(), toDateTime(position.windowStart()), toDateTime(position.windowEnd()))
+                .map(scope -> toPage(position,
+                        mentionRepository.findMentionPage(position.eventId(), scope, position.searchAfter(), pageSize),
+                        pageSize))
+                .orElseGet(MentionServiceImpl::emptyPage);
+    }
+
+    /**
+     * Определяет индексы упоминаний окна и маршрутизацию поиска.
+     *
+     * @return область поиска или Optional.empty(), если за окно нет ни одного индекса упоминаний
+     */
+    private Optional<MentionSearchScope> searchScope(Long eventId, OffsetDateTime windowStart, OffsetDateTime windowEnd) {
+        String routing = apiConfigProperties.isMentionRoutingByEventId() ? String.valueOf(eventId) : null;
+        return indexResolverService.resolveMentionIndices(windowStart, windowEnd)
+                .map(indices -> new MentionSearchScope(indices, windowStart, windowEnd, routing));
+    }
+
+    private static MentionsPage emptyPage() {
+        return MentionsPage.builder()
+                .mentions(List.of())
+                .total(0L)
+                .build();
+    }
+
+    /**
+     * Формирует страницу упоминаний из результата поиска.
+     * Курсор следующей страницы выдается, только если текущая страница заполнена целиком.
+     */
+    private MentionsPage toPage(MentionsCursor position, SearchHits<MentionDocument> hits, int pageSize) {
+        List<MentionSummary> mentions = hits.getSearchHits().stream()
+                .map(SearchHit::getContent)
+                .map(mentionMapper::toMentionSummary)
+                .toList();
+
+        String nextCursor = null;
+        if (mentions.size() == pageSize) {
+            List<Object> lastSortValues = hits.getSearchHit(mentions.size() - 1).getSortValues();
+            nextCursor = encodeCursor(new MentionsCursor(position.eventId(),
+                    position.windowStart(), position.windowEnd(), lastSortValues));
+        }
+
+        log.debug("Страница упоминаний события {}: {} из {}", position.eventId(), mentions.size(), hits.getTotalHits());
+
+        return MentionsPage.builder()
+                .mentions(mentions)
+                .total(hits.getTotalHits())
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    /**
+     * Проверяет размер страницы. Если он не задан, используется размер по умолчанию.
+     */
+    private int resolvePageSize(Integer limit) {
+        if (limit == null) {
+            return apiConfigProperties.getDefaultMentionsPageSize();
+        }
+        if (limit < 1 || limit > apiConfigProperties.getMaxMentionsPageSize()) {
+            throw new InvalidApiParameterException(String.format("Параметр limit должен быть от 1 до %d",
+                    apiConfigProperties.getMaxMentionsPageSize()));
+        }
+        return limit;
+    }
+
+    private String encodeCursor(MentionsCursor cursor) {
+        try {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(objectMapper.writeValueAsBytes(cursor));
+        } catch (Exception e) {
+            throw new IllegalStateException("Не удалось сформировать курсор упоминаний", e);
+        }
+    }
+
+    private MentionsCursor decodeCursor(String cursor) {
+        try {
+            MentionsCursor position = objectMapper.readValue(Base64.getUrlDecoder().decode(cursor), MentionsCursor.class);
+            if (position.eventId() == null || position.searchAfter() == null || position.searchAfter().isEmpty()) {
+                throw new IllegalArgumentException("Неполный курсор");
+            }
+            return position;
+        } catch (Exception e) {
+            throw new InvalidApiParameterException("Некорректный курсор упоминаний: " + cursor, e);
+        }
+    }
+
+    /**
+     * Конец окна поиска упоминаний: дата события + mentionSearchDaysRange дней.
+     */
+    private OffsetDateTime windowEnd(OffsetDateTime eventDate) {
+        return eventDate.plusDays(apiConfigProperties.getMentionSearchDaysRange());
+    }
+
+    private static OffsetDateTime toDateTime(long epochMillis) {
+        return Instant.ofEpochMilli(epochMillis).atOffset(ZoneOffset.UTC);
+    }
+
+    /**
+     * Позиция постраничного чтения упоминаний.
+     *
+     * @param eventId     идентификатор события
+     * @param windowStart начало окна поиска (epoch millis)
+     * @param windowEnd   конец окна поиска (epoch millis)
+     * @param searchAfter значения сортировки последнего прочитанного упоминания или null
+     */
+    record MentionsCursor(Long eventId, long windowStart, long windowEnd, List<Object> searchAfter) {
+    }
+}
@@ -0,0 +1,213 @@
+package com.neighbor.eventmosaic.api.service.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Минимальный кодировщик Mapbox Vector Tile (спецификация 2.1) для точечных объектов.
+ * Пишет protobuf напрямую, без сторонних библиотек и промежуточных геометрий.
+ */
+final class MvtEncoder {
+
+    private static final int MVT_VERSION = 2;
+    private static final int GEOM_TYPE_POINT = 1;
+    private static final int COMMAND_MOVE_TO_ONE = (1 & 0x7) | (1 << 3); // MoveTo, count = 1
+
+    // Номера полей protobuf из vector_tile.proto
+    private static final int TILE_LAYERS = 3;
+    private static final int LAYER_NAME = 1;
+    private static final int LAYER_FEATURES = 2;
+    private static final int LAYER_KEYS = 3;
+    private static final int LAYER_VALUES = 4;
+    private static final int LAYER_EXTENT = 5;
+    private static final int LAYER_VERSION = 15;
+    private static final int FEATURE_ID = 1;
+    private static final int FEATURE_TAGS = 2;
+    private static final int FEATURE_TYPE = 3;
+    private static final int FEATURE_GEOMETRY = 4;
+    private static final int VALUE_DOUBLE = 3;
+    private static final int VALUE_UINT = 5;
+    private static final int VALUE_SINT = 6;
+
+    private static final int WIRE_VARINT = 0;
+    private static final int WIRE_FIXED64 = 1;
+    private static final int WIRE_LENGTH_DELIMITED = 2;
+
+    private final int extent;
+    private final List<Layer> layers = new ArrayList<>();
+
+    MvtEncoder(int extent) {
+        this.extent = extent;
+    }
+
+    /**
+     * Создает новый слой тайла.
+     *
+     * @param name имя слоя
+     * @return слой для добавления объектов
+     */
+    Layer layer(String name) {
+        Layer layer = new Layer(name);
+        layers.add(layer);
+        return layer;
+    }
+
+    /**
+     * Кодирует тайл. Пустые слои не записываются.
+     *
+     * @return тайл в формате protobuf
+     */
+    byte[] encode() {
+        ProtoWriter tile = new ProtoWriter();
+        for (Layer layer : layers) {
+            if (!layer.features.isEmpty()) {
+                tile.writeMessage(TILE_LAYERS, layer.encode());
+            }
+        }
+        return tile.toByteArray();
+    }
+
+    /**
+     * Слой тайла с общими словарями ключей и значений свойств.
+     */
+    final class Layer {
+
+        private final String name;
+        private final Map<String, Integer> keys = new LinkedHashMap<>();
+        private final Map<Object, Integer> values = new LinkedHashMap<>();
+        private final List<byte[]> features = new ArrayList<>();
+
+        private Layer(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Добавляет точку в слой.
+         *
+         * @param id         идентификатор объекта или null
+         * @param relativeX  положение внутри тайла по X (0..1)
+         * @param relativeY  положение внутри тайла по Y (0..1)
+         * @param properties свойства объекта (Long, Integer или Double); null-значения пропускаются,
+         *                   целые значения Integer и Long с одним числом делят запись словаря
+         */
+        void addPoint(Long id, double relativeX, double relativeY, Map<String, Object> properties) {
+            ProtoWriter tags = new ProtoWriter();
+            properties.forEach((key, value) -> {
+                if (value != null) {
+                    tags.writeVarint(keys.computeIfAbsent(key, k -> keys.size()));
+                    tags.writeVarint(values.computeIfAbsent(dictionaryValue(value), v -> values.size()));
+                }
+            });
+
+            ProtoWriter geometry = new ProtoWriter();
+            geometry.writeVarint(COMMAND_MOVE_TO_ONE);
+            geometry.writeVarint(zigZag((int) Math.round(relativeX * extent)));
+            geometry.writeVarint(zigZag((int) Math.round(relativeY * extent)));
+
+            ProtoWriter feature = new ProtoWriter();
+            if (id != null && id >= 0) {
+                feature.writeVarintField(FEATURE_ID, id);
+            }
+            feature.writeMessage(FEATURE_TAGS, tags.toByteArray());
+            feature.writeVarintField(FEATURE_TYPE, GEOM_TYPE_POINT);
+            feature.writeMessage(FEATURE_GEOMETRY, geometry.toByteArray());
+            features.add(feature.toByteArray());
+        }
+
+        private byte[] encode() {
+            ProtoWriter layer = new ProtoWriter();
+            layer.writeVarintField(LAYER_VERSION, MVT_VERSION);
+            layer.writeString(LAYER_NAME, name);
+            for (byte[] feature : features) {
+                layer.writeMessage(LAYER_FEATURES, feature);
+            }
+            for (String key : keys.keySet()) {
+                layer.writeString(LAYER_KEYS, key);
+            }
+            for (Object value : values.keySet()) {
+                layer.writeMessage(LAYER_VALUES, encodeValue(value));
+            }
+            layer.writeVarintField(LAYER_EXTENT, extent);
+            return layer.toByteArray();
+        }
+
+        private byte[] encodeValue(Object value) {
+            ProtoWriter writer = new ProtoWriter();
+            if (value instanceof Double doubleValue) {
+                writer.writeDoubleField(VALUE_DOUBLE, doubleValue);
+            } else {
+                long longValue = ((Number) value).longValue();
+                if (longValue >= 0) {
+                    writer.writeVarintField(VALUE_UINT, longValue);
+                } else {
+                    writer.writeTag(VALUE_SINT, WIRE_VARINT);
+                    writer.writeVarint((longValue << 1) ^ (longValue >> 63));
+                }
+            }
+            return writer.toByteArray();
+        }
+    }
+
+    /**
+     * Значение для словаря слоя: целые числа приводятся к Long, чтобы Integer и Long с одним числом,
+     * которые кодируются одинаково, не занимали в словаре две записи.
+     */
+    private static Object dictionaryValue(Object value) {
+        return value instanceof Integer intValue ? Long.valueOf(intValue) : value;
+    }
+
+    private static int zigZag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    /**
+     * Простейший writer формата protobuf поверх буфера в памяти.
+     */
+    private static final class ProtoWriter {
+
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+        void writeTag(int field, int wireType) {
+            writeVarint(((long) field << 3) | wireType);
+        }
+
+        void writeVarint(long value) {
+            while ((value & ~0x7FL) != 0) {
+                buffer.write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            buffer.write((int) value);
+        }
+
+        void writeVarintField(int field, long value) {
+            writeTag(field, WIRE_VARINT);
+            writeVarint(value);
+        }
+
+        void writeDoubleField(int field, double value) {
+            writeTag(field, WIRE_FIXED64);
+            long bits = Double.doubleToLongBits(value);
+            for (int i = 0; i < Long.BYTES; i++) {
+                buffer.write((int) (bits >>> (8 * i)) & 0xFF);
+            }
+        }
+
+        void writeString(int field, String value) {
+            writeMessage(field, value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        void writeMessage(int field, byte[] bytes) {
+            writeTag(field, WIRE_LENGTH_DELIMITED);
+            writeVarint(bytes.length);
+            buffer.write(bytes, 0, bytes.length);
+        }
+
+        byte[] toByteArray() {
+            return buffer.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package com.neighbor.eventmosaic.api.service.impl;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Неизменяемый упакованный R-tree по точкам, отсортированным вдоль кривой Гильберта.
+ * Точки хранит вызывающий код в собственных колонках, уже переставленных в порядок {@link #hilbertOrder};
+ * дерево хранит только внутренние узлы: каждые NODE_SIZE соседних элементов уровня образуют узел
+ * следующего уровня, поэтому дочерние узлы вычисляются по номеру, без ссылок.
+ * Кроме прямоугольника узел хранит диапазон числового ключа (например, даты события), так что
+ * запрос отсекает поддеревья и по области, и по диапазону ключа. Запрос стоит O(log n + k).
+ */
+final class PackedHilbertRTree {
+
+    /**
+     * Количество дочерних элементов узла.
+     */
+    static final int NODE_SIZE = 16;
+
+    /**
+     * Разрядность координаты на кривой Гильберта: номер на кривой занимает 30 бит и вместе
+     * с номером точки помещается в положительный long.
+     */
+    private static final int HILBERT_BITS = 15;
+    private static final int HILBERT_MAX = (1 << HILBERT_BITS) - 1;
+
+    private final double[] lats;
+    private final double[] lons;
+    private final long[] keys;
+    private final int size;
+
+    /**
+     * Начало каждого уровня (начиная с первого над точками) в массивах узлов; последний элемент - общее число узлов.
+     */
+    private final int[] levelStarts;
+    private final double[] minLats;
+    private final double[] minLons;
+    private final double[] maxLats;
+    private final double[] maxLons;
+    private final long[] minKeys;
+    private final long[] maxKeys;
+
+    /**
+     * Строит дерево над точками, уже упорядоченными по {@link #hilbertOrder}.
+     * Узлы одного уровня считаются параллельно.
+     *
+     * @param lats широты точек
+     * @param lons долготы точек
+     * @param keys ключи точек
+     * @param size количество точек
+     */
+    PackedHilbertRTree(double[] lats, double[] lons, long[] keys, int size) {
+        this.lats = lats;
+        this.lons = lons;
+        this.keys = keys;
+        this.size = size;
+
+        int levels = 0;
+        int total = 0;
+        for (int count = size; count > 1 || (levels == 0 && count == 1); count = Math.ceilDiv(count, NODE_SIZE)) {
+            levels++;
+            total += Math.ceilDiv(count, NODE_SIZE);
+        }
+        levelStarts = new int[levels + 1];
+        minLats = new double[total];
+        minLons = new double[total];
+        maxLats = new double[total];
+        maxLons = new double[total];
+        minKeys = new long[total];
+        maxKeys = new long[total];
+
+        int start = 0;
+        int childCount = size;
+        for (int level = 0; level < levels; level++) {
+            int nodeCount = Math.ceilDiv(childCount, NODE_SIZE);
+            levelStarts[level] = start;
+            levelStarts[level + 1] = start + nodeCount;
+            int childLevel = level - 1;
+            int children = childCount;
+            IntStream.range(0, nodeCount).parallel().forEach(node -> buildNode(childLevel, children, node));
+            start += nodeCount;
+            childCount = nodeCount;
+        }
+    }
+
+    /**
+     * Возвращает порядок точек вдоль кривой Гильберта. Ключи кривой считаются и сортируются параллельно.
+     *
+     * @param lats широты точек
+     * @param lons долготы точек
+     * @param size количество точек
+     * @return номера точек в порядке кривой
+     */
+    static int[] hilbertOrder(double[] lats, double[] lons, int size) {
+        long[] packed = new long[size];
+        IntStream.range(0, size).parallel().forEach(row -> {
+            long x = Math.round((lons[row] + 180.0) / 360.0 * HILBERT_MAX);
+            long y = Math.round((lats[row] + 90.0) / 180.0 * HILBERT_MAX);
+            packed[row] = hilbertIndex(clampHilbert(x), clampHilbert(y)) << 32 | row;
+        });
+        Arrays.parallelSort(packed);
+
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = (int) packed[i];
+        }
+        return order;
+    }
+
+    /**
+     * Создает запрос точек в области и диапазоне ключа.
+     *
+     * @param bbox   массив [minLat, minLon, maxLat, maxLon] или null; при minLon > maxLon область пересекает антимеридиан
+     * @param minKey нижняя граница ключа (включительно)
+     * @param maxKey верхняя граница ключа (включительно)
+     * @return итератор номеров подходящих точек в порядке кривой
+     */
+    Query query(double[] bbox, long minKey, long maxKey) {
+        return new Query(bbox, minKey, maxKey);
+    }
+
+    /**
+     * Заполняет прямоугольник и диапазон ключа узла по его дочерним элементам.
+     */
+    private void buildNode(int childLevel, int childCount, int node) {
+        int from = node * NODE_SIZE;
+        int to = Math.min(from + NODE_SIZE, childCount);
+
+        double minLat = Double.POSITIVE_INFINITY;
+        double minLon = Double.POSITIVE_INFINITY;
+        double maxLat = Double.NEGATIVE_INFINITY;
+        double maxLon = Double.NEGATIVE_INFINITY;
+        long minKey = Long.MAX_VALUE;
+        long maxKey = Long.MIN_VALUE;
+        for (int child = from; child < to; child++) {
+            if (childLevel < 0) {
+                minLat = Math.min(minLat, lats[child]);
+                minLon = Math.min(minLon, lons[child]);
+                maxLat = Math.max(maxLat, lats[child]);
+                maxLon = Math.max(maxLon, lons[child]);
+                minKey = Math.min(minKey, keys[child]);
+                maxKey = Math.max(maxKey, keys[child]);
+            } else {
+                int index = levelStarts[childLevel] + child;
+                minLat = Math.min(minLat, minLats[index]);
+                minLon = Math.min(minLon, minLons[index]);
+                maxLat = Math.max(maxLat, maxLats[index]);
+                maxLon = Math.max(maxLon, maxLons[index]);
+                minKey = Math.min(minKey, minKeys[index]);
+                maxKey = Math.max(maxKey, maxKeys[index]);
+            }
+        }
+
+        int index = levelStarts[childLevel + 1] + node;
+        minLats[index] = minLat;
+        minLons[index] = minLon;
+        maxLats[index] = maxLat;
+        maxLons[index] = maxLon;
+        minKeys[index] = minKey;
+        maxKeys[index] = maxKey;
+    }
+
+    private static long clampHilbert(long value) {
+        return Math.max(0, Math.min(value, HILBERT_MAX));
+    }
+
+    /**
+     * Номер точки (x, y) на кривой Гильберта порядка HILBERT_BITS.
+     */
+    private static long hilbertIndex(long x, long y) {
+        long index = 0;
+        for (long s = 1L << (HILBERT_BITS - 1); s > 0; s >>= 1) {
+            long rx = (x & s) > 0 ? 1 : 0;
+            long ry = (y & s) > 0 ? 1 : 0;
+            index += s * s * ((3 * rx) ^ ry);
+            if (ry == 0) {
+                if (rx == 1) {
+                    x = HILBERT_MAX - x;
+                    y = HILBERT_MAX - y;
+                }
+                long t = x;
+                x = y;
+                y = t;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Итератор запроса: обход дерева в глубину с явным стеком, поэтому его можно прерывать и продолжать.
+     */
+    final class Query {
+
+        private final double[] bbox;
+        private final long minKey;
+        private final long maxKey;
+        private final int[] stackLevels;
+        private final int[] stackNodes;
+        private int stackSize;
+        private int row;
+        private int leafEnd;
+
+        private Query(double[] bbox, long minKey, long maxKey) {
+            this.bbox = bbox;
+            this.minKey = minKey;
+            this.maxKey = maxKey;
+
+            int levels = levelStarts.length - 1;
+            this.stackLevels = new int[Math.max(1, levels * NODE_SIZE)];
+            this.stackNodes = new int[stackLevels.length];
+            if (levels > 0) {
+                pushIfIntersects(levels - 1, 0);
+            }
+        }
+
+        /**
+         * @return номер следующей подходящей точки или -1, если точки закончились
+         */
+        int nextRow() {
+            while (true) {
+                while (row < leafEnd) {
+                    int current = row++;
+                    if (keys[current] >= minKey && keys[current] <= maxKey
+                            && containsLat(lats[current], lats[current])
+                            && containsLon(lons[current], lons[current])) {
+                        return current;
+                    }
+                }
+                if (stackSize == 0) {
+                    return -1;
+                }
+
+                stackSize--;
+                int level = stackLevels[stackSize];
+                int node = stackNodes[stackSize];
+                int from = node * NODE_SIZE;
+                if (level == 0) {
+                    row = from;
+                    leafEnd = Math.min(from + NODE_SIZE, size);
+                } else {
+                    int childCount = levelStarts[level] - levelStarts[level - 1];
+                    // Дочерние узлы кладутся в обратном порядке, чтобы обход шел по возрастанию номеров
+                    for (int child = Math.min(from + NODE_SIZE, childCount) - 1; child >= from; child--) {
+                        pushIfIntersects(level - 1, child);
+                    }
+                }
+            }
+        }
+
+        private void pushIfIntersects(int level, int node) {
+            int index = levelStarts[level] + node;
+            if (maxKeys[index] < minKey || minKeys[index] > maxKey
+                    || !containsLat(minLats[index], maxLats[index])
+                    || !containsLon(minLons[index], maxLons[index])) {
+                return;
+            }
+            stackLevels[stackSize] = level;
+            stackNodes[stackSize] = node;
+            stackSize++;
+        }
+
+        /**
+         * Пересекается ли отрезок широт [min, max] с областью запроса.
+         */
+        private boolean containsLat(double min, double max) {
+            return bbox == null || (max >= bbox[0] && min <= bbox[2]);
+        }
+
+        /**
+         * Пересекается ли отрезок долгот [min, max] с областью запроса с учетом антимеридиана.
+         */
+        private boolean containsLon(double min, double max) {
+            if (bbox == null) {
+                return true;
+            }
+            return bbox[1] <= bbox[3]
+                    ? max >= bbox[1] && min <= bbox[3]
+                    : max >= bbox[1] || min <= bbox[3];
+        }
+    }
+}
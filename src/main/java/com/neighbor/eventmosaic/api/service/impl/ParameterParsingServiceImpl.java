@@ -1,5 +1,6 @@
 package com.neighbor.eventmosaic.api.service.impl;
 
+import com.neighbor.eventmosaic.api.config.ApiConfigProperties;
 import com.neighbor.eventmosaic.api.exception.InvalidApiParameterException;
 import com.neighbor.eventmosaic.api.service.ParameterParsingService;
 import lombok.RequiredArgsConstructor;
@@ -7,7 +8,12 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
+import java.time.Duration;
+import java.time.LocalDate;
 import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Реализация сервиса для парсинга параметров запроса.
@@ -19,6 +25,8 @@ import java.time.OffsetDateTime;
 @RequiredArgsConstructor
 public class ParameterParsingServiceImpl implements ParameterParsingService {
 
+    private final ApiConfigProperties apiConfigProperties;
+
     @Override
     public double[] parseBoundingBox(String bboxStr) {
         if (!StringUtils.hasText(bboxStr)) {
@@ -65,12 +73,43 @@ public class ParameterParsingServiceImpl implements ParameterParsingService {
             start = end.minusHours(defaultWindowHours);
             log.debug("Конечная дата задана, окно {} часов: {} - {}", defaultWindowHours, start, end);
         } else {
-            // Если ни одна дата не задана, используем окно по умолчанию
-            end = OffsetDateTime.now();
+            // Если ни одна дата не задана, используем окно по умолчанию, выровненное по границе интервала
+            end = alignUp(OffsetDateTime.now(ZoneOffset.UTC));
             start = end.minusHours(defaultWindowHours);
             log.debug("Используем окно по умолчанию {} часов: {} - {}", defaultWindowHours, start, end);
         }
 
         return new OffsetDateTime[]{start, end};
     }
+
+    @Override
+    public OffsetDateTime[] createDateRange(LocalDate since,
+                                            LocalDate until,
+                                            int defaultWindowHours) {
+        OffsetDateTime start = since != null
+                ? since.atStartOfDay().atOffset(ZoneOffset.UTC)
+                : null;
+
+        OffsetDateTime end = until != null
+                ? until.plusDays(1).atStartOfDay().atOffset(ZoneOffset.UTC)
+                : null;
+
+        return createDateRange(start, end, defaultWindowHours);
+    }
+
+    /**
+     * Округляет время вверх до ближайшей границы интервала выравнивания (отсчет от полуночи UTC).
+     * Окно по умолчанию по-прежнему включает текущий момент, но внутри одного интервала
+     * все запросы получают одинаковый диапазон и попадают в кеши API и Elasticsearch.
+     * Если интервал не делит сутки нацело, последний интервал суток короче и заканчивается в полночь.
+     */
+    OffsetDateTime alignUp(OffsetDateTime dateTime) {
+        long alignmentMillis = TimeUnit.MINUTES.toMillis(apiConfigProperties.getDefaultWindowAlignmentMinutes());
+        OffsetDateTime utcDateTime = dateTime.withOffsetSameInstant(ZoneOffset.UTC);
+        OffsetDateTime startOfDay = utcDateTime.toLocalDate().atStartOfDay().atOffset(ZoneOffset.UTC);
+        long millisOfDay = Duration.between(startOfDay, utcDateTime).toMillis();
+        long alignedMillis = Math.min(Math.ceilDiv(millisOfDay, alignmentMillis) * alignmentMillis,
+                TimeUnit.DAYS.toMillis(1));
+        return startOfDay.plus(alignedMillis, ChronoUnit.MILLIS);
+    }
 } 
\ No newline at end of file
@@ -0,0 +1,124 @@
+package com.neighbor.eventmosaic.api.service.impl;
+
+import java.util.Arrays;
+
+/**
+ * Последние добавленные события хранилища окна по умолчанию: пары (dateAdded, globalEventId)
+ * в порядке добавления, начиная с самой ранней пачки, которую еще нужно перечитывать.
+ * GDELT проставляет всей 15-минутной пачке один dateAdded, а события пачки индексируются не сразу
+ * и не в порядке globalEventId, поэтому догрузка не может продолжать с последнего прочитанного события:
+ * опоздавшие события с меньшим globalEventId остались бы позади него. Вместо этого догрузка перечитывает
+ * события начиная с {@link #rereadFrom} и отбрасывает уже загруженные по {@link #contains}.
+ * Пачка перестает перечитываться, когда она не последняя и старше границы оседания.
+ */
+final class RecentAdditions {
+
+    static final RecentAdditions EMPTY = new RecentAdditions(new long[0], new long[0], 0);
+
+    private final long[] datesAdded;
+    private final long[] eventIds;
+    private final int size;
+
+    private RecentAdditions(long[] datesAdded, long[] eventIds, int size) {
+        this.datesAdded = datesAdded;
+        this.eventIds = eventIds;
+        this.size = size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return dateAdded последней пачки (epoch millis)
+     * @throws IllegalStateException если событий нет
+     */
+    long newestDateAdded() {
+        if (size == 0) {
+            throw new IllegalStateException("Нет добавленных событий");
+        }
+        return datesAdded[size - 1];
+    }
+
+    /**
+     * Определяет dateAdded, с которого догрузка перечитывает события: последняя пачка перечитывается всегда,
+     * более ранние - пока они моложе границы оседания.
+     *
+     * @param settledBefore граница оседания (epoch millis): пачки до нее считаются проиндексированными полностью
+     * @return dateAdded (включительно, epoch millis)
+     * @throws IllegalStateException если событий нет
+     */
+    long rereadFrom(long settledBefore) {
+        return Math.min(newestDateAdded(), settledBefore);
+    }
+
+    /**
+     * Проверяет, загружено ли событие.
+     *
+     * @param dateAdded dateAdded события (epoch millis)
+     * @param eventId   globalEventId события
+     * @return true, если событие есть среди последних добавленных
+     */
+    boolean contains(long dateAdded, long eventId) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int comparison = datesAdded[mid] != dateAdded
+                    ? Long.compare(datesAdded[mid], dateAdded)
+                    : Long.compare(eventIds[mid], eventId);
+            if (comparison < 0) {
+                low = mid + 1;
+            } else if (comparison > 0) {
+                high = mid - 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Собирает последние добавленные события из событий, прочитанных в порядке (dateAdded, globalEventId).
+     * Осевшая пачка забывается, как только за ней приходит более поздняя: перечитывать ее уже не нужно.
+     */
+    static final class Builder {
+
+        private final long settledBefore;
+        private long[] datesAdded = new long[16];
+        private long[] eventIds = new long[16];
+        private int size;
+
+        /**
+         * @param settledBefore граница оседания (epoch millis)
+         */
+        Builder(long settledBefore) {
+            this.settledBefore = settledBefore;
+        }
+
+        /**
+         * Добавляет прочитанное событие. События должны приходить в порядке (dateAdded, globalEventId).
+         */
+        void add(long dateAdded, long eventId) {
+            if (size > 0 && dateAdded > datesAdded[size - 1] && datesAdded[size - 1] < settledBefore) {
+                size = 0;
+            }
+            if (size == datesAdded.length) {
+                datesAdded = Arrays.copyOf(datesAdded, size * 2);
+                eventIds = Arrays.copyOf(eventIds, size * 2);
+            }
+            datesAdded[size] = dateAdded;
+            eventIds[size] = eventId;
+            size++;
+        }
+
+        RecentAdditions build() {
+            return size == 0 ? EMPTY
+                    : new RecentAdditions(Arrays.copyOf(datesAdded, size), Arrays.copyOf(eventIds, size), size);
+        }
+    }
+}
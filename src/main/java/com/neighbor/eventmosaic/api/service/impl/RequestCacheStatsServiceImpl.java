@@ -0,0 +1,81 @@
+package com.neighbor.eventmosaic.api.service.impl;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.RequestCacheStats;
+import com.neighbor.eventmosaic.api.service.RequestCacheStatsService;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+
+/**
+ * Реализация сбора статистики request cache через indices stats API.
+ * Значения запрашиваются по расписанию, а не при каждом чтении метрик, чтобы не нагружать кластер.
+ * Счетчики кумулятивные с момента открытия индексов, доля попаданий:
+ * rate(hits) / (rate(hits) + rate(misses)).
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RequestCacheStatsServiceImpl implements RequestCacheStatsService, MeterBinder {
+
+    private static final String EVENT_INDEX_PATTERN = "gdelt-events-*";
+    private static final String REQUEST_CACHE_METRIC = "request_cache";
+
+    private final ElasticsearchClient elasticsearchClient;
+
+    /**
+     * Последняя полученная статистика. null, пока статистика не загружена.
+     */
+    private volatile RequestCacheStats requestCacheStats;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("elasticsearch.request.cache.hits", this, s -> s.statValue(RequestCacheStats::hitCount))
+                .description("Попадания в shard request cache по индексам событий")
+                .tag("index", EVENT_INDEX_PATTERN)
+                .register(registry);
+        FunctionCounter.builder("elasticsearch.request.cache.misses", this, s -> s.statValue(RequestCacheStats::missCount))
+                .description("Промахи shard request cache по индексам событий")
+                .tag("index", EVENT_INDEX_PATTERN)
+                .register(registry);
+        FunctionCounter.builder("elasticsearch.request.cache.evictions", this, s -> s.statValue(RequestCacheStats::evictions))
+                .description("Вытеснения из shard request cache по индексам событий")
+                .tag("index", EVENT_INDEX_PATTERN)
+                .register(registry);
+        Gauge.builder("elasticsearch.request.cache.memory", this, s -> s.statValue(RequestCacheStats::memorySizeInBytes))
+                .description("Размер shard request cache по индексам событий")
+                .tag("index", EVENT_INDEX_PATTERN)
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "#{@apiConfigProperties.requestCacheStatsRefreshSeconds}", timeUnit = TimeUnit.SECONDS)
+    public void refreshStats() {
+        try {
+            requestCacheStats = elasticsearchClient.indices()
+                    .stats(r -> r
+                            .index(EVENT_INDEX_PATTERN)
+                            .metric(REQUEST_CACHE_METRIC))
+                    .all()
+                    .total()
+                    .requestCache();
+            log.debug("Статистика request cache обновлена: {}", requestCacheStats);
+        } catch (Exception e) {
+            log.warn("Не удалось получить статистику request cache: {}", e.getMessage());
+        }
+    }
+
+    private double statValue(ToLongFunction<RequestCacheStats> extractor) {
+        RequestCacheStats stats = requestCacheStats;
+        return stats != null ? extractor.applyAsLong(stats) : Double.NaN;
+    }
+}
@@ -0,0 +1,134 @@
+package com.neighbor.eventmosaic.api.service.impl;
+
+/**
+ * Ограниченная min-куча на примитивных массивах: за один проход по кандидатам оставляет k значений
+ * с наибольшими ключами за O(n log k) без создания объектов на каждого кандидата.
+ * При равных ключах остается кандидат, предложенный раньше: среди равных ключей корнем кучи
+ * (первым на вытеснение) считается более поздний кандидат.
+ */
+final class TopKHeap {
+
+    private final long[] keys;
+    private final long[] values;
+    private final long[] sequences;
+    private long offers;
+    private int size;
+
+    /**
+     * @param capacity максимальное количество значений (k)
+     */
+    TopKHeap(int capacity) {
+        this.keys = new long[Math.max(0, capacity)];
+        this.values = new long[keys.length];
+        this.sequences = new long[keys.length];
+    }
+
+    /**
+     * Предлагает кандидата.
+     *
+     * @param key   ключ, по которому отбираются наибольшие
+     * @param value значение кандидата
+     * @return true, если кандидат попал в кучу
+     */
+    boolean offer(long key, long value) {
+        long sequence = offers++;
+        if (size < keys.length) {
+            keys[size] = key;
+            values[size] = value;
+            sequences[size] = sequence;
+            siftUp(size++);
+            return true;
+        }
+        // Кандидат позже всех в куче, поэтому при равном ключе он проигрывает корню
+        if (size == 0 || key <= keys[0]) {
+            return false;
+        }
+        keys[0] = key;
+        values[0] = value;
+        sequences[0] = sequence;
+        siftDown(0);
+        return true;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Извлекает значения в порядке убывания ключа, при равных ключах - в порядке предложения.
+     * Куча после вызова пуста.
+     *
+     * @return значения
+     */
+    long[] drainDescending() {
+        return drainDescending(null);
+    }
+
+    /**
+     * Извлекает значения в порядке убывания ключа, при равных ключах - в порядке предложения;
+     * ключи записываются в keysOut. Куча после вызова пуста.
+     *
+     * @param keysOut массив не меньше size() для ключей или null
+     * @return значения
+     */
+    long[] drainDescending(long[] keysOut) {
+        long[] result = new long[size];
+        for (int i = size - 1; i >= 0; i--) {
+            result[i] = values[0];
+            if (keysOut != null) {
+                keysOut[i] = keys[0];
+            }
+            size--;
+            keys[0] = keys[size];
+            values[0] = values[size];
+            sequences[0] = sequences[size];
+            siftDown(0);
+        }
+        return result;
+    }
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!less(index, parent)) {
+                return;
+            }
+            swap(parent, index);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index) {
+        while (true) {
+            int left = 2 * index + 1;
+            if (left >= size) {
+                return;
+            }
+            int smallest = left + 1 < size && less(left + 1, left) ? left + 1 : left;
+            if (!less(smallest, index)) {
+                return;
+            }
+            swap(index, smallest);
+            index = smallest;
+        }
+    }
+
+    /**
+     * Ближе ли элемент i к корню: меньший ключ, при равных ключах - более поздний кандидат.
+     */
+    private boolean less(int i, int j) {
+        return keys[i] < keys[j] || keys[i] == keys[j] && sequences[i] > sequences[j];
+    }
+
+    private void swap(int i, int j) {
+        long key = keys[i];
+        keys[i] = keys[j];
+        keys[j] = key;
+        long value = values[i];
+        values[i] = values[j];
+        values[j] = value;
+        long sequence = sequences[i];
+        sequences[i] = sequences[j];
+        sequences[j] = sequence;
+    }
+}
@@ -0,0 +1,158 @@
+package com.neighbor.eventmosaic.api.service.impl;
+
+import com.neighbor.eventmosaic.api.config.ApiConfigProperties;
+import com.neighbor.eventmosaic.api.document.EventMapProjection;
+import com.neighbor.eventmosaic.api.dto.EventCluster;
+import com.neighbor.eventmosaic.api.dto.EventPointCursor;
+import com.neighbor.eventmosaic.api.dto.EventTileQueryParameters;
+import com.neighbor.eventmosaic.api.dto.MapCacheKey;
+import com.neighbor.eventmosaic.api.dto.TileCoordinates;
+import com.neighbor.eventmosaic.api.exception.InvalidApiParameterException;
+import com.neighbor.eventmosaic.api.service.EventQueryService;
+import com.neighbor.eventmosaic.api.service.GeolocationService;
+import com.neighbor.eventmosaic.api.service.HotEventStore;
+import com.neighbor.eventmosaic.api.service.MapResponseCacheService;
+import com.neighbor.eventmosaic.api.service.ParameterParsingService;
+import com.neighbor.eventmosaic.api.service.VectorTileService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.elasticsearch.core.geo.GeoPoint;
+import org.springframework.stereotype.Service;
+
+import java.time.OffsetDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Реализация сервиса векторных тайлов.
+ * Область запроса определяется границами тайла, временной диапазон - так же, как для GeoJSON-эндпоинта.
+ * При zoom не выше порога в тайл попадают кластеры, иначе - отдельные события.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class VectorTileServiceImpl implements VectorTileService {
+
+    public static final String EVENTS_LAYER = "events";
+    public static final String CLUSTERS_LAYER = "clusters";
+
+    private static final String MVT_FORMAT = "mvt";
+    private static final int TILE_EXTENT = 4096;
+    private static final int MAX_TILE_ZOOM = 29;
+
+    private final EventQueryService eventQueryService;
+    private final HotEventStore hotEventStore;
+    private final GeolocationService geolocationService;
+    private final ParameterParsingService parameterParsingService;
+    private final MapResponseCacheService mapResponseCacheService;
+    private final ApiConfigProperties apiConfigProperties;
+
+    @Override
+    public byte[] getEventsTile(TileCoordinates tile, EventTileQueryParameters params) {
+        validateTile(tile);
+        log.debug("Запрос тайла {}: {}", tile, params);
+
+        OffsetDateTime[] dateRange = parameterParsingService.createDateRange(
+                params.getSince(), params.getUntil(), apiConfigProperties.getDefaultEventWindowHours());
+        MapCacheKey cacheKey = mapResponseCacheService.createKey(MVT_FORMAT, tile, dateRange[0], dateRange[1]);
+
+        Optional<byte[]> cached = mapResponseCacheService.get(cacheKey);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+
+        byte[] response = encodeTile(tile, cacheKey.startDate(), cacheKey.endDate());
+        mapResponseCacheService.put(cacheKey, response);
+        return response;
+    }
+
+    /**
+     * Выполняет запрос кластеров или событий в границах тайла и кодирует их в MVT.
+     */
+    private byte[] encodeTile(TileCoordinates tile, OffsetDateTime start, OffsetDateTime end) {
+        double[] bbox = tile.toBoundingBox();
+
+        MvtEncoder encoder = new MvtEncoder(TILE_EXTENT);
+        MvtEncoder.Layer eventsLayer = encoder.layer(EVENTS_LAYER);
+
+        if (tile.z() <= apiConfigProperties.getIndividualEventsZoomThreshold()) {
+            MvtEncoder.Layer clustersLayer = encoder.layer(CLUSTERS_LAYER);
+            List<EventCluster> clusters = eventQueryService.findClusters(start, end, bbox, tile.z());
+            clusters.forEach(cluster -> addCluster(tile, cluster, eventsLayer, clustersLayer));
+            log.debug("Тайл {}: {} кластеров", tile, clusters.size());
+        } else {
+            Optional<EventPointCursor> hotEvents = hotEventStore.findEvents(start, end, bbox, tile.z(),
+                    apiConfigProperties.getMaxIndividualEventsPerRequest());
+            if (hotEvents.isPresent()) {
+                EventPointCursor events = hotEvents.get();
+                while (events.next()) {
+                    Double avgTone = Double.isNaN(events.avgTone()) ? null : events.avgTone();
+                    eventsLayer.addPoint(events.eventId(), tile.relativeX(events.lon()), tile.relativeY(events.lat()),
+                            eventProperties(events.eventId(), avgTone));
+                }
+            } else {
+                List<EventMapProjection> events = eventQueryService.findEvents(start, end, bbox, tile.z());
+                events.forEach(event -> addEvent(tile, event, eventsLayer));
+                log.debug("Тайл {}: {} событий", tile, events.size());
+            }
+        }
+
+        return encoder.encode();
+    }
+
+    /**
+     * Проверяет координаты тайла.
+     */
+    private void validateTile(TileCoordinates tile) {
+        if (tile.z() < 0 || tile.z() > MAX_TILE_ZOOM || !tile.isValid()) {
+            throw new InvalidApiParameterException("Некорректные координаты тайла: " + tile);
+        }
+    }
+
+    /**
+     * Добавляет кластер в тайл. Кластер из одного события попадает в слой событий.
+     */
+    private void addCluster(TileCoordinates tile,
+                            EventCluster cluster,
+                            MvtEncoder.Layer eventsLayer,
+                            MvtEncoder.Layer clustersLayer) {
+        double relativeX = tile.relativeX(cluster.centroid().lon());
+        double relativeY = tile.relativeY(cluster.centroid().lat());
+
+        if (cluster.count() == 1 && cluster.eventId() != null) {
+            eventsLayer.addPoint(cluster.eventId(), relativeX, relativeY,
+                    eventProperties(cluster.eventId(), cluster.avgTone()));
+            return;
+        }
+
+        Map<String, Object> properties = new LinkedHashMap<>();
+        properties.put("clusterCount", cluster.count());
+        properties.put("avgTone", cluster.avgTone());
+        clustersLayer.addPoint(null, relativeX, relativeY, properties);
+    }
+
+    /**
+     * Добавляет событие в тайл по наилучшим координатам. События без координат пропускаются.
+     */
+    private void addEvent(TileCoordinates tile,
+                          EventMapProjection event,
+                          MvtEncoder.Layer eventsLayer) {
+        Optional<GeoPoint> geoPointOpt = geolocationService.selectBestCoordinates(event);
+        if (geoPointOpt.isEmpty()) {
+            return;
+        }
+
+        GeoPoint geoPoint = geoPointOpt.get();
+        eventsLayer.addPoint(event.globalEventId(), tile.relativeX(geoPoint.getLon()), tile.relativeY(geoPoint.getLat()),
+                eventProperties(event.globalEventId(), event.avgTone()));
+    }
+
+    private Map<String, Object> eventProperties(Long eventId, Double avgTone) {
+        Map<String, Object> properties = new LinkedHashMap<>();
+        properties.put("eventId", eventId);
+        properties.put("avgTone", avgTone);
+        return properties;
+    }
+}
@@ -0,0 +1,152 @@
+package com.neighbor.eventmosaic.api.service.impl;
+
+import com.neighbor.eventmosaic.api.config.ApiConfigProperties;
+import com.neighbor.eventmosaic.api.dto.CarrierPoolStats;
+import com.neighbor.eventmosaic.api.service.VirtualThreadDiagnosticsService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordedThread;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.lang.reflect.Field;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Реализация диагностики виртуальных потоков.
+ * Закрепления отслеживаются событием JFR jdk.VirtualThreadPinned с порогом pinnedThreadLogThresholdMillis.
+ * Пул потоков-носителей JDK не публикует, поэтому его метрики включаются явно (carrierPoolMetricsEnabled):
+ * пул читается из закрытого поля VirtualThread.DEFAULT_SCHEDULER, для этого JVM запускается
+ * с --add-opens java.base/java.lang=ALL-UNNAMED. Поле может измениться в любой версии JDK, тогда
+ * метрики пула просто не публикуются.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class VirtualThreadDiagnosticsServiceImpl implements VirtualThreadDiagnosticsService, MeterBinder {
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+
+    /**
+     * Сколько верхних кадров стека закрепленного потока выводить в лог.
+     */
+    private static final int MAX_LOGGED_FRAMES = 16;
+
+    private final ApiConfigProperties apiConfigProperties;
+
+    /**
+     * Пул потоков-носителей. null, если метрики пула выключены или поле планировщика недоступно.
+     */
+    private ForkJoinPool carrierPool;
+
+    private RecordingStream pinnedEventStream;
+
+    @PostConstruct
+    public void start() {
+        if (apiConfigProperties.isCarrierPoolMetricsEnabled()) {
+            carrierPool = resolveCarrierPool();
+        }
+
+        long thresholdMillis = apiConfigProperties.getPinnedThreadLogThresholdMillis();
+        if (thresholdMillis > 0) {
+            pinnedEventStream = new RecordingStream();
+            pinnedEventStream.enable(PINNED_EVENT)
+                    .withThreshold(Duration.ofMillis(thresholdMillis))
+                    .withStackTrace();
+            pinnedEventStream.onEvent(PINNED_EVENT, this::logPinnedEvent);
+            pinnedEventStream.startAsync();
+            log.info("Логирование закреплений виртуальных потоков дольше {} мс включено", thresholdMillis);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (pinnedEventStream != null) {
+            pinnedEventStream.close();
+        }
+    }
+
+    @Override
+    public Optional<CarrierPoolStats> getCarrierPoolStats() {
+        ForkJoinPool pool = carrierPool;
+        if (pool == null) {
+            return Optional.empty();
+        }
+        return Optional.of(new CarrierPoolStats(
+                pool.getParallelism(),
+                pool.getPoolSize(),
+                pool.getActiveThreadCount(),
+                pool.getQueuedTaskCount() + pool.getQueuedSubmissionCount()));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (carrierPool == null) {
+            return;
+        }
+
+        registerGauge(registry, "jvm.threads.virtual.carrier.parallelism",
+                "Целевое число потоков-носителей виртуальных потоков", CarrierPoolStats::parallelism);
+        registerGauge(registry, "jvm.threads.virtual.carrier.pool.size",
+                "Текущее число потоков-носителей виртуальных потоков", CarrierPoolStats::poolSize);
+        registerGauge(registry, "jvm.threads.virtual.carrier.active",
+                "Потоки-носители, выполняющие виртуальные потоки", CarrierPoolStats::activeCount);
+        registerGauge(registry, "jvm.threads.virtual.carrier.queued",
+                "Готовые к выполнению виртуальные потоки, ожидающие потока-носителя", CarrierPoolStats::queuedCount);
+        registerGauge(registry, "jvm.threads.virtual.carrier.utilization",
+                "Доля занятых потоков-носителей", CarrierPoolStats::utilization);
+    }
+
+    private void registerGauge(MeterRegistry registry, String name, String description,
+                               ToDoubleFunction<CarrierPoolStats> extractor) {
+        Gauge.builder(name, this, s -> s.getCarrierPoolStats().map(extractor::applyAsDouble).orElse(Double.NaN))
+                .description(description)
+                .register(registry);
+    }
+
+    private void logPinnedEvent(RecordedEvent event) {
+        RecordedThread thread = event.getThread();
+        log.warn("Виртуальный поток {} закреплен за потоком-носителем на {} мс{}",
+                thread != null ? thread.getJavaName() : "?",
+                event.getDuration().toMillis(),
+                formatStackTrace(event.getStackTrace()));
+    }
+
+    private static String formatStackTrace(RecordedStackTrace stackTrace) {
+        if (stackTrace == null) {
+            return "";
+        }
+        return stackTrace.getFrames().stream()
+                .limit(MAX_LOGGED_FRAMES)
+                .map(VirtualThreadDiagnosticsServiceImpl::formatFrame)
+                .collect(Collectors.joining("\n\tat ", "\n\tat ", ""));
+    }
+
+    private static String formatFrame(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+    }
+
+    private static ForkJoinPool resolveCarrierPool() {
+        try {
+            Field scheduler = Class.forName("java.lang.VirtualThread").getDeclaredField("DEFAULT_SCHEDULER");
+            scheduler.setAccessible(true);
+            return (ForkJoinPool) scheduler.get(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            log.info("Метрики потоков-носителей недоступны (нужен --add-opens java.base/java.lang=ALL-UNNAMED): {}",
+                    e.getMessage());
+            return null;
+        }
+    }
+}
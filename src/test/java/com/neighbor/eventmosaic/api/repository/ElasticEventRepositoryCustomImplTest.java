@@ -0,0 +1,36 @@
+package com.neighbor.eventmosaic.api.repository;
+
+import co.elastic.clients.elasticsearch._types.FieldValue;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Восстановление значений search_after из курсора {@link ElasticEventRepositoryCustomImpl#toFieldValue}.
+ */
+class ElasticEventRepositoryCustomImplTest {
+
+    @Test
+    @DisplayName("Значения сортировки после JSON восстанавливаются с исходными типами Elasticsearch")
+    void sortValuesAfterJsonRoundTrip() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        List<Object> sortValues = List.of(1_746_057_600_000L, 123L, 0.5, "id", true);
+
+        List<?> decoded = objectMapper.readValue(objectMapper.writeValueAsBytes(sortValues), List.class);
+        List<FieldValue> restored = decoded.stream().map(ElasticEventRepositoryCustomImpl::toFieldValue).toList();
+
+        // Небольшой long после JSON - Integer, но в запрос снова уходит как long
+        assertThat(decoded.get(1)).isInstanceOf(Integer.class);
+        assertThat(restored.get(0).isLong()).isTrue();
+        assertThat(restored.get(0).longValue()).isEqualTo(1_746_057_600_000L);
+        assertThat(restored.get(1).isLong()).isTrue();
+        assertThat(restored.get(1).longValue()).isEqualTo(123L);
+        assertThat(restored.get(2).doubleValue()).isEqualTo(0.5);
+        assertThat(restored.get(3).stringValue()).isEqualTo("id");
+        assertThat(restored.get(4).booleanValue()).isTrue();
+    }
+}
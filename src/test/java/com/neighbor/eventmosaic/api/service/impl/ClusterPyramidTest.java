@@ -0,0 +1,171 @@
+package com.neighbor.eventmosaic.api.service.impl;
+
+import com.neighbor.eventmosaic.api.dto.EventCluster;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Вложенность уровней {@link ClusterPyramid} и независимость результата от параллельной обработки полос.
+ */
+class ClusterPyramidTest {
+
+    private static final int MAX_PRECISION = 10;
+
+    @Test
+    @DisplayName("Сумма количеств событий одинакова на каждом уровне")
+    void countsPreservedOnEveryLevel() {
+        Points points = Points.random(new Random(7), 20_000, -70, -180, 70, 180);
+
+        ClusterPyramid pyramid = points.pyramid();
+
+        for (int precision = 0; precision <= MAX_PRECISION; precision++) {
+            List<EventCluster> clusters = pyramid.clusters(precision, null, Integer.MAX_VALUE);
+            assertThat(clusters).hasSize(pyramid.size(precision));
+            assertThat(clusters.stream().mapToLong(EventCluster::count).sum())
+                    .as("precision %d", precision)
+                    .isEqualTo(points.size());
+        }
+        // Крупные уровни действительно объединяют точки
+        assertThat(pyramid.size(0)).isLessThan(pyramid.size(MAX_PRECISION));
+    }
+
+    @Test
+    @DisplayName("Каждый кластер уровня - объединение кластеров следующего, более детального уровня")
+    void coarseClusterIsUnionOfChildren() {
+        // Тон события i - 2^i, тогда сумма тонов кластера - битовая маска его событий
+        int size = 50;
+        Points points = Points.random(new Random(11), size, 40, 0, 50, 20);
+        for (int i = 0; i < size; i++) {
+            points.avgTones[i] = Math.scalb(1.0, i);
+        }
+        long all = (1L << size) - 1;
+
+        ClusterPyramid pyramid = points.pyramid();
+
+        long[] finer = null;
+        for (int precision = MAX_PRECISION; precision >= 0; precision--) {
+            List<EventCluster> clusters = pyramid.clusters(precision, null, Integer.MAX_VALUE);
+            long[] masks = new long[clusters.size()];
+            long union = 0;
+            for (int i = 0; i < masks.length; i++) {
+                EventCluster cluster = clusters.get(i);
+                masks[i] = Math.round(cluster.avgTone() * cluster.count());
+                assertThat(Long.bitCount(masks[i])).isEqualTo(cluster.count());
+                assertThat(union & masks[i]).as("кластеры уровня %d пересекаются", precision).isZero();
+                union |= masks[i];
+                if (cluster.count() == 1) {
+                    assertThat(cluster.eventId()).isEqualTo(1000L + Long.numberOfTrailingZeros(masks[i]));
+                } else {
+                    assertThat(cluster.eventId()).isNull();
+                }
+            }
+            assertThat(union).isEqualTo(all);
+
+            if (finer != null) {
+                for (long child : finer) {
+                    long parents = 0;
+                    for (long mask : masks) {
+                        if ((mask & child) != 0) {
+                            assertThat(mask & child).as("кластер разделен на уровне %d", precision).isEqualTo(child);
+                            parents++;
+                        }
+                    }
+                    assertThat(parents).isEqualTo(1);
+                }
+            }
+            finer = masks;
+        }
+        assertThat(pyramid.size(0)).isLessThan(size);
+    }
+
+    @Test
+    @DisplayName("Параллельная и последовательная обработка полос дают одинаковые кластеры")
+    void parallelMatchesSequential() throws Exception {
+        // Плотное скопление и редкий фон, чтобы кластеры тянулись через границы полос
+        Random random = new Random(23);
+        Points points = Points.random(random, 30_000, -60, -180, 60, 180);
+        for (int i = 0; i < 10_000; i++) {
+            points.lats[i] = 48 + random.nextGaussian() * 3;
+            points.lons[i] = 10 + random.nextGaussian() * 6;
+        }
+
+        // Параллельные потоки внутри задачи пула выполняются его потоками, а ширина полос от пула не зависит
+        ClusterPyramid parallel;
+        try (ForkJoinPool pool = new ForkJoinPool(8)) {
+            parallel = pool.submit(points::pyramid).get();
+        }
+        ClusterPyramid sequential;
+        try (ForkJoinPool pool = new ForkJoinPool(1)) {
+            sequential = pool.submit(points::pyramid).get();
+        }
+
+        for (int precision = 0; precision <= MAX_PRECISION; precision++) {
+            assertThat(sequential.clusters(precision, null, Integer.MAX_VALUE))
+                    .as("precision %d", precision)
+                    .containsExactlyElementsOf(parallel.clusters(precision, null, Integer.MAX_VALUE));
+        }
+    }
+
+    @Test
+    @DisplayName("Точки по разные стороны антимеридиана не объединяются даже на нулевом уровне")
+    void notMergedAcrossAntimeridian() {
+        Points points = new Points(new double[]{10, 10, 10}, new double[]{179.9, -179.9, -179.8});
+
+        ClusterPyramid pyramid = points.pyramid();
+
+        List<EventCluster> clusters = pyramid.clusters(0, null, 10);
+        assertThat(clusters).extracting(EventCluster::count).containsExactly(2, 1);
+        assertThat(clusters.get(1).centroid().lon()).isCloseTo(179.9, within(1e-9));
+        assertThat(clusters.get(1).eventId()).isEqualTo(1000L);
+    }
+
+    /**
+     * Точки для построения пирамиды.
+     */
+    private record Points(long[] eventIds, double[] lats, double[] lons, double[] avgTones) {
+
+        Points(double[] lats, double[] lons) {
+            this(ids(lats.length), lats, lons, nans(lats.length));
+        }
+
+        static Points random(Random random, int size, double minLat, double minLon, double maxLat, double maxLon) {
+            double[] lats = new double[size];
+            double[] lons = new double[size];
+            for (int i = 0; i < size; i++) {
+                lats[i] = minLat + random.nextDouble() * (maxLat - minLat);
+                lons[i] = minLon + random.nextDouble() * (maxLon - minLon);
+            }
+            return new Points(lats, lons);
+        }
+
+        int size() {
+            return lats.length;
+        }
+
+        ClusterPyramid pyramid() {
+            return new ClusterPyramid(eventIds, lats, lons, avgTones, size(), MAX_PRECISION);
+        }
+
+        private static long[] ids(int size) {
+            long[] ids = new long[size];
+            for (int i = 0; i < size; i++) {
+                ids[i] = 1000L + i;
+            }
+            return ids;
+        }
+
+        private static double[] nans(int size) {
+            double[] tones = new double[size];
+            Arrays.fill(tones, Double.NaN);
+            return tones;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.neighbor.eventmosaic.api.service.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.neighbor.eventmosaic.api.config.ApiConfigProperties;
+import com.neighbor.eventmosaic.api.dto.EventMapQueryParameters;
+import com.neighbor.eventmosaic.api.dto.MapCacheKey;
+import com.neighbor.eventmosaic.api.dto.histogram.EventHistogram;
+import com.neighbor.eventmosaic.api.dto.histogram.HistogramBucket;
+import com.neighbor.eventmosaic.api.dto.histogram.HistogramBucketKey;
+import com.neighbor.eventmosaic.api.dto.histogram.HistogramInterval;
+import com.neighbor.eventmosaic.api.exception.InvalidApiParameterException;
+import com.neighbor.eventmosaic.api.repository.ElasticEventRepository;
+import com.neighbor.eventmosaic.api.service.EventQueryService;
+import com.neighbor.eventmosaic.api.service.IndexResolverService;
+import com.neighbor.eventmosaic.api.service.MapResponseCacheService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Кеширование корзин {@link EventHistogramServiceImpl} при заглушке репозитория,
+ * которая, как date_histogram с min_doc_count 1, возвращает только непустые корзины диапазона.
+ */
+class EventHistogramServiceImplTest {
+
+    /**
+     * Начало текущих суток UTC: корзины до него закрыты и кешируются.
+     */
+    private static final OffsetDateTime TODAY = LocalDate.now(ZoneOffset.UTC).atStartOfDay().atOffset(ZoneOffset.UTC);
+    private static final OffsetDateTime PAST_DAY = TODAY.minusDays(10);
+
+    private final ElasticEventRepository eventRepository = mock(ElasticEventRepository.class);
+    private final EventQueryService eventQueryService = mock(EventQueryService.class);
+    private final IndexResolverService indexResolverService = mock(IndexResolverService.class);
+    private final MapResponseCacheService mapResponseCacheService = mock(MapResponseCacheService.class);
+    private final Cache<HistogramBucketKey, HistogramBucket> bucketCache =
+            Caffeine.newBuilder().<HistogramBucketKey, HistogramBucket>build();
+    private final ApiConfigProperties properties = new ApiConfigProperties();
+    private EventHistogramServiceImpl service;
+
+    /**
+     * Непустые часовые корзины в Elasticsearch по началу корзины.
+     */
+    private final Map<OffsetDateTime, HistogramBucket> stored = new TreeMap<>();
+
+    @BeforeEach
+    void setUp() {
+        service = new EventHistogramServiceImpl(eventRepository, eventQueryService, indexResolverService,
+                mapResponseCacheService, bucketCache, properties);
+
+        when(mapResponseCacheService.createKey(eq("histogram"), any(), any(), any(), any()))
+                .thenAnswer(invocation -> {
+                    OffsetDateTime start = invocation.getArgument(1);
+                    OffsetDateTime end = invocation.getArgument(2);
+                    return new MapCacheKey("histogram", null, 0, 0, 0, 0, 0,
+                            start.toInstant().toEpochMilli(), end.toInstant().toEpochMilli());
+                });
+        when(indexResolverService.resolveEventIndices(any(), any()))
+                .thenReturn(Optional.of(IndexCoordinates.of("gdelt-events-test")));
+        when(eventRepository.findHistogram(any(), any(), any(), any(), eq(HistogramInterval.HOUR)))
+                .thenAnswer(invocation -> {
+                    OffsetDateTime start = invocation.getArgument(1);
+                    OffsetDateTime end = invocation.getArgument(2);
+                    return stored.values().stream()
+                            .filter(bucket -> !bucket.start().isBefore(start) && bucket.start().isBefore(end))
+                            .toList();
+                });
+    }
+
+    @Test
+    @DisplayName("Пропуски между непустыми корзинами заполняются нулевыми корзинами без тона")
+    void gapsZeroFilled() {
+        store(PAST_DAY.plusHours(1), 5, 1.5);
+        store(PAST_DAY.plusHours(4), 2, -3.0);
+
+        EventHistogram histogram = histogram(PAST_DAY, PAST_DAY.plusHours(5).minusNanos(1));
+
+        assertThat(histogram.interval()).isEqualTo("1h");
+        assertThat(histogram.buckets()).extracting(HistogramBucket::start)
+                .containsExactly(PAST_DAY, PAST_DAY.plusHours(1), PAST_DAY.plusHours(2),
+                        PAST_DAY.plusHours(3), PAST_DAY.plusHours(4));
+        assertThat(histogram.buckets()).extracting(HistogramBucket::count).containsExactly(0L, 5L, 0L, 0L, 2L);
+        assertThat(histogram.buckets()).extracting(HistogramBucket::avgTone)
+                .containsExactly(null, 1.5, null, null, -3.0);
+    }
+
+    @Test
+    @DisplayName("Пересекающийся закрытый диапазон запрашивает Elasticsearch только с первой незакешированной корзины")
+    void overlappingRangeQueriesFromFirstMissingBucket() {
+        store(PAST_DAY.plusHours(2), 3, null);
+        store(PAST_DAY.plusHours(7), 4, null);
+
+        histogram(PAST_DAY, PAST_DAY.plusHours(6).minusNanos(1));
+        verify(eventRepository).findHistogram(any(), eq(PAST_DAY), eq(PAST_DAY.plusHours(6)), any(), any());
+
+        // Корзина из кеша не перечитывается, даже если в Elasticsearch данные изменились
+        store(PAST_DAY.plusHours(2), 100, null);
+        EventHistogram histogram = histogram(PAST_DAY.plusMinutes(30), PAST_DAY.plusHours(9).minusNanos(1));
+
+        verify(eventRepository)
+                .findHistogram(any(), eq(PAST_DAY.plusHours(6)), eq(PAST_DAY.plusHours(9)), any(), any());
+        assertThat(histogram.buckets()).extracting(HistogramBucket::count)
+                .containsExactly(0L, 0L, 3L, 0L, 0L, 0L, 0L, 4L, 0L);
+
+        // Полностью закешированный диапазон обходится без Elasticsearch
+        histogram(PAST_DAY.plusHours(1), PAST_DAY.plusHours(8).minusNanos(1));
+        verify(eventRepository).findHistogram(any(), eq(PAST_DAY), any(), any(), any());
+        verify(eventRepository).findHistogram(any(), eq(PAST_DAY.plusHours(6)), any(), any(), any());
+        assertThat(bucketCache.estimatedSize()).isEqualTo(9);
+    }
+
+    @Test
+    @DisplayName("Корзины текущих суток не кешируются и запрашиваются каждый раз")
+    void openTailNeverCached() {
+        OffsetDateTime start = TODAY.minusHours(2);
+        OffsetDateTime end = TODAY.plusHours(2).minusNanos(1);
+        store(TODAY.minusHours(1), 1, null);
+        store(TODAY.plusHours(1), 2, null);
+
+        histogram(start, end);
+        store(TODAY.plusHours(1), 7, null);
+        EventHistogram histogram = histogram(start, end);
+
+        // Первый раз - с начала диапазона, второй - только с первой корзины текущих суток
+        verify(eventRepository).findHistogram(any(), eq(start), eq(TODAY.plusHours(2)), any(), any());
+        verify(eventRepository).findHistogram(any(), eq(TODAY), eq(TODAY.plusHours(2)), any(), any());
+        assertThat(histogram.buckets()).extracting(HistogramBucket::count).containsExactly(0L, 1L, 0L, 7L);
+        assertThat(bucketCache.asMap().keySet()).extracting(HistogramBucketKey::bucketStartMillis)
+                .containsExactlyInAnyOrder(millis(start), millis(start.plusHours(1)));
+    }
+
+    @Test
+    @DisplayName("Диапазон больше maxHistogramBuckets отклоняется до запроса в Elasticsearch")
+    void tooManyBucketsRejected() {
+        properties.setMaxHistogramBuckets(24);
+
+        assertThat(histogram(PAST_DAY, PAST_DAY.plusDays(1).minusNanos(1)).buckets()).hasSize(24);
+        // Начало не на границе корзины добавляет 25-ю корзину
+        assertThatThrownBy(() -> histogram(PAST_DAY.plusMinutes(1), PAST_DAY.plusDays(1)))
+                .isInstanceOf(InvalidApiParameterException.class);
+        assertThatThrownBy(() -> service.getHistogram(new EventMapQueryParameters(), "2h"))
+                .isInstanceOf(InvalidApiParameterException.class);
+        verify(eventRepository, times(1)).findHistogram(any(), any(), any(), any(), any());
+    }
+
+    private EventHistogram histogram(OffsetDateTime start, OffsetDateTime end) {
+        when(eventQueryService.resolveDateRange(any())).thenReturn(new OffsetDateTime[]{start, end});
+        return service.getHistogram(new EventMapQueryParameters(), "1h");
+    }
+
+    private void store(OffsetDateTime start, long count, Double avgTone) {
+        stored.put(start, new HistogramBucket(start, count, avgTone));
+    }
+
+    private static long millis(OffsetDateTime dateTime) {
+        return dateTime.toInstant().toEpochMilli();
+    }
+}
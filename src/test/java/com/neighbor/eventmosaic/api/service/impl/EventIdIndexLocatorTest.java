@@ -0,0 +1,97 @@
+package com.neighbor.eventmosaic.api.service.impl;
+
+import com.neighbor.eventmosaic.api.repository.EventIdRange;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Поиск индексов по globalEventId сверяется с перебором диапазонов.
+ */
+class EventIdIndexLocatorTest {
+
+    @Test
+    @DisplayName("Пустой указатель ничего не находит, и любой идентификатор для него новее")
+    void emptyLocator() {
+        EventIdIndexLocator locator = new EventIdIndexLocator(List.of());
+
+        assertThat(locator.size()).isZero();
+        assertThat(locator.locate(1)).isEmpty();
+        assertThat(locator.isNewer(Long.MIN_VALUE)).isTrue();
+    }
+
+    @Test
+    @DisplayName("Идентификатор из пересекающихся диапазонов находится во всех индексах, которые его содержат")
+    void overlappingRanges() {
+        // Длинный диапазон дня с поздно загруженными событиями перекрывает следующие дни
+        EventIdIndexLocator locator = new EventIdIndexLocator(List.of(
+                new EventIdRange("events-2025.05.03", 300, 400),
+                new EventIdRange("events-2025.05.01", 100, 350),
+                new EventIdRange("events-2025.05.02", 200, 250)));
+
+        assertThat(locator.locate(150)).containsExactly("events-2025.05.01");
+        assertThat(locator.locate(220)).containsExactlyInAnyOrder("events-2025.05.01", "events-2025.05.02");
+        assertThat(locator.locate(300)).containsExactlyInAnyOrder("events-2025.05.01", "events-2025.05.03");
+        assertThat(locator.locate(350)).containsExactlyInAnyOrder("events-2025.05.01", "events-2025.05.03");
+        assertThat(locator.locate(351)).containsExactly("events-2025.05.03");
+    }
+
+    @Test
+    @DisplayName("Идентификатор в разрыве между диапазонами и ниже минимума не находится, но и не считается новым")
+    void gapsAndBelowMinimum() {
+        EventIdIndexLocator locator = new EventIdIndexLocator(List.of(
+                new EventIdRange("events-2025.05.01", 100, 199),
+                new EventIdRange("events-2025.05.02", 300, 399)));
+
+        assertThat(locator.locate(250)).isEmpty();
+        assertThat(locator.locate(200)).isEmpty();
+        assertThat(locator.locate(299)).isEmpty();
+        assertThat(locator.locate(99)).isEmpty();
+        assertThat(locator.locate(Long.MIN_VALUE)).isEmpty();
+        assertThat(locator.isNewer(250)).isFalse();
+        assertThat(locator.isNewer(99)).isFalse();
+        assertThat(locator.locate(100)).containsExactly("events-2025.05.01");
+        assertThat(locator.locate(399)).containsExactly("events-2025.05.02");
+    }
+
+    @Test
+    @DisplayName("Новее только идентификаторы больше максимума всех диапазонов, а не последнего по минимуму")
+    void isNewer() {
+        EventIdIndexLocator locator = new EventIdIndexLocator(List.of(
+                new EventIdRange("events-2025.05.01", 100, 500),
+                new EventIdRange("events-2025.05.02", 200, 300)));
+
+        assertThat(locator.isNewer(400)).isFalse();
+        assertThat(locator.isNewer(500)).isFalse();
+        assertThat(locator.isNewer(501)).isTrue();
+        assertThat(locator.locate(501)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Случайные пересекающиеся диапазоны совпадают с перебором")
+    void matchesBruteForce() {
+        Random random = new Random(11);
+        List<EventIdRange> ranges = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            long min = random.nextInt(100_000);
+            ranges.add(new EventIdRange("events-" + i, min, min + random.nextInt(5_000)));
+        }
+        EventIdIndexLocator locator = new EventIdIndexLocator(ranges);
+        long maxEventId = ranges.stream().mapToLong(EventIdRange::maxEventId).max().orElseThrow();
+
+        for (int i = 0; i < 2_000; i++) {
+            long eventId = random.nextInt(110_000) - 1_000;
+            List<String> expected = ranges.stream()
+                    .filter(range -> range.minEventId() <= eventId && eventId <= range.maxEventId())
+                    .map(EventIdRange::indexName)
+                    .toList();
+            assertThat(locator.locate(eventId)).as("id %d", eventId).containsExactlyInAnyOrderElementsOf(expected);
+            assertThat(locator.isNewer(eventId)).isEqualTo(eventId > maxEventId);
+        }
+    }
+}
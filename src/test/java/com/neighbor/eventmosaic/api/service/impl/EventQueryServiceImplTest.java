@@ -0,0 +1,134 @@
+package com.neighbor.eventmosaic.api.service.impl;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.neighbor.eventmosaic.api.config.ApiConfigProperties;
+import com.neighbor.eventmosaic.api.dto.ApiGeoPoint;
+import com.neighbor.eventmosaic.api.dto.EventCluster;
+import com.neighbor.eventmosaic.api.dto.MapPartial;
+import com.neighbor.eventmosaic.api.dto.MapPartialKey;
+import com.neighbor.eventmosaic.api.repository.ElasticEventRepository;
+import com.neighbor.eventmosaic.api.repository.ReactiveEventMapRepository;
+import com.neighbor.eventmosaic.api.service.GeolocationService;
+import com.neighbor.eventmosaic.api.service.HotEventStore;
+import com.neighbor.eventmosaic.api.service.IndexResolverService;
+import com.neighbor.eventmosaic.api.service.ParameterParsingService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Кластеры многодневного диапазона из суточных частей {@link EventQueryServiceImpl}
+ * при заглушке репозитория, которая, как geotile_grid, возвращает не больше size самых крупных ячеек.
+ */
+class EventQueryServiceImplTest {
+
+    private static final OffsetDateTime START = OffsetDateTime.parse("2025-05-01T00:00:00Z");
+    private static final OffsetDateTime END = OffsetDateTime.parse("2025-05-03T23:59:59.999Z");
+
+    /**
+     * Zoom 2 - precision 4, сетка 16 x 16 ячеек по 22.5 градуса долготы.
+     */
+    private static final int ZOOM = 2;
+    private static final int PRECISION = 4;
+
+    private final ElasticEventRepository eventRepository = mock(ElasticEventRepository.class);
+    private final IndexResolverService indexResolverService = mock(IndexResolverService.class);
+    private final ApiConfigProperties properties = new ApiConfigProperties();
+    private ExecutorService executor;
+    private EventQueryServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        properties.setMaxClustersPerRequest(10);
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        service = new EventQueryServiceImpl(eventRepository, mock(ReactiveEventMapRepository.class),
+                mock(ParameterParsingService.class), indexResolverService, mock(HotEventStore.class),
+                mock(GeolocationService.class), Caffeine.newBuilder().<MapPartialKey, MapPartial>build(),
+                executor, properties);
+        when(indexResolverService.resolveEventIndices(any(), any()))
+                .thenReturn(Optional.of(IndexCoordinates.of("gdelt-events-test")));
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.close();
+    }
+
+    @Test
+    @DisplayName("Части запрашивают все ячейки области, и ячейка, мелкая в каждом дне, побеждает в сумме")
+    void partialsAreNotCappedBeforeMerge() {
+        // Каждый день 10 своих ячеек по 10 событий и общая ячейка с 6 событиями: 11-я по размеру в каждом дне
+        List<List<EventCluster>> days = new ArrayList<>();
+        for (int day = 0; day < 3; day++) {
+            List<EventCluster> clusters = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                int cell = day * 10 + i;
+                double lat = cell < 16 ? 10 : -10;
+                double lon = -180 + 22.5 * (cell % 16 + 0.5);
+                clusters.add(new EventCluster(new ApiGeoPoint(lat, lon), 10, null, null));
+            }
+            clusters.add(new EventCluster(new ApiGeoPoint(60, 1), 6, null, null));
+            days.add(clusters);
+        }
+        when(eventRepository.findClustersForMap(any(), any(), any(), isNull(), eq(PRECISION), anyInt()))
+                .thenAnswer(invocation -> {
+                    OffsetDateTime start = invocation.getArgument(1);
+                    int size = invocation.getArgument(5);
+                    return days.get(start.getDayOfMonth() - 1).stream()
+                            .sorted(Comparator.comparingInt(EventCluster::count).reversed())
+                            .limit(size)
+                            .toList();
+                });
+
+        List<EventCluster> clusters = service.findClusters(START, END, null, ZOOM);
+
+        // Без области часть запрашивает все 16 x 16 ячеек, а не maxClustersPerRequest
+        verify(eventRepository, times(3)).findClustersForMap(any(), any(), any(), isNull(), eq(PRECISION), eq(256));
+        assertThat(clusters).hasSize(10);
+        assertThat(clusters.getFirst().count()).isEqualTo(18);
+        assertThat(clusters.getFirst().centroid().lat()).isEqualTo(60);
+    }
+
+    @Test
+    @DisplayName("Предел части ограничивает запрос части, когда ячеек области больше")
+    void partialSizeLimitedBySetting() {
+        properties.setMaxClustersPerPartial(100);
+        when(eventRepository.findClustersForMap(any(), any(), any(), isNull(), eq(PRECISION), anyInt()))
+                .thenReturn(List.of());
+
+        service.findClusters(START, END, null, ZOOM);
+
+        verify(eventRepository, times(3)).findClustersForMap(any(), any(), any(), isNull(), eq(PRECISION), eq(100));
+    }
+
+    @Test
+    @DisplayName("Однодневный диапазон запрашивается одним запросом с лимитом ответа")
+    void singleDayUsesResponseLimit() {
+        when(eventRepository.findClustersForMap(any(), any(), any(), isNull(), eq(PRECISION), anyInt()))
+                .thenReturn(List.of());
+
+        service.findClusters(START, START.plusHours(5), null, ZOOM);
+
+        verify(eventRepository).findClustersForMap(any(), any(), any(), isNull(), eq(PRECISION), eq(10));
+    }
+}
@@ -0,0 +1,237 @@
+package com.neighbor.eventmosaic.api.service.impl;
+
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import co.elastic.clients.elasticsearch._types.ErrorResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.neighbor.eventmosaic.api.config.ApiConfigProperties;
+import com.neighbor.eventmosaic.api.document.EventMapProjection;
+import com.neighbor.eventmosaic.api.dto.EventMapQueryParameters;
+import com.neighbor.eventmosaic.api.exception.InvalidApiParameterException;
+import com.neighbor.eventmosaic.api.repository.ElasticEventRepository;
+import com.neighbor.eventmosaic.api.repository.MapScanPage;
+import com.neighbor.eventmosaic.api.service.EventQueryService;
+import com.neighbor.eventmosaic.api.service.GeoJsonConversionService;
+import com.neighbor.eventmosaic.api.service.IndexResolverService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.ArgumentMatchers;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Курсор и постраничное чтение {@link EventScanServiceImpl} при заглушке репозитория.
+ */
+class EventScanServiceImplTest {
+
+    private static final OffsetDateTime START = OffsetDateTime.parse("2025-05-01T00:00:00Z");
+    private static final OffsetDateTime END = OffsetDateTime.parse("2025-05-02T00:00:00Z");
+    private static final double[] BBOX = {50, 30, 60, 40};
+    private static final int PAGE_SIZE = 3;
+
+    private final ElasticEventRepository eventRepository = mock(ElasticEventRepository.class);
+    private final EventQueryService eventQueryService = mock(EventQueryService.class);
+    private final IndexResolverService indexResolverService = mock(IndexResolverService.class);
+    private final GeoJsonConversionService geoJsonConversionService = mock(GeoJsonConversionService.class);
+    private final ApiConfigProperties properties = new ApiConfigProperties();
+    private EventScanServiceImpl service;
+
+    /**
+     * События и курсор продолжения последнего ответа.
+     */
+    private final List<Long> written = new ArrayList<>();
+    private String nextCursor;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        properties.setScanPageSize(PAGE_SIZE);
+        service = new EventScanServiceImpl(eventRepository, eventQueryService, indexResolverService,
+                geoJsonConversionService, new ObjectMapper(), properties);
+
+        when(eventQueryService.resolveDateRange(any())).thenReturn(new OffsetDateTime[]{START, END});
+        when(indexResolverService.resolveEventIndices(START, END))
+                .thenReturn(Optional.of(IndexCoordinates.of("gdelt-events-test")));
+        when(eventRepository.openPointInTime(any(), any())).thenReturn("pit-0");
+
+        doAnswer(invocation -> {
+            Iterator<EventMapProjection> events = invocation.getArgument(0);
+            Supplier<String> cursor = invocation.getArgument(1);
+            events.forEachRemaining(event -> written.add(event.globalEventId()));
+            nextCursor = cursor.get();
+            return null;
+        }).when(geoJsonConversionService)
+                .writeGeoJson(ArgumentMatchers.<Iterator<EventMapProjection>>any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Курсор с областью возвращает диапазон, область и позицию, целые значения сортировки - Integer")
+    void cursorRoundTripWithBbox() throws IOException {
+        when(eventQueryService.resolveBoundingBox(any())).thenReturn(BBOX);
+        // Значение сортировки из Elasticsearch - Long, после JSON небольшое число читается как Integer
+        stubPages(page("pit-1", 1, 2, 3));
+        properties.setScanMaxPagesPerRequest(1);
+
+        scan(null);
+
+        assertThat(written).containsExactly(1L, 2L, 3L);
+        assertThat(nextCursor).isNotNull();
+
+        stubPages(page("pit-2", 4));
+        scan(nextCursor);
+
+        verify(eventRepository).findMapScanPage(eq("pit-1"), any(), eq(START), eq(END), eq(BBOX),
+                eq(List.of(3)), eq(PAGE_SIZE));
+        assertThat(written).containsExactly(1L, 2L, 3L, 4L);
+    }
+
+    @Test
+    @DisplayName("Курсор без области сохраняет null, большие значения сортировки остаются Long")
+    void cursorRoundTripWithoutBbox() throws IOException {
+        long largeId = 5_000_000_000L;
+        stubPages(page("pit-1", largeId - 2, largeId - 1, largeId));
+        properties.setScanMaxPagesPerRequest(1);
+        scan(null);
+
+        stubPages(page("pit-2"));
+        scan(nextCursor);
+
+        verify(eventRepository).findMapScanPage(eq("pit-1"), any(), eq(START), eq(END), isNull(),
+                eq(List.of(largeId)), eq(PAGE_SIZE));
+    }
+
+    /**
+     * Не Base64, "not json", "{}" и {"pitId":"pit"} без позиции.
+     */
+    @ParameterizedTest
+    @ValueSource(strings = {"!!!", "bm90IGpzb24", "e30", "eyJwaXRJZCI6InBpdCJ9"})
+    @DisplayName("Поврежденный или неполный курсор - ошибка параметра, Elasticsearch не вызывается")
+    void malformedCursorRejected(String cursor) {
+        assertThatThrownBy(() -> scan(cursor)).isInstanceOf(InvalidApiParameterException.class);
+        verify(eventRepository, never()).findMapScanPage(any(), any(), any(), any(), any(), any(), anyInt());
+    }
+
+    @Test
+    @DisplayName("Курсор без searchAfter, собранный вручную, отклоняется")
+    void cursorWithoutPositionRejected() throws IOException {
+        String cursor = Base64.getUrlEncoder().withoutPadding().encodeToString(new ObjectMapper()
+                .writeValueAsBytes(Map.of("pitId", "pit", "start", 0, "end", 1, "searchAfter", List.of())));
+
+        assertThatThrownBy(() -> scan(cursor)).isInstanceOf(InvalidApiParameterException.class);
+    }
+
+    @Test
+    @DisplayName("Чтение останавливается на пределе страниц и возвращает курсор, point-in-time не закрывается")
+    void stopsAtPageBudget() throws IOException {
+        properties.setScanMaxPagesPerRequest(2);
+        stubPages(page("pit-1", 1, 2, 3), page("pit-2", 4, 5, 6), page("pit-3", 7, 8, 9));
+
+        scan(null);
+
+        assertThat(written).containsExactly(1L, 2L, 3L, 4L, 5L, 6L);
+        assertThat(nextCursor).isNotNull();
+        verify(eventRepository, times(2)).findMapScanPage(any(), any(), any(), any(), any(), any(), anyInt());
+        verify(eventRepository, never()).closePointInTime(any());
+    }
+
+    @Test
+    @DisplayName("Исчерпанный бюджет времени не начинает новую страницу после первой")
+    void stopsAtTimeBudget() throws IOException {
+        properties.setScanTimeBudgetMillis(0);
+        stubPages(page("pit-1", 1, 2, 3), page("pit-2", 4, 5, 6));
+
+        scan(null);
+
+        assertThat(written).containsExactly(1L, 2L, 3L);
+        assertThat(nextCursor).isNotNull();
+        verify(eventRepository, times(1)).findMapScanPage(any(), any(), any(), any(), any(), any(), anyInt());
+    }
+
+    @Test
+    @DisplayName("Неполная последняя страница завершает чтение и закрывает актуальный point-in-time")
+    void shortLastPageClosesPit() throws IOException {
+        stubPages(page("pit-1", 1, 2, 3), page("pit-2", 4));
+
+        scan(null);
+
+        assertThat(written).containsExactly(1L, 2L, 3L, 4L);
+        assertThat(nextCursor).isNull();
+        verify(eventRepository).findMapScanPage(eq("pit-1"), any(), any(), any(), any(), eq(List.of(3L)),
+                eq(PAGE_SIZE));
+        verify(eventRepository).closePointInTime("pit-2");
+    }
+
+    @Test
+    @DisplayName("Истекший point-in-time (404) - ошибка параметра, другие ошибки Elasticsearch пробрасываются")
+    void expiredPitRejected() throws IOException {
+        when(eventRepository.findMapScanPage(any(), any(), any(), any(), any(), any(), anyInt()))
+                .thenThrow(elasticsearchError(404));
+
+        assertThatThrownBy(() -> scan(null)).isInstanceOf(InvalidApiParameterException.class);
+
+        doThrow(elasticsearchError(500))
+                .when(eventRepository).findMapScanPage(any(), any(), any(), any(), any(), any(), anyInt());
+
+        assertThatThrownBy(() -> scan(null)).isInstanceOf(ElasticsearchException.class);
+    }
+
+    @Test
+    @DisplayName("Без подходящих индексов записывается пустая коллекция без point-in-time")
+    void noIndices() throws IOException {
+        when(indexResolverService.resolveEventIndices(START, END)).thenReturn(Optional.empty());
+
+        scan(null);
+
+        verify(geoJsonConversionService).writeGeoJson(eq(List.of()), any());
+        verify(eventRepository, never()).openPointInTime(any(), any());
+    }
+
+    private void scan(String cursor) throws IOException {
+        service.writeEventsScan(new EventMapQueryParameters(), cursor, new ByteArrayOutputStream());
+    }
+
+    private void stubPages(MapScanPage first, MapScanPage... rest) {
+        when(eventRepository.findMapScanPage(any(), any(), any(), any(), any(), any(), anyInt()))
+                .thenReturn(first, rest);
+    }
+
+    private static MapScanPage page(String pitId, long... ids) {
+        List<EventMapProjection> events = LongStream.of(ids)
+                .mapToObj(id -> new EventMapProjection(id, null, null, null, null, null, null, null, null, null, null))
+                .toList();
+        return new MapScanPage(events, pitId, ids.length > 0 ? List.of(ids[ids.length - 1]) : null);
+    }
+
+    private static ElasticsearchException elasticsearchError(int status) {
+        return new ElasticsearchException("search", ErrorResponse.of(response -> response
+                .status(status)
+                .error(error -> error.type("search_context_missing_exception")
+                        .reason("No search context found"))));
+    }
+}
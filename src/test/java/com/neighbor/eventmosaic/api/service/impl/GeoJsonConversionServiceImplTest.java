@@ -0,0 +1,104 @@
+package com.neighbor.eventmosaic.api.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.neighbor.eventmosaic.api.document.EventMapProjection;
+import com.neighbor.eventmosaic.api.dto.ApiGeoPoint;
+import com.neighbor.eventmosaic.api.dto.EventCluster;
+import com.neighbor.eventmosaic.api.mapper.GeoJsonPropertiesMapperImpl;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.elasticsearch.core.geo.GeoPoint;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Потоковая запись GeoJSON {@link GeoJsonConversionServiceImpl} побайтно совпадает
+ * с сериализацией GeoJsonFeatureCollection, которую она заменила.
+ */
+class GeoJsonConversionServiceImplTest {
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final GeoJsonConversionServiceImpl service = new GeoJsonConversionServiceImpl(
+            new GeolocationServiceImpl(), new GeoJsonPropertiesMapperImpl(), objectMapper);
+
+    @Test
+    @DisplayName("События записываются так же, как сериализуется convertToGeoJson")
+    void eventsMatchSerializedCollection() throws IOException {
+        List<EventMapProjection> events = List.of(
+                // Точное ActionGeo
+                event(1L, -2.123456789, new GeoPoint(55.7558, 37.6173), 4, null, null),
+                // Тон не задан
+                event(2L, null, new GeoPoint(-33.8688, 151.2093), 3, null, null),
+                // Нет координат - событие пропускается
+                event(3L, 1.0, null, null, null, null),
+                // ActionGeo на уровне страны, берется точное Actor1Geo
+                event(4L, 0.0, new GeoPoint(40.0, -100.0), 1, new GeoPoint(40.7128, -74.006), 4),
+                // Только ActionGeo на уровне страны - запасной вариант
+                event(5L, 7.5, new GeoPoint(-15.0, -180.0), 1, null, null));
+
+        byte[] expected = objectMapper.writeValueAsBytes(service.convertToGeoJson(events));
+
+        assertThat(written(output -> service.writeGeoJson(events, output))).isEqualTo(string(expected));
+        assertThat(written(output -> service.writeGeoJson(events.iterator(), () -> null, output)))
+                .isEqualTo(string(expected));
+    }
+
+    @Test
+    @DisplayName("Пустой список событий и кластеров записывается как пустая коллекция")
+    void emptyCollections() throws IOException {
+        assertThat(written(output -> service.writeGeoJson(List.of(), output)))
+                .isEqualTo(string(objectMapper.writeValueAsBytes(service.convertToGeoJson(List.of()))));
+        assertThat(written(output -> service.writeClustersGeoJson(List.of(), output)))
+                .isEqualTo(string(objectMapper.writeValueAsBytes(service.convertClustersToGeoJson(List.of()))));
+    }
+
+    @Test
+    @DisplayName("Кластеры записываются так же, как сериализуется convertClustersToGeoJson")
+    void clustersMatchSerializedCollection() throws IOException {
+        List<EventCluster> clusters = List.of(
+                new EventCluster(new ApiGeoPoint(48.8566, 2.3522), 42, -1.25, null),
+                // Тон не задан
+                new EventCluster(new ApiGeoPoint(-22.9068, -43.1729), 3, null, null),
+                // Одно событие с идентификатором записывается как событие
+                new EventCluster(new ApiGeoPoint(35.6762, 139.6503), 1, 2.5, 123456789L),
+                // Одно событие без идентификатора (например, из частей нескольких суток) - как кластер
+                new EventCluster(new ApiGeoPoint(1.3521, 103.8198), 1, null, null),
+                // Идентификатор у кластера из нескольких событий не записывается
+                new EventCluster(new ApiGeoPoint(0.0, 0.0), 2, 0.1, 987L));
+
+        byte[] expected = objectMapper.writeValueAsBytes(service.convertClustersToGeoJson(clusters));
+
+        assertThat(written(output -> service.writeClustersGeoJson(clusters, output))).isEqualTo(string(expected));
+    }
+
+    private static String written(Writer writer) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        writer.write(output);
+        return string(output.toByteArray());
+    }
+
+    private static String string(byte[] bytes) {
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static EventMapProjection event(Long id, Double avgTone,
+                                            GeoPoint actionLocation, Integer actionGeoType,
+                                            GeoPoint actor1Location, Integer actor1GeoType) {
+        return new EventMapProjection(id, avgTone, null, null,
+                actionLocation, actionGeoType, actor1Location, actor1GeoType, null, null, null);
+    }
+
+    /**
+     * Запись в поток, сравнение идет по строке для читаемого сообщения об ошибке.
+     */
+    @FunctionalInterface
+    private interface Writer {
+        void write(ByteArrayOutputStream output) throws IOException;
+    }
+}
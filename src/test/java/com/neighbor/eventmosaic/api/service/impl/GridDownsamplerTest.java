@@ -0,0 +1,134 @@
+package com.neighbor.eventmosaic.api.service.impl;
+
+import com.neighbor.eventmosaic.api.config.ApiConfigProperties;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Размер ячеек и отбор событий по рангам {@link GridDownsampler}.
+ * На precision 1 сетка делит мир на четыре четверти, на precision 2 - на 4 x 4 ячейки по 90 градусов долготы.
+ */
+class GridDownsamplerTest {
+
+    @Test
+    @DisplayName("Без области лимит делится на все ячейки мира")
+    void eventsPerCellWholeWorld() {
+        assertThat(GridDownsampler.eventsPerCell(null, 1, 100, 1)).isEqualTo(25);
+        assertThat(GridDownsampler.eventsPerCell(null, 2, 100, 1)).isEqualTo(7);
+    }
+
+    @Test
+    @DisplayName("Событий в ячейке не меньше минимума и не больше лимита")
+    void eventsPerCellBounds() {
+        assertThat(GridDownsampler.eventsPerCell(null, 10, 100, 3)).isEqualTo(3);
+        assertThat(GridDownsampler.eventsPerCell(null, 0, 100, 3)).isEqualTo(100);
+        assertThat(GridDownsampler.eventsPerCell(new double[]{10, 10, 11, 11}, 2, 100, 3)).isEqualTo(100);
+    }
+
+    @Test
+    @DisplayName("Область через антимеридиан покрывает столько же ячеек, сколько такая же область у нулевого меридиана")
+    void eventsPerCellAntimeridian() {
+        double[] acrossAntimeridian = {-10, 170, 10, -170};
+        double[] acrossPrimeMeridian = {-10, -10, 10, 10};
+
+        // 2 столбца (крайний восточный и крайний западный) x 2 строки
+        assertThat(GridDownsampler.eventsPerCell(acrossAntimeridian, 2, 40, 1)).isEqualTo(10);
+        assertThat(GridDownsampler.eventsPerCell(acrossPrimeMeridian, 2, 40, 1)).isEqualTo(10);
+    }
+
+    @Test
+    @DisplayName("Широта за пределом проекции попадает в крайнюю строку, а не за сетку")
+    void eventsPerCellPolarArea() {
+        double[] polar = {80, -180, 90, 180};
+
+        // Одна строка из 4 столбцов
+        assertThat(GridDownsampler.eventsPerCell(polar, 2, 40, 1)).isEqualTo(10);
+    }
+
+    @Test
+    @DisplayName("Сначала отбирается лучшее событие каждой ячейки, затем второе, внутри ранга - по важности")
+    void selectByRank() {
+        GridDownsampler grid = new GridDownsampler(1, 2);
+        grid.add(45, -90, 10, 1);
+        grid.add(45, -90, 1, 2);
+        grid.add(45, -90, 0, 3);
+        grid.add(45, 90, 5, 4);
+        grid.add(45, 90, 4, 5);
+        grid.add(-45, 90, 7, 6);
+
+        assertThat(grid.select(10)).containsExactly(1, 6, 4, 5, 2);
+    }
+
+    @Test
+    @DisplayName("Лимит обрезает результат после лучших событий всех ячеек")
+    void selectLimit() {
+        GridDownsampler grid = new GridDownsampler(1, 3);
+        grid.add(45, -90, 10, 1);
+        grid.add(45, -90, 9, 2);
+        grid.add(45, -90, 8, 3);
+        grid.add(-45, 90, 1, 4);
+
+        assertThat(grid.select(2)).containsExactly(1, 4);
+    }
+
+    @Test
+    @DisplayName("При равной важности в ячейке остается событие, добавленное раньше")
+    void selectTies() {
+        GridDownsampler grid = new GridDownsampler(1, 1);
+        grid.add(45, -90, 0, 1);
+        grid.add(45, -90, 0, 2);
+        grid.add(45, -90, 0, 3);
+
+        assertThat(grid.select(10)).containsExactly(1);
+    }
+
+    @Test
+    @DisplayName("Точки по разные стороны антимеридиана попадают в разные ячейки, долгота 180 - в крайнюю восточную")
+    void selectAntimeridianCells() {
+        GridDownsampler grid = new GridDownsampler(2, 1);
+        grid.add(10, 179.9, 3, 1);
+        grid.add(10, 180, 2, 2);
+        grid.add(10, -179.9, 1, 3);
+        grid.add(10, -180, 0, 4);
+
+        // 179.9 и 180 в одной ячейке, -179.9 и -180 в другой: в каждой остается более важное
+        assertThat(grid.select(10)).containsExactly(1, 3);
+    }
+
+    @Test
+    @DisplayName("Точки за пределом проекции попадают в крайние строки сетки")
+    void selectPolarCells() {
+        GridDownsampler grid = new GridDownsampler(1, 1);
+        grid.add(89, -90, 2, 1);
+        grid.add(40, -90, 1, 2);
+        grid.add(-89, -90, 0, 3);
+
+        assertThat(grid.select(10)).containsExactly(1, 3);
+    }
+
+    @Test
+    @DisplayName("После отбора ячейки пусты")
+    void selectDrainsCells() {
+        GridDownsampler grid = new GridDownsampler(1, 2);
+        grid.add(45, -90, 1, 1);
+        grid.select(10);
+
+        assertThat(grid.select(10)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Precision сетки - zoom + 2 в пределах максимума, без zoom или при выключенном прореживании -1")
+    void precision() {
+        ApiConfigProperties properties = new ApiConfigProperties();
+        properties.setMaxGeotilePrecision(10);
+
+        assertThat(GridDownsampler.precision(5, properties)).isEqualTo(7);
+        assertThat(GridDownsampler.precision(9, properties)).isEqualTo(10);
+        assertThat(GridDownsampler.precision(null, properties)).isEqualTo(-1);
+
+        properties.setSpatialDownsamplingEnabled(false);
+        assertThat(GridDownsampler.precision(5, properties)).isEqualTo(-1);
+    }
+}
@@ -0,0 +1,181 @@
+package com.neighbor.eventmosaic.api.service.impl;
+
+import com.neighbor.eventmosaic.api.config.ApiConfigProperties;
+import com.neighbor.eventmosaic.api.document.EventMapProjection;
+import com.neighbor.eventmosaic.api.dto.EventCluster;
+import com.neighbor.eventmosaic.api.dto.EventPointCursor;
+import com.neighbor.eventmosaic.api.repository.AddedMapPage;
+import com.neighbor.eventmosaic.api.repository.ElasticEventRepository;
+import com.neighbor.eventmosaic.api.service.IndexResolverService;
+import com.neighbor.eventmosaic.api.service.ParameterParsingService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.elasticsearch.core.geo.GeoPoint;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Ответы {@link HotEventStoreImpl} из колонок снимка при заглушке репозитория,
+ * которая отдает события окна одной страницей в порядке добавления.
+ */
+class HotEventStoreImplTest {
+
+    private static final OffsetDateTime WINDOW_START = OffsetDateTime.parse("2025-05-01T00:00:00Z");
+    private static final OffsetDateTime WINDOW_END = OffsetDateTime.parse("2025-05-02T00:00:00Z");
+    private static final GeoPoint MOSCOW = new GeoPoint(55.7558, 37.6173);
+    private static final GeoPoint MOSCOW_CENTER = new GeoPoint(55.7522, 37.6156);
+    private static final GeoPoint NEW_YORK = new GeoPoint(40.7128, -74.006);
+    private static final GeoPoint SYDNEY = new GeoPoint(-33.8688, 151.2093);
+
+    private final ElasticEventRepository eventRepository = mock(ElasticEventRepository.class);
+    private final IndexResolverService indexResolverService = mock(IndexResolverService.class);
+    private final ParameterParsingService parameterParsingService = mock(ParameterParsingService.class);
+    private final ApiConfigProperties properties = new ApiConfigProperties();
+    private HotEventStoreImpl store;
+
+    /**
+     * События, которые вернет следующая загрузка.
+     */
+    private final List<EventMapProjection> stored = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        properties.setHotStoreEnabled(true);
+        store = new HotEventStoreImpl(eventRepository, indexResolverService, parameterParsingService,
+                new GeolocationServiceImpl(), properties);
+
+        when(parameterParsingService.createDateRange((OffsetDateTime) null, null,
+                properties.getDefaultEventWindowHours()))
+                .thenReturn(new OffsetDateTime[]{WINDOW_START, WINDOW_END});
+        when(indexResolverService.resolveEventIndices(any(), any()))
+                .thenReturn(Optional.of(IndexCoordinates.of("gdelt-events-test")));
+        when(eventRepository.findMapPageAddedAfter(any(), any(), any(), any(), anyInt())).thenAnswer(invocation -> {
+            List<EventMapProjection> events = List.copyOf(stored);
+            long[] datesAdded = new long[events.size()];
+            Arrays.fill(datesAdded, System.currentTimeMillis());
+            List<Object> lastSortValues = events.isEmpty() ? null
+                    : List.of(datesAdded[0], events.get(events.size() - 1).globalEventId());
+            return new AddedMapPage(events, datesAdded, lastSortValues);
+        });
+    }
+
+    @Test
+    @DisplayName("Выключенное хранилище не загружается и не отвечает на запросы")
+    void disabledStoreAnswersNothing() {
+        properties.setHotStoreEnabled(false);
+        stored.add(event(1L, 1.0, MOSCOW, 4, null, WINDOW_START.plusHours(1)));
+
+        store.refresh();
+
+        assertThat(store.findEvents(WINDOW_START, WINDOW_END, null, null, 100)).isEmpty();
+        assertThat(store.findClusters(WINDOW_START, WINDOW_END, null, 3, 100)).isEmpty();
+        verify(eventRepository, never()).findMapPageAddedAfter(any(), any(), any(), any(), anyInt());
+    }
+
+    @Test
+    @DisplayName("События диапазона внутри окна читаются из колонок с координатами, выбранными при загрузке")
+    void eventsInsideWindowFromColumns() {
+        stored.add(event(1L, -2.5, MOSCOW, 4, null, WINDOW_START.plusHours(1)));
+        // ActionGeo на уровне страны, при загрузке выбирается точное Actor1Geo
+        stored.add(event(2L, null, new GeoPoint(40.0, -100.0), 1, NEW_YORK, WINDOW_START.plusHours(10)));
+        // Нет координат - событие в снимок не попадает
+        stored.add(event(3L, 1.0, null, null, null, WINDOW_START.plusHours(2)));
+        stored.add(event(4L, 3.0, SYDNEY, 4, null, WINDOW_START.plusHours(20)));
+        store.refresh();
+
+        Map<Long, double[]> events = read(store.findEvents(WINDOW_START, WINDOW_START.plusHours(12), null, null, 100));
+
+        assertThat(events).containsOnlyKeys(1L, 2L);
+        assertThat(events.get(1L)).containsExactly(MOSCOW.getLat(), MOSCOW.getLon(), -2.5);
+        assertThat(events.get(2L)).containsExactly(NEW_YORK.getLat(), NEW_YORK.getLon(), Double.NaN);
+        assertThat(read(store.findEvents(WINDOW_START, WINDOW_END, new double[]{50, 30, 60, 40}, null, 100)))
+                .containsOnlyKeys(1L);
+    }
+
+    @Test
+    @DisplayName("Диапазон за пределами окна снимка остается Elasticsearch")
+    void rangeOutsideWindowNotAnswered() {
+        stored.add(event(1L, 1.0, MOSCOW, 4, null, WINDOW_START.plusHours(1)));
+        store.refresh();
+
+        assertThat(store.findEvents(WINDOW_START.minusHours(1), WINDOW_END, null, null, 100)).isEmpty();
+        assertThat(store.findClusters(WINDOW_START, WINDOW_END.plusDays(1), null, 3, 100)).isEmpty();
+        // Окно снимка продлено на интервал выравнивания
+        OffsetDateTime alignedEnd = WINDOW_END.plusMinutes(properties.getDefaultWindowAlignmentMinutes());
+        assertThat(store.findEvents(WINDOW_START, alignedEnd, null, null, 100)).isPresent();
+    }
+
+    @Test
+    @DisplayName("Кластеры диапазона внутри окна группируются по ячейкам geotile от крупных к мелким")
+    void clustersByGeoTileCells() {
+        stored.add(event(1L, 1.0, MOSCOW, 4, null, WINDOW_START.plusHours(1)));
+        stored.add(event(2L, null, MOSCOW_CENTER, 4, null, WINDOW_START.plusHours(2)));
+        stored.add(event(3L, 3.0, MOSCOW, 4, null, WINDOW_START.plusHours(3)));
+        stored.add(event(4L, -1.0, SYDNEY, 4, null, WINDOW_START.plusHours(4)));
+        // Вне диапазона запроса
+        stored.add(event(5L, 5.0, SYDNEY, 4, null, WINDOW_START.plusHours(20)));
+        store.refresh();
+
+        List<EventCluster> clusters =
+                store.findClusters(WINDOW_START, WINDOW_START.plusHours(12), null, 6, 100).orElseThrow();
+
+        assertThat(clusters).extracting(EventCluster::count).containsExactly(3, 1);
+        // Тон считается только по событиям, у которых он задан
+        assertThat(clusters.get(0).avgTone()).isEqualTo(2.0);
+        assertThat(clusters.get(0).centroid().lat())
+                .isCloseTo((2 * MOSCOW.getLat() + MOSCOW_CENTER.getLat()) / 3, offset(1e-9));
+        assertThat(clusters.get(1).eventId()).isEqualTo(4L);
+        assertThat(clusters.get(1).avgTone()).isEqualTo(-1.0);
+        assertThat(store.findClusters(WINDOW_START, WINDOW_START.plusHours(12), null, 6, 1).orElseThrow())
+                .extracting(EventCluster::count).containsExactly(3);
+    }
+
+    @Test
+    @DisplayName("Если событий окна больше hotStoreMaxEvents, хранилище отключается до следующей загрузки")
+    void tooManyEventsDisableStore() {
+        properties.setHotStoreMaxEvents(1);
+        stored.add(event(1L, 1.0, MOSCOW, 4, null, WINDOW_START.plusHours(1)));
+        stored.add(event(2L, 1.0, SYDNEY, 4, null, WINDOW_START.plusHours(2)));
+
+        store.refresh();
+
+        assertThat(store.findEvents(WINDOW_START, WINDOW_END, null, null, 100)).isEmpty();
+        assertThat(store.findClusters(WINDOW_START, WINDOW_START.plusHours(1), null, 3, 100)).isEmpty();
+    }
+
+    /**
+     * Значения [lat, lon, avgTone] событий курсора по идентификатору.
+     */
+    private static Map<Long, double[]> read(Optional<EventPointCursor> cursor) {
+        assertThat(cursor).isPresent();
+        Map<Long, double[]> events = new TreeMap<>();
+        EventPointCursor points = cursor.get();
+        while (points.next()) {
+            events.put(points.eventId(), new double[]{points.lat(), points.lon(), points.avgTone()});
+        }
+        return events;
+    }
+
+    private static EventMapProjection event(Long id, Double avgTone, GeoPoint actionLocation, Integer actionGeoType,
+                                            GeoPoint actor1Location, OffsetDateTime eventDate) {
+        return new EventMapProjection(id, avgTone, null, null, actionLocation, actionGeoType,
+                actor1Location, actor1Location != null ? 4 : null, null, null, eventDate);
+    }
+}
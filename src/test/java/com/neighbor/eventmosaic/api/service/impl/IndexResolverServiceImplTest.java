@@ -0,0 +1,176 @@
+package com.neighbor.eventmosaic.api.service.impl;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch.indices.ElasticsearchIndicesClient;
+import co.elastic.clients.elasticsearch.indices.ResolveIndexRequest;
+import co.elastic.clients.elasticsearch.indices.ResolveIndexResponse;
+import co.elastic.clients.elasticsearch.indices.resolve_index.ResolveIndexItem;
+import co.elastic.clients.util.ObjectBuilder;
+import com.neighbor.eventmosaic.api.repository.ElasticEventRepository;
+import com.neighbor.eventmosaic.api.repository.EventIdRange;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Группировка идентификаторов пакета событий по индексам {@link IndexResolverServiceImpl#resolveEventIndicesForIds}
+ * и выбор ежедневных индексов упоминаний окна {@link IndexResolverServiceImpl#resolveMentionIndices}.
+ */
+class IndexResolverServiceImplTest {
+
+    private static final List<EventIdRange> RANGES = List.of(
+            new EventIdRange("gdelt-events-2025-05-01", 100, 199),
+            new EventIdRange("gdelt-events-2025-05-02", 200, 299),
+            // Поздно загруженные события 2 мая попадают в диапазон 3 мая
+            new EventIdRange("gdelt-events-2025-05-03", 280, 399));
+
+    private final ElasticEventRepository eventRepository = mock(ElasticEventRepository.class);
+    private final IndexResolverServiceImpl service =
+            new IndexResolverServiceImpl(mock(ElasticsearchClient.class), eventRepository);
+
+    @Test
+    @DisplayName("Пока диапазоны не загружены, все идентификаторы ищутся по шаблону")
+    void patternWithoutRanges() {
+        assertThat(names(service.resolveEventIndicesForIds(List.of(150L, 250L))))
+                .containsExactly(Map.entry(List.of("gdelt-events-*"), List.of(150L, 250L)));
+    }
+
+    @Test
+    @DisplayName("Найденные по диапазонам ищутся в своих индексах, шаблон - только для более новых")
+    void locatedAndNewerIds() {
+        loadRanges(RANGES);
+
+        Map<List<String>, List<Long>> groups = names(service.resolveEventIndicesForIds(
+                List.of(150L, 290L, 1000L, 50L, 120L, 1001L)));
+
+        // 50 ниже всех диапазонов и не запрашивается
+        assertThat(groups).containsExactly(
+                Map.entry(List.of("gdelt-events-2025-05-01", "gdelt-events-2025-05-02", "gdelt-events-2025-05-03"),
+                        List.of(150L, 290L, 120L)),
+                Map.entry(List.of("gdelt-events-*"), List.of(1000L, 1001L)));
+        assertThat(names(service.resolveEventIndicesForIds(List.of(110L, 120L))))
+                .containsExactly(Map.entry(List.of("gdelt-events-2025-05-01"), List.of(110L, 120L)));
+    }
+
+    @Test
+    @DisplayName("Идентификаторы вне всех диапазонов не дают ни одной группы")
+    void noGroupsOutsideRanges() {
+        loadRanges(List.of(RANGES.get(0), RANGES.get(2)));
+
+        assertThat(service.resolveEventIndicesForIds(List.of(50L, 250L))).isEmpty();
+        assertThat(service.resolveEventIndicesForIds(List.of())).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Если индексов слишком много для строки запроса, найденные идентификаторы ищутся по шаблону")
+    void tooManyIndicesUsePattern() {
+        List<EventIdRange> ranges = new ArrayList<>();
+        for (int day = 0; day < 150; day++) {
+            ranges.add(new EventIdRange("gdelt-events-day-" + day, day * 100L, day * 100L + 99));
+        }
+        loadRanges(ranges);
+        List<Long> ids = LongStream.range(0, 150).map(day -> day * 100 + 50).boxed().toList();
+
+        assertThat(names(service.resolveEventIndicesForIds(ids)))
+                .containsExactly(Map.entry(List.of("gdelt-events-*"), ids));
+    }
+
+    @Test
+    @DisplayName("Пока кеш индексов упоминаний не загружен, поиск идет по шаблону")
+    void mentionPatternWithoutCache() {
+        OffsetDateTime start = OffsetDateTime.parse("2025-05-01T12:00:00Z");
+
+        assertThat(names(service.resolveMentionIndices(start, start.plusDays(2))))
+                .containsExactly("gdelt-mentions-*");
+    }
+
+    @Test
+    @DisplayName("Окно упоминаний ограничивается существующими ежедневными индексами своих суток")
+    void mentionIndicesOfWindow() throws IOException {
+        IndexResolverServiceImpl resolver = resolverWithIndices(List.of(
+                "gdelt-mentions-2025-04-30", "gdelt-mentions-2025-05-01", "gdelt-mentions-2025-05-03",
+                "gdelt-mentions-2025-05-04", "gdelt-events-2025-05-02"));
+        // Окно в часовом поясе +03:00 начинается 1 мая по UTC
+        OffsetDateTime start = OffsetDateTime.parse("2025-05-02T01:00:00+03:00");
+
+        // Индекса упоминаний за 2 мая нет, индекс событий того же дня не подходит
+        assertThat(names(resolver.resolveMentionIndices(start, start.plusDays(2))))
+                .containsExactly("gdelt-mentions-2025-05-01", "gdelt-mentions-2025-05-03");
+        assertThat(resolver.resolveMentionIndices(
+                OffsetDateTime.parse("2025-04-20T00:00:00Z"), OffsetDateTime.parse("2025-04-22T00:00:00Z")))
+                .isEmpty();
+    }
+
+    @Test
+    @DisplayName("Индексы упоминаний с текущих суток включаются шаблоном, даже если их еще нет в кеше")
+    void mentionIndicesFromTodayByPattern() throws IOException {
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        IndexResolverServiceImpl resolver = resolverWithIndices(List.of("gdelt-mentions-" + today.minusDays(1)));
+        OffsetDateTime start = today.minusDays(1).atStartOfDay().atOffset(ZoneOffset.UTC);
+
+        assertThat(names(resolver.resolveMentionIndices(start, start.plusDays(2))))
+                .containsExactly("gdelt-mentions-" + today.minusDays(1), "gdelt-mentions-" + today + "*",
+                        "gdelt-mentions-" + today.plusDays(1) + "*");
+    }
+
+    private void loadRanges(List<EventIdRange> ranges) {
+        when(eventRepository.findEventIdRanges()).thenReturn(ranges);
+        // Заглушка клиента не отвечает на resolve index, но диапазоны обновляются независимо от кеша индексов
+        service.refreshIndexCache();
+    }
+
+    /**
+     * Сервис, которому Elasticsearch отвечает на resolve index именами из списка, подходящими под шаблон запроса.
+     */
+    @SuppressWarnings("unchecked")
+    private IndexResolverServiceImpl resolverWithIndices(List<String> indexNames) throws IOException {
+        ElasticsearchIndicesClient indicesClient = mock(ElasticsearchIndicesClient.class);
+        when(indicesClient.resolveIndex(any(Function.class))).thenAnswer(invocation -> {
+            Function<ResolveIndexRequest.Builder, ObjectBuilder<ResolveIndexRequest>> request =
+                    invocation.getArgument(0);
+            String pattern = request.apply(new ResolveIndexRequest.Builder()).build().name().get(0);
+            String prefix = pattern.substring(0, pattern.length() - 1);
+            return ResolveIndexResponse.of(response -> response
+                    .indices(indexNames.stream()
+                            .filter(name -> name.startsWith(prefix))
+                            .map(name -> ResolveIndexItem.of(item -> item.name(name).attributes("open")))
+                            .toList())
+                    .aliases(List.of())
+                    .dataStreams(List.of()));
+        });
+        ElasticsearchClient client = mock(ElasticsearchClient.class);
+        when(client.indices()).thenReturn(indicesClient);
+        when(eventRepository.findEventIdRanges()).thenReturn(List.of());
+
+        IndexResolverServiceImpl resolver = new IndexResolverServiceImpl(client, eventRepository);
+        resolver.refreshIndexCache();
+        return resolver;
+    }
+
+    private static List<String> names(Optional<IndexCoordinates> indices) {
+        return indices.map(coordinates -> List.of(coordinates.getIndexNames())).orElseGet(List::of);
+    }
+
+    private static Map<List<String>, List<Long>> names(Map<IndexCoordinates, List<Long>> idsByIndices) {
+        Map<List<String>, List<Long>> names = new LinkedHashMap<>();
+        idsByIndices.forEach((indices, ids) -> names.put(List.of(indices.getIndexNames()), ids));
+        return names;
+    }
+}
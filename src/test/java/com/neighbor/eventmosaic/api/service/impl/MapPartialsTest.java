@@ -0,0 +1,170 @@
+package com.neighbor.eventmosaic.api.service.impl;
+
+import com.neighbor.eventmosaic.api.document.EventMapProjection;
+import com.neighbor.eventmosaic.api.dto.ApiGeoPoint;
+import com.neighbor.eventmosaic.api.dto.EventCluster;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Разбиение диапазона на сутки и слияние кластеров и событий суточных частей {@link MapPartials}.
+ */
+class MapPartialsTest {
+
+    /**
+     * Precision 2: ячейки по 90 градусов долготы, точки с разными знаками долготы лежат в разных ячейках.
+     */
+    private static final int PRECISION = 2;
+
+    @Test
+    @DisplayName("Диапазон делится по границам суток UTC, границы частей включительно")
+    void splitByDays() {
+        OffsetDateTime start = OffsetDateTime.parse("2025-05-01T22:00:00+03:00");
+        OffsetDateTime end = OffsetDateTime.parse("2025-05-03T10:00:00Z");
+
+        List<OffsetDateTime[]> parts = MapPartials.splitByDays(start, end);
+
+        assertThat(parts).hasSize(3);
+        assertThat(parts.get(0)).containsExactly(
+                OffsetDateTime.parse("2025-05-01T19:00:00Z"), OffsetDateTime.parse("2025-05-01T23:59:59.999Z"));
+        assertThat(parts.get(1)).containsExactly(
+                OffsetDateTime.parse("2025-05-02T00:00:00Z"), OffsetDateTime.parse("2025-05-02T23:59:59.999Z"));
+        assertThat(parts.get(2)).containsExactly(
+                OffsetDateTime.parse("2025-05-03T00:00:00Z"), OffsetDateTime.parse("2025-05-03T10:00:00Z"));
+        assertThat(MapPartials.countDays(start, end)).isEqualTo(3);
+        assertThat(MapPartials.countDays(end, start)).isZero();
+    }
+
+    @Test
+    @DisplayName("Ячейка, мелкая в каждой части, но крупнейшая за диапазон, остается после обрезки слияния")
+    void smallDailyCellLargestOverRange() {
+        // Каждый день своя крупная ячейка, а ячейка A на втором месте каждый день
+        List<List<EventCluster>> partials = List.of(
+                List.of(cluster(10, 10, 10, null, null), cluster(10, -100, 6, null, null)),
+                List.of(cluster(-10, 100, 10, null, null), cluster(10, -100, 6, null, null)),
+                List.of(cluster(-10, -10, 10, null, null), cluster(10, -100, 6, null, null)));
+
+        List<EventCluster> merged = MapPartials.mergeClusters(partials, PRECISION, 1);
+
+        assertThat(merged).hasSize(1);
+        assertThat(merged.getFirst().count()).isEqualTo(18);
+        assertThat(merged.getFirst().centroid().lon()).isEqualTo(-100);
+    }
+
+    @Test
+    @DisplayName("Количества складываются, центроид и тон усредняются с весом по количеству")
+    void weightedSums() {
+        List<List<EventCluster>> partials = List.of(
+                List.of(cluster(10, 10, 1, 4.0, 101L)),
+                List.of(cluster(20, 40, 3, -4.0, null)),
+                List.of(cluster(30, 70, 4, null, null)));
+
+        List<EventCluster> merged = MapPartials.mergeClusters(partials, PRECISION, 10);
+
+        assertThat(merged).hasSize(1);
+        EventCluster cluster = merged.getFirst();
+        assertThat(cluster.count()).isEqualTo(8);
+        assertThat(cluster.centroid().lat()).isCloseTo((10 + 60 + 120) / 8.0, within(1e-9));
+        assertThat(cluster.centroid().lon()).isCloseTo((10 + 120 + 280) / 8.0, within(1e-9));
+        // Кластер без тона не участвует в среднем тоне
+        assertThat(cluster.avgTone()).isCloseTo((4.0 - 12.0) / 4, within(1e-9));
+    }
+
+    @Test
+    @DisplayName("Тон ячейки без тона у всех частей - null")
+    void missingTone() {
+        List<EventCluster> merged = MapPartials.mergeClusters(
+                List.of(List.of(cluster(10, 10, 2, null, null)), List.of(cluster(11, 11, 3, null, null))),
+                PRECISION, 10);
+
+        assertThat(merged.getFirst().avgTone()).isNull();
+    }
+
+    @Test
+    @DisplayName("Идентификатор события берется из самого крупного кластера ячейки")
+    void eventIdFromLargestCluster() {
+        List<List<EventCluster>> partials = List.of(
+                List.of(cluster(10, 10, 1, null, 1L)),
+                List.of(cluster(11, 11, 5, null, 5L)),
+                List.of(cluster(12, 12, 2, null, 2L)));
+
+        assertThat(MapPartials.mergeClusters(partials, PRECISION, 10).getFirst().eventId()).isEqualTo(5L);
+    }
+
+    @Test
+    @DisplayName("Результат слияния упорядочен по убыванию количества и обрезан до лимита")
+    void mergedOrderAndLimit() {
+        List<List<EventCluster>> partials = List.of(
+                List.of(cluster(10, 10, 3, null, null), cluster(10, -100, 7, null, null)),
+                List.of(cluster(-10, 100, 5, null, null), cluster(-10, -10, 1, null, null)));
+
+        List<EventCluster> merged = MapPartials.mergeClusters(partials, PRECISION, 3);
+
+        assertThat(merged).extracting(EventCluster::count).containsExactly(7, 5, 3);
+    }
+
+    @Test
+    @DisplayName("Ранжированное слияние совпадает с полной сортировкой, лимит применяется после слияния")
+    void rankedMergeMatchesFullSort() {
+        Random random = new Random(17);
+        List<List<EventMapProjection>> partials = new ArrayList<>();
+        long nextId = 0;
+        for (int day = 0; day < 5; day++) {
+            List<EventMapProjection> events = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                events.add(event(nextId++, random.nextInt(100), random.nextInt(100)));
+            }
+            // Части приходят из Elasticsearch уже упорядоченными по важности
+            events.sort(Comparator.comparingLong(EventMapProjection::importance).reversed());
+            partials.add(events);
+        }
+
+        List<EventMapProjection> expected = partials.stream()
+                .flatMap(List::stream)
+                .sorted(Comparator.comparingLong(EventMapProjection::importance).reversed())
+                .limit(30)
+                .toList();
+
+        List<EventMapProjection> merged = MapPartials.mergeEvents(partials, 30, true);
+
+        assertThat(merged).extracting(EventMapProjection::importance)
+                .containsExactlyElementsOf(expected.stream().map(EventMapProjection::importance).toList());
+        // Лучшие события одного дня не вытесняются обрезкой каждой части до лимита
+        assertThat(MapPartials.mergeEvents(List.of(
+                List.of(event(1, 9, 0), event(2, 8, 0), event(3, 7, 0)),
+                List.of(event(4, 1, 0))), 3, true))
+                .extracting(EventMapProjection::globalEventId)
+                .containsExactly(1L, 2L, 3L);
+    }
+
+    @Test
+    @DisplayName("Без ранжирования части берутся по очереди, поэтому каждый день представлен поровну")
+    void unrankedMergeRoundRobin() {
+        List<List<EventMapProjection>> partials = List.of(
+                List.of(event(1, 0, 0), event(2, 0, 0), event(3, 0, 0)),
+                List.of(event(4, 0, 0)),
+                List.of(event(5, 0, 0), event(6, 0, 0)));
+
+        assertThat(MapPartials.mergeEvents(partials, 4, false))
+                .extracting(EventMapProjection::globalEventId)
+                .containsExactly(1L, 4L, 5L, 2L);
+        assertThat(MapPartials.mergeEvents(partials, 100, false)).hasSize(6);
+    }
+
+    private static EventCluster cluster(double lat, double lon, int count, Double avgTone, Long eventId) {
+        return new EventCluster(new ApiGeoPoint(lat, lon), count, avgTone, eventId);
+    }
+
+    private static EventMapProjection event(long id, int mentions, int articles) {
+        return new EventMapProjection(id, null, mentions, articles, null, null, null, null, null, null, null);
+    }
+}
@@ -0,0 +1,183 @@
+package com.neighbor.eventmosaic.api.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.neighbor.eventmosaic.api.config.ApiConfigProperties;
+import com.neighbor.eventmosaic.api.document.MentionDocument;
+import com.neighbor.eventmosaic.api.dto.details.MentionSummary;
+import com.neighbor.eventmosaic.api.dto.details.MentionsPage;
+import com.neighbor.eventmosaic.api.exception.InvalidApiParameterException;
+import com.neighbor.eventmosaic.api.mapper.MentionMapperImpl;
+import com.neighbor.eventmosaic.api.repository.ElasticMentionRepository;
+import com.neighbor.eventmosaic.api.repository.MentionSearchScope;
+import com.neighbor.eventmosaic.api.service.IndexResolverService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.elasticsearch.core.SearchHit;
+import org.springframework.data.elasticsearch.core.SearchHits;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Страницы и курсоры упоминаний {@link MentionServiceImpl} при заглушке репозитория.
+ */
+class MentionServiceImplTest {
+
+    private static final long EVENT_ID = 42L;
+    private static final OffsetDateTime EVENT_DATE = OffsetDateTime.parse("2025-05-01T12:00:00Z");
+    private static final IndexCoordinates INDICES = IndexCoordinates.of("gdelt-mentions-test");
+
+    private final ElasticMentionRepository mentionRepository = mock(ElasticMentionRepository.class);
+    private final IndexResolverService indexResolverService = mock(IndexResolverService.class);
+    private final ApiConfigProperties properties = new ApiConfigProperties();
+    private MentionServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        service = new MentionServiceImpl(mentionRepository, indexResolverService, new MentionMapperImpl(),
+                new ObjectMapper(), properties);
+        when(indexResolverService.resolveMentionIndices(any(), any())).thenReturn(Optional.of(INDICES));
+    }
+
+    @Test
+    @DisplayName("Полная страница выдает курсор, и следующая страница читается после последнего упоминания")
+    void fullPageGivesCursor() {
+        SearchHits<MentionDocument> firstHits =
+                hits(10, List.of(1_746_100_000_000L, "a"), List.of(1_746_090_000_000L, "b"));
+        when(mentionRepository.findMentionPage(eq(EVENT_ID), any(), isNull(), eq(2))).thenReturn(firstHits);
+
+        MentionsPage first = service.getFirstPage(EVENT_ID, EVENT_DATE, 2);
+
+        assertThat(first.getMentions()).extracting(MentionSummary::getUrl)
+                .containsExactly("mention-0", "mention-1");
+        assertThat(first.getTotal()).isEqualTo(10);
+        assertThat(first.getNextCursor()).isNotNull();
+
+        SearchHits<MentionDocument> nextHits = hits(10, List.of(1_746_080_000_000L, "c"));
+        when(mentionRepository.findMentionPage(eq(EVENT_ID), any(), any(), eq(2))).thenReturn(nextHits);
+        ArgumentCaptor<MentionSearchScope> scope = ArgumentCaptor.forClass(MentionSearchScope.class);
+
+        MentionsPage next = service.getNextPage(EVENT_ID, first.getNextCursor(), 2);
+
+        // Окно поиска берется из курсора, а не пересчитывается
+        verify(mentionRepository).findMentionPage(eq(EVENT_ID), scope.capture(),
+                eq(List.of(1_746_090_000_000L, "b")), eq(2));
+        assertThat(scope.getValue()).isEqualTo(
+                new MentionSearchScope(INDICES, EVENT_DATE, EVENT_DATE.plusDays(2), null));
+        assertThat(next.getMentions()).hasSize(1);
+    }
+
+    @Test
+    @DisplayName("Неполная страница не выдает курсор")
+    void shortPageGivesNoCursor() {
+        SearchHits<MentionDocument> hits = hits(2, List.of(2L, "a"), List.of(1L, "b"));
+        when(mentionRepository.findMentionPage(eq(EVENT_ID), any(), isNull(), eq(3))).thenReturn(hits);
+
+        MentionsPage page = service.getFirstPage(EVENT_ID, EVENT_DATE, 3);
+
+        assertThat(page.getMentions()).hasSize(2);
+        assertThat(page.getNextCursor()).isNull();
+    }
+
+    @Test
+    @DisplayName("Курсор другого события отклоняется без запроса к Elasticsearch")
+    void cursorForAnotherEventRejected() {
+        SearchHits<MentionDocument> hits = hits(5, List.of(1L, "a"));
+        when(mentionRepository.findMentionPage(eq(EVENT_ID), any(), isNull(), eq(1))).thenReturn(hits);
+        String cursor = service.getFirstPage(EVENT_ID, EVENT_DATE, 1).getNextCursor();
+
+        assertThatThrownBy(() -> service.getNextPage(EVENT_ID + 1, cursor, 1))
+                .isInstanceOf(InvalidApiParameterException.class);
+        verify(mentionRepository, times(1)).findMentionPage(any(), any(), any(), anyInt());
+    }
+
+    /**
+     * Не Base64, "not json", "{}" и {"eventId":42} без позиции.
+     */
+    @ParameterizedTest
+    @ValueSource(strings = {"%%%", "bm90IGpzb24", "e30", "eyJldmVudElkIjo0Mn0"})
+    @DisplayName("Поврежденный или неполный курсор - ошибка параметра")
+    void garbageCursorRejected(String cursor) {
+        assertThatThrownBy(() -> service.getNextPage(EVENT_ID, cursor, null))
+                .isInstanceOf(InvalidApiParameterException.class);
+        verify(mentionRepository, never()).findMentionPage(any(), any(), any(), anyInt());
+    }
+
+    @Test
+    @DisplayName("Размер страницы вне допустимого диапазона - ошибка параметра")
+    void limitOutOfRangeRejected() {
+        assertThatThrownBy(() -> service.getFirstPage(EVENT_ID, EVENT_DATE, 0))
+                .isInstanceOf(InvalidApiParameterException.class);
+        assertThatThrownBy(() -> service.getFirstPage(EVENT_ID, EVENT_DATE, properties.getMaxMentionsPageSize() + 1))
+                .isInstanceOf(InvalidApiParameterException.class);
+    }
+
+    @Test
+    @DisplayName("Без индексов упоминаний за окно возвращается пустая страница без запроса")
+    void noIndicesGiveEmptyPage() {
+        when(indexResolverService.resolveMentionIndices(any(), any())).thenReturn(Optional.empty());
+
+        MentionsPage page = service.getFirstPage(EVENT_ID, EVENT_DATE, null);
+
+        assertThat(page.getMentions()).isEmpty();
+        assertThat(page.getTotal()).isZero();
+        assertThat(page.getNextCursor()).isNull();
+        verify(mentionRepository, never()).findMentionPage(any(), any(), any(), anyInt());
+    }
+
+    @Test
+    @DisplayName("При маршрутизации по событию поиск идет с routing идентификатора события")
+    void routingByEventId() {
+        properties.setMentionRoutingByEventId(true);
+        SearchHits<MentionDocument> hits = hits(0);
+        when(mentionRepository.findMentionPage(eq(EVENT_ID), any(), isNull(), anyInt())).thenReturn(hits);
+
+        service.getFirstPage(EVENT_ID, EVENT_DATE, null);
+
+        verify(mentionRepository).findMentionPage(EVENT_ID,
+                new MentionSearchScope(INDICES, EVENT_DATE, EVENT_DATE.plusDays(2), "42"), null,
+                properties.getDefaultMentionsPageSize());
+    }
+
+    /**
+     * Результат поиска с упоминаниями mention-0, mention-1, ... и их значениями сортировки.
+     */
+    @SafeVarargs
+    @SuppressWarnings("unchecked")
+    private static SearchHits<MentionDocument> hits(long total, List<Object>... sortValues) {
+        List<SearchHit<MentionDocument>> searchHits = new ArrayList<>();
+        for (int i = 0; i < sortValues.length; i++) {
+            MentionDocument document = new MentionDocument();
+            document.setGlobalEventId(EVENT_ID);
+            document.setMentionIdentifier("mention-" + i);
+            SearchHit<MentionDocument> hit = mock(SearchHit.class);
+            when(hit.getContent()).thenReturn(document);
+            when(hit.getSortValues()).thenReturn(sortValues[i]);
+            searchHits.add(hit);
+        }
+        SearchHits<MentionDocument> hits = mock(SearchHits.class);
+        when(hits.getSearchHits()).thenReturn(searchHits);
+        when(hits.getSearchHit(anyInt())).thenAnswer(invocation -> searchHits.get(invocation.getArgument(0)));
+        when(hits.getTotalHits()).thenReturn(total);
+        return hits;
+    }
+}
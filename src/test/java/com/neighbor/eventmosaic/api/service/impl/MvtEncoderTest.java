@@ -0,0 +1,339 @@
+package com.neighbor.eventmosaic.api.service.impl;
+
+import com.neighbor.eventmosaic.api.dto.TileCoordinates;
+import com.neighbor.eventmosaic.api.exception.InvalidApiParameterException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Тайлы {@link MvtEncoder} разбираются минимальным читателем protobuf по vector_tile.proto
+ * и сверяются с добавленными объектами.
+ */
+class MvtEncoderTest {
+
+    private static final int EXTENT = 4096;
+
+    /**
+     * MoveTo с одной точкой: команда 1, количество 1.
+     */
+    private static final int MOVE_TO_ONE = 9;
+
+    @Test
+    @DisplayName("Тайл без объектов пуст, пустые слои не записываются")
+    void emptyTile() {
+        MvtEncoder encoder = new MvtEncoder(EXTENT);
+        encoder.layer("events");
+
+        assertThat(encoder.encode()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Слой событий: идентификатор, общие словари ключей и значений, геометрия точки")
+    void eventsLayer() {
+        MvtEncoder encoder = new MvtEncoder(EXTENT);
+        MvtEncoder.Layer layer = encoder.layer("events");
+        layer.addPoint(1234567890123L, 0.25, 0.5, properties("eventId", 1234567890123L, "avgTone", 2.5));
+        layer.addPoint(7L, 0.75, 0.125, properties("eventId", 7L, "avgTone", 2.5));
+
+        List<DecodedLayer> layers = decodeTile(encoder.encode());
+
+        assertThat(layers).hasSize(1);
+        DecodedLayer events = layers.getFirst();
+        assertThat(events.version).isEqualTo(2);
+        assertThat(events.name).isEqualTo("events");
+        assertThat(events.extent).isEqualTo(EXTENT);
+        assertThat(events.keys).containsExactly("eventId", "avgTone");
+        assertThat(events.values).containsExactly(1234567890123L, 2.5, 7L);
+
+        DecodedFeature first = events.features.get(0);
+        assertThat(first.id).isEqualTo(1234567890123L);
+        assertThat(first.type).isEqualTo(1);
+        assertThat(first.geometry).containsExactly(MOVE_TO_ONE, zigZag(1024), zigZag(2048));
+        assertThat(events.properties(first)).containsExactly(
+                Map.entry("eventId", 1234567890123L), Map.entry("avgTone", 2.5));
+
+        DecodedFeature second = events.features.get(1);
+        assertThat(second.id).isEqualTo(7L);
+        assertThat(second.geometry).containsExactly(MOVE_TO_ONE, zigZag(3072), zigZag(512));
+        // Одинаковый тон второго события ссылается на ту же запись словаря
+        assertThat(second.tags).containsExactly(0, 2, 1, 1);
+    }
+
+    @Test
+    @DisplayName("Слой кластеров без идентификатора, null-свойства пропускаются, слои идут в порядке создания")
+    void clustersLayer() {
+        MvtEncoder encoder = new MvtEncoder(EXTENT);
+        encoder.layer("events").addPoint(1L, 0.5, 0.5, properties("eventId", 1L, "avgTone", null));
+        MvtEncoder.Layer clusters = encoder.layer("clusters");
+        clusters.addPoint(null, 0.1, 0.9, properties("clusterCount", 42, "avgTone", -1.5));
+        clusters.addPoint(null, 0.2, 0.8, properties("clusterCount", 3, "avgTone", null));
+
+        List<DecodedLayer> layers = decodeTile(encoder.encode());
+
+        assertThat(layers).extracting(layer -> layer.name).containsExactly("events", "clusters");
+        assertThat(layers.get(0).keys).containsExactly("eventId");
+
+        DecodedLayer decoded = layers.get(1);
+        assertThat(decoded.keys).containsExactly("clusterCount", "avgTone");
+        assertThat(decoded.features).allSatisfy(feature -> assertThat(feature.id).isNull());
+        assertThat(decoded.properties(decoded.features.get(0))).containsExactly(
+                Map.entry("clusterCount", 42L), Map.entry("avgTone", -1.5));
+        assertThat(decoded.properties(decoded.features.get(1))).containsExactly(Map.entry("clusterCount", 3L));
+        assertThat(decoded.features.get(0).geometry).containsExactly(MOVE_TO_ONE, zigZag(410), zigZag(3686));
+    }
+
+    @Test
+    @DisplayName("Отрицательные целые пишутся как sint, неотрицательные - как uint, дробные - как double")
+    void valueEncoding() {
+        MvtEncoder encoder = new MvtEncoder(EXTENT);
+        encoder.layer("values").addPoint(null, 0, 0,
+                properties("negativeLong", -5L, "negativeInt", -300, "zero", 0, "negativeDouble", -0.25));
+
+        DecodedLayer layer = decodeTile(encoder.encode()).getFirst();
+
+        assertThat(layer.values).containsExactly(-5L, -300L, 0L, -0.25);
+        assertThat(layer.valueFields).containsExactly(6, 6, 5, 3);
+    }
+
+    @Test
+    @DisplayName("Integer и Long с одним числом делят запись словаря значений")
+    void integerAndLongShareDictionaryEntry() {
+        MvtEncoder encoder = new MvtEncoder(EXTENT);
+        MvtEncoder.Layer layer = encoder.layer("clusters");
+        layer.addPoint(null, 0, 0, properties("count", 5));
+        layer.addPoint(null, 0, 0, properties("count", 5L));
+
+        DecodedLayer decoded = decodeTile(encoder.encode()).getFirst();
+
+        assertThat(decoded.values).containsExactly(5L);
+        assertThat(decoded.features).extracting(feature -> feature.tags).containsOnly(List.of(0, 0));
+    }
+
+    @Test
+    @DisplayName("Точка на краю тайла получает координату extent, точка за краем - отрицательную")
+    void tileEdges() {
+        MvtEncoder encoder = new MvtEncoder(EXTENT);
+        MvtEncoder.Layer layer = encoder.layer("events");
+        layer.addPoint(1L, 1.0, 0.0, Map.of());
+        layer.addPoint(2L, 0.0, 1.0, Map.of());
+        layer.addPoint(3L, -0.001, 1.001, Map.of());
+
+        DecodedLayer decoded = decodeTile(encoder.encode()).getFirst();
+
+        assertThat(decoded.features.get(0).point()).containsExactly(4096, 0);
+        assertThat(decoded.features.get(1).point()).containsExactly(0, 4096);
+        assertThat(decoded.features.get(2).point()).containsExactly(-4, 4100);
+    }
+
+    @Test
+    @DisplayName("Отрицательный идентификатор не записывается")
+    void negativeIdOmitted() {
+        MvtEncoder encoder = new MvtEncoder(EXTENT);
+        encoder.layer("events").addPoint(-1L, 0.5, 0.5, Map.of());
+
+        assertThat(decodeTile(encoder.encode()).getFirst().features.getFirst().id).isNull();
+    }
+
+    @ParameterizedTest(name = "z={0}, x={1}, y={2}")
+    @CsvSource({"-1, 0, 0", "30, 0, 0", "0, 1, 0", "0, 0, 1", "3, 8, 0", "3, 0, -1", "3, -1, 0"})
+    @DisplayName("Тайл с координатами вне диапазона уровня отклоняется")
+    void invalidTileRejected(int z, int x, int y) {
+        VectorTileServiceImpl service = new VectorTileServiceImpl(null, null, null, null, null, null);
+
+        assertThatThrownBy(() -> service.getEventsTile(new TileCoordinates(z, x, y), null))
+                .isInstanceOf(InvalidApiParameterException.class);
+    }
+
+    private static Map<String, Object> properties(Object... keysAndValues) {
+        Map<String, Object> properties = new LinkedHashMap<>();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            properties.put((String) keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return properties;
+    }
+
+    private static int zigZag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int unZigZag(long value) {
+        return (int) ((value >>> 1) ^ -(value & 1));
+    }
+
+    private static List<DecodedLayer> decodeTile(byte[] bytes) {
+        List<DecodedLayer> layers = new ArrayList<>();
+        ProtoReader tile = new ProtoReader(bytes);
+        while (tile.hasMore()) {
+            assertThat(tile.nextField()).isEqualTo(3);
+            layers.add(decodeLayer(tile.readBytes()));
+        }
+        return layers;
+    }
+
+    private static DecodedLayer decodeLayer(byte[] bytes) {
+        DecodedLayer layer = new DecodedLayer();
+        ProtoReader reader = new ProtoReader(bytes);
+        while (reader.hasMore()) {
+            switch (reader.nextField()) {
+                case 1 -> layer.name = new String(reader.readBytes(), StandardCharsets.UTF_8);
+                case 2 -> layer.features.add(decodeFeature(reader.readBytes()));
+                case 3 -> layer.keys.add(new String(reader.readBytes(), StandardCharsets.UTF_8));
+                case 4 -> decodeValue(reader.readBytes(), layer);
+                case 5 -> layer.extent = (int) reader.readVarint();
+                case 15 -> layer.version = (int) reader.readVarint();
+                default -> throw new AssertionError("Неожиданное поле слоя " + reader.field);
+            }
+        }
+        return layer;
+    }
+
+    private static DecodedFeature decodeFeature(byte[] bytes) {
+        DecodedFeature feature = new DecodedFeature();
+        ProtoReader reader = new ProtoReader(bytes);
+        while (reader.hasMore()) {
+            switch (reader.nextField()) {
+                case 1 -> feature.id = reader.readVarint();
+                case 2 -> feature.tags.addAll(readPackedInts(reader.readBytes()));
+                case 3 -> feature.type = (int) reader.readVarint();
+                case 4 -> feature.geometry.addAll(readPackedInts(reader.readBytes()));
+                default -> throw new AssertionError("Неожиданное поле объекта " + reader.field);
+            }
+        }
+        return feature;
+    }
+
+    private static void decodeValue(byte[] bytes, DecodedLayer layer) {
+        ProtoReader reader = new ProtoReader(bytes);
+        int field = reader.nextField();
+        Object value = switch (field) {
+            // Ветки приводятся к Object, иначе switch расширит long до double
+            case 3 -> (Object) Double.longBitsToDouble(reader.readFixed64());
+            case 5 -> (Object) reader.readVarint();
+            case 6 -> {
+                long zigZag = reader.readVarint();
+                yield (Object) ((zigZag >>> 1) ^ -(zigZag & 1));
+            }
+            default -> throw new AssertionError("Неожиданный тип значения " + field);
+        };
+        assertThat(reader.hasMore()).isFalse();
+        layer.values.add(value);
+        layer.valueFields.add(field);
+    }
+
+    private static List<Integer> readPackedInts(byte[] bytes) {
+        List<Integer> values = new ArrayList<>();
+        ProtoReader reader = new ProtoReader(bytes);
+        while (reader.hasMore()) {
+            values.add((int) reader.readVarint());
+        }
+        return values;
+    }
+
+    /**
+     * Разобранный слой тайла.
+     */
+    private static final class DecodedLayer {
+
+        private String name;
+        private int version;
+        private int extent;
+        private final List<String> keys = new ArrayList<>();
+        private final List<Object> values = new ArrayList<>();
+        private final List<Integer> valueFields = new ArrayList<>();
+        private final List<DecodedFeature> features = new ArrayList<>();
+
+        Map<String, Object> properties(DecodedFeature feature) {
+            Map<String, Object> properties = new LinkedHashMap<>();
+            for (int i = 0; i < feature.tags.size(); i += 2) {
+                properties.put(keys.get(feature.tags.get(i)), values.get(feature.tags.get(i + 1)));
+            }
+            return properties;
+        }
+    }
+
+    /**
+     * Разобранный объект слоя.
+     */
+    private static final class DecodedFeature {
+
+        private Long id;
+        private int type;
+        private final List<Integer> tags = new ArrayList<>();
+        private final List<Integer> geometry = new ArrayList<>();
+
+        /**
+         * @return координаты точки [x, y] в единицах extent
+         */
+        List<Integer> point() {
+            assertThat(geometry).hasSize(3);
+            assertThat(geometry.getFirst()).isEqualTo(MOVE_TO_ONE);
+            return List.of(unZigZag(geometry.get(1)), unZigZag(geometry.get(2)));
+        }
+    }
+
+    /**
+     * Минимальный читатель protobuf: varint, fixed64 и поля с длиной.
+     */
+    private static final class ProtoReader {
+
+        private final byte[] bytes;
+        private int position;
+        private int field;
+        private int wireType;
+
+        ProtoReader(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        boolean hasMore() {
+            return position < bytes.length;
+        }
+
+        int nextField() {
+            long tag = readVarint();
+            field = (int) (tag >>> 3);
+            wireType = (int) (tag & 0x7);
+            return field;
+        }
+
+        long readVarint() {
+            long value = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte current = bytes[position++];
+                value |= (long) (current & 0x7F) << shift;
+                if ((current & 0x80) == 0) {
+                    return value;
+                }
+            }
+        }
+
+        long readFixed64() {
+            assertThat(wireType).isEqualTo(1);
+            long value = 0;
+            for (int i = 0; i < Long.BYTES; i++) {
+                value |= (long) (bytes[position++] & 0xFF) << (8 * i);
+            }
+            return value;
+        }
+
+        byte[] readBytes() {
+            assertThat(wireType).isEqualTo(2);
+            int length = (int) readVarint();
+            byte[] result = new byte[length];
+            System.arraycopy(bytes, position, result, 0, length);
+            position += length;
+            return result;
+        }
+    }
+}
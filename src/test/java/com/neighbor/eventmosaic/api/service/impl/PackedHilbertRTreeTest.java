@@ -0,0 +1,216 @@
+package com.neighbor.eventmosaic.api.service.impl;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Результаты запросов {@link PackedHilbertRTree} сверяются с полным перебором точек.
+ */
+class PackedHilbertRTreeTest {
+
+    private static final double[] WORLD = {-90, -180, 90, 180};
+
+    @Test
+    @DisplayName("Пустое дерево ничего не находит")
+    void emptyTree() {
+        Points points = new Points(new double[0], new double[0], new long[0]);
+
+        assertThat(points.query(null, Long.MIN_VALUE, Long.MAX_VALUE)).isEmpty();
+        assertThat(points.query(WORLD, Long.MIN_VALUE, Long.MAX_VALUE)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Одна точка находится только областью и диапазоном ключа, которые ее содержат")
+    void singlePoint() {
+        Points points = new Points(new double[]{55.75}, new double[]{37.62}, new long[]{100});
+
+        assertThat(points.query(null, Long.MIN_VALUE, Long.MAX_VALUE)).containsExactly(0);
+        assertThat(points.query(new double[]{55.75, 37.62, 55.75, 37.62}, 100, 100)).containsExactly(0);
+        assertThat(points.query(new double[]{50, 30, 60, 40}, 101, 200)).isEmpty();
+        assertThat(points.query(new double[]{0, 0, 10, 10}, 0, 200)).isEmpty();
+    }
+
+    @ParameterizedTest(name = "{0} точек")
+    @ValueSource(ints = {16, 17, 255, 256, 257, 5000})
+    @DisplayName("Запросы совпадают с перебором на границах заполнения узлов")
+    void matchesBruteForce(int size) {
+        Random random = new Random(size);
+        Points points = randomPoints(random, size);
+
+        assertThat(points.query(null, Long.MIN_VALUE, Long.MAX_VALUE)).hasSize(size);
+        for (int i = 0; i < 200; i++) {
+            double[] bbox = randomBox(random, false);
+            long minKey = random.nextInt(1000);
+            long maxKey = minKey + random.nextInt(1000);
+            assertThat(points.query(bbox, minKey, maxKey))
+                    .as("bbox %s, ключи %d - %d", Arrays.toString(bbox), minKey, maxKey)
+                    .containsExactlyInAnyOrderElementsOf(points.bruteForce(bbox, minKey, maxKey));
+        }
+    }
+
+    @Test
+    @DisplayName("Область через антимеридиан находит точки с обеих сторон и не находит точки между ними")
+    void antimeridianBox() {
+        Points points = new Points(
+                new double[]{10, 10, 10, -10, 30},
+                new double[]{179.5, -179.5, 0, 175, -175},
+                new long[]{1, 2, 3, 4, 5});
+
+        double[] bbox = {-20, 170, 20, -170};
+
+        assertThat(points.query(bbox, Long.MIN_VALUE, Long.MAX_VALUE)).containsExactlyInAnyOrder(0, 1, 3);
+    }
+
+    @Test
+    @DisplayName("Случайные области через антимеридиан совпадают с перебором")
+    void antimeridianMatchesBruteForce() {
+        Random random = new Random(42);
+        Points points = randomPoints(random, 3000);
+
+        for (int i = 0; i < 200; i++) {
+            double[] bbox = randomBox(random, true);
+            assertThat(points.query(bbox, Long.MIN_VALUE, Long.MAX_VALUE))
+                    .containsExactlyInAnyOrderElementsOf(points.bruteForce(bbox, Long.MIN_VALUE, Long.MAX_VALUE));
+        }
+    }
+
+    @Test
+    @DisplayName("Диапазон ключа отсекает точки без ошибок на границах узлов")
+    void keyRangePruning() {
+        // Ключ растет вдоль кривой, поэтому у узлов узкие диапазоны ключа и запрос отсекает большинство поддеревьев
+        Random random = new Random(7);
+        int size = 4096;
+        double[] lats = new double[size];
+        double[] lons = new double[size];
+        for (int i = 0; i < size; i++) {
+            lats[i] = random.nextDouble() * 180 - 90;
+            lons[i] = random.nextDouble() * 360 - 180;
+        }
+        int[] order = PackedHilbertRTree.hilbertOrder(lats, lons, size);
+        long[] keys = new long[size];
+        for (int i = 0; i < size; i++) {
+            keys[order[i]] = i;
+        }
+        Points points = new Points(lats, lons, keys);
+
+        for (long[] range : new long[][]{{0, 0}, {15, 16}, {16, 31}, {255, 257}, {1000, 1999}, {4095, 4095}}) {
+            assertThat(points.query(null, range[0], range[1]))
+                    .containsExactlyInAnyOrderElementsOf(points.bruteForce(null, range[0], range[1]));
+        }
+        assertThat(points.query(null, 4096, Long.MAX_VALUE)).isEmpty();
+        assertThat(points.query(null, Long.MIN_VALUE, -1)).isEmpty();
+        assertThat(points.query(WORLD, 100, 99)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Точки возвращаются в порядке кривой")
+    void rowsInCurveOrder() {
+        Points points = randomPoints(new Random(3), 2000);
+        PackedHilbertRTree.Query query = points.tree.query(new double[]{-45, -90, 45, 90}, Long.MIN_VALUE, Long.MAX_VALUE);
+
+        int previous = -1;
+        for (int row = query.nextRow(); row >= 0; row = query.nextRow()) {
+            assertThat(row).isGreaterThan(previous);
+            previous = row;
+        }
+    }
+
+    private static Points randomPoints(Random random, int size) {
+        double[] lats = new double[size];
+        double[] lons = new double[size];
+        long[] keys = new long[size];
+        for (int i = 0; i < size; i++) {
+            lats[i] = random.nextDouble() * 180 - 90;
+            lons[i] = random.nextDouble() * 360 - 180;
+            keys[i] = random.nextInt(2000);
+        }
+        return new Points(lats, lons, keys);
+    }
+
+    private static double[] randomBox(Random random, boolean crossAntimeridian) {
+        double minLat = random.nextDouble() * 180 - 90;
+        double maxLat = minLat + random.nextDouble() * (90 - minLat);
+        double minLon;
+        double maxLon;
+        if (crossAntimeridian) {
+            minLon = 180 - random.nextDouble() * 60;
+            maxLon = -180 + random.nextDouble() * 60;
+        } else {
+            minLon = random.nextDouble() * 360 - 180;
+            maxLon = minLon + random.nextDouble() * (180 - minLon);
+        }
+        return new double[]{minLat, minLon, maxLat, maxLon};
+    }
+
+    /**
+     * Точки в исходном порядке и дерево над их копией в порядке кривой.
+     */
+    private static final class Points {
+
+        private final double[] lats;
+        private final double[] lons;
+        private final long[] keys;
+        private final int[] order;
+        private final PackedHilbertRTree tree;
+
+        Points(double[] lats, double[] lons, long[] keys) {
+            this.lats = lats;
+            this.lons = lons;
+            this.keys = keys;
+
+            int size = lats.length;
+            order = PackedHilbertRTree.hilbertOrder(lats, lons, size);
+            double[] sortedLats = new double[size];
+            double[] sortedLons = new double[size];
+            long[] sortedKeys = new long[size];
+            for (int i = 0; i < size; i++) {
+                sortedLats[i] = lats[order[i]];
+                sortedLons[i] = lons[order[i]];
+                sortedKeys[i] = keys[order[i]];
+            }
+            tree = new PackedHilbertRTree(sortedLats, sortedLons, sortedKeys, size);
+        }
+
+        /**
+         * @return исходные номера найденных точек
+         */
+        List<Integer> query(double[] bbox, long minKey, long maxKey) {
+            List<Integer> found = new ArrayList<>();
+            PackedHilbertRTree.Query query = tree.query(bbox, minKey, maxKey);
+            for (int row = query.nextRow(); row >= 0; row = query.nextRow()) {
+                found.add(order[row]);
+            }
+            return found;
+        }
+
+        List<Integer> bruteForce(double[] bbox, long minKey, long maxKey) {
+            List<Integer> found = new ArrayList<>();
+            for (int i = 0; i < lats.length; i++) {
+                if (keys[i] >= minKey && keys[i] <= maxKey && contains(bbox, lats[i], lons[i])) {
+                    found.add(i);
+                }
+            }
+            return found;
+        }
+
+        private static boolean contains(double[] bbox, double lat, double lon) {
+            if (bbox == null) {
+                return true;
+            }
+            boolean latInside = lat >= bbox[0] && lat <= bbox[2];
+            boolean lonInside = bbox[1] <= bbox[3]
+                    ? lon >= bbox[1] && lon <= bbox[3]
+                    : lon >= bbox[1] || lon <= bbox[3];
+            return latInside && lonInside;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.neighbor.eventmosaic.api.service.impl;
+
+import com.neighbor.eventmosaic.api.config.ApiConfigProperties;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Выравнивание окна по умолчанию {@link ParameterParsingServiceImpl#alignUp} по границам интервала от полуночи UTC.
+ */
+class ParameterParsingServiceImplTest {
+
+    @ParameterizedTest(name = "{0} мин: {1} -> {2}")
+    @CsvSource({
+            "15, 2025-05-01T10:07:30Z,       2025-05-01T10:15:00Z",
+            "15, 2025-05-01T00:00:00.001Z,   2025-05-01T00:15:00Z",
+            "15, 2025-05-01T23:50:00Z,       2025-05-02T00:00:00Z",
+            // 7 минут не делят сутки: последняя граница суток 23:55, дальше - следующая полночь, а не 00:02
+            "7,  2025-05-01T23:53:00Z,       2025-05-01T23:55:00Z",
+            "7,  2025-05-01T23:57:00Z,       2025-05-02T00:00:00Z",
+            "7,  2025-05-02T00:01:00Z,       2025-05-02T00:07:00Z"
+    })
+    @DisplayName("Время округляется вверх до границы интервала и не дальше следующей полуночи")
+    void alignedUp(int alignmentMinutes, String dateTime, String expected) {
+        assertThat(service(alignmentMinutes).alignUp(OffsetDateTime.parse(dateTime)))
+                .isEqualTo(OffsetDateTime.parse(expected));
+    }
+
+    @ParameterizedTest(name = "{0} мин: {1}")
+    @CsvSource({
+            "15, 2025-05-01T10:15:00Z",
+            "15, 2025-05-01T00:00:00Z",
+            "7,  2025-05-01T23:55:00Z"
+    })
+    @DisplayName("Момент точно на границе интервала не сдвигается")
+    void boundaryUnchanged(int alignmentMinutes, String dateTime) {
+        OffsetDateTime boundary = OffsetDateTime.parse(dateTime);
+
+        assertThat(service(alignmentMinutes).alignUp(boundary)).isEqualTo(boundary);
+    }
+
+    @Test
+    @DisplayName("Время с другим смещением выравнивается по суткам UTC и возвращается в UTC")
+    void nonUtcOffset() {
+        // 01:07 по Москве - 22:07 UTC предыдущих суток
+        OffsetDateTime aligned = service(15).alignUp(OffsetDateTime.parse("2025-05-02T01:07:00+03:00"));
+
+        assertThat(aligned).isEqualTo(OffsetDateTime.parse("2025-05-01T22:15:00Z"));
+        assertThat(aligned.getOffset()).isEqualTo(ZoneOffset.UTC);
+        // Полночь считается по UTC, а не по местному времени: 7-минутные границы от 00:00 UTC
+        assertThat(service(7).alignUp(OffsetDateTime.parse("2025-05-02T05:31:00+05:30")))
+                .isEqualTo(OffsetDateTime.parse("2025-05-02T00:07:00Z"));
+    }
+
+    @Test
+    @DisplayName("Окно по умолчанию заканчивается на границе интервала не раньше текущего момента")
+    void defaultWindowAligned() {
+        OffsetDateTime before = OffsetDateTime.now(ZoneOffset.UTC);
+
+        OffsetDateTime[] range = service(15).createDateRange((OffsetDateTime) null, null, 24);
+
+        assertThat(range[1]).isAfterOrEqualTo(before);
+        assertThat(range[1].getMinute() % 15).isZero();
+        assertThat(range[1].getSecond()).isZero();
+        assertThat(range[1].getNano()).isZero();
+        assertThat(range[0]).isEqualTo(range[1].minusHours(24));
+    }
+
+    private static ParameterParsingServiceImpl service(int alignmentMinutes) {
+        ApiConfigProperties properties = new ApiConfigProperties();
+        properties.setDefaultWindowAlignmentMinutes(alignmentMinutes);
+        return new ParameterParsingServiceImpl(properties);
+    }
+}
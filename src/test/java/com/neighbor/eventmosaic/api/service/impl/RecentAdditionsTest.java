@@ -0,0 +1,110 @@
+package com.neighbor.eventmosaic.api.service.impl;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Перечитывание пачек GDELT догрузкой хранилища окна: какие пачки запоминаются и с какого dateAdded
+ * начинается следующее чтение.
+ */
+class RecentAdditionsTest {
+
+    private static final long BATCH = 15 * 60 * 1000L;
+
+    @Test
+    @DisplayName("Пустой набор ничего не содержит и не знает последней пачки")
+    void empty() {
+        RecentAdditions recent = new RecentAdditions.Builder(0).build();
+
+        assertThat(recent.isEmpty()).isTrue();
+        assertThat(recent.contains(0, 0)).isFalse();
+        assertThatThrownBy(recent::newestDateAdded).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    @DisplayName("Осевшие пачки забываются, последняя пачка и неосевшие остаются")
+    void keepsNewestAndUnsettledBatches() {
+        RecentAdditions.Builder builder = new RecentAdditions.Builder(3 * BATCH);
+        builder.add(BATCH, 10);
+        builder.add(BATCH, 11);
+        builder.add(2 * BATCH, 5);
+        builder.add(3 * BATCH, 7);
+        builder.add(4 * BATCH, 1);
+        RecentAdditions recent = builder.build();
+
+        assertThat(recent.size()).isEqualTo(2);
+        assertThat(recent.contains(BATCH, 10)).isFalse();
+        assertThat(recent.contains(2 * BATCH, 5)).isFalse();
+        assertThat(recent.contains(3 * BATCH, 7)).isTrue();
+        assertThat(recent.contains(4 * BATCH, 1)).isTrue();
+        assertThat(recent.newestDateAdded()).isEqualTo(4 * BATCH);
+    }
+
+    @Test
+    @DisplayName("Последняя пачка перечитывается, даже если она давно осела")
+    void newestSettledBatchIsReread() {
+        RecentAdditions.Builder builder = new RecentAdditions.Builder(10 * BATCH);
+        builder.add(BATCH, 1);
+        builder.add(2 * BATCH, 3);
+        builder.add(2 * BATCH, 4);
+        RecentAdditions recent = builder.build();
+
+        assertThat(recent.size()).isEqualTo(2);
+        assertThat(recent.rereadFrom(10 * BATCH)).isEqualTo(2 * BATCH);
+    }
+
+    @Test
+    @DisplayName("Перечитывание начинается с самой ранней неосевшей пачки")
+    void rereadFromSettleBoundary() {
+        RecentAdditions.Builder builder = new RecentAdditions.Builder(2 * BATCH);
+        builder.add(2 * BATCH, 1);
+        builder.add(3 * BATCH, 2);
+        RecentAdditions recent = builder.build();
+
+        assertThat(recent.rereadFrom(2 * BATCH + 1)).isEqualTo(2 * BATCH + 1);
+        assertThat(recent.rereadFrom(5 * BATCH)).isEqualTo(3 * BATCH);
+    }
+
+    @Test
+    @DisplayName("Опоздавшее событие пачки с меньшим globalEventId не считается загруженным")
+    void lateLowerIdIsNew() {
+        RecentAdditions.Builder builder = new RecentAdditions.Builder(0);
+        builder.add(BATCH, 100);
+        builder.add(BATCH, 102);
+        RecentAdditions loaded = builder.build();
+
+        // Перечитывание той же пачки: 101 проиндексировано после прошлой догрузки
+        long[] reread = {100, 101, 102};
+        RecentAdditions.Builder next = new RecentAdditions.Builder(0);
+        int added = 0;
+        for (long eventId : reread) {
+            next.add(BATCH, eventId);
+            if (!loaded.contains(BATCH, eventId)) {
+                added++;
+            }
+        }
+
+        assertThat(added).isEqualTo(1);
+        assertThat(next.build().contains(BATCH, 101)).isTrue();
+    }
+
+    @Test
+    @DisplayName("Поиск различает одинаковый globalEventId в разных пачках и растет за пределы начальной емкости")
+    void containsComparesBothKeys() {
+        RecentAdditions.Builder builder = new RecentAdditions.Builder(0);
+        for (int i = 0; i < 100; i++) {
+            builder.add(BATCH, i * 2);
+        }
+        RecentAdditions recent = builder.build();
+
+        assertThat(recent.size()).isEqualTo(100);
+        for (int i = 0; i < 100; i++) {
+            assertThat(recent.contains(BATCH, i * 2)).isTrue();
+            assertThat(recent.contains(BATCH, i * 2 + 1)).isFalse();
+            assertThat(recent.contains(2 * BATCH, i * 2)).isFalse();
+        }
+    }
+}
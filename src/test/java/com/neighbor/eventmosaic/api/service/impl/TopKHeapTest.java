@@ -0,0 +1,102 @@
+package com.neighbor.eventmosaic.api.service.impl;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Отбор k наибольших ключей {@link TopKHeap} сверяется с устойчивой сортировкой кандидатов.
+ */
+class TopKHeapTest {
+
+    @Test
+    @DisplayName("Куча нулевой емкости ничего не принимает")
+    void zeroCapacity() {
+        TopKHeap heap = new TopKHeap(0);
+
+        assertThat(heap.offer(10, 1)).isFalse();
+        assertThat(heap.size()).isZero();
+        assertThat(heap.drainDescending()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Отрицательная емкость работает как нулевая")
+    void negativeCapacity() {
+        TopKHeap heap = new TopKHeap(-5);
+
+        assertThat(heap.offer(10, 1)).isFalse();
+        assertThat(heap.drainDescending()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("При равных ключах остается кандидат, предложенный раньше")
+    void earlierOfferWinsTies() {
+        TopKHeap heap = new TopKHeap(2);
+
+        assertThat(heap.offer(5, 1)).isTrue();
+        assertThat(heap.offer(5, 2)).isTrue();
+        assertThat(heap.offer(5, 3)).isFalse();
+        assertThat(heap.drainDescending()).containsExactly(1, 2);
+    }
+
+    @Test
+    @DisplayName("Больший ключ вытесняет из равных более поздний кандидат")
+    void largerKeyEvictsLaterTie() {
+        TopKHeap heap = new TopKHeap(2);
+        heap.offer(1, 1);
+        heap.offer(1, 2);
+
+        assertThat(heap.offer(2, 3)).isTrue();
+        assertThat(heap.drainDescending()).containsExactly(3, 1);
+    }
+
+    @Test
+    @DisplayName("Значения извлекаются по убыванию ключа, ключи пишутся в keysOut в том же порядке")
+    void drainDescendingWithKeys() {
+        TopKHeap heap = new TopKHeap(4);
+        long[][] candidates = {{3, 30}, {9, 90}, {1, 10}, {7, 70}, {5, 50}, {9, 91}};
+        for (long[] candidate : candidates) {
+            heap.offer(candidate[0], candidate[1]);
+        }
+
+        long[] keys = new long[heap.size()];
+        long[] values = heap.drainDescending(keys);
+
+        assertThat(values).containsExactly(90, 91, 70, 50);
+        assertThat(keys).containsExactly(9, 9, 7, 5);
+        assertThat(heap.size()).isZero();
+        assertThat(heap.drainDescending()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Случайные кандидаты с повторами ключей совпадают с устойчивой сортировкой")
+    void matchesStableSort() {
+        Random random = new Random(5);
+        for (int round = 0; round < 200; round++) {
+            int count = random.nextInt(200);
+            int capacity = random.nextInt(20);
+            long[] keys = new long[count];
+            TopKHeap heap = new TopKHeap(capacity);
+            for (int i = 0; i < count; i++) {
+                keys[i] = random.nextInt(10);
+                heap.offer(keys[i], i);
+            }
+
+            // Значение кандидата - его номер: устойчивая сортировка по убыванию ключа ставит раньше предложенных
+            long[] expected = IntStream.range(0, count).boxed()
+                    .sorted(Comparator.comparingLong((Integer i) -> keys[i]).reversed())
+                    .limit(capacity)
+                    .mapToLong(Integer::longValue)
+                    .toArray();
+            long[] drainedKeys = new long[heap.size()];
+            assertThat(heap.drainDescending(drainedKeys)).containsExactly(expected);
+            assertThat(drainedKeys).containsExactly(Arrays.stream(expected).map(i -> keys[(int) i]).toArray());
+        }
+    }
+}